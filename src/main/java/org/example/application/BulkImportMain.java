@@ -0,0 +1,41 @@
+package org.example.application;
+
+import org.example.infrostructure.in.bulk.BulkImporter;
+import org.example.infrostructure.in.bulk.ImportReport;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.SQLException;
+import java.util.Properties;
+
+
+/**
+ * Загрузка файла операций партнеров: {@code BulkImportMain <файл операций> <файл результата>}.
+ * Прерванная загрузка продолжается с контрольной точки при повторном запуске с теми же файлами
+ */
+public class BulkImportMain {
+    public static void main(String[] args) throws IOException, SQLException {
+        if (args.length != 2) {
+            System.out.println("Использование: BulkImportMain <файл операций> <файл результата>");
+            return;
+        }
+        Path input = Paths.get(args[0]);
+        Path result = Paths.get(args[1]);
+
+        Properties properties = Components.loadProperties();
+        Components components = Components.create(properties);
+
+        BulkImporter importer = new BulkImporter(components.operationService,
+                Integer.parseInt(properties.getProperty("bulkImport.threads", "4")),
+                Integer.parseInt(properties.getProperty("bulkImport.batchSize", "1000")),
+                Integer.parseInt(properties.getProperty("bulkImport.chunkLines", "10000")),
+                Long.parseLong(properties.getProperty("bulkImport.regionBytes", "67108864")));
+        ImportReport report = importer.importFile(input, result);
+        System.out.printf("Обработано строк: %d, начиная со строки %d, за %d мс, %.0f строк/с%n",
+                report.getLines(), report.getResumedFromLine(), report.getElapsedMillis(), report.getThroughput());
+        System.out.printf("Успешно: %d, отклонено: %d, повтор id: %d, пользователь не найден: %d, ошибка формата: %d%n",
+                report.getSucceeded(), report.getDeclined(), report.getDuplicates(),
+                report.getUserNotFound(), report.getInvalid());
+    }
+}
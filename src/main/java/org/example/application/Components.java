@@ -0,0 +1,188 @@
+package org.example.application;
+
+import org.example.core.repositories.AuditableRepository;
+import org.example.core.repositories.ScheduledOperationRepository;
+import org.example.core.repositories.TransactionRepository;
+import org.example.core.repositories.UserRepository;
+import org.example.core.services.OperationService;
+import org.example.core.services.UserService;
+import org.example.infrostructure.IdempotencyRegistry;
+import org.example.infrostructure.SessionContext;
+import org.example.infrostructure.VelocityLimiter;
+import org.example.infrostructure.jdbc.ConnectionPool;
+import org.example.infrostructure.jdbc.ConnectionPoolSettings;
+import org.example.infrostructure.repositoryies.cache.CachingUserRepository;
+import org.example.infrostructure.repositoryies.collections.DurableCollectionsStore;
+import org.example.infrostructure.repositoryies.collections.FsyncPolicy;
+import org.example.infrostructure.repositoryies.postgres.AuditableRepositoryPostgresImpl;
+import org.example.infrostructure.repositoryies.postgres.ScheduledOperationRepositoryPostgresImpl;
+import org.example.infrostructure.repositoryies.postgres.TransactionRepositoryPostgresImpl;
+import org.example.infrostructure.repositoryies.postgres.UserRepositoryPostgresImpl;
+import org.example.infrostructure.repositoryies.postgres.WriteBehindAuditableRepository;
+import org.example.infrostructure.repositoryies.ring.RingBufferAuditableRepository;
+import org.example.infrostructure.repositoryies.ring.WaitStrategy;
+import org.example.infrostructure.scheduler.OperationScheduler;
+import org.example.infrostructure.services.AuthorisationService;
+import org.example.infrostructure.services.OperationServiceImpl;
+import org.example.infrostructure.services.OperationServicePostgresImpl;
+import org.example.infrostructure.services.UserServiceImpl;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.sql.SQLException;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Properties;
+import java.util.function.LongConsumer;
+
+/**
+ * Компоненты приложения, настроенные по файлу свойств. Общая сборка для консольного и HTTP входа
+ */
+final class Components {
+    final UserService userService;
+    final OperationService operationService;
+    final AuthorisationService authorisationService;
+    final SessionContext sessionContext;
+    /**
+     * Планировщик операций или null, если планировщик отключен
+     */
+    final OperationScheduler scheduler;
+
+    private Components(UserService userService, OperationService operationService,
+                       AuthorisationService authorisationService, SessionContext sessionContext,
+                       OperationScheduler scheduler) {
+        this.userService = userService;
+        this.operationService = operationService;
+        this.authorisationService = authorisationService;
+        this.sessionContext = sessionContext;
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * Загружает свойства приложения
+     */
+    static Properties loadProperties() throws IOException {
+        Properties properties = new Properties();
+        try (FileInputStream fis = new FileInputStream("src/main/resources/application.properties")) {
+            properties.load(fis);
+        }
+        return properties;
+    }
+
+    /**
+     * Создает репозитории, сервисы и реестр сессий по свойствам приложения
+     */
+    static Components create(Properties properties) throws IOException, SQLException {
+        UserRepository userRepository;
+        TransactionRepository transactionRepository;
+        AuditableRepository auditableRepository;
+        ScheduledOperationRepository scheduledOperationRepository;
+        OperationService operationService;
+
+        // Лимит частоты списаний проверяется в памяти процесса для любого хранилища
+        VelocityLimiter velocityLimiter = VelocityLimiter.unlimited();
+        if (Boolean.parseBoolean(properties.getProperty("velocity.enabled", "false"))) {
+            velocityLimiter = new VelocityLimiter(
+                    Integer.parseInt(properties.getProperty("velocity.maxDebits", "20")),
+                    Double.parseDouble(properties.getProperty("velocity.maxAmount", "100000")),
+                    Duration.ofMillis(Long.parseLong(properties.getProperty("velocity.windowMillis", "60000"))),
+                    Integer.parseInt(properties.getProperty("velocity.buckets", "6")),
+                    Integer.parseInt(properties.getProperty("velocity.expectedAccounts", "65536")),
+                    Clock.systemUTC());
+        }
+
+        // Создание репозиториев
+        if ("durable-memory".equals(properties.getProperty("storage", "postgres"))) {
+            DurableCollectionsStore store = new DurableCollectionsStore(
+                    Paths.get(properties.getProperty("storage.directory", "data")),
+                    FsyncPolicy.valueOf(properties.getProperty("storage.fsyncPolicy", "GROUP_COMMIT")),
+                    Long.parseLong(properties.getProperty("storage.groupCommitMillis", "5")),
+                    Long.parseLong(properties.getProperty("storage.snapshotIntervalMillis", "60000")));
+            store.start();
+            userRepository = store.userRepository();
+            transactionRepository = store.transactionRepository();
+            auditableRepository = store.auditableRepository();
+            scheduledOperationRepository = store.scheduledOperationRepository();
+            if (Boolean.parseBoolean(properties.getProperty("audit.ringBuffer", "false"))) {
+                auditableRepository = ringBuffer(store.auditableRepository(), properties);
+            }
+            operationService = new OperationServiceImpl(userRepository, transactionRepository, auditableRepository,
+                    velocityLimiter, store.accountAggregates(), store.atomicWrites());
+        } else {
+            // Создание пула подключений к бд
+            ConnectionPool connectionPool = new ConnectionPool(ConnectionPoolSettings.fromProperties(properties));
+
+            userRepository = new UserRepositoryPostgresImpl(connectionPool);
+            LongConsumer balanceListener = userId -> { };
+            if (Boolean.parseBoolean(properties.getProperty("userCache.enabled", "false"))) {
+                // Кэш пользователей перед бд, сбрасывается после изменения баланса операциями
+                CachingUserRepository userCache = new CachingUserRepository(userRepository,
+                        Integer.parseInt(properties.getProperty("userCache.maximumSize", "10000")),
+                        Duration.ofMillis(Long.parseLong(properties.getProperty("userCache.ttlMillis", "300000"))),
+                        Clock.systemUTC());
+                userRepository = userCache;
+                balanceListener = userCache::evict;
+            }
+            transactionRepository = new TransactionRepositoryPostgresImpl(connectionPool);
+            scheduledOperationRepository = new ScheduledOperationRepositoryPostgresImpl(connectionPool);
+            if (Boolean.parseBoolean(properties.getProperty("audit.ringBuffer", "false"))) {
+                auditableRepository = ringBuffer(new AuditableRepositoryPostgresImpl(connectionPool), properties);
+            } else if (Boolean.parseBoolean(properties.getProperty("audit.writeBehind", "false"))) {
+                WriteBehindAuditableRepository writeBehindRepository = new WriteBehindAuditableRepository(connectionPool,
+                        Integer.parseInt(properties.getProperty("audit.queueCapacity", "10000")),
+                        Integer.parseInt(properties.getProperty("audit.batchSize", "256")),
+                        Long.parseLong(properties.getProperty("audit.flushIntervalMillis", "50")),
+                        Long.parseLong(properties.getProperty("audit.offerTimeoutMillis", "100")));
+                // Дописываем очередь аудита при завершении приложения
+                Runtime.getRuntime().addShutdownHook(new Thread(writeBehindRepository::close));
+                auditableRepository = writeBehindRepository;
+            } else {
+                auditableRepository = new AuditableRepositoryPostgresImpl(connectionPool);
+            }
+            // Пополнение и списание одним запросом к бд
+            operationService = new OperationServicePostgresImpl(connectionPool, transactionRepository, auditableRepository,
+                    new IdempotencyRegistry(), balanceListener, velocityLimiter);
+        }
+
+        // Запуск планировщика периодических операций, пропущенные за время простоя повторения выполняются сразу
+        OperationScheduler scheduler = null;
+        if (Boolean.parseBoolean(properties.getProperty("scheduler.enabled", "false"))) {
+            scheduler = new OperationScheduler(operationService, scheduledOperationRepository,
+                    Long.parseLong(properties.getProperty("scheduler.tickMillis", "1000")),
+                    Integer.parseInt(properties.getProperty("scheduler.batchSize", "1000")),
+                    Clock.systemDefaultZone());
+            scheduler.start();
+            Runtime.getRuntime().addShutdownHook(new Thread(scheduler::close));
+        }
+
+        // Создание реестра сессий
+        SessionContext sessionContext = new SessionContext(
+                Duration.ofMillis(Long.parseLong(properties.getProperty("session.idleTimeoutMillis", "1800000"))),
+                Long.parseLong(properties.getProperty("session.tickMillis", "1000")),
+                Integer.parseInt(properties.getProperty("session.wheelSize", "4096")),
+                Clock.systemUTC());
+        sessionContext.start();
+
+        // Создание сервисов
+        UserService userService = new UserServiceImpl(userRepository);
+        AuthorisationService authorisationService =
+                new AuthorisationService(userRepository, auditableRepository, sessionContext);
+
+        return new Components(userService, operationService, authorisationService, sessionContext, scheduler);
+    }
+
+    /**
+     * Ставит перед репозиторием аудита кольцевой буфер с записью пачками в фоновом потоке
+     */
+    private static AuditableRepository ringBuffer(AuditableRepository auditableRepository, Properties properties) {
+        RingBufferAuditableRepository ringBufferRepository = new RingBufferAuditableRepository(auditableRepository,
+                Integer.parseInt(properties.getProperty("audit.ringCapacity", "16384")),
+                Integer.parseInt(properties.getProperty("audit.ringMaxBatchSize", "1024")),
+                WaitStrategy.valueOf(properties.getProperty("audit.ringWaitStrategy", "BLOCKING")));
+        ringBufferRepository.start();
+        // Дописываем буфер аудита при завершении приложения
+        Runtime.getRuntime().addShutdownHook(new Thread(ringBufferRepository::close));
+        return ringBufferRepository;
+    }
+}
@@ -0,0 +1,41 @@
+package org.example.application;
+
+import org.example.infrostructure.in.binary.BinaryServer;
+import org.example.infrostructure.in.http.HttpApi;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.sql.SQLException;
+import java.util.Properties;
+
+
+/**
+ * Запуск приложения с HTTP/JSON API вместо консольного интерфейса и, по настройке,
+ * с сервером двоичного протокола для внутренних пакетных клиентов
+ */
+public class HttpMain {
+    public static void main(String[] args) throws IOException, SQLException {
+        Properties properties = Components.loadProperties();
+        Components components = Components.create(properties);
+
+        // Создание и запуск HTTP API, запросы обрабатываются в виртуальных потоках
+        HttpApi httpApi = new HttpApi(
+                new InetSocketAddress(Integer.parseInt(properties.getProperty("http.port", "8080"))),
+                Integer.parseInt(properties.getProperty("http.backlog", "1024")),
+                components.authorisationService, components.userService,
+                components.operationService, components.sessionContext, components.scheduler);
+        httpApi.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(httpApi::close));
+        System.out.printf("HTTP API запущен на порту %d%n", httpApi.getPort());
+
+        // Запуск сервера двоичного протокола
+        if (Boolean.parseBoolean(properties.getProperty("binary.enabled", "false"))) {
+            BinaryServer binaryServer = new BinaryServer(
+                    new InetSocketAddress(Integer.parseInt(properties.getProperty("binary.port", "9090"))),
+                    components.authorisationService, components.operationService, components.sessionContext);
+            binaryServer.start();
+            Runtime.getRuntime().addShutdownHook(new Thread(binaryServer::close));
+            System.out.printf("Сервер двоичного протокола запущен на порту %d%n", binaryServer.getPort());
+        }
+    }
+}
@@ -1,24 +1,9 @@
 package org.example.application;
 
-import org.example.core.repositories.AuditableRepository;
-import org.example.core.repositories.TransactionRepository;
-import org.example.core.repositories.UserRepository;
-import org.example.core.services.OperationService;
-import org.example.core.services.UserService;
 import org.example.infrostructure.in.console.ConsoleUI;
-import org.example.infrostructure.repositoryies.postgres.AuditableRepositoryPostgresImpl;
-import org.example.infrostructure.repositoryies.postgres.TransactionRepositoryPostgresImpl;
-import org.example.infrostructure.repositoryies.postgres.UserRepositoryPostgresImpl;
-import org.example.infrostructure.services.AuthorisationService;
-import org.example.infrostructure.services.OperationServiceImpl;
-import org.example.infrostructure.services.UserServiceImpl;
 
-import java.io.FileInputStream;
 import java.io.IOException;
-import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
-import java.util.Properties;
 
 
 /**
@@ -26,32 +11,11 @@ import java.util.Properties;
  */
 public class Main {
     public static void main(String[] args) throws IOException, SQLException {
-
-        // Создание подключение к бд
-        Properties properties = new Properties();
-        FileInputStream fis = new FileInputStream("src/main/resources/application.properties");
-        properties.load(fis);
-
-        String url = properties.getProperty("url");
-        String username = properties.getProperty("username");
-        String password = properties.getProperty("password");
-
-        Connection connection = DriverManager.getConnection(url, username, password);
-
-
-        // Создание репозиториев
-        UserRepository userRepository = new UserRepositoryPostgresImpl(connection);
-        TransactionRepository transactionRepository = new TransactionRepositoryPostgresImpl(connection);
-        AuditableRepository auditableRepository = new AuditableRepositoryPostgresImpl(connection);
-
-
-        // Создание сервисов
-        OperationService operationService = new OperationServiceImpl(userRepository, transactionRepository, auditableRepository);
-        UserService userService = new UserServiceImpl(userRepository);
-        AuthorisationService authorisationService = new AuthorisationService(userRepository, auditableRepository);
+        Components components = Components.create(Components.loadProperties());
 
         // Создание и запуск консольного пользовательского интерфейса
-        ConsoleUI consoleUI = new ConsoleUI(authorisationService, userService, operationService);
+        ConsoleUI consoleUI = new ConsoleUI(components.authorisationService, components.userService,
+                components.operationService, components.sessionContext, components.scheduler);
         consoleUI.start();
     }
-}
\ No newline at end of file
+}
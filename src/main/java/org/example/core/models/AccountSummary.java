@@ -0,0 +1,72 @@
+package org.example.core.models;
+
+import lombok.Data;
+import org.example.core.models.enums.SummaryPeriod;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Итоги операций пользователя за день или месяц
+ */
+@Data
+public class AccountSummary {
+    /**
+     * Идентификатор пользователя
+     */
+    private final long userId;
+
+    /**
+     * Период итогов, определенный перечислением {@link SummaryPeriod}
+     */
+    private final SummaryPeriod period;
+
+    /**
+     * Первый день периода
+     */
+    private final LocalDate periodStart;
+
+    /**
+     * Сумма успешных пополнений
+     */
+    private final double credited;
+
+    /**
+     * Сумма успешных списаний
+     */
+    private final double debited;
+
+    /**
+     * Количество успешных пополнений
+     */
+    private final long creditCount;
+
+    /**
+     * Количество успешных списаний
+     */
+    private final long debitCount;
+
+    /**
+     * Количество отклоненных операций
+     */
+    private final long declinedCount;
+
+    /**
+     * Время последней операции периода или null, если операций не было
+     */
+    private final LocalDateTime lastActivity;
+
+    /**
+     * Возвращает пустые итоги периода, в котором не было операций
+     */
+    public static AccountSummary empty(long userId, SummaryPeriod period, LocalDate periodStart) {
+        return new AccountSummary(userId, period, periodStart, 0, 0, 0, 0, 0, null);
+    }
+
+    /**
+     * Возвращает первый день периода, которому принадлежит дата
+     */
+    public static LocalDate periodStart(SummaryPeriod period, LocalDate date) {
+        return period == SummaryPeriod.DAY ? date : date.withDayOfMonth(1);
+    }
+}
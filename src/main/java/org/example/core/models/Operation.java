@@ -0,0 +1,46 @@
+package org.example.core.models;
+
+import lombok.Data;
+import org.example.core.models.enums.TransactionType;
+
+/**
+ * Запрос на пополнение или списание в составе пакета операций
+ */
+@Data
+public class Operation {
+    /**
+     * Идентификатор пользователя, чей счет меняется
+     */
+    private final long userId;
+
+    /**
+     * Тип операции, определенный перечислением {@link TransactionType}
+     */
+    private final TransactionType type;
+
+    /**
+     * Сумма операции
+     */
+    private final float amount;
+
+    /**
+     * Идентификатор операции, переданный клиентом, или null, если проверка повтора не нужна
+     */
+    private final Long operationId;
+
+    public static Operation credit(long userId, float amount) {
+        return new Operation(userId, TransactionType.CREDIT, amount, null);
+    }
+
+    public static Operation credit(long userId, float amount, long operationId) {
+        return new Operation(userId, TransactionType.CREDIT, amount, operationId);
+    }
+
+    public static Operation debit(long userId, float amount) {
+        return new Operation(userId, TransactionType.DEBIT, amount, null);
+    }
+
+    public static Operation debit(long userId, float amount, long operationId) {
+        return new Operation(userId, TransactionType.DEBIT, amount, operationId);
+    }
+}
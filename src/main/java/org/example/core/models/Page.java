@@ -0,0 +1,32 @@
+package org.example.core.models;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * Страница постраничной выборки
+ *
+ * @param <T> тип записей на странице
+ */
+@Data
+public class Page<T> {
+    /**
+     * Записи страницы в порядке (дата и время, id)
+     */
+    private final List<T> items;
+
+    /**
+     * Курсор для запроса следующей страницы или null, если страница последняя
+     */
+    private final PageCursor nextCursor;
+
+    /**
+     * Проверяет, есть ли записи после этой страницы
+     *
+     * @return true, если есть следующая страница
+     */
+    public boolean hasNext() {
+        return nextCursor != null;
+    }
+}
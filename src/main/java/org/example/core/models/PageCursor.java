@@ -0,0 +1,33 @@
+package org.example.core.models;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * Курсор постраничной выборки: позиция последней выданной записи.
+ * Записи упорядочены по паре (дата и время, id), следующая страница начинается
+ * с первой записи строго после курсора
+ */
+@Data
+public class PageCursor {
+    /**
+     * Дата и время последней выданной записи
+     */
+    private final LocalDateTime dateTime;
+
+    /**
+     * Id последней выданной записи
+     */
+    private final long id;
+
+    /**
+     * Создает курсор, указывающий на переданную запись
+     *
+     * @param auditable последняя выданная запись
+     * @return Курсор после этой записи
+     */
+    public static PageCursor after(Auditable auditable) {
+        return new PageCursor(auditable.getDateTime(), auditable.getId());
+    }
+}
@@ -0,0 +1,79 @@
+package org.example.core.models;
+
+import lombok.Data;
+import org.example.core.models.enums.Recurrence;
+import org.example.core.models.enums.TransactionType;
+
+import java.time.LocalDateTime;
+
+/**
+ * Класс, представляющий запланированную операцию: разовое или периодическое пополнение
+ * или списание, например зарплату или подписку
+ */
+@Data
+public class ScheduledOperation {
+    /**
+     * Уникальный идентификатор запланированной операции
+     */
+    private long id;
+
+    /**
+     * Идентификатор пользователя, чей счет меняется
+     */
+    private final long userId;
+
+    /**
+     * Тип операции, определенный перечислением {@link TransactionType}
+     */
+    private final TransactionType type;
+
+    /**
+     * Сумма операции
+     */
+    private final float amount;
+
+    /**
+     * Периодичность операции, определенная перечислением {@link Recurrence}
+     */
+    private final Recurrence recurrence;
+
+    /**
+     * Время первого выполнения
+     */
+    private final LocalDateTime firstRun;
+
+    /**
+     * Количество уже выполненных повторений, оно же номер следующего
+     */
+    private long occurrence;
+
+    public ScheduledOperation(long userId, TransactionType type, float amount,
+                              Recurrence recurrence, LocalDateTime firstRun) {
+        this.userId = userId;
+        this.type = type;
+        this.amount = amount;
+        this.recurrence = recurrence;
+        this.firstRun = firstRun;
+    }
+
+    public ScheduledOperation(long id, long userId, TransactionType type, float amount,
+                              Recurrence recurrence, LocalDateTime firstRun, long occurrence) {
+        this(userId, type, amount, recurrence, firstRun);
+        this.id = id;
+        this.occurrence = occurrence;
+    }
+
+    /**
+     * @return Время следующего выполнения
+     */
+    public LocalDateTime getNextRun() {
+        return recurrence.runAt(firstRun, occurrence);
+    }
+
+    /**
+     * @return true, если после следующего выполнения операция больше не повторяется
+     */
+    public boolean isLastRun() {
+        return recurrence == Recurrence.ONCE;
+    }
+}
@@ -23,6 +23,12 @@ public class Transaction extends Auditable {
      */
     private float amount;
 
+    /**
+     * Id пользователя другой стороны перевода, у обеих транзакций перевода указывает друг на друга.
+     * У пополнений и списаний null
+     */
+    private Long counterpartyId;
+
     /**
      * Конструктор для создания объекта транзакции
      *
@@ -0,0 +1,36 @@
+package org.example.core.models.enums;
+
+import java.time.LocalDateTime;
+
+/**
+ * Перечисление периодичности запланированных операций
+ * {@link org.example.core.models.ScheduledOperation}
+ */
+public enum Recurrence {
+    ONCE,
+    DAILY,
+    WEEKLY,
+    MONTHLY;
+
+    /**
+     * Время выполнения с заданным номером. Считается от первого выполнения, а не от предыдущего,
+     * поэтому ежемесячная операция, назначенная на 31 число, в коротких месяцах выполняется в последний день,
+     * а в длинных снова 31 числа
+     *
+     * @param firstRun   время первого выполнения
+     * @param occurrence номер выполнения, начиная с 0
+     * @return Время выполнения
+     */
+    public LocalDateTime runAt(LocalDateTime firstRun, long occurrence) {
+        switch (this) {
+            case DAILY:
+                return firstRun.plusDays(occurrence);
+            case WEEKLY:
+                return firstRun.plusWeeks(occurrence);
+            case MONTHLY:
+                return firstRun.plusMonths(occurrence);
+            default:
+                return firstRun;
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package org.example.core.models.enums;
+
+/**
+ * Перечисление периодов, за которые накапливаются итоги счета
+ * {@link org.example.core.models.AccountSummary}
+ */
+public enum SummaryPeriod {
+    DAY,
+    MONTH
+}
@@ -4,11 +4,18 @@ import org.example.core.models.User;
 
 /**
  * Перечисление возвращаемых данных
- * {@link org.example.core.services.OperationService#credit(User, float, long)}
- * и {@link org.example.core.services.OperationService#debit(User, float, long)}
+ * {@link org.example.core.services.OperationService#credit(User, float, long)},
+ * {@link org.example.core.services.OperationService#debit(User, float, long)}
+ * и {@link org.example.core.services.OperationService#applyBatch(java.util.List)}
  */
 public enum TransacionReturns {
     SUCCESS,
     UNUNIQUE_ID,
-    NOT_ENOUGH_MONEY
+    NOT_ENOUGH_MONEY,
+    LIMIT_EXCEEDED,
+
+    /**
+     * Пользователь операции пакета не найден, операция не выполнена
+     */
+    USER_NOT_FOUND
 }
@@ -2,8 +2,11 @@ package org.example.core.repositories;
 
 import org.example.core.models.Action;
 import org.example.core.models.Auditable;
+import org.example.core.models.Page;
+import org.example.core.models.PageCursor;
 import org.example.core.models.Transaction;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 /**
@@ -21,6 +24,18 @@ public interface AuditableRepository {
 
     void addAuditable(Auditable auditable);
 
+    /**
+     * Добавляет пачку действий в репозиторий.
+     * Реализация может записать пачку за одно обращение к хранилищу
+     *
+     * @param auditables действия для добавления
+     */
+    default void addAuditables(List<? extends Auditable> auditables) {
+        for (Auditable auditable : auditables) {
+            addAuditable(auditable);
+        }
+    }
+
     /**
      * Находит аудит по его уникальному id
      *
@@ -37,6 +52,26 @@ public interface AuditableRepository {
      */
     List<Auditable> findAllByUserId(long userId);
 
+    /**
+     * Возвращает аудит пользователя за период, упорядоченный по дате и времени
+     *
+     * @param userId id пользователя, чей аудит требуется найти
+     * @param from   начало периода, включительно
+     * @param to     конец периода, включительно
+     * @return Список аудита пользователя за указанный период
+     */
+    List<Auditable> findByUserIdBetween(long userId, LocalDateTime from, LocalDateTime to);
+
+    /**
+     * Возвращает страницу аудита пользователя в порядке (дата и время, id)
+     *
+     * @param userId   id пользователя, чей аудит требуется найти
+     * @param after    курсор предыдущей страницы или null для первой страницы
+     * @param pageSize максимальное количество записей на странице
+     * @return Страница аудита и курсор следующей страницы
+     */
+    Page<Auditable> findPageByUserId(long userId, PageCursor after, int pageSize);
+
     /**
      * Возвращает все записи из репозитория
      *
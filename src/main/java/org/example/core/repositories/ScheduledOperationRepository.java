@@ -0,0 +1,57 @@
+package org.example.core.repositories;
+
+import org.example.core.models.ScheduledOperation;
+
+import java.util.List;
+
+/**
+ * Интерфейс, представляющий репозиторий для запланированных операций
+ * {@link ScheduledOperation}
+ */
+public interface ScheduledOperationRepository {
+
+    /**
+     * Добавляет запланированную операцию в репозиторий, присваивая ей id
+     *
+     * @param operation Запланированная операция для добавления
+     */
+    void addScheduledOperation(ScheduledOperation operation);
+
+    /**
+     * Сохраняет номера следующих повторений пачки операций.
+     * Операции, которых уже нет в репозитории, пропускаются
+     *
+     * @param operations Запланированные операции с обновленными данными
+     */
+    void updateScheduledOperations(List<ScheduledOperation> operations);
+
+    /**
+     * Удаляет пачку операций из репозитория
+     *
+     * @param ids id запланированных операций
+     */
+    void deleteScheduledOperations(List<Long> ids);
+
+    /**
+     * Находит запланированную операцию по ее id
+     *
+     * @param id id запланированной операции
+     * @return Запланированная операция, если найдена, или null, если не найдена
+     */
+    ScheduledOperation findById(long id);
+
+    /**
+     * Находит все запланированные операции пользователя
+     *
+     * @param userId id пользователя
+     * @return Список запланированных операций пользователя
+     */
+    List<ScheduledOperation> findAllByUserId(long userId);
+
+    /**
+     * Возвращает список всех запланированных операций из репозитория
+     *
+     * @return Список всех запланированных операций
+     */
+    List<ScheduledOperation> findAll();
+}
@@ -1,7 +1,10 @@
 package org.example.core.repositories;
 
+import org.example.core.models.Page;
+import org.example.core.models.PageCursor;
 import org.example.core.models.Transaction;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 /**
@@ -17,6 +20,16 @@ public interface TransactionRepository {
      */
     void addTransaction(Transaction transaction);
 
+    /**
+     * Добавляет транзакцию операции, id которой зарезервирован {@link #isTransactionIdUnique(long)}.
+     * Хранилище сохраняет id операции вместе с транзакцией, поэтому после перезапуска повтор отклоняется,
+     * а операция, которая не дошла до записи транзакции, не занимает id
+     *
+     * @param transaction Транзакция для добавления
+     * @param operationId id операции
+     */
+    void addTransaction(Transaction transaction, long operationId);
+
     /**
      * Находит транзакцию по ее уникальному идентификатору
      *
@@ -33,6 +46,26 @@ public interface TransactionRepository {
      */
     List<Transaction> findAllByUserId(long userId);
 
+    /**
+     * Возвращает транзакции пользователя за период, упорядоченные по дате и времени
+     *
+     * @param userId id пользователя, чьи транзакции требуется найти
+     * @param from   начало периода, включительно
+     * @param to     конец периода, включительно
+     * @return Список транзакций пользователя за указанный период
+     */
+    List<Transaction> findByUserIdBetween(long userId, LocalDateTime from, LocalDateTime to);
+
+    /**
+     * Возвращает страницу транзакций пользователя в порядке (дата и время, id)
+     *
+     * @param userId   id пользователя, чьи транзакции требуется найти
+     * @param after    курсор предыдущей страницы или null для первой страницы
+     * @param pageSize максимальное количество транзакций на странице
+     * @return Страница транзакций и курсор следующей страницы
+     */
+    Page<Transaction> findPageByUserId(long userId, PageCursor after, int pageSize);
+
     /**
      * Проверяет, уникален ли id транзакции
      *
@@ -41,6 +74,14 @@ public interface TransactionRepository {
      */
     boolean isTransactionIdUnique(long transactionId);
 
+    /**
+     * Снимает резерв с id, зарезервированного {@link #isTransactionIdUnique(long)},
+     * если операция завершилась ошибкой до записи транзакции
+     *
+     * @param transactionId id транзакции
+     */
+    void releaseTransactionId(long transactionId);
+
     /**
      * Возвращает все транзакции из репозитория
      *
@@ -1,9 +1,16 @@
 package org.example.core.services;
+import org.example.core.models.AccountSummary;
 import org.example.core.models.Auditable;
+import org.example.core.models.Operation;
+import org.example.core.models.Page;
+import org.example.core.models.PageCursor;
 import org.example.core.models.Transaction;
 import org.example.core.models.User;
+import org.example.core.models.enums.SummaryPeriod;
 import org.example.core.models.enums.TransacionReturns;
 
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
 
 /**
@@ -21,6 +28,17 @@ public interface OperationService {
      */
     TransacionReturns credit(User user, float amount);
 
+    /**
+     * Осуществляет операцию пополнения счета пользователя с идентификатором операции,
+     * переданным клиентом. Повтор идентификатора не выполняется повторно
+     *
+     * @param user        Пользователь
+     * @param amount      Сумма пополнения
+     * @param operationId Идентификатор операции
+     * @return Статус выполнения операции, {@link TransacionReturns#UNUNIQUE_ID} для повтора
+     */
+    TransacionReturns credit(User user, float amount, long operationId);
+
     /**
      * Осуществляет операцию снятия средств со счета пользователя
      *
@@ -30,6 +48,42 @@ public interface OperationService {
      */
     TransacionReturns debit(User user, float amount);
 
+    /**
+     * Осуществляет операцию снятия средств со счета пользователя с идентификатором операции,
+     * переданным клиентом. Повтор идентификатора не выполняется повторно
+     *
+     * @param user        Пользователь
+     * @param amount      Сумма снятия
+     * @param operationId Идентификатор операции
+     * @return Статус выполнения операции, {@link TransacionReturns#UNUNIQUE_ID} для повтора
+     */
+    TransacionReturns debit(User user, float amount, long operationId);
+
+    /**
+     * Переводит средства со счета одного пользователя на счет другого.
+     * Перевод атомарен: списание и пополнение выполняются вместе или не выполняются вовсе.
+     * Успешный перевод записывается парой транзакций с общим временем: DEBIT отправителя и CREDIT получателя,
+     * отклоненный - одной транзакцией DEBIT отправителя со статусом DECLINE
+     *
+     * @param from   Отправитель
+     * @param to     Получатель
+     * @param amount Сумма перевода
+     * @return Статус выполнения операции
+     * @throws IllegalArgumentException если отправитель и получатель совпадают или один из них не найден
+     */
+    TransacionReturns transfer(User from, User to, float amount);
+
+    /**
+     * Выполняет пакет операций пополнения и списания.
+     * Операции применяются по порядку, результат каждой не зависит от того, как выполнены остальные,
+     * кроме изменения баланса счета предыдущими операциями пакета. Операция несуществующего пользователя
+     * не выполняется и получает статус {@link TransacionReturns#USER_NOT_FOUND}
+     *
+     * @param operations Операции пакета
+     * @return Статусы выполнения операций в том же порядке
+     */
+    List<TransacionReturns> applyBatch(List<Operation> operations);
+
     /**
      * Получает историю <b>транзакций</b> для конкретного пользователя
      *
@@ -38,6 +92,26 @@ public interface OperationService {
      */
     List<Transaction> history(User user);
 
+    /**
+     * Получает историю <b>транзакций</b> пользователя за период
+     *
+     * @param user Пользователь
+     * @param from Начало периода, включительно
+     * @param to   Конец периода, включительно
+     * @return Список транзакций пользователя за период, упорядоченный по времени
+     */
+    List<Transaction> history(User user, LocalDateTime from, LocalDateTime to);
+
+    /**
+     * Получает страницу истории <b>транзакций</b> пользователя
+     *
+     * @param user     Пользователь
+     * @param after    Курсор предыдущей страницы или null для первой страницы
+     * @param pageSize Размер страницы
+     * @return Страница транзакций и курсор следующей страницы
+     */
+    Page<Transaction> history(User user, PageCursor after, int pageSize);
+
     /**
      * Получает аудит действий пользователя (транзакции, логин, логаут, регистрация)
      *
@@ -45,4 +119,36 @@ public interface OperationService {
      * @return Список действий для пользователя
      */
     List<Auditable> audit(User user);
+
+    /**
+     * Получает аудит действий пользователя за период
+     *
+     * @param user Пользователь
+     * @param from Начало периода, включительно
+     * @param to   Конец периода, включительно
+     * @return Список действий пользователя за период, упорядоченный по времени
+     */
+    List<Auditable> audit(User user, LocalDateTime from, LocalDateTime to);
+
+    /**
+     * Получает страницу аудита действий пользователя
+     *
+     * @param user     Пользователь
+     * @param after    Курсор предыдущей страницы или null для первой страницы
+     * @param pageSize Размер страницы
+     * @return Страница действий и курсор следующей страницы
+     */
+    Page<Auditable> audit(User user, PageCursor after, int pageSize);
+
+    /**
+     * Получает итоги операций пользователя за день или месяц: суммы и количество успешных пополнений
+     * и списаний, количество отклоненных операций и время последней операции.
+     * Итоги накапливаются при выполнении операций, поэтому чтение не просматривает историю транзакций
+     *
+     * @param user   Пользователь
+     * @param period Период итогов
+     * @param date   Любая дата периода
+     * @return Итоги периода, пустые, если операций не было
+     */
+    AccountSummary summary(User user, SummaryPeriod period, LocalDate date);
 }
@@ -0,0 +1,233 @@
+package org.example.infrostructure;
+
+import org.example.core.models.AccountSummary;
+import org.example.core.models.Transaction;
+import org.example.core.models.enums.AuditableStatus;
+import org.example.core.models.enums.SummaryPeriod;
+import org.example.core.models.enums.TransactionType;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Итоги операций пользователей по дням и месяцам, которые обновляются при каждой операции.
+ * Итоги периода хранятся счетчиками в примитивных полях, поэтому чтение итогов - это поиск
+ * по id пользователя и номеру периода, без просмотра транзакций.
+ * Для каждого пользователя хранятся только последние retainedDays дней и retainedMonths месяцев,
+ * отсчитанные от его самой поздней операции: итоги более старых периодов отбрасываются, поэтому память
+ * на пользователя ограничена, а за такие периоды возвращаются пустые итоги.
+ * Итоги одного пользователя защищены его собственным монитором.
+ * Сами итоги не сохраняются: долговечное хранилище восстанавливает их по транзакциям снимка и журнала
+ * при открытии, см. {@link org.example.infrostructure.repositoryies.collections.DurableCollectionsStore#accountAggregates()}
+ */
+public class AccountAggregates {
+    /**
+     * Количество хранимых дней по умолчанию
+     */
+    public static final int DEFAULT_RETAINED_DAYS = 92;
+
+    /**
+     * Количество хранимых месяцев по умолчанию
+     */
+    public static final int DEFAULT_RETAINED_MONTHS = 24;
+
+    private final ConcurrentHashMap<Long, UserAggregates> users = new ConcurrentHashMap<>();
+    private final int retainedDays;
+    private final int retainedMonths;
+
+    public AccountAggregates() {
+        this(DEFAULT_RETAINED_DAYS, DEFAULT_RETAINED_MONTHS);
+    }
+
+    /**
+     * @param retainedDays   количество последних дней, итоги которых хранятся
+     * @param retainedMonths количество последних месяцев, итоги которых хранятся
+     */
+    public AccountAggregates(int retainedDays, int retainedMonths) {
+        if (retainedDays <= 0 || retainedMonths <= 0) {
+            throw new IllegalArgumentException("Retained periods must be positive.");
+        }
+        this.retainedDays = retainedDays;
+        this.retainedMonths = retainedMonths;
+    }
+
+    /**
+     * Учитывает транзакцию в итогах ее дня и месяца
+     *
+     * @param transaction Транзакция
+     */
+    public void record(Transaction transaction) {
+        record(transaction.getUserId(), transaction.getDateTime(), transaction.getType(),
+                transaction.getStatus(), transaction.getAmount());
+    }
+
+    /**
+     * Учитывает операцию в итогах ее дня и месяца
+     *
+     * @param userId   id пользователя
+     * @param dateTime время операции
+     * @param type     тип операции
+     * @param status   статус операции
+     * @param amount   сумма операции
+     */
+    public void record(long userId, LocalDateTime dateTime, TransactionType type, AuditableStatus status, float amount) {
+        users.computeIfAbsent(userId, id -> new UserAggregates(retainedDays, retainedMonths))
+                .record(dateTime, type, status, amount);
+    }
+
+    /**
+     * Возвращает итоги пользователя за период, которому принадлежит дата
+     *
+     * @param userId id пользователя
+     * @param period период итогов
+     * @param date   любая дата периода
+     * @return Итоги периода, пустые, если операций не было или период старше хранимых
+     */
+    public AccountSummary summary(long userId, SummaryPeriod period, LocalDate date) {
+        LocalDate periodStart = AccountSummary.periodStart(period, date);
+        UserAggregates aggregates = users.get(userId);
+        if (aggregates == null) {
+            return AccountSummary.empty(userId, period, periodStart);
+        }
+        return aggregates.summary(userId, period, periodStart);
+    }
+
+    private static long dayKey(LocalDate date) {
+        return date.toEpochDay();
+    }
+
+    private static long monthKey(LocalDate date) {
+        return date.getYear() * 12L + date.getMonthValue() - 1;
+    }
+
+    private static final class UserAggregates {
+        private final Periods days;
+        private final Periods months;
+
+        UserAggregates(int retainedDays, int retainedMonths) {
+            days = new Periods(retainedDays);
+            months = new Periods(retainedMonths);
+        }
+
+        synchronized void record(LocalDateTime dateTime, TransactionType type, AuditableStatus status, float amount) {
+            LocalDate date = dateTime.toLocalDate();
+            Counters day = days.forKey(dayKey(date));
+            if (day != null) {
+                day.add(dateTime, type, status, amount);
+            }
+            Counters month = months.forKey(monthKey(date));
+            if (month != null) {
+                month.add(dateTime, type, status, amount);
+            }
+        }
+
+        synchronized AccountSummary summary(long userId, SummaryPeriod period, LocalDate periodStart) {
+            Counters counters = period == SummaryPeriod.DAY
+                    ? days.find(dayKey(periodStart))
+                    : months.find(monthKey(periodStart));
+            if (counters == null) {
+                return AccountSummary.empty(userId, period, periodStart);
+            }
+            return new AccountSummary(userId, period, periodStart,
+                    counters.credited, counters.debited,
+                    counters.creditCount, counters.debitCount, counters.declinedCount,
+                    counters.lastActivity);
+        }
+    }
+
+    /**
+     * Итоги последних retained периодов в порядке возрастания номера периода.
+     * Операции почти всегда попадают в последний период, поэтому он проверяется первым
+     */
+    private static final class Periods {
+        private final List<Counters> counters = new ArrayList<>(2);
+        private final int retained;
+
+        Periods(int retained) {
+            this.retained = retained;
+        }
+
+        /**
+         * @return Счетчики периода, созданные при необходимости, или null, если период старше хранимых
+         */
+        Counters forKey(long key) {
+            int size = counters.size();
+            if (size > 0 && counters.get(size - 1).key == key) {
+                return counters.get(size - 1);
+            }
+            long newest = size > 0 ? Math.max(key, counters.get(size - 1).key) : key;
+            if (key <= newest - retained) {
+                return null;
+            }
+            int index = indexOf(key);
+            if (index >= 0) {
+                return counters.get(index);
+            }
+            Counters created = new Counters(key);
+            counters.add(-index - 1, created);
+            int expired = 0;
+            while (counters.get(expired).key <= newest - retained) {
+                expired++;
+            }
+            counters.subList(0, expired).clear();
+            return created;
+        }
+
+        Counters find(long key) {
+            int index = indexOf(key);
+            return index >= 0 ? counters.get(index) : null;
+        }
+
+        /**
+         * @return Индекс периода или -(точка вставки) - 1, как у {@link java.util.Arrays#binarySearch(long[], long)}
+         */
+        private int indexOf(long key) {
+            int low = 0;
+            int high = counters.size() - 1;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                long middleKey = counters.get(middle).key;
+                if (middleKey < key) {
+                    low = middle + 1;
+                } else if (middleKey > key) {
+                    high = middle - 1;
+                } else {
+                    return middle;
+                }
+            }
+            return -(low + 1);
+        }
+    }
+
+    private static final class Counters {
+        private final long key;
+        private double credited;
+        private double debited;
+        private long creditCount;
+        private long debitCount;
+        private long declinedCount;
+        private LocalDateTime lastActivity;
+
+        Counters(long key) {
+            this.key = key;
+        }
+
+        void add(LocalDateTime dateTime, TransactionType type, AuditableStatus status, float amount) {
+            if (status != AuditableStatus.SUCCESS) {
+                declinedCount++;
+            } else if (type == TransactionType.CREDIT) {
+                credited += amount;
+                creditCount++;
+            } else {
+                debited += amount;
+                debitCount++;
+            }
+            if (lastActivity == null || dateTime.isAfter(lastActivity)) {
+                lastActivity = dateTime;
+            }
+        }
+    }
+}
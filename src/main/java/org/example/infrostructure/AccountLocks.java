@@ -0,0 +1,83 @@
+package org.example.infrostructure;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Набор блокировок счетов с разбиением на полосы (lock striping).
+ * Счет по id отображается на одну из фиксированного числа блокировок, поэтому память не растет
+ * с количеством пользователей, операции над одним счетом выполняются строго по очереди,
+ * а операции над разными счетами почти всегда идут параллельно.
+ * Чтобы взять блокировки нескольких счетов без взаимоблокировок, их нужно брать
+ * в порядке возрастания {@link #stripeOf(long)}
+ */
+public class AccountLocks {
+    /**
+     * Количество полос по умолчанию: с запасом больше числа потоков, которые реально работают одновременно
+     */
+    public static final int DEFAULT_STRIPES = 1024;
+
+    private final ReentrantLock[] locks;
+    private final int mask;
+
+    public AccountLocks() {
+        this(DEFAULT_STRIPES);
+    }
+
+    /**
+     * @param stripes количество полос, округляется вверх до степени двойки
+     */
+    public AccountLocks(int stripes) {
+        if (stripes <= 0) {
+            throw new IllegalArgumentException("Stripes count must be positive.");
+        }
+        int size = Integer.highestOneBit(stripes);
+        if (size < stripes) {
+            size <<= 1;
+        }
+        locks = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            locks[i] = new ReentrantLock();
+        }
+        mask = size - 1;
+    }
+
+    /**
+     * @param accountId id счета (пользователя)
+     * @return Номер полосы счета
+     */
+    public int stripeOf(long accountId) {
+        return LongHash.hash(accountId) & mask;
+    }
+
+    /**
+     * @param accountId id счета (пользователя)
+     * @return Блокировка, защищающая счет
+     */
+    public Lock forAccount(long accountId) {
+        return locks[stripeOf(accountId)];
+    }
+
+    /**
+     * Возвращает блокировки нескольких счетов в порядке, в котором их нужно брать.
+     * Счета из одной полосы делят одну блокировку, поэтому она встречается в списке один раз
+     *
+     * @param accountIds id счетов (пользователей)
+     * @return Блокировки в порядке возрастания номера полосы
+     */
+    public List<Lock> forAccounts(Collection<Long> accountIds) {
+        BitSet stripes = new BitSet(locks.length);
+        for (long accountId : accountIds) {
+            stripes.set(stripeOf(accountId));
+        }
+        List<Lock> ordered = new ArrayList<>(stripes.cardinality());
+        for (int stripe = stripes.nextSetBit(0); stripe >= 0; stripe = stripes.nextSetBit(stripe + 1)) {
+            ordered.add(locks[stripe]);
+        }
+        return ordered;
+    }
+}
@@ -0,0 +1,24 @@
+package org.example.infrostructure;
+
+/**
+ * Граница атомарной записи: изменения нескольких репозиториев одной операции, например транзакция
+ * и баланс счета, сохраняются все вместе или не сохраняются вовсе. Реализуется хранилищем, которое умеет
+ * так записывать, см. {@link org.example.infrostructure.repositoryies.collections.DurableCollectionsStore#atomically(Runnable)}
+ */
+@FunctionalInterface
+public interface AtomicWrites {
+
+    /**
+     * Выполняет изменения как одну запись
+     *
+     * @param writes изменения репозиториев
+     */
+    void run(Runnable writes);
+
+    /**
+     * @return Граница без гарантий для хранилищ без журнала: изменения просто выполняются по порядку
+     */
+    static AtomicWrites direct() {
+        return Runnable::run;
+    }
+}
@@ -0,0 +1,110 @@
+package org.example.infrostructure;
+
+import org.example.core.models.enums.ActionType;
+import org.example.core.models.enums.AuditableStatus;
+import org.example.core.models.enums.Recurrence;
+import org.example.core.models.enums.TransactionType;
+
+/**
+ * Постоянные коды перечислений для файлов хранилищ: журнала и снимков, журнала аудита в отображенных файлах.
+ * Код каждой константы задан явно и не зависит от порядка объявления, поэтому добавление или перестановка
+ * констант не меняет смысл уже записанных данных. Коды совпадают с порядковыми номерами констант на момент
+ * их введения, поэтому ранее записанные файлы читаются без преобразования.
+ * Отсутствующее значение кодируется {@link #NONE}, декодирование идет по таблицам, построенным один раз
+ */
+public final class EnumCodes {
+    /**
+     * Код отсутствующего значения
+     */
+    public static final byte NONE = -1;
+
+    private static final TransactionType[] TRANSACTION_TYPES = {TransactionType.CREDIT, TransactionType.DEBIT};
+    private static final AuditableStatus[] AUDITABLE_STATUSES = {AuditableStatus.SUCCESS, AuditableStatus.DECLINE};
+    private static final ActionType[] ACTION_TYPES = {ActionType.REGISTRATION, ActionType.LOGIN, ActionType.LOGOUT};
+    private static final Recurrence[] RECURRENCES =
+            {Recurrence.ONCE, Recurrence.DAILY, Recurrence.WEEKLY, Recurrence.MONTHLY};
+
+    private EnumCodes() {
+    }
+
+    public static byte code(TransactionType type) {
+        if (type == null) {
+            return NONE;
+        }
+        return switch (type) {
+            case CREDIT -> 0;
+            case DEBIT -> 1;
+        };
+    }
+
+    public static byte code(AuditableStatus status) {
+        if (status == null) {
+            return NONE;
+        }
+        return switch (status) {
+            case SUCCESS -> 0;
+            case DECLINE -> 1;
+        };
+    }
+
+    public static byte code(ActionType type) {
+        if (type == null) {
+            return NONE;
+        }
+        return switch (type) {
+            case REGISTRATION -> 0;
+            case LOGIN -> 1;
+            case LOGOUT -> 2;
+        };
+    }
+
+    public static byte code(Recurrence recurrence) {
+        if (recurrence == null) {
+            return NONE;
+        }
+        return switch (recurrence) {
+            case ONCE -> 0;
+            case DAILY -> 1;
+            case WEEKLY -> 2;
+            case MONTHLY -> 3;
+        };
+    }
+
+    /**
+     * @throws IllegalStateException если код неизвестен
+     */
+    public static TransactionType transactionType(byte code) {
+        return decode(TRANSACTION_TYPES, code, "transaction type");
+    }
+
+    /**
+     * @throws IllegalStateException если код неизвестен
+     */
+    public static AuditableStatus auditableStatus(byte code) {
+        return decode(AUDITABLE_STATUSES, code, "status");
+    }
+
+    /**
+     * @throws IllegalStateException если код неизвестен
+     */
+    public static ActionType actionType(byte code) {
+        return decode(ACTION_TYPES, code, "action type");
+    }
+
+    /**
+     * @throws IllegalStateException если код неизвестен
+     */
+    public static Recurrence recurrence(byte code) {
+        return decode(RECURRENCES, code, "recurrence");
+    }
+
+    private static <E> E decode(E[] values, byte code, String name) {
+        if (code == NONE) {
+            return null;
+        }
+        if (code < 0 || code >= values.length) {
+            throw new IllegalStateException("Unknown " + name + " code: " + code);
+        }
+        return values[code];
+    }
+}
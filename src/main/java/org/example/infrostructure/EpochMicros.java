@@ -0,0 +1,46 @@
+package org.example.infrostructure;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Представление даты и времени числом микросекунд от эпохи для колоночного хранения,
+ * журналов и отчетов. {@link LocalDateTime} трактуется как UTC, точность ниже микросекунды отбрасывается
+ */
+public final class EpochMicros {
+    /**
+     * Значение, которым представляется отсутствующие дата и время
+     */
+    public static final long NO_DATE_TIME = Long.MIN_VALUE;
+
+    private EpochMicros() {
+    }
+
+    /**
+     * Переводит дату и время в микросекунды от эпохи
+     *
+     * @param dateTime дата и время, может быть null
+     * @return Микросекунды от эпохи или {@link #NO_DATE_TIME}, если дата и время не заданы
+     */
+    public static long of(LocalDateTime dateTime) {
+        if (dateTime == null) {
+            return NO_DATE_TIME;
+        }
+        return dateTime.toEpochSecond(ZoneOffset.UTC) * 1_000_000L + dateTime.getNano() / 1_000;
+    }
+
+    /**
+     * Переводит микросекунды от эпохи в дату и время
+     *
+     * @param epochMicros микросекунды от эпохи или {@link #NO_DATE_TIME}
+     * @return Дата и время или null для {@link #NO_DATE_TIME}
+     */
+    public static LocalDateTime toLocalDateTime(long epochMicros) {
+        if (epochMicros == NO_DATE_TIME) {
+            return null;
+        }
+        long seconds = Math.floorDiv(epochMicros, 1_000_000L);
+        int nanos = (int) Math.floorMod(epochMicros, 1_000_000L) * 1_000;
+        return LocalDateTime.ofEpochSecond(seconds, nanos, ZoneOffset.UTC);
+    }
+}
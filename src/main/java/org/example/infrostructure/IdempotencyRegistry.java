@@ -0,0 +1,146 @@
+package org.example.infrostructure;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Реестр идентификаторов операций, присланных клиентом, для защиты от повторного выполнения.
+ * Хранит только идентификаторы за последнее окно времени (TTL) и не более заданного количества,
+ * поэтому занимаемая память ограничена. Проверка и резервирование выполняются за O(1).
+ * Окончательной гарантией уникальности служит хранилище, например уникальный ключ в базе данных
+ */
+public class IdempotencyRegistry {
+    /**
+     * Максимальное количество хранимых идентификаторов по умолчанию
+     */
+    public static final int DEFAULT_MAX_SIZE = 100_000;
+
+    /**
+     * Время хранения идентификатора по умолчанию
+     */
+    public static final Duration DEFAULT_TTL = Duration.ofHours(24);
+
+    private final int maxSize;
+    private final long ttlMillis;
+    private final Clock clock;
+
+    /**
+     * Идентификаторы в порядке резервирования, значение - момент истечения в миллисекундах.
+     * При одинаковом TTL порядок резервирования совпадает с порядком истечения
+     */
+    private final LinkedHashMap<Long, Long> expiryById = new LinkedHashMap<>();
+
+    public IdempotencyRegistry() {
+        this(DEFAULT_MAX_SIZE, DEFAULT_TTL, Clock.systemUTC());
+    }
+
+    /**
+     * @param maxSize максимальное количество хранимых идентификаторов
+     * @param ttl     время, в течение которого повтор идентификатора отклоняется
+     * @param clock   источник времени
+     */
+    public IdempotencyRegistry(int maxSize, Duration ttl, Clock clock) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("Max size must be positive.");
+        }
+        this.maxSize = maxSize;
+        this.ttlMillis = ttl.toMillis();
+        this.clock = clock;
+    }
+
+    /**
+     * Проверяет и резервирует идентификатор операции
+     *
+     * @param operationId идентификатор операции
+     * @return true, если идентификатор не встречался в пределах окна и теперь зарезервирован,
+     * false, если это повтор
+     */
+    public synchronized boolean reserve(long operationId) {
+        long now = clock.millis();
+        evictExpired(now);
+        if (expiryById.containsKey(operationId)) {
+            return false;
+        }
+        expiryById.put(operationId, now + ttlMillis);
+        if (expiryById.size() > maxSize) {
+            Iterator<Long> eldest = expiryById.keySet().iterator();
+            eldest.next();
+            eldest.remove();
+        }
+        return true;
+    }
+
+    /**
+     * Снимает резерв с идентификатора, например если операцию не удалось сохранить
+     *
+     * @param operationId идентификатор операции
+     */
+    public synchronized void release(long operationId) {
+        expiryById.remove(operationId);
+    }
+
+    /**
+     * Возвращает момент истечения резерва идентификатора
+     *
+     * @param operationId идентификатор операции
+     * @return Момент истечения в миллисекундах эпохи или -1, если идентификатор не зарезервирован
+     */
+    public synchronized long expiresAt(long operationId) {
+        Long expiresAt = expiryById.get(operationId);
+        return expiresAt == null ? -1 : expiresAt;
+    }
+
+    /**
+     * Восстанавливает резерв идентификатора, например из журнала после перезапуска.
+     * Истекший резерв не восстанавливается, ограничение количества действует как при резервировании
+     *
+     * @param operationId идентификатор операции
+     * @param expiresAt   момент истечения в миллисекундах эпохи
+     */
+    public synchronized void restore(long operationId, long expiresAt) {
+        long now = clock.millis();
+        evictExpired(now);
+        if (expiresAt <= now) {
+            return;
+        }
+        expiryById.putIfAbsent(operationId, expiresAt);
+        if (expiryById.size() > maxSize) {
+            Iterator<Long> eldest = expiryById.keySet().iterator();
+            eldest.next();
+            eldest.remove();
+        }
+    }
+
+    /**
+     * Возвращает действующие резервы в порядке резервирования
+     *
+     * @return Копия: идентификатор операции и момент истечения в миллисекундах эпохи
+     */
+    public synchronized Map<Long, Long> entries() {
+        evictExpired(clock.millis());
+        return new LinkedHashMap<>(expiryById);
+    }
+
+    /**
+     * Возвращает количество зарезервированных идентификаторов
+     *
+     * @return Количество идентификаторов в реестре
+     */
+    public synchronized int size() {
+        evictExpired(clock.millis());
+        return expiryById.size();
+    }
+
+    private void evictExpired(long now) {
+        Iterator<Map.Entry<Long, Long>> iterator = expiryById.entrySet().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().getValue() > now) {
+                return;
+            }
+            iterator.remove();
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package org.example.infrostructure;
+
+/**
+ * Перемешивание ключей-чисел (id счетов, пользователей, операций) для хэш-таблиц и разбиения на полосы.
+ * Умножение на 2^64 / φ разносит соседние id по всему диапазону, поэтому последовательные id
+ * попадают в разные полосы и ячейки
+ */
+public final class LongHash {
+    private static final long GOLDEN_RATIO = 0x9E3779B97F4A7C15L;
+
+    private LongHash() {
+    }
+
+    /**
+     * @param key ключ
+     * @return Перемешанный ключ, все 64 бита которого зависят от младших битов ключа
+     */
+    public static long mix(long key) {
+        return key * GOLDEN_RATIO;
+    }
+
+    /**
+     * @param key ключ
+     * @return 32-битный хэш ключа
+     */
+    public static int hash(long key) {
+        long hash = mix(key);
+        return (int) (hash ^ (hash >>> 32));
+    }
+
+    /**
+     * @param key     ключ
+     * @param stripes количество полос, степень двойки
+     * @return Номер полосы ключа
+     */
+    public static int stripeOf(long key, int stripes) {
+        return hash(key) & (stripes - 1);
+    }
+}
@@ -2,34 +2,257 @@ package org.example.infrostructure;
 
 import org.example.core.models.User;
 
+import java.io.Closeable;
+import java.security.SecureRandom;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
 /**
- * Класс для управления текущей сессией пользователя
+ * Реестр сессий пользователей. Сессия открывается при входе и доступна по непрозрачному токену,
+ * поэтому один процесс обслуживает сколько угодно пользователей одновременно.
+ * Сессия закрывается при выходе или истекает, если к ней не обращались дольше idleTimeout.
+ * Истечение отслеживается хешированным колесом таймеров: сессия лежит в ячейке тика, на котором истекает,
+ * и за тик просматривается только одна ячейка, поэтому обслуживание каждой сессии стоит O(1)
+ * независимо от общего количества сессий. Обращение к сессии только запоминает время,
+ * а перенос в новую ячейку откладывается до того тика, на котором сессия истекла бы
  */
-public class SessionContext {
-    private static User loggedInUser;
+public class SessionContext implements Closeable {
+    public static final Duration DEFAULT_IDLE_TIMEOUT = Duration.ofMinutes(30);
+    public static final long DEFAULT_TICK_MILLIS = 1_000;
+    public static final int DEFAULT_WHEEL_SIZE = 4096;
+
+    private static final int TOKEN_BYTES = 32;
+
+    private final SecureRandom random = new SecureRandom();
+    private final ConcurrentHashMap<String, Session> sessions = new ConcurrentHashMap<>();
+    private final long idleTimeoutMillis;
+    private final long tickMillis;
+    private final Clock clock;
+
+    private final List<Session>[] wheel;
+    private final int mask;
+
+    /**
+     * Последний обработанный тик. Меняется под блокировкой ячейки этого тика
+     */
+    private volatile long currentTick;
+
+    private final LongAdder opened = new LongAdder();
+    private final LongAdder closed = new LongAdder();
+    private final LongAdder expired = new LongAdder();
+
+    private Thread ticker;
+    private volatile boolean running = true;
+
+    public SessionContext() {
+        this(DEFAULT_IDLE_TIMEOUT, DEFAULT_TICK_MILLIS, DEFAULT_WHEEL_SIZE, Clock.systemUTC());
+    }
+
+    /**
+     * Колесо продвигает фоновый поток, запущенный {@link #start()}, или вызов {@link #advance()}
+     *
+     * @param idleTimeout время без обращений, после которого сессия истекает
+     * @param tickMillis  длительность тика колеса, точность истечения
+     * @param wheelSize   количество ячеек колеса, округляется вверх до степени двойки
+     * @param clock       источник времени
+     */
+    @SuppressWarnings("unchecked")
+    public SessionContext(Duration idleTimeout, long tickMillis, int wheelSize, Clock clock) {
+        if (tickMillis <= 0 || wheelSize <= 0) {
+            throw new IllegalArgumentException("Tick and wheel size must be positive.");
+        }
+        this.idleTimeoutMillis = idleTimeout.toMillis();
+        this.tickMillis = tickMillis;
+        this.clock = clock;
+
+        int size = Integer.highestOneBit(wheelSize);
+        if (size < wheelSize) {
+            size <<= 1;
+        }
+        wheel = (List<Session>[]) new List<?>[size];
+        for (int i = 0; i < size; i++) {
+            wheel[i] = new ArrayList<>();
+        }
+        mask = size - 1;
+        currentTick = clock.millis() / tickMillis;
+    }
+
+    /**
+     * Запускает фоновый поток, продвигающий колесо раз в тик. Повторный вызов ничего не делает
+     *
+     * @throws IllegalStateException если реестр уже закрыт
+     */
+    public synchronized void start() {
+        if (!running) {
+            throw new IllegalStateException("Session context is closed.");
+        }
+        if (ticker == null) {
+            ticker = new Thread(this::runTicker, "session-expiry");
+            ticker.setDaemon(true);
+            ticker.start();
+        }
+    }
+
+    /**
+     * Открывает сессию пользователя
+     *
+     * @param user Вошедший пользователь
+     * @return Токен сессии
+     */
+    public String open(User user) {
+        byte[] bytes = new byte[TOKEN_BYTES];
+        random.nextBytes(bytes);
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+
+        Session session = new Session(token, user, clock.millis());
+        sessions.put(token, session);
+        opened.increment();
+        schedule(session, tickOf(session.lastAccessMillis + idleTimeoutMillis));
+        return token;
+    }
 
     /**
-     * Получить залогиненного пользователя
+     * Возвращает пользователя сессии и продлевает ее
      *
-     * @return Залогиненный пользователь или null, если никто не вошел в систему
+     * @param token Токен сессии
+     * @return Пользователь или null, если сессии нет или она истекла
      */
-    public static User getLoggedInUser() {
-        return loggedInUser;
+    public User getUser(String token) {
+        if (token == null) {
+            return null;
+        }
+        Session session = sessions.get(token);
+        if (session == null) {
+            return null;
+        }
+        long now = clock.millis();
+        if (now - session.lastAccessMillis >= idleTimeoutMillis) {
+            return null;
+        }
+        session.lastAccessMillis = now;
+        return session.user;
     }
 
     /**
-     * Задать текущего залогиненного пользователя
+     * Закрывает сессию
      *
-     * @param user Залогиненный пользователь
+     * @param token Токен сессии
+     * @return Пользователь закрытой сессии или null, если сессии не было
+     */
+    public User close(String token) {
+        if (token == null) {
+            return null;
+        }
+        Session session = sessions.remove(token);
+        if (session == null) {
+            return null;
+        }
+        // из колеса сессия удаляется, когда до нее дойдет очередь
+        session.closed = true;
+        closed.increment();
+        return session.user;
+    }
+
+    /**
+     * @return Снимок метрик сессий
      */
-    public static void setLoggedInUser(User user) {
-        loggedInUser = user;
+    public SessionMetrics getMetrics() {
+        return new SessionMetrics(sessions.size(), opened.sum(), closed.sum(), expired.sum());
     }
 
     /**
-     * Очистить информацию о залогиненном пользователе
+     * Продвигает колесо до текущего времени и закрывает истекшие сессии
      */
-    public static void clearLoggedInUser() {
-        loggedInUser = null;
+    public synchronized void advance() {
+        long targetTick = clock.millis() / tickMillis;
+        for (long tick = currentTick + 1; tick <= targetTick; tick++) {
+            processTick(tick);
+        }
+    }
+
+    /**
+     * Останавливает фоновый поток. Открытые сессии остаются доступными
+     */
+    @Override
+    public synchronized void close() {
+        running = false;
+        if (ticker != null) {
+            ticker.interrupt();
+        }
+    }
+
+    private void runTicker() {
+        while (running) {
+            try {
+                Thread.sleep(tickMillis);
+            } catch (InterruptedException e) {
+                return;
+            }
+            advance();
+        }
+    }
+
+    private void processTick(long tick) {
+        List<Session> slot = wheel[(int) tick & mask];
+        List<Session> due;
+        synchronized (slot) {
+            currentTick = tick;
+            due = new ArrayList<>(slot);
+            slot.clear();
+        }
+
+        long now = clock.millis();
+        for (Session session : due) {
+            if (session.closed) {
+                continue;
+            }
+            long deadline = session.lastAccessMillis + idleTimeoutMillis;
+            if (deadline > now) {
+                // к сессии обращались или ее срок в следующем обороте колеса
+                schedule(session, tickOf(deadline));
+            } else if (sessions.remove(session.token, session)) {
+                session.closed = true;
+                expired.increment();
+            }
+        }
+    }
+
+    /**
+     * Кладет сессию в ячейку тика, не раньше следующего за обработанным
+     */
+    private void schedule(Session session, long deadlineTick) {
+        while (true) {
+            long tick = Math.max(deadlineTick, currentTick + 1);
+            List<Session> slot = wheel[(int) tick & mask];
+            synchronized (slot) {
+                // пока ячейку не забрал обработчик этого тика, в нее можно добавлять
+                if (tick > currentTick) {
+                    slot.add(session);
+                    return;
+                }
+            }
+        }
+    }
+
+    private long tickOf(long millis) {
+        return (millis + tickMillis - 1) / tickMillis;
+    }
+
+    private static final class Session {
+        private final String token;
+        private final User user;
+        private volatile long lastAccessMillis;
+        private volatile boolean closed;
+
+        private Session(String token, User user, long lastAccessMillis) {
+            this.token = token;
+            this.user = user;
+            this.lastAccessMillis = lastAccessMillis;
+        }
     }
 }
@@ -0,0 +1,29 @@
+package org.example.infrostructure;
+
+import lombok.Data;
+
+/**
+ * Снимок метрик реестра сессий {@link SessionContext}
+ */
+@Data
+public class SessionMetrics {
+    /**
+     * Открытых сессий на момент снимка
+     */
+    private final int live;
+
+    /**
+     * Всего открыто сессий
+     */
+    private final long opened;
+
+    /**
+     * Сессий, закрытых выходом пользователя
+     */
+    private final long closed;
+
+    /**
+     * Сессий, истекших без обращений
+     */
+    private final long expired;
+}
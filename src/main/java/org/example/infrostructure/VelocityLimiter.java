@@ -0,0 +1,253 @@
+package org.example.infrostructure;
+
+import java.time.Clock;
+import java.time.Duration;
+
+/**
+ * Ограничение частоты списаний со счета: не больше maxOperations списаний и не больше maxAmount
+ * суммарно за скользящее окно window.
+ * Окно каждого счета - кольцо из buckets ячеек длиной window / buckets, в ячейке хранятся
+ * количество и сумма списаний. Окно сдвигается ячейками: устаревшие ячейки обнуляются при обращении
+ * к счету, поэтому учитываются списания последних buckets - 1 полных ячеек и текущей.
+ * Кольца всех счетов лежат в общих массивах примитивов, а счет находится по id в хеш-таблице
+ * с открытой адресацией, поэтому проверка и учет списания выполняются за O(1) и не создают объектов.
+ * Память выделяется только при росте таблицы, когда появляются новые счета.
+ * Таблица разбита на сегменты со своими мониторами, поэтому счета из разных сегментов
+ * проверяются параллельно
+ */
+public class VelocityLimiter {
+    public static final int DEFAULT_BUCKETS = 6;
+    public static final int DEFAULT_EXPECTED_ACCOUNTS = 1 << 16;
+
+    private static final int SEGMENTS = 256;
+    private static final float LOAD_FACTOR = 0.75f;
+
+    private final boolean unlimited;
+    private final int maxOperations;
+    private final double maxAmount;
+    private final int buckets;
+    private final long bucketMillis;
+    private final Clock clock;
+    private final Segment[] segments;
+
+    private VelocityLimiter() {
+        this.unlimited = true;
+        this.maxOperations = Integer.MAX_VALUE;
+        this.maxAmount = Double.POSITIVE_INFINITY;
+        this.buckets = 1;
+        this.bucketMillis = 1;
+        this.clock = Clock.systemUTC();
+        this.segments = new Segment[0];
+    }
+
+    public VelocityLimiter(int maxOperations, double maxAmount, Duration window) {
+        this(maxOperations, maxAmount, window, DEFAULT_BUCKETS, DEFAULT_EXPECTED_ACCOUNTS, Clock.systemUTC());
+    }
+
+    /**
+     * @param maxOperations    максимальное количество списаний за окно
+     * @param maxAmount        максимальная сумма списаний за окно
+     * @param window           длина окна
+     * @param buckets          количество ячеек окна, точность сдвига окна
+     * @param expectedAccounts ожидаемое количество счетов, под которое таблица выделяется сразу
+     * @param clock            источник времени
+     */
+    public VelocityLimiter(int maxOperations,
+                           double maxAmount,
+                           Duration window,
+                           int buckets,
+                           int expectedAccounts,
+                           Clock clock) {
+        if (maxOperations <= 0 || maxAmount <= 0 || buckets <= 0) {
+            throw new IllegalArgumentException("Limits and buckets count must be positive.");
+        }
+        if (window.toMillis() < buckets) {
+            throw new IllegalArgumentException("Window is shorter than one millisecond per bucket.");
+        }
+        this.unlimited = false;
+        this.maxOperations = maxOperations;
+        this.maxAmount = maxAmount;
+        this.buckets = buckets;
+        this.bucketMillis = window.toMillis() / buckets;
+        this.clock = clock;
+        this.segments = new Segment[SEGMENTS];
+        int segmentAccounts = Math.max(1, expectedAccounts / SEGMENTS);
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment(segmentAccounts);
+        }
+    }
+
+    /**
+     * @return Ограничение, которое пропускает все списания и ничего не хранит
+     */
+    public static VelocityLimiter unlimited() {
+        return new VelocityLimiter();
+    }
+
+    /**
+     * Проверяет, укладывается ли списание в лимиты счета, и если да - учитывает его
+     *
+     * @param userId id счета (пользователя)
+     * @param amount сумма списания
+     * @return true, если списание разрешено и учтено, false, если оно превысило бы лимит
+     */
+    public boolean tryAcquire(long userId, float amount) {
+        if (unlimited) {
+            return true;
+        }
+        long bucket = clock.millis() / bucketMillis;
+        Segment segment = segments[(int) (LongHash.mix(userId) >>> 56) & (SEGMENTS - 1)];
+        synchronized (segment) {
+            return segment.tryAcquire(userId, LongHash.hash(userId), bucket, amount);
+        }
+    }
+
+    /**
+     * Отменяет учет списания, разрешенного {@link #tryAcquire(long, float)}, если оно в итоге не выполнено,
+     * например когда хранилище отклонило его из-за нехватки средств. Списание снимается с последней ячейки окна,
+     * в которой есть списания
+     *
+     * @param userId id счета (пользователя)
+     * @param amount сумма списания
+     */
+    public void release(long userId, float amount) {
+        if (unlimited) {
+            return;
+        }
+        Segment segment = segments[(int) (LongHash.mix(userId) >>> 56) & (SEGMENTS - 1)];
+        synchronized (segment) {
+            segment.release(userId, LongHash.hash(userId), amount);
+        }
+    }
+
+    /**
+     * @return Количество счетов, для которых хранится окно
+     */
+    public int getTrackedAccounts() {
+        int accounts = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                accounts += segment.size;
+            }
+        }
+        return accounts;
+    }
+
+    private final class Segment {
+        private long[] keys;
+        private boolean[] used;
+        private long[] lastBuckets;
+        private int[] counts;
+        private float[] amounts;
+        private int mask;
+        private int size;
+
+        private Segment(int expectedAccounts) {
+            int capacity = Integer.highestOneBit(Math.max(4, (int) (expectedAccounts / LOAD_FACTOR)) - 1) << 1;
+            allocate(capacity);
+        }
+
+        private boolean tryAcquire(long userId, int hash, long bucket, float amount) {
+            int slot = slotOf(userId, hash, bucket);
+            int base = slot * buckets;
+
+            long lastBucket = lastBuckets[slot];
+            if (bucket > lastBucket) {
+                // обнуляются ячейки, вышедшие из окна с прошлого обращения, но не больше одного оборота
+                long steps = Math.min(bucket - lastBucket, buckets);
+                for (long step = 1; step <= steps; step++) {
+                    int index = base + (int) ((lastBucket + step) % buckets);
+                    counts[index] = 0;
+                    amounts[index] = 0;
+                }
+                lastBuckets[slot] = bucket;
+            } else {
+                // часы отстали: списание учитывается в последней ячейке
+                bucket = lastBucket;
+            }
+
+            int windowCount = 0;
+            double windowAmount = 0;
+            for (int i = base; i < base + buckets; i++) {
+                windowCount += counts[i];
+                windowAmount += amounts[i];
+            }
+            if (windowCount >= maxOperations || windowAmount + amount > maxAmount) {
+                return false;
+            }
+            int current = base + (int) (bucket % buckets);
+            counts[current]++;
+            amounts[current] += amount;
+            return true;
+        }
+
+        private void release(long userId, int hash, float amount) {
+            int slot = hash & mask;
+            while (used[slot] && keys[slot] != userId) {
+                slot = (slot + 1) & mask;
+            }
+            if (!used[slot]) {
+                return;
+            }
+            int base = slot * buckets;
+            long lastBucket = lastBuckets[slot];
+            for (int step = 0; step < buckets; step++) {
+                int index = base + (int) ((lastBucket - step) % buckets);
+                if (counts[index] > 0) {
+                    counts[index]--;
+                    amounts[index] = Math.max(0, amounts[index] - amount);
+                    return;
+                }
+            }
+        }
+
+        /**
+         * Находит ячейку счета, добавляя счет с пустым окном, если его нет
+         */
+        private int slotOf(long userId, int hash, long bucket) {
+            int slot = hash & mask;
+            while (used[slot]) {
+                if (keys[slot] == userId) {
+                    return slot;
+                }
+                slot = (slot + 1) & mask;
+            }
+            if (size + 1 > used.length * LOAD_FACTOR) {
+                grow();
+                return slotOf(userId, hash, bucket);
+            }
+            used[slot] = true;
+            keys[slot] = userId;
+            lastBuckets[slot] = bucket;
+            size++;
+            return slot;
+        }
+
+        private void grow() {
+            long[] oldKeys = keys;
+            boolean[] oldUsed = used;
+            long[] oldLastBuckets = lastBuckets;
+            int[] oldCounts = counts;
+            float[] oldAmounts = amounts;
+            allocate(oldUsed.length * 2);
+            for (int slot = 0; slot < oldUsed.length; slot++) {
+                if (!oldUsed[slot]) {
+                    continue;
+                }
+                int target = slotOf(oldKeys[slot], LongHash.hash(oldKeys[slot]), oldLastBuckets[slot]);
+                System.arraycopy(oldCounts, slot * buckets, counts, target * buckets, buckets);
+                System.arraycopy(oldAmounts, slot * buckets, amounts, target * buckets, buckets);
+            }
+        }
+
+        private void allocate(int capacity) {
+            keys = new long[capacity];
+            used = new boolean[capacity];
+            lastBuckets = new long[capacity];
+            counts = new int[capacity * buckets];
+            amounts = new float[capacity * buckets];
+            mask = capacity - 1;
+            size = 0;
+        }
+    }
+}
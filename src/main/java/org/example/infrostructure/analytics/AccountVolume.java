@@ -0,0 +1,24 @@
+package org.example.infrostructure.analytics;
+
+import lombok.Data;
+
+/**
+ * Оборот счета: сумма и количество успешных пополнений и списаний пользователя
+ */
+@Data
+public class AccountVolume {
+    /**
+     * Идентификатор пользователя
+     */
+    private final long userId;
+
+    /**
+     * Сумма успешных операций
+     */
+    private final double volume;
+
+    /**
+     * Количество успешных операций
+     */
+    private final long operations;
+}
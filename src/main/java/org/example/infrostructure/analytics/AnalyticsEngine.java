@@ -0,0 +1,15 @@
+package org.example.infrostructure.analytics;
+
+/**
+ * Движок, вычисляющий отчеты {@link LedgerReport} по журналу транзакций
+ */
+public interface AnalyticsEngine {
+
+    /**
+     * Вычисляет отчет по всем транзакциям
+     *
+     * @param report отчет
+     * @return Результат отчета
+     */
+    <A, R> R run(LedgerReport<A, R> report);
+}
@@ -0,0 +1,38 @@
+package org.example.infrostructure.analytics;
+
+import lombok.Data;
+
+import java.time.LocalDate;
+
+/**
+ * Оборот за день по всем счетам
+ */
+@Data
+public class DailyTurnover {
+    /**
+     * День
+     */
+    private final LocalDate date;
+
+    /**
+     * Сумма успешных пополнений
+     */
+    private final double credited;
+
+    /**
+     * Сумма успешных списаний
+     */
+    private final double debited;
+
+    /**
+     * Количество успешных операций
+     */
+    private final long operations;
+
+    /**
+     * @return Сумма пополнений и списаний
+     */
+    public double getTurnover() {
+        return credited + debited;
+    }
+}
@@ -0,0 +1,111 @@
+package org.example.infrostructure.analytics;
+
+import org.example.core.models.enums.AuditableStatus;
+import org.example.core.models.enums.TransactionType;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Отчет об обороте успешных операций по дням за период, упорядоченный по дням.
+ * Дни без операций в отчет не попадают
+ */
+public class DailyTurnoverReport implements LedgerReport<SumTable, List<DailyTurnover>>, SqlReport<List<DailyTurnover>> {
+    private static final int CREDITED = 0;
+    private static final int DEBITED = 1;
+    private static final int OPERATIONS = 2;
+    private static final long MICROS_PER_DAY = 86_400_000_000L;
+
+    private final LocalDate from;
+    private final LocalDate to;
+    private final long fromDay;
+    private final long toDay;
+
+    /**
+     * @param from первый день периода, включительно
+     * @param to   последний день периода, включительно
+     */
+    public DailyTurnoverReport(LocalDate from, LocalDate to) {
+        if (to.isBefore(from)) {
+            throw new IllegalArgumentException("Period end is before its start.");
+        }
+        this.from = from;
+        this.to = to;
+        this.fromDay = from.toEpochDay();
+        this.toDay = to.toEpochDay();
+    }
+
+    @Override
+    public SumTable newAccumulator() {
+        return new SumTable(3);
+    }
+
+    @Override
+    public void accept(SumTable accumulator, long userId, long epochMicros,
+                       TransactionType type, AuditableStatus status, float amount) {
+        if (status != AuditableStatus.SUCCESS || type == null || epochMicros == NO_DATE_TIME) {
+            return;
+        }
+        long day = Math.floorDiv(epochMicros, MICROS_PER_DAY);
+        if (day < fromDay || day > toDay) {
+            return;
+        }
+        accumulator.add(day, type == TransactionType.CREDIT ? CREDITED : DEBITED, amount);
+        accumulator.add(day, OPERATIONS, 1);
+    }
+
+    @Override
+    public SumTable merge(SumTable left, SumTable right) {
+        left.addAll(right);
+        return left;
+    }
+
+    @Override
+    public List<DailyTurnover> finish(SumTable accumulator) {
+        List<DailyTurnover> result = new ArrayList<>(accumulator.size());
+        for (int slot = 0; slot < accumulator.capacity(); slot++) {
+            if (accumulator.isUsed(slot)) {
+                result.add(new DailyTurnover(LocalDate.ofEpochDay(accumulator.key(slot)),
+                        accumulator.sum(slot, CREDITED),
+                        accumulator.sum(slot, DEBITED),
+                        (long) accumulator.sum(slot, OPERATIONS)));
+            }
+        }
+        result.sort(Comparator.comparing(DailyTurnover::getDate));
+        return result;
+    }
+
+    @Override
+    public String sql() {
+        return "SELECT date_time::date AS day, " +
+                "COALESCE(sum(amount::float8) FILTER (WHERE type = 'CREDIT'), 0) AS credited, " +
+                "COALESCE(sum(amount::float8) FILTER (WHERE type = 'DEBIT'), 0) AS debited, " +
+                "count(*) AS operations " +
+                "FROM entities.\"Transaction\" " +
+                "WHERE status = 'SUCCESS' AND type IS NOT NULL AND date_time >= ? AND date_time < ? " +
+                "GROUP BY 1 ORDER BY 1";
+    }
+
+    @Override
+    public void bind(PreparedStatement statement) throws SQLException {
+        statement.setObject(1, from.atStartOfDay());
+        statement.setObject(2, to.plusDays(1).atStartOfDay());
+    }
+
+    @Override
+    public List<DailyTurnover> read(ResultSet resultSet) throws SQLException {
+        List<DailyTurnover> result = new ArrayList<>();
+        while (resultSet.next()) {
+            result.add(new DailyTurnover(resultSet.getObject("day", LocalDate.class),
+                    resultSet.getDouble("credited"),
+                    resultSet.getDouble("debited"),
+                    resultSet.getLong("operations")));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,74 @@
+package org.example.infrostructure.analytics;
+
+import org.example.core.models.enums.AuditableStatus;
+import org.example.core.models.enums.TransactionType;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Отчет о доле отклоненных операций по часам суток. Возвращает 24 строки, по одной на каждый час,
+ * в том числе для часов без операций. Транзакции без времени не учитываются
+ */
+public class DeclineRateByHourReport implements LedgerReport<long[], List<HourlyDeclineRate>>, SqlReport<List<HourlyDeclineRate>> {
+    private static final int HOURS = 24;
+    private static final long MICROS_PER_HOUR = 3_600_000_000L;
+
+    /**
+     * Аккумулятор хранит количество операций часа в ячейке hour и отклоненных - в ячейке HOURS + hour
+     */
+    @Override
+    public long[] newAccumulator() {
+        return new long[HOURS * 2];
+    }
+
+    @Override
+    public void accept(long[] accumulator, long userId, long epochMicros,
+                       TransactionType type, AuditableStatus status, float amount) {
+        if (epochMicros == NO_DATE_TIME) {
+            return;
+        }
+        int hour = Math.floorMod(Math.floorDiv(epochMicros, MICROS_PER_HOUR), HOURS);
+        accumulator[hour]++;
+        if (status == AuditableStatus.DECLINE) {
+            accumulator[HOURS + hour]++;
+        }
+    }
+
+    @Override
+    public long[] merge(long[] left, long[] right) {
+        for (int i = 0; i < left.length; i++) {
+            left[i] += right[i];
+        }
+        return left;
+    }
+
+    @Override
+    public List<HourlyDeclineRate> finish(long[] accumulator) {
+        List<HourlyDeclineRate> result = new ArrayList<>(HOURS);
+        for (int hour = 0; hour < HOURS; hour++) {
+            result.add(new HourlyDeclineRate(hour, accumulator[hour], accumulator[HOURS + hour]));
+        }
+        return result;
+    }
+
+    @Override
+    public String sql() {
+        return "SELECT extract(hour FROM date_time)::int AS hour, count(*) AS total, " +
+                "count(*) FILTER (WHERE status = 'DECLINE') AS declined " +
+                "FROM entities.\"Transaction\" WHERE date_time IS NOT NULL GROUP BY 1";
+    }
+
+    @Override
+    public List<HourlyDeclineRate> read(ResultSet resultSet) throws SQLException {
+        long[] accumulator = newAccumulator();
+        while (resultSet.next()) {
+            int hour = resultSet.getInt("hour");
+            accumulator[hour] = resultSet.getLong("total");
+            accumulator[HOURS + hour] = resultSet.getLong("declined");
+        }
+        return finish(accumulator);
+    }
+}
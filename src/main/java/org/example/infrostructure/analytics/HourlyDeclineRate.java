@@ -0,0 +1,31 @@
+package org.example.infrostructure.analytics;
+
+import lombok.Data;
+
+/**
+ * Доля отклоненных операций за час суток
+ */
+@Data
+public class HourlyDeclineRate {
+    /**
+     * Час суток от 0 до 23
+     */
+    private final int hour;
+
+    /**
+     * Всего операций
+     */
+    private final long total;
+
+    /**
+     * Отклоненных операций
+     */
+    private final long declined;
+
+    /**
+     * @return Доля отклоненных операций или 0, если операций не было
+     */
+    public double getRate() {
+        return total == 0 ? 0 : (double) declined / total;
+    }
+}
@@ -0,0 +1,59 @@
+package org.example.infrostructure.analytics;
+
+import org.example.core.models.Transaction;
+import org.example.core.models.enums.AuditableStatus;
+import org.example.core.models.enums.TransactionType;
+import org.example.infrostructure.EpochMicros;
+
+/**
+ * Отчет по журналу транзакций, который можно считать по частям параллельно.
+ * Каждая часть журнала накапливается в собственный аккумулятор, аккумуляторы частей объединяются
+ * {@link #merge(Object, Object)}, а результат строится из итогового аккумулятора.
+ * Строка журнала передается полями {@link Transaction}, время - в микросекундах от эпохи с
+ * {@link LocalDateTime}, трактуемым как UTC, как в
+ * {@link org.example.infrostructure.repositoryies.collections.TransactionRepositoryColumnarImpl}
+ *
+ * @param <A> тип аккумулятора
+ * @param <R> тип результата
+ */
+public interface LedgerReport<A, R> {
+    /**
+     * Время строки, у которой оно не задано
+     */
+    long NO_DATE_TIME = EpochMicros.NO_DATE_TIME;
+
+    /**
+     * @return Пустой аккумулятор
+     */
+    A newAccumulator();
+
+    /**
+     * Добавляет строку журнала в аккумулятор
+     *
+     * @param accumulator аккумулятор части журнала
+     * @param userId      id пользователя
+     * @param epochMicros время в микросекундах от эпохи или {@link #NO_DATE_TIME}
+     * @param type        тип транзакции, может быть null
+     * @param status      статус транзакции, может быть null
+     * @param amount      сумма транзакции
+     */
+    void accept(A accumulator, long userId, long epochMicros, TransactionType type, AuditableStatus status, float amount);
+
+    /**
+     * Добавляет транзакцию в аккумулятор
+     */
+    default void accept(A accumulator, Transaction transaction) {
+        accept(accumulator, transaction.getUserId(), EpochMicros.of(transaction.getDateTime()),
+                transaction.getType(), transaction.getStatus(), transaction.getAmount());
+    }
+
+    /**
+     * Объединяет аккумуляторы двух частей журнала. Может изменить и вернуть один из них
+     */
+    A merge(A left, A right);
+
+    /**
+     * Строит результат отчета
+     */
+    R finish(A accumulator);
+}
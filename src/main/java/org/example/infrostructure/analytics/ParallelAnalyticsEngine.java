@@ -0,0 +1,111 @@
+package org.example.infrostructure.analytics;
+
+import org.example.core.models.Transaction;
+import org.example.core.repositories.TransactionRepository;
+import org.example.infrostructure.repositoryies.collections.TransactionRepositoryColumnarImpl;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Движок отчетов, который делит журнал транзакций на части по chunkRows строк
+ * и считает их параллельно в {@link ForkJoinPool}: задача делит диапазон строк пополам,
+ * пока он больше части, каждая часть накапливается в собственный аккумулятор без синхронизации,
+ * а аккумуляторы объединяются при возврате из подзадач.
+ * Для {@link TransactionRepositoryColumnarImpl} части обходят колонки напрямую, не создавая объектов
+ * {@link Transaction}. Для остальных репозиториев журнал один раз читается через
+ * {@link TransactionRepository#getAll()}, а затем так же делится на части: на время отчета в памяти
+ * лежит копия всего журнала, поэтому для журнала в PostgreSql отчеты считает {@link PostgresAnalyticsEngine}
+ */
+public class ParallelAnalyticsEngine implements AnalyticsEngine {
+    public static final int DEFAULT_CHUNK_ROWS = 16_384;
+
+    private final TransactionRepository transactionRepository;
+    private final ForkJoinPool pool;
+    private final int chunkRows;
+
+    public ParallelAnalyticsEngine(TransactionRepository transactionRepository) {
+        this(transactionRepository, ForkJoinPool.commonPool(), DEFAULT_CHUNK_ROWS);
+    }
+
+    /**
+     * @param transactionRepository репозиторий транзакций
+     * @param pool                  пул, в котором считаются части
+     * @param chunkRows             максимальное количество строк в одной части
+     */
+    public ParallelAnalyticsEngine(TransactionRepository transactionRepository, ForkJoinPool pool, int chunkRows) {
+        if (chunkRows <= 0) {
+            throw new IllegalArgumentException("Chunk size must be positive.");
+        }
+        this.transactionRepository = transactionRepository;
+        this.pool = pool;
+        this.chunkRows = chunkRows;
+    }
+
+    @Override
+    public <A, R> R run(LedgerReport<A, R> report) {
+        A accumulator;
+        if (transactionRepository instanceof TransactionRepositoryColumnarImpl columnar) {
+            accumulator = pool.invoke(new ChunkTask<>(report, chunkRows, 0, columnar.size(),
+                    (fromRow, toRow, chunkAccumulator) -> columnar.scan(fromRow, toRow,
+                            (id, userId, epochMicros, type, status, amount) ->
+                                    report.accept(chunkAccumulator, userId, epochMicros, type, status, amount))));
+        } else {
+            // копия журнала нужна для деления на части по индексам строк
+            List<Transaction> transactions = transactionRepository.getAll();
+            accumulator = pool.invoke(new ChunkTask<>(report, chunkRows, 0, transactions.size(),
+                    (fromRow, toRow, chunkAccumulator) -> {
+                        for (int row = fromRow; row < toRow; row++) {
+                            report.accept(chunkAccumulator, transactions.get(row));
+                        }
+                    }));
+        }
+        return report.finish(accumulator);
+    }
+
+    /**
+     * Обход диапазона строк журнала с накоплением в аккумулятор
+     */
+    @FunctionalInterface
+    private interface RangeScanner<A> {
+        void scan(int fromRow, int toRow, A accumulator);
+    }
+
+    /**
+     * Задача подсчета диапазона строк. Задачи живут только в пуле и не сериализуются,
+     * поэтому отчет и обход строк хранятся в transient полях
+     */
+    private static final class ChunkTask<A> extends RecursiveTask<A> {
+        private static final long serialVersionUID = 1L;
+
+        private final transient LedgerReport<A, ?> report;
+        private final int chunkRows;
+        private final int fromRow;
+        private final int toRow;
+        private final transient RangeScanner<A> scanner;
+
+        private ChunkTask(LedgerReport<A, ?> report, int chunkRows, int fromRow, int toRow, RangeScanner<A> scanner) {
+            this.report = report;
+            this.chunkRows = chunkRows;
+            this.fromRow = fromRow;
+            this.toRow = toRow;
+            this.scanner = scanner;
+        }
+
+        @Override
+        protected A compute() {
+            if (toRow - fromRow <= chunkRows) {
+                A accumulator = report.newAccumulator();
+                scanner.scan(fromRow, toRow, accumulator);
+                return accumulator;
+            }
+            int middle = (fromRow + toRow) >>> 1;
+            ChunkTask<A> left = new ChunkTask<>(report, chunkRows, fromRow, middle, scanner);
+            ChunkTask<A> right = new ChunkTask<>(report, chunkRows, middle, toRow, scanner);
+            left.fork();
+            A rightAccumulator = right.compute();
+            return report.merge(left.join(), rightAccumulator);
+        }
+    }
+}
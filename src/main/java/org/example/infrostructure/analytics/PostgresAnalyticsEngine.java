@@ -0,0 +1,54 @@
+package org.example.infrostructure.analytics;
+
+import org.example.core.repositories.TransactionRepository;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Движок отчетов для PostgreSql. Отчет, реализующий {@link SqlReport}, считается одним запросом
+ * в базе: в приложение передаются только строки результата, а не журнал транзакций.
+ * Остальные отчеты считает {@link ParallelAnalyticsEngine} по транзакциям из репозитория
+ */
+public class PostgresAnalyticsEngine implements AnalyticsEngine {
+    private final DataSource dataSource;
+    private final AnalyticsEngine fallback;
+
+    public PostgresAnalyticsEngine(DataSource dataSource, TransactionRepository transactionRepository) {
+        this(dataSource, new ParallelAnalyticsEngine(transactionRepository));
+    }
+
+    /**
+     * @param dataSource источник соединений
+     * @param fallback   движок для отчетов без SQL
+     */
+    public PostgresAnalyticsEngine(DataSource dataSource, AnalyticsEngine fallback) {
+        this.dataSource = dataSource;
+        this.fallback = fallback;
+    }
+
+    /**
+     * @throws IllegalStateException если запрос отчета не удалось выполнить
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public <A, R> R run(LedgerReport<A, R> report) {
+        if (!(report instanceof SqlReport)) {
+            return fallback.run(report);
+        }
+        SqlReport<R> sqlReport = (SqlReport<R>) report;
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(sqlReport.sql())) {
+            sqlReport.bind(statement);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                return sqlReport.read(resultSet);
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+            throw new IllegalStateException("Report query failed.", e);
+        }
+    }
+}
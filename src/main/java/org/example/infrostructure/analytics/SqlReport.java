@@ -0,0 +1,30 @@
+package org.example.infrostructure.analytics;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Отчет, который PostgreSql может посчитать сам одним запросом,
+ * не передавая строки журнала в приложение
+ *
+ * @param <R> тип результата
+ */
+public interface SqlReport<R> {
+
+    /**
+     * @return Запрос, вычисляющий отчет по таблице entities."Transaction"
+     */
+    String sql();
+
+    /**
+     * Заполняет параметры запроса
+     */
+    default void bind(PreparedStatement statement) throws SQLException {
+    }
+
+    /**
+     * Строит результат отчета из строк запроса
+     */
+    R read(ResultSet resultSet) throws SQLException;
+}
@@ -0,0 +1,121 @@
+package org.example.infrostructure.analytics;
+
+import org.example.infrostructure.LongHash;
+
+/**
+ * Хеш-таблица с открытой адресацией, хранящая для ключа long несколько сумм double
+ * в общем массиве без упаковки в объекты. Используется аккумуляторами отчетов.
+ * Не потокобезопасна: каждая часть журнала накапливается в свою таблицу
+ */
+final class SumTable {
+    private static final float LOAD_FACTOR = 0.5f;
+
+    private final int width;
+    private long[] keys;
+    private boolean[] used;
+    private double[] sums;
+    private int mask;
+    private int size;
+
+    /**
+     * @param width количество сумм на ключ
+     */
+    SumTable(int width) {
+        this.width = width;
+        allocate(16);
+    }
+
+    /**
+     * Прибавляет значение к сумме ключа
+     *
+     * @param key    ключ
+     * @param column номер суммы
+     * @param value  прибавляемое значение
+     */
+    void add(long key, int column, double value) {
+        // ячейка ищется до обращения к массиву сумм, который при росте таблицы заменяется
+        int index = slotOf(key) * width + column;
+        sums[index] += value;
+    }
+
+    /**
+     * Прибавляет к суммам этой таблицы все суммы другой
+     */
+    void addAll(SumTable other) {
+        for (int slot = 0; slot < other.used.length; slot++) {
+            if (!other.used[slot]) {
+                continue;
+            }
+            int target = slotOf(other.keys[slot]) * width;
+            int source = slot * width;
+            for (int column = 0; column < width; column++) {
+                sums[target + column] += other.sums[source + column];
+            }
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return Количество ячеек, для обхода через {@link #isUsed(int)}
+     */
+    int capacity() {
+        return used.length;
+    }
+
+    boolean isUsed(int slot) {
+        return used[slot];
+    }
+
+    long key(int slot) {
+        return keys[slot];
+    }
+
+    double sum(int slot, int column) {
+        return sums[slot * width + column];
+    }
+
+    /**
+     * Находит ячейку ключа, добавляя ключ с нулевыми суммами, если его нет
+     */
+    private int slotOf(long key) {
+        int slot = LongHash.hash(key) & mask;
+        while (used[slot]) {
+            if (keys[slot] == key) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        if (size + 1 > used.length * LOAD_FACTOR) {
+            grow();
+            return slotOf(key);
+        }
+        used[slot] = true;
+        keys[slot] = key;
+        size++;
+        return slot;
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        boolean[] oldUsed = used;
+        double[] oldSums = sums;
+        allocate(oldUsed.length * 2);
+        for (int slot = 0; slot < oldUsed.length; slot++) {
+            if (oldUsed[slot]) {
+                int target = slotOf(oldKeys[slot]) * width;
+                System.arraycopy(oldSums, slot * width, sums, target, width);
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        used = new boolean[capacity];
+        sums = new double[capacity * width];
+        mask = capacity - 1;
+        size = 0;
+    }
+}
@@ -0,0 +1,106 @@
+package org.example.infrostructure.analytics;
+
+import org.example.core.models.enums.AuditableStatus;
+import org.example.core.models.enums.TransactionType;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Отчет о счетах с наибольшим оборотом успешных операций, упорядоченных по убыванию оборота,
+ * при равном обороте - по id пользователя
+ */
+public class TopAccountsByVolumeReport implements LedgerReport<SumTable, List<AccountVolume>>, SqlReport<List<AccountVolume>> {
+    private static final int VOLUME = 0;
+    private static final int OPERATIONS = 1;
+
+    private static final Comparator<AccountVolume> ORDER = Comparator
+            .comparingDouble(AccountVolume::getVolume).reversed()
+            .thenComparingLong(AccountVolume::getUserId);
+
+    private final int limit;
+
+    /**
+     * @param limit количество счетов в отчете
+     */
+    public TopAccountsByVolumeReport(int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Limit must be positive.");
+        }
+        this.limit = limit;
+    }
+
+    @Override
+    public SumTable newAccumulator() {
+        return new SumTable(2);
+    }
+
+    @Override
+    public void accept(SumTable accumulator, long userId, long epochMicros,
+                       TransactionType type, AuditableStatus status, float amount) {
+        if (status == AuditableStatus.SUCCESS && type != null) {
+            accumulator.add(userId, VOLUME, amount);
+            accumulator.add(userId, OPERATIONS, 1);
+        }
+    }
+
+    @Override
+    public SumTable merge(SumTable left, SumTable right) {
+        if (left.size() < right.size()) {
+            right.addAll(left);
+            return right;
+        }
+        left.addAll(right);
+        return left;
+    }
+
+    /**
+     * Лучшие счета отбираются кучей размера limit, без сортировки всех счетов
+     */
+    @Override
+    public List<AccountVolume> finish(SumTable accumulator) {
+        PriorityQueue<AccountVolume> top = new PriorityQueue<>(limit + 1, ORDER.reversed());
+        for (int slot = 0; slot < accumulator.capacity(); slot++) {
+            if (!accumulator.isUsed(slot)) {
+                continue;
+            }
+            top.add(new AccountVolume(accumulator.key(slot),
+                    accumulator.sum(slot, VOLUME),
+                    (long) accumulator.sum(slot, OPERATIONS)));
+            if (top.size() > limit) {
+                top.poll();
+            }
+        }
+        List<AccountVolume> result = new ArrayList<>(top);
+        result.sort(ORDER);
+        return result;
+    }
+
+    @Override
+    public String sql() {
+        return "SELECT user_id, sum(amount::float8) AS volume, count(*) AS operations " +
+                "FROM entities.\"Transaction\" WHERE status = 'SUCCESS' AND type IS NOT NULL " +
+                "GROUP BY user_id ORDER BY volume DESC, user_id LIMIT ?";
+    }
+
+    @Override
+    public void bind(PreparedStatement statement) throws SQLException {
+        statement.setInt(1, limit);
+    }
+
+    @Override
+    public List<AccountVolume> read(ResultSet resultSet) throws SQLException {
+        List<AccountVolume> result = new ArrayList<>(limit);
+        while (resultSet.next()) {
+            result.add(new AccountVolume(resultSet.getLong("user_id"),
+                    resultSet.getDouble("volume"),
+                    resultSet.getLong("operations")));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,245 @@
+package org.example.infrostructure.in.binary;
+
+import lombok.Data;
+import org.example.core.models.Auditable;
+import org.example.core.models.Page;
+import org.example.core.models.PageCursor;
+import org.example.core.models.Transaction;
+import org.example.core.models.enums.TransacionReturns;
+import org.example.infrostructure.services.AuthorisationService.AuthorisationStatus;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Клиент двоичного протокола {@link BinaryProtocol}. Не потокобезопасен, одно соединение на поток.
+ * <p>
+ * Методы {@code send*} кладут запрос в буфер и возвращают его id, {@link #flush()} отправляет накопленные запросы,
+ * методы {@code receive*} читают ответы в порядке отправки. Так можно держать несколько запросов в полете;
+ * число неотвеченных запросов нужно ограничивать, иначе при переполнении буферов сокета клиент и сервер
+ * будут ждать друг друга. Остальные методы выполняют один запрос и ждут ответа
+ */
+public class BinaryClient implements Closeable {
+    private final SocketChannel channel;
+    private final ByteBuffer out = ByteBuffer.allocateDirect(64 * 1024);
+    private final ByteBuffer in = ByteBuffer.allocateDirect(2 * BinaryProtocol.MAX_RESPONSE_LENGTH);
+    private int nextRequestId;
+    private int requestStart;
+    private int lastResponseId;
+    private long userId;
+
+    /**
+     * Результат пополнения или списания
+     */
+    @Data
+    public static class OperationResult {
+        private final int requestId;
+        private final TransacionReturns result;
+
+        /**
+         * Баланс пользователя после операции
+         */
+        private final float balance;
+    }
+
+    /**
+     * @param address адрес сервера
+     */
+    public BinaryClient(InetSocketAddress address) throws IOException {
+        channel = SocketChannel.open(address);
+        channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        in.flip();
+    }
+
+    public AuthorisationStatus login(String username, String password) throws IOException {
+        sendLogin(username, password);
+        flush();
+        return receiveLogin();
+    }
+
+    public void logout() throws IOException {
+        sendLogout();
+        flush();
+        receiveLogout();
+    }
+
+    public TransacionReturns credit(float amount) throws IOException {
+        sendCredit(amount);
+        flush();
+        return receiveOperation().getResult();
+    }
+
+    public TransacionReturns debit(float amount) throws IOException {
+        sendDebit(amount);
+        flush();
+        return receiveOperation().getResult();
+    }
+
+    public Page<Transaction> history(PageCursor after, int pageSize) throws IOException {
+        sendHistory(after, pageSize);
+        flush();
+        return receivePage();
+    }
+
+    public Page<Auditable> audit(PageCursor after, int pageSize) throws IOException {
+        sendAudit(after, pageSize);
+        flush();
+        return receivePage();
+    }
+
+    public int sendLogin(String username, String password) throws IOException {
+        int requestId = begin(BinaryProtocol.LOGIN);
+        BinaryProtocol.putString(out, username);
+        BinaryProtocol.putString(out, password);
+        return end(requestId);
+    }
+
+    public int sendLogout() throws IOException {
+        return end(begin(BinaryProtocol.LOGOUT));
+    }
+
+    public int sendCredit(float amount) throws IOException {
+        return sendOperation(BinaryProtocol.CREDIT, amount, false, 0);
+    }
+
+    public int sendCredit(float amount, long operationId) throws IOException {
+        return sendOperation(BinaryProtocol.CREDIT, amount, true, operationId);
+    }
+
+    public int sendDebit(float amount) throws IOException {
+        return sendOperation(BinaryProtocol.DEBIT, amount, false, 0);
+    }
+
+    public int sendDebit(float amount, long operationId) throws IOException {
+        return sendOperation(BinaryProtocol.DEBIT, amount, true, operationId);
+    }
+
+    public int sendHistory(PageCursor after, int pageSize) throws IOException {
+        return sendPage(BinaryProtocol.HISTORY, after, pageSize);
+    }
+
+    public int sendAudit(PageCursor after, int pageSize) throws IOException {
+        return sendPage(BinaryProtocol.AUDIT, after, pageSize);
+    }
+
+    /**
+     * Отправляет накопленные запросы
+     */
+    public void flush() throws IOException {
+        out.flip();
+        while (out.hasRemaining()) {
+            channel.write(out);
+        }
+        out.clear();
+    }
+
+    public AuthorisationStatus receiveLogin() throws IOException {
+        ByteBuffer response = response();
+        AuthorisationStatus status = BinaryProtocol.authorisation(response.get());
+        userId = response.getLong();
+        return status;
+    }
+
+    public void receiveLogout() throws IOException {
+        response();
+        userId = 0;
+    }
+
+    public OperationResult receiveOperation() throws IOException {
+        ByteBuffer response = response();
+        return new OperationResult(lastResponseId, BinaryProtocol.result(response.get()), response.getFloat());
+    }
+
+    public <T extends Auditable> Page<T> receivePage() throws IOException {
+        ByteBuffer response = response();
+        int count = response.getInt();
+        List<T> items = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            @SuppressWarnings("unchecked")
+            T item = (T) BinaryProtocol.getAuditable(response, userId);
+            items.add(item);
+        }
+        return new Page<>(items, BinaryProtocol.getCursor(response));
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private int sendOperation(byte method, float amount, boolean hasOperationId, long operationId) throws IOException {
+        int requestId = begin(method);
+        out.putFloat(amount);
+        out.put((byte) (hasOperationId ? 1 : 0));
+        out.putLong(operationId);
+        return end(requestId);
+    }
+
+    private int sendPage(byte method, PageCursor after, int pageSize) throws IOException {
+        int requestId = begin(method);
+        BinaryProtocol.putCursor(out, after);
+        out.putInt(pageSize);
+        return end(requestId);
+    }
+
+    private int begin(byte method) throws IOException {
+        if (out.remaining() < BinaryProtocol.MAX_REQUEST_LENGTH + 4) {
+            flush();
+        }
+        requestStart = out.position();
+        out.putInt(0);
+        out.put(method);
+        int requestId = nextRequestId++;
+        out.putInt(requestId);
+        return requestId;
+    }
+
+    private int end(int requestId) {
+        int length = out.position() - requestStart - 4;
+        if (length > BinaryProtocol.MAX_REQUEST_LENGTH) {
+            out.position(requestStart);
+            throw new IllegalArgumentException("Request is too long.");
+        }
+        out.putInt(requestStart, length);
+        return requestId;
+    }
+
+    /**
+     * Читает следующий ответ и проверяет его статус
+     *
+     * @return Буфер, позиция которого на данных ответа
+     */
+    private ByteBuffer response() throws IOException {
+        fill(4);
+        int length = in.getInt(in.position());
+        fill(4 + length);
+        in.getInt();
+        lastResponseId = in.getInt();
+        byte status = in.get();
+        if (status != BinaryProtocol.OK) {
+            throw new IllegalStateException(switch (status) {
+                case BinaryProtocol.UNAUTHORISED -> "Not logged in.";
+                case BinaryProtocol.BAD_REQUEST -> "Bad request.";
+                default -> "Server error.";
+            });
+        }
+        return in;
+    }
+
+    private void fill(int bytes) throws IOException {
+        while (in.remaining() < bytes) {
+            in.compact();
+            if (channel.read(in) < 0) {
+                throw new EOFException("Connection closed by server.");
+            }
+            in.flip();
+        }
+    }
+}
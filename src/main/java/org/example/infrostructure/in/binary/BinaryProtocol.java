@@ -0,0 +1,242 @@
+package org.example.infrostructure.in.binary;
+
+import org.example.core.models.Action;
+import org.example.core.models.Auditable;
+import org.example.core.models.PageCursor;
+import org.example.core.models.Transaction;
+import org.example.core.models.enums.ActionType;
+import org.example.core.models.enums.AuditableStatus;
+import org.example.core.models.enums.TransacionReturns;
+import org.example.core.models.enums.TransactionType;
+import org.example.infrostructure.services.AuthorisationService.AuthorisationStatus;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Двоичный протокол для внутренних клиентов. Все числа big-endian.
+ * <p>
+ * Запрос: {@code int длина, byte код метода, int id запроса, данные}.
+ * Ответ: {@code int длина, int id запроса, byte статус, данные}.
+ * Длина не включает собственные 4 байта. Клиент может отправить несколько запросов, не дожидаясь ответов,
+ * ответы приходят в порядке запросов.
+ * <p>
+ * Данные методов:
+ * <ul>
+ *     <li>LOGIN: строка имени, строка пароля -> byte статус авторизации, long id пользователя</li>
+ *     <li>LOGOUT: пусто -> пусто</li>
+ *     <li>CREDIT, DEBIT: float сумма, byte есть ли id операции, long id операции -> byte результат, float баланс</li>
+ *     <li>HISTORY, AUDIT: byte есть ли курсор, курсор, int размер страницы ->
+ *     int число записей, записи, byte есть ли следующая страница, курсор</li>
+ * </ul>
+ * Строка - short длина и байты UTF-8, дата и время - long секунды и int наносекунды, курсор - дата и время
+ * и long id. Перечисления передаются байтовыми кодами, заданными в этом классе явно, а не порядковыми номерами,
+ * поэтому перестановка констант не меняет протокол, а новая константа не компилируется без своего кода
+ */
+final class BinaryProtocol {
+    static final byte LOGIN = 1;
+    static final byte LOGOUT = 2;
+    static final byte CREDIT = 3;
+    static final byte DEBIT = 4;
+    static final byte HISTORY = 5;
+    static final byte AUDIT = 6;
+
+    static final byte OK = 0;
+    static final byte BAD_REQUEST = 1;
+    static final byte UNAUTHORISED = 2;
+    static final byte ERROR = 3;
+
+    static final byte TRANSACTION_RECORD = 0;
+    static final byte ACTION_RECORD = 1;
+
+    static final int MAX_PAGE_SIZE = 1_000;
+    static final int MAX_REQUEST_LENGTH = 4 * 1024;
+
+    /**
+     * Длина записи истории или аудита, см. {@link #putAuditable(ByteBuffer, Auditable)}
+     */
+    static final int RECORD_LENGTH = 1 + 8 + 12 + 1 + 1 + 4;
+
+    /**
+     * Длина ответа с целой страницей аудита, больше ответов не бывает:
+     * длина, id запроса, статус, число записей, записи и курсор следующей страницы
+     */
+    static final int MAX_RESPONSE_LENGTH = 4 + 4 + 1 + 4 + MAX_PAGE_SIZE * RECORD_LENGTH + 1 + 12 + 8;
+
+    private BinaryProtocol() {
+    }
+
+    static void putString(ByteBuffer buffer, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > MAX_REQUEST_LENGTH) {
+            throw new IllegalArgumentException("String is too long.");
+        }
+        buffer.putShort((short) bytes.length);
+        buffer.put(bytes);
+    }
+
+    static String getString(ByteBuffer buffer) {
+        int length = buffer.getShort();
+        if (length < 0 || length > buffer.remaining()) {
+            throw new IllegalArgumentException("Invalid string length.");
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    static void putDateTime(ByteBuffer buffer, LocalDateTime dateTime) {
+        buffer.putLong(dateTime.toEpochSecond(ZoneOffset.UTC));
+        buffer.putInt(dateTime.getNano());
+    }
+
+    static LocalDateTime getDateTime(ByteBuffer buffer) {
+        return LocalDateTime.ofEpochSecond(buffer.getLong(), buffer.getInt(), ZoneOffset.UTC);
+    }
+
+    static void putCursor(ByteBuffer buffer, PageCursor cursor) {
+        if (cursor == null) {
+            buffer.put((byte) 0);
+            return;
+        }
+        buffer.put((byte) 1);
+        putDateTime(buffer, cursor.getDateTime());
+        buffer.putLong(cursor.getId());
+    }
+
+    static PageCursor getCursor(ByteBuffer buffer) {
+        if (buffer.get() == 0) {
+            return null;
+        }
+        return new PageCursor(getDateTime(buffer), buffer.getLong());
+    }
+
+    /**
+     * Запись истории или аудита: byte вид, long id, дата и время (12 байт), byte тип, byte статус,
+     * float сумма - всего {@link #RECORD_LENGTH} = 27 байт
+     */
+    static void putAuditable(ByteBuffer buffer, Auditable auditable) {
+        if (auditable instanceof Transaction transaction) {
+            buffer.put(TRANSACTION_RECORD);
+            buffer.putLong(transaction.getId());
+            putDateTime(buffer, transaction.getDateTime());
+            buffer.put(transactionTypeCode(transaction.getType()));
+            buffer.put(statusCode(transaction.getStatus()));
+            buffer.putFloat(transaction.getAmount());
+        } else {
+            Action action = (Action) auditable;
+            buffer.put(ACTION_RECORD);
+            buffer.putLong(action.getId());
+            putDateTime(buffer, action.getDateTime());
+            buffer.put(actionTypeCode(action.getType()));
+            buffer.put(statusCode(action.getStatus()));
+            buffer.putFloat(0);
+        }
+    }
+
+    static Auditable getAuditable(ByteBuffer buffer, long userId) {
+        byte kind = buffer.get();
+        long id = buffer.getLong();
+        LocalDateTime dateTime = getDateTime(buffer);
+        byte type = buffer.get();
+        AuditableStatus status = status(buffer.get());
+        float amount = buffer.getFloat();
+        Auditable auditable;
+        if (kind == TRANSACTION_RECORD) {
+            auditable = new Transaction(userId, dateTime, transactionType(type), status, amount);
+        } else if (kind == ACTION_RECORD) {
+            auditable = new Action(userId, dateTime, status, actionType(type));
+        } else {
+            throw new IllegalStateException("Unknown record kind: " + kind);
+        }
+        auditable.setId(id);
+        return auditable;
+    }
+
+    static byte resultCode(TransacionReturns result) {
+        return switch (result) {
+            case SUCCESS -> 0;
+            case UNUNIQUE_ID -> 1;
+            case NOT_ENOUGH_MONEY -> 2;
+            case LIMIT_EXCEEDED -> 3;
+            case USER_NOT_FOUND -> 4;
+        };
+    }
+
+    static TransacionReturns result(byte code) {
+        return switch (code) {
+            case 0 -> TransacionReturns.SUCCESS;
+            case 1 -> TransacionReturns.UNUNIQUE_ID;
+            case 2 -> TransacionReturns.NOT_ENOUGH_MONEY;
+            case 3 -> TransacionReturns.LIMIT_EXCEEDED;
+            case 4 -> TransacionReturns.USER_NOT_FOUND;
+            default -> throw new IllegalStateException("Unknown operation result code: " + code);
+        };
+    }
+
+    static byte authorisationCode(AuthorisationStatus status) {
+        return switch (status) {
+            case SUCCESS -> 0;
+            case USER_NOT_FOUND -> 1;
+            case INVALID_PASSWORD -> 2;
+        };
+    }
+
+    static AuthorisationStatus authorisation(byte code) {
+        return switch (code) {
+            case 0 -> AuthorisationStatus.SUCCESS;
+            case 1 -> AuthorisationStatus.USER_NOT_FOUND;
+            case 2 -> AuthorisationStatus.INVALID_PASSWORD;
+            default -> throw new IllegalStateException("Unknown authorisation status code: " + code);
+        };
+    }
+
+    private static byte transactionTypeCode(TransactionType type) {
+        return switch (type) {
+            case CREDIT -> 0;
+            case DEBIT -> 1;
+        };
+    }
+
+    private static TransactionType transactionType(byte code) {
+        return switch (code) {
+            case 0 -> TransactionType.CREDIT;
+            case 1 -> TransactionType.DEBIT;
+            default -> throw new IllegalStateException("Unknown transaction type code: " + code);
+        };
+    }
+
+    private static byte actionTypeCode(ActionType type) {
+        return switch (type) {
+            case REGISTRATION -> 0;
+            case LOGIN -> 1;
+            case LOGOUT -> 2;
+        };
+    }
+
+    private static ActionType actionType(byte code) {
+        return switch (code) {
+            case 0 -> ActionType.REGISTRATION;
+            case 1 -> ActionType.LOGIN;
+            case 2 -> ActionType.LOGOUT;
+            default -> throw new IllegalStateException("Unknown action type code: " + code);
+        };
+    }
+
+    private static byte statusCode(AuditableStatus status) {
+        return switch (status) {
+            case SUCCESS -> 0;
+            case DECLINE -> 1;
+        };
+    }
+
+    private static AuditableStatus status(byte code) {
+        return switch (code) {
+            case 0 -> AuditableStatus.SUCCESS;
+            case 1 -> AuditableStatus.DECLINE;
+            default -> throw new IllegalStateException("Unknown status code: " + code);
+        };
+    }
+}
@@ -0,0 +1,382 @@
+package org.example.infrostructure.in.binary;
+
+import org.example.core.models.Auditable;
+import org.example.core.models.Page;
+import org.example.core.models.PageCursor;
+import org.example.core.models.Transaction;
+import org.example.core.models.User;
+import org.example.core.models.enums.TransacionReturns;
+import org.example.core.services.OperationService;
+import org.example.infrostructure.SessionContext;
+import org.example.infrostructure.services.AuthorisationService;
+import org.example.infrostructure.services.AuthorisationService.AuthorisationResult;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Сервер двоичного протокола {@link BinaryProtocol} на NIO для внутренних пакетных клиентов.
+ * <p>
+ * Один поток с {@link Selector} принимает соединения, читает и пишет сокеты. Когда в буфере чтения
+ * соединения набирается хотя бы один целый запрос, соединение передается виртуальному потоку,
+ * который выполняет все накопленные запросы подряд и кодирует ответы прямо в буфер записи,
+ * после чего возвращает соединение потоку селектора. Пока соединение у обработчика, селектор его не читает,
+ * поэтому буферы принадлежат одному потоку и ответы идут в порядке запросов.
+ * Буферы соединения выделяются один раз и переиспользуются для всех запросов.
+ * <p>
+ * Сессия привязана к соединению: после LOGIN остальные методы выполняются от имени вошедшего пользователя,
+ * пока сессия не истечет в {@link SessionContext}
+ */
+public class BinaryServer implements Closeable {
+    private final AuthorisationService authorisationService;
+    private final OperationService operationService;
+    private final SessionContext sessionContext;
+    private final ServerSocketChannel serverChannel;
+    private final Selector selector;
+    private final ExecutorService executor;
+    private final Queue<Connection> processed = new ConcurrentLinkedQueue<>();
+    private final Thread selectorThread;
+    private volatile boolean running = true;
+
+    /**
+     * Состояние соединения. Буферы читает и пишет либо поток селектора, либо обработчик, но не оба сразу
+     */
+    private static final class Connection {
+        private final SocketChannel channel;
+        private final ByteBuffer in = ByteBuffer.allocateDirect(2 * (BinaryProtocol.MAX_REQUEST_LENGTH + 4));
+        private final ByteBuffer out = ByteBuffer.allocateDirect(2 * BinaryProtocol.MAX_RESPONSE_LENGTH);
+        private SelectionKey key;
+        private String token;
+
+        /**
+         * Во входящих данных запрос недопустимой длины, соединение закрывается после отправки ответов
+         */
+        private boolean broken;
+
+        private Connection(SocketChannel channel) {
+            this.channel = channel;
+        }
+
+        /**
+         * @return true, если в буфере чтения есть целый запрос
+         */
+        private boolean hasRequest() {
+            return in.position() >= 4 && in.getInt(0) + 4 <= in.position();
+        }
+    }
+
+    /**
+     * @param address              адрес, порт 0 - любой свободный
+     * @param authorisationService сервис входа
+     * @param operationService     сервис операций
+     * @param sessionContext       реестр сессий
+     */
+    public BinaryServer(InetSocketAddress address, AuthorisationService authorisationService,
+                        OperationService operationService, SessionContext sessionContext) throws IOException {
+        this.authorisationService = authorisationService;
+        this.operationService = operationService;
+        this.sessionContext = sessionContext;
+        this.selector = Selector.open();
+        this.serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(address);
+        serverChannel.configureBlocking(false);
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        this.executor = Executors.newVirtualThreadPerTaskExecutor();
+        this.selectorThread = new Thread(this::selectLoop, "binary-server-selector");
+    }
+
+    /**
+     * Начинает прием соединений
+     */
+    public void start() {
+        selectorThread.start();
+    }
+
+    /**
+     * @return Порт, на котором принимаются соединения
+     */
+    public int getPort() {
+        return serverChannel.socket().getLocalPort();
+    }
+
+    /**
+     * Закрывает все соединения и дожидается завершения начатых запросов
+     */
+    @Override
+    public void close() {
+        running = false;
+        selector.wakeup();
+        try {
+            selectorThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        executor.close();
+        try {
+            for (SelectionKey key : selector.keys()) {
+                key.channel().close();
+            }
+            selector.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private void selectLoop() {
+        try {
+            while (running) {
+                selector.select();
+                Connection connection;
+                while ((connection = processed.poll()) != null) {
+                    flush(connection);
+                }
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        accept();
+                    } else if (key.isReadable()) {
+                        read((Connection) key.attachment());
+                    } else if (key.isWritable()) {
+                        flush((Connection) key.attachment());
+                    }
+                }
+            }
+        } catch (IOException | ClosedSelectorException e) {
+            if (running) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel = serverChannel.accept();
+        if (channel == null) {
+            return;
+        }
+        channel.configureBlocking(false);
+        channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        Connection connection = new Connection(channel);
+        connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+    }
+
+    private void read(Connection connection) {
+        try {
+            if (connection.channel.read(connection.in) < 0) {
+                disconnect(connection);
+                return;
+            }
+        } catch (IOException e) {
+            disconnect(connection);
+            return;
+        }
+        if (connection.in.position() >= 4) {
+            int length = connection.in.getInt(0);
+            if (length < 5 || length > BinaryProtocol.MAX_REQUEST_LENGTH) {
+                disconnect(connection);
+                return;
+            }
+        }
+        if (connection.hasRequest()) {
+            dispatch(connection);
+        }
+    }
+
+    /**
+     * Передает соединение обработчику, до возврата селектор не следит за соединением
+     */
+    private void dispatch(Connection connection) {
+        connection.key.interestOps(0);
+        executor.execute(() -> {
+            process(connection);
+            processed.add(connection);
+            selector.wakeup();
+        });
+    }
+
+    /**
+     * Отправляет накопленные ответы и, если все отправлено, продолжает обработку или чтение
+     */
+    private void flush(Connection connection) {
+        if (!connection.key.isValid()) {
+            return;
+        }
+        ByteBuffer out = connection.out;
+        out.flip();
+        try {
+            connection.channel.write(out);
+        } catch (IOException e) {
+            disconnect(connection);
+            return;
+        }
+        out.compact();
+        if (out.position() > 0) {
+            connection.key.interestOps(SelectionKey.OP_WRITE);
+        } else if (connection.broken) {
+            disconnect(connection);
+        } else if (connection.hasRequest()) {
+            dispatch(connection);
+        } else {
+            connection.key.interestOps(SelectionKey.OP_READ);
+        }
+    }
+
+    private void disconnect(Connection connection) {
+        connection.key.cancel();
+        String token = connection.token;
+        if (token != null) {
+            connection.token = null;
+            executor.execute(() -> authorisationService.logout(token));
+        }
+        try {
+            connection.channel.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Выполняет накопленные запросы, пока в буфере записи хватает места на самый большой ответ.
+     * Данные запроса читаются из буфера чтения с ограничением по концу запроса, без копирования
+     */
+    private void process(Connection connection) {
+        ByteBuffer in = connection.in;
+        ByteBuffer out = connection.out;
+        in.flip();
+        while (in.remaining() >= 4) {
+            int length = in.getInt(in.position());
+            if (length < 5 || length > BinaryProtocol.MAX_REQUEST_LENGTH) {
+                connection.broken = true;
+                break;
+            }
+            if (length + 4 > in.remaining() || out.remaining() < BinaryProtocol.MAX_RESPONSE_LENGTH) {
+                break;
+            }
+            int limit = in.limit();
+            int end = in.position() + 4 + length;
+            in.position(in.position() + 4);
+            in.limit(end);
+            byte method = in.get();
+            int requestId = in.getInt();
+            int start = out.position();
+            out.putInt(0);
+            out.putInt(requestId);
+            try {
+                handle(connection, method, in, out);
+            } catch (IllegalArgumentException | BufferUnderflowException e) {
+                out.position(start + 8);
+                out.put(BinaryProtocol.BAD_REQUEST);
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+                out.position(start + 8);
+                out.put(BinaryProtocol.ERROR);
+            }
+            out.putInt(start, out.position() - start - 4);
+            in.limit(limit);
+            in.position(end);
+        }
+        in.compact();
+    }
+
+    private void handle(Connection connection, byte method, ByteBuffer in, ByteBuffer out) {
+        if (method == BinaryProtocol.LOGIN) {
+            String username = BinaryProtocol.getString(in);
+            String password = BinaryProtocol.getString(in);
+            if (connection.token != null) {
+                authorisationService.logout(connection.token);
+                connection.token = null;
+            }
+            AuthorisationResult result = authorisationService.authorisation(username, password);
+            connection.token = result.getToken();
+            out.put(BinaryProtocol.OK);
+            out.put(BinaryProtocol.authorisationCode(result.getStatus()));
+            User user = connection.token == null ? null : sessionContext.getUser(connection.token);
+            out.putLong(user == null ? 0 : user.getId());
+            return;
+        }
+        User user = connection.token == null ? null : sessionContext.getUser(connection.token);
+        if (user == null) {
+            out.put(BinaryProtocol.UNAUTHORISED);
+            return;
+        }
+        switch (method) {
+            case BinaryProtocol.LOGOUT -> {
+                authorisationService.logout(connection.token);
+                connection.token = null;
+                out.put(BinaryProtocol.OK);
+            }
+            case BinaryProtocol.CREDIT, BinaryProtocol.DEBIT -> {
+                float amount = in.getFloat();
+                boolean hasOperationId = in.get() != 0;
+                long operationId = in.getLong();
+                if (!(amount > 0) || Float.isInfinite(amount)) {
+                    throw new IllegalArgumentException("Amount must be positive.");
+                }
+                TransacionReturns status;
+                if (method == BinaryProtocol.CREDIT) {
+                    status = hasOperationId
+                            ? operationService.credit(user, amount, operationId)
+                            : operationService.credit(user, amount);
+                } else {
+                    status = hasOperationId
+                            ? operationService.debit(user, amount, operationId)
+                            : operationService.debit(user, amount);
+                }
+                out.put(BinaryProtocol.OK);
+                out.put(BinaryProtocol.resultCode(status));
+                out.putFloat(user.getBalance());
+            }
+            case BinaryProtocol.HISTORY -> {
+                PageCursor after = BinaryProtocol.getCursor(in);
+                Page<Transaction> page = operationService.history(user, after, pageSize(in));
+                out.put(BinaryProtocol.OK);
+                putPage(out, page.getItems(), page.getNextCursor());
+            }
+            case BinaryProtocol.AUDIT -> {
+                PageCursor after = BinaryProtocol.getCursor(in);
+                Page<Auditable> page = operationService.audit(user, after, pageSize(in));
+                out.put(BinaryProtocol.OK);
+                putPage(out, page.getItems(), page.getNextCursor());
+            }
+            default -> throw new IllegalArgumentException("Unknown method " + method + ".");
+        }
+    }
+
+    private static int pageSize(ByteBuffer in) {
+        int pageSize = in.getInt();
+        if (pageSize < 1 || pageSize > BinaryProtocol.MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Invalid page size.");
+        }
+        return pageSize;
+    }
+
+    private static void putPage(ByteBuffer out, Iterable<? extends Auditable> items, PageCursor nextCursor) {
+        int countPosition = out.position();
+        out.putInt(0);
+        int count = 0;
+        for (Auditable auditable : items) {
+            BinaryProtocol.putAuditable(out, auditable);
+            count++;
+        }
+        out.putInt(countPosition, count);
+        BinaryProtocol.putCursor(out, nextCursor);
+    }
+}
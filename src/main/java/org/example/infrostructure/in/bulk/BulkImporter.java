@@ -0,0 +1,507 @@
+package org.example.infrostructure.in.bulk;
+
+import org.example.core.models.Operation;
+import org.example.core.models.enums.TransacionReturns;
+import org.example.core.models.enums.TransactionType;
+import org.example.core.services.OperationService;
+import org.example.infrostructure.IdempotencyRegistry;
+import org.example.infrostructure.LongHash;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Загрузка файла операций партнеров. Строка файла: {@code id пользователя,CREDIT|DEBIT,сумма[,id операции]},
+ * например {@code 42,DEBIT,100.50,9001}, строки разделяются переводом строки.
+ * <p>
+ * Файл отображается в память участками, строки разбираются прямо из отображения в массивы примитивов без
+ * создания строк. Разобранная порция строк делится по id пользователя между потоками, каждый поток применяет
+ * свои операции пачками через {@link OperationService#applyBatch} в порядке файла, поэтому порядок операций
+ * каждого счета сохраняется.
+ * <p>
+ * Для каждой строки в файл результата пишется строка со статусом {@link TransacionReturns},
+ * {@code USER_NOT_FOUND} или {@code INVALID}, если строку не удалось разобрать. После каждой порции файл результата
+ * сбрасывается на диск и атомарно обновляется контрольная точка рядом с ним: смещение в исходном файле,
+ * номер строки и длина файла результата. Повторный запуск продолжает с контрольной точки.
+ * <p>
+ * Порция, прерванная сбоем, выполняется заново. Чтобы ее уже примененные строки не применились повторно,
+ * строка без id операции получает синтетический id, см. {@link #operationId(long, long)}: повтор такой строки
+ * получает UNUNIQUE_ID, как и повтор строки с id операции. Это защищает от повторного применения, только если
+ * зарезервированные id переживают сбой, то есть сервис операций работает с надежным хранилищем id
+ * ({@code DurableCollectionsStore} или Postgres). Хранилище в памяти теряет id при сбое процесса,
+ * и с ним перезапуск может повторно применить операции прерванной порции. Реестр id в памяти
+ * ({@link IdempotencyRegistry}) вытесняет самые старые id при переполнении, поэтому порция не больше
+ * {@link #MAX_CHUNK_LINES} строк: id прерванной порции остаются в реестре вместе с id других клиентов
+ */
+public class BulkImporter {
+    public static final int DEFAULT_BATCH_SIZE = 1_000;
+    public static final int DEFAULT_CHUNK_LINES = 10_000;
+    /**
+     * Наибольшее число строк в порции, половина емкости реестра id по умолчанию
+     */
+    public static final int MAX_CHUNK_LINES = IdempotencyRegistry.DEFAULT_MAX_SIZE / 2;
+    public static final long DEFAULT_REGION_BYTES = 64L * 1024 * 1024;
+
+    private static final int LINE_BITS = 26;
+    /**
+     * Наибольшее число строк файла: номер строки занимает младшие биты синтетического id операции
+     */
+    public static final long MAX_LINES = 1L << LINE_BITS;
+    private static final long INPUT_MASK = (1L << (62 - LINE_BITS)) - 1;
+    private static final long SYNTHETIC_ID_FLAG = 1L << 62;
+    private static final int FINGERPRINT_BYTES = 64 * 1024;
+
+    private static final byte USER_NOT_FOUND = (byte) TransacionReturns.USER_NOT_FOUND.ordinal();
+    private static final byte INVALID = (byte) TransacionReturns.values().length;
+    private static final byte[][] STATUS_LINES = new byte[INVALID + 1][];
+    private static final int MAX_STATUS_LINE;
+
+    private static final byte CREDIT = 0;
+    private static final byte DEBIT = 1;
+    private static final byte[] CREDIT_NAME = "CREDIT".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] DEBIT_NAME = "DEBIT".getBytes(StandardCharsets.US_ASCII);
+    private static final double[] POWERS_OF_TEN = {1, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9};
+
+    static {
+        for (TransacionReturns status : TransacionReturns.values()) {
+            STATUS_LINES[status.ordinal()] = (status.name() + "\n").getBytes(StandardCharsets.US_ASCII);
+        }
+        STATUS_LINES[INVALID] = "INVALID\n".getBytes(StandardCharsets.US_ASCII);
+        int max = 0;
+        for (byte[] line : STATUS_LINES) {
+            max = Math.max(max, line.length);
+        }
+        MAX_STATUS_LINE = max;
+    }
+
+    private final OperationService operationService;
+    private final int threads;
+    private final int batchSize;
+    private final int chunkLines;
+    private final long regionBytes;
+
+    /**
+     * Порция разобранных строк. Поток разбора заполняет массивы, потоки применения пишут только статусы своих строк
+     */
+    private static final class Chunk {
+        private final long[] userIds;
+        private final byte[] types;
+        private final float[] amounts;
+        private final long[] operationIds;
+        private final boolean[] hasOperationId;
+        private final byte[] statuses;
+        private final int[][] partitions;
+        private final int[] partitionSizes;
+        private int size;
+        private long firstLine;
+        private long input;
+
+        private Chunk(int capacity, int partitionCount) {
+            userIds = new long[capacity];
+            types = new byte[capacity];
+            amounts = new float[capacity];
+            operationIds = new long[capacity];
+            hasOperationId = new boolean[capacity];
+            statuses = new byte[capacity];
+            partitions = new int[partitionCount][capacity];
+            partitionSizes = new int[partitionCount];
+        }
+    }
+
+    /**
+     * Контрольная точка: все строки до {@code line} применены, их статусы занимают {@code resultLength} байт
+     */
+    private static final class Checkpoint {
+        private final long offset;
+        private final long line;
+        private final long resultLength;
+        private final long inputSize;
+        private final long input;
+
+        private Checkpoint(long offset, long line, long resultLength, long inputSize, long input) {
+            this.offset = offset;
+            this.line = line;
+            this.resultLength = resultLength;
+            this.inputSize = inputSize;
+            this.input = input;
+        }
+    }
+
+    public BulkImporter(OperationService operationService, int threads) {
+        this(operationService, threads, DEFAULT_BATCH_SIZE, DEFAULT_CHUNK_LINES, DEFAULT_REGION_BYTES);
+    }
+
+    /**
+     * @param operationService сервис операций
+     * @param threads          число потоков применения операций
+     * @param batchSize        наибольшее число операций в одном вызове applyBatch
+     * @param chunkLines       число строк между контрольными точками, не больше {@link #MAX_CHUNK_LINES}
+     * @param regionBytes      размер участка файла, отображаемого в память за раз, не меньше самой длинной строки
+     */
+    public BulkImporter(OperationService operationService, int threads, int batchSize, int chunkLines,
+                        long regionBytes) {
+        if (threads <= 0 || batchSize <= 0 || chunkLines <= 0 || regionBytes <= 0 || regionBytes > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Invalid bulk import settings.");
+        }
+        if (chunkLines > MAX_CHUNK_LINES) {
+            throw new IllegalArgumentException("Chunk must not exceed " + MAX_CHUNK_LINES + " lines.");
+        }
+        this.operationService = operationService;
+        this.threads = threads;
+        this.batchSize = batchSize;
+        this.chunkLines = chunkLines;
+        this.regionBytes = regionBytes;
+    }
+
+    /**
+     * Загружает файл операций, продолжая с контрольной точки, если она есть
+     *
+     * @param input  файл операций
+     * @param result файл результата, рядом с ним хранится контрольная точка
+     * @return Итоги этого запуска
+     * @throws IllegalStateException если контрольная точка не соответствует файлам или сервис операций
+     *                               не смог применить пачку; контрольная точка при этом остается на последней порции
+     */
+    public ImportReport importFile(Path input, Path result) throws IOException {
+        long startedAt = System.nanoTime();
+        Path checkpointPath = checkpointPath(result);
+        long inputSize = Files.size(input);
+        long inputFingerprint = fingerprint(input, inputSize);
+        Checkpoint checkpoint = Files.exists(checkpointPath)
+                ? readCheckpoint(checkpointPath)
+                : new Checkpoint(0, 0, 0, inputSize, inputFingerprint);
+        if (checkpoint.inputSize != inputSize || checkpoint.input != inputFingerprint) {
+            throw new IllegalStateException("Checkpoint belongs to another input file.");
+        }
+
+        long[] counts = new long[STATUS_LINES.length];
+        long offset = checkpoint.offset;
+        long line = checkpoint.line;
+        Chunk chunk = new Chunk(chunkLines, threads);
+        chunk.input = inputFingerprint;
+        ByteBuffer resultBuffer = ByteBuffer.allocateDirect(chunkLines * MAX_STATUS_LINE);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try (FileChannel in = FileChannel.open(input, StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(result, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            if (out.size() < checkpoint.resultLength) {
+                throw new IllegalStateException("Result file is shorter than checkpoint.");
+            }
+            // статусы порции, прерванной сбоем, отбрасываются
+            out.truncate(checkpoint.resultLength);
+            out.position(checkpoint.resultLength);
+
+            while (offset < inputSize) {
+                long length = Math.min(regionBytes, inputSize - offset);
+                boolean lastRegion = offset + length == inputSize;
+                MappedByteBuffer region = in.map(FileChannel.MapMode.READ_ONLY, offset, length);
+                int position = 0;
+                while (true) {
+                    position = parse(region, position, lastRegion, chunk);
+                    if (chunk.size == 0) {
+                        break;
+                    }
+                    if (line + chunk.size > MAX_LINES) {
+                        throw new IllegalStateException("Input file has more than " + MAX_LINES + " lines.");
+                    }
+                    chunk.firstLine = line;
+                    apply(chunk, executor);
+                    resultBuffer.clear();
+                    for (int i = 0; i < chunk.size; i++) {
+                        resultBuffer.put(STATUS_LINES[chunk.statuses[i]]);
+                        counts[chunk.statuses[i]]++;
+                    }
+                    resultBuffer.flip();
+                    while (resultBuffer.hasRemaining()) {
+                        out.write(resultBuffer);
+                    }
+                    out.force(false);
+                    line += chunk.size;
+                    writeCheckpoint(checkpointPath, new Checkpoint(offset + position, line, out.position(), inputSize,
+                            inputFingerprint));
+                }
+                if (position == 0) {
+                    throw new IllegalStateException("Line at offset " + offset + " is longer than mapped region.");
+                }
+                offset += position;
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        return new ImportReport(checkpoint.line, line - checkpoint.line,
+                counts[TransacionReturns.SUCCESS.ordinal()],
+                counts[TransacionReturns.NOT_ENOUGH_MONEY.ordinal()] + counts[TransacionReturns.LIMIT_EXCEEDED.ordinal()],
+                counts[TransacionReturns.UNUNIQUE_ID.ordinal()],
+                counts[USER_NOT_FOUND], counts[INVALID],
+                (System.nanoTime() - startedAt) / 1_000_000);
+    }
+
+    /**
+     * Разбирает целые строки участка в порцию
+     *
+     * @return Позиция в участке после последней разобранной строки
+     */
+    private int parse(MappedByteBuffer region, int position, boolean lastRegion, Chunk chunk) {
+        chunk.size = 0;
+        Arrays.fill(chunk.partitionSizes, 0);
+        int limit = region.limit();
+        while (chunk.size < chunkLines && position < limit) {
+            int end = position;
+            while (end < limit && region.get(end) != '\n') {
+                end++;
+            }
+            if (end == limit && !lastRegion) {
+                break;
+            }
+            int lineEnd = end > position && region.get(end - 1) == '\r' ? end - 1 : end;
+            int index = chunk.size++;
+            if (parseLine(region, position, lineEnd, chunk, index)) {
+                int partition = (int) Math.floorMod(chunk.userIds[index], (long) threads);
+                chunk.partitions[partition][chunk.partitionSizes[partition]++] = index;
+                chunk.statuses[index] = -1;
+            } else {
+                chunk.statuses[index] = INVALID;
+            }
+            position = end < limit ? end + 1 : end;
+        }
+        return position;
+    }
+
+    /**
+     * Разбирает строку {@code id пользователя,CREDIT|DEBIT,сумма[,id операции]}
+     *
+     * @return false, если строка не соответствует формату
+     */
+    private static boolean parseLine(ByteBuffer region, int start, int end, Chunk chunk, int index) {
+        int position = start;
+        int digitsEnd = digits(region, position, end, 18);
+        if (digitsEnd == position || digitsEnd == end || region.get(digitsEnd) != ',') {
+            return false;
+        }
+        chunk.userIds[index] = number(region, position, digitsEnd);
+        position = digitsEnd + 1;
+
+        if (matches(region, position, end, CREDIT_NAME)) {
+            chunk.types[index] = CREDIT;
+            position += CREDIT_NAME.length;
+        } else if (matches(region, position, end, DEBIT_NAME)) {
+            chunk.types[index] = DEBIT;
+            position += DEBIT_NAME.length;
+        } else {
+            return false;
+        }
+        if (position == end || region.get(position) != ',') {
+            return false;
+        }
+        position++;
+
+        digitsEnd = digits(region, position, end, 12);
+        if (digitsEnd == position) {
+            return false;
+        }
+        double amount = number(region, position, digitsEnd);
+        position = digitsEnd;
+        if (position < end && region.get(position) == '.') {
+            position++;
+            digitsEnd = digits(region, position, end, 9);
+            if (digitsEnd == position) {
+                return false;
+            }
+            amount += number(region, position, digitsEnd) / POWERS_OF_TEN[digitsEnd - position];
+            position = digitsEnd;
+        }
+        if (!(amount > 0)) {
+            return false;
+        }
+        chunk.amounts[index] = (float) amount;
+
+        chunk.hasOperationId[index] = false;
+        if (position < end) {
+            if (region.get(position) != ',') {
+                return false;
+            }
+            position++;
+            digitsEnd = digits(region, position, end, 18);
+            if (digitsEnd == position) {
+                return false;
+            }
+            chunk.operationIds[index] = number(region, position, digitsEnd);
+            chunk.hasOperationId[index] = true;
+            position = digitsEnd;
+        }
+        return position == end;
+    }
+
+    /**
+     * @return Позиция после цифр, начинающихся с {@code start}, или {@code start}, если цифр нет или их больше max
+     */
+    private static int digits(ByteBuffer region, int start, int end, int max) {
+        int position = start;
+        while (position < end && region.get(position) >= '0' && region.get(position) <= '9') {
+            position++;
+        }
+        return position - start > max ? start : position;
+    }
+
+    private static long number(ByteBuffer region, int start, int end) {
+        long value = 0;
+        for (int position = start; position < end; position++) {
+            value = value * 10 + (region.get(position) - '0');
+        }
+        return value;
+    }
+
+    private static boolean matches(ByteBuffer region, int start, int end, byte[] name) {
+        if (end - start < name.length) {
+            return false;
+        }
+        for (int i = 0; i < name.length; i++) {
+            if ((region.get(start + i) & ~0x20) != name[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Применяет порцию: каждый поток выполняет операции своей части пользователей
+     */
+    private void apply(Chunk chunk, ExecutorService executor) {
+        List<Callable<Void>> tasks = new ArrayList<>(threads);
+        for (int partition = 0; partition < threads; partition++) {
+            if (chunk.partitionSizes[partition] > 0) {
+                int current = partition;
+                tasks.add(() -> {
+                    applyPartition(chunk, current);
+                    return null;
+                });
+            }
+        }
+        try {
+            for (Future<Void> future : executor.invokeAll(tasks)) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Bulk import interrupted.", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException("Bulk import failed.", e.getCause());
+        }
+    }
+
+    private void applyPartition(Chunk chunk, int partition) {
+        int[] indices = chunk.partitions[partition];
+        int count = chunk.partitionSizes[partition];
+        List<Operation> batch = new ArrayList<>(Math.min(batchSize, count));
+        for (int from = 0; from < count; from += batchSize) {
+            int to = Math.min(count, from + batchSize);
+            batch.clear();
+            for (int k = from; k < to; k++) {
+                int i = indices[k];
+                batch.add(new Operation(chunk.userIds[i],
+                        chunk.types[i] == CREDIT ? TransactionType.CREDIT : TransactionType.DEBIT,
+                        chunk.amounts[i], chunk.hasOperationId[i]
+                        ? chunk.operationIds[i]
+                        : operationId(chunk.input, chunk.firstLine + i)));
+            }
+            List<TransacionReturns> results = operationService.applyBatch(batch);
+            for (int k = from; k < to; k++) {
+                chunk.statuses[indices[k]] = (byte) results.get(k - from).ordinal();
+            }
+        }
+    }
+
+    /**
+     * Синтетический id операции строки без id: отрицательный, чтобы не пересекаться с идентификаторами клиентов,
+     * с установленным 62-м битом, чтобы не пересекаться с id повторений планировщика, и уникальный для пары
+     * отпечатка файла и номера строки. Повторный запуск того же файла дает строке тот же id
+     *
+     * @param input отпечаток файла, см. {@link #fingerprint(Path, long)}
+     * @param line  номер строки от нуля, меньше {@link #MAX_LINES}
+     */
+    static long operationId(long input, long line) {
+        return -1 - (SYNTHETIC_ID_FLAG | ((input & INPUT_MASK) << LINE_BITS) | line);
+    }
+
+    /**
+     * Отпечаток файла операций из его имени, длины и первых {@value #FINGERPRINT_BYTES} байт.
+     * Переименованный файл считается другим файлом, его строки получат другие синтетические id
+     */
+    private static long fingerprint(Path input, long inputSize) throws IOException {
+        long hash = LongHash.mix(input.getFileName().toString().hashCode() ^ LongHash.mix(inputSize));
+        try (FileChannel channel = FileChannel.open(input, StandardOpenOption.READ)) {
+            MappedByteBuffer head = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+                    Math.min(inputSize, FINGERPRINT_BYTES));
+            while (head.remaining() >= Long.BYTES) {
+                hash = Long.rotateLeft(LongHash.mix(hash ^ head.getLong()), 31);
+            }
+            while (head.hasRemaining()) {
+                hash = Long.rotateLeft(LongHash.mix(hash ^ head.get()), 31);
+            }
+        }
+        return hash ^ (hash >>> 32);
+    }
+
+    private static Path checkpointPath(Path result) {
+        return result.resolveSibling(result.getFileName() + ".checkpoint");
+    }
+
+    private static Checkpoint readCheckpoint(Path path) throws IOException {
+        Properties properties = new Properties();
+        try (InputStream stream = Files.newInputStream(path)) {
+            properties.load(stream);
+        }
+        try {
+            return new Checkpoint(Long.parseLong(properties.getProperty("offset")),
+                    Long.parseLong(properties.getProperty("line")),
+                    Long.parseLong(properties.getProperty("resultLength")),
+                    Long.parseLong(properties.getProperty("inputSize")),
+                    Long.parseLong(properties.getProperty("input")));
+        } catch (NumberFormatException e) {
+            throw new IllegalStateException("Corrupted checkpoint " + path + ".", e);
+        }
+    }
+
+    /**
+     * Записывает контрольную точку во временный файл и атомарно заменяет им прежнюю
+     */
+    private static void writeCheckpoint(Path path, Checkpoint checkpoint) throws IOException {
+        Properties properties = new Properties();
+        properties.setProperty("offset", Long.toString(checkpoint.offset));
+        properties.setProperty("line", Long.toString(checkpoint.line));
+        properties.setProperty("resultLength", Long.toString(checkpoint.resultLength));
+        properties.setProperty("inputSize", Long.toString(checkpoint.inputSize));
+        properties.setProperty("input", Long.toString(checkpoint.input));
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            OutputStream stream = Channels.newOutputStream(channel);
+            properties.store(stream, null);
+            stream.flush();
+            channel.force(true);
+        }
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
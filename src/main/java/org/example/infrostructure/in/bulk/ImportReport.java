@@ -0,0 +1,47 @@
+package org.example.infrostructure.in.bulk;
+
+import lombok.Data;
+
+/**
+ * Итоги загрузки файла операций за один запуск
+ */
+@Data
+public class ImportReport {
+    /**
+     * Номер строки (с нуля), с которой продолжена загрузка по контрольной точке
+     */
+    private final long resumedFromLine;
+
+    /**
+     * Число строк, обработанных в этом запуске
+     */
+    private final long lines;
+
+    private final long succeeded;
+
+    /**
+     * Отклонено из-за нехватки средств или лимита списаний
+     */
+    private final long declined;
+
+    /**
+     * Операции с уже использованным id, в том числе повторенные после перезапуска
+     */
+    private final long duplicates;
+
+    private final long userNotFound;
+
+    /**
+     * Строки, которые не удалось разобрать
+     */
+    private final long invalid;
+
+    private final long elapsedMillis;
+
+    /**
+     * @return Строк в секунду за этот запуск
+     */
+    public double getThroughput() {
+        return elapsedMillis == 0 ? lines : lines * 1000.0 / elapsedMillis;
+    }
+}
@@ -1,20 +1,30 @@
 package org.example.infrostructure.in.console;
 
 import lombok.RequiredArgsConstructor;
+import org.example.core.models.AccountSummary;
 import org.example.core.models.Action;
 import org.example.core.models.Auditable;
+import org.example.core.models.Page;
+import org.example.core.models.ScheduledOperation;
 import org.example.core.models.Transaction;
 import org.example.core.models.User;
+import org.example.core.models.enums.Recurrence;
+import org.example.core.models.enums.SummaryPeriod;
 import org.example.core.models.enums.TransacionReturns;
+import org.example.core.models.enums.TransactionType;
 import org.example.core.services.OperationService;
 import org.example.core.services.UserService;
 import org.example.infrostructure.SessionContext;
+import org.example.infrostructure.scheduler.OperationScheduler;
 import org.example.infrostructure.services.AuthorisationService;
 
 
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Scanner;
 import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 
 
 /**
@@ -26,8 +36,18 @@ public class ConsoleUI {
     private final AuthorisationService authorisationService;
     private final UserService userService;
     private final OperationService operationService;
+    private final SessionContext sessionContext;
+    /**
+     * Планировщик операций или null, если планировщик отключен
+     */
+    private final OperationScheduler scheduler;
 
 
+    /**
+     * Количество записей на одной странице истории и аудита
+     */
+    private static final int PAGE_SIZE = 20;
+
     private Scanner scanner = new Scanner(System.in);
 
     static String ascii =
@@ -60,15 +80,21 @@ public class ConsoleUI {
     }
 
     /**
-     * Метод для выбора операции, доступен после входа в систему
+     * Метод для выбора операции, доступен после входа в систему, пока сессия не истекла
+     *
+     * @param token Токен сессии
      */
-    private void operations() {
+    private void operations(String token) {
         System.out.println();
-        User currentUser = SessionContext.getLoggedInUser();
 
         while (true) {
+            User currentUser = sessionContext.getUser(token);
+            if (currentUser == null) {
+                System.out.println("Сессия истекла, войдите снова");
+                return;
+            }
             System.out.printf("%s, ваш баланс: %f \n", currentUser.getUsername(), currentUser.getBalance());
-            System.out.println("Пополнение (1) / Вывод (2) / История (3) / Аудит (4) / Выход (5): ");
+            System.out.println("Пополнение (1) / Вывод (2) / История (3) / Аудит (4) / Итоги (5) / Расписание (6) / Выход (7): ");
             int choice = scanner.nextInt();
 
             switch (choice) {
@@ -76,7 +102,9 @@ public class ConsoleUI {
                 case 2 -> debit(currentUser);
                 case 3 -> history(currentUser);
                 case 4 -> audit(currentUser);
-                case 5 -> logout(currentUser);
+                case 5 -> summary(currentUser);
+                case 6 -> schedule(currentUser);
+                case 7 -> logout(token);
             }
         }
     }
@@ -114,6 +142,8 @@ public class ConsoleUI {
             System.out.println("Операция выполнена успешно");
         } else if (status == TransacionReturns.NOT_ENOUGH_MONEY) {
             System.out.println("Недостаточно средств на балансе");
+        } else if (status == TransacionReturns.LIMIT_EXCEEDED) {
+            System.out.println("Превышен лимит списаний, повторите операцию позже");
         } else if (status == TransacionReturns.UNUNIQUE_ID) {
             throw new IllegalArgumentException("Идентификатор транзакции уже существует");
         }
@@ -123,13 +153,14 @@ public class ConsoleUI {
 
     /**
      * Метод для отображения истории транзакций текущего пользователя.
-     * Выводит дату и время, тип, сумму и статус каждой транзакции
+     * Выводит дату и время, тип, сумму и статус каждой транзакции.
+     * Транзакции запрашиваются постранично, следующая страница загружается по запросу пользователя
      */
     private void history(User currentUser) {
         System.out.println("История операций:");
-        List<Transaction> transactions = operationService.history(currentUser);
+        Page<Transaction> page = operationService.history(currentUser, null, PAGE_SIZE);
 
-        if (transactions.isEmpty()) {
+        if (page.getItems().isEmpty()) {
             System.out.println("Вы еще не совершали никаких транзакций");
         } else {
             // Вывод заголовка таблицы
@@ -139,29 +170,153 @@ public class ConsoleUI {
 
             DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
 
-            // Вывод данных о транзакциях
-            for (Transaction transaction : transactions) {
-                String formattedDateTime = transaction.getDateTime().format(formatter);
-                System.out.printf("%-5d %-20s %-20s %-15.4f %-15s%n",
-                        transaction.getId(),
-                        formattedDateTime,
-                        transaction.getType().toString(),
-                        transaction.getAmount(),
-                        transaction.getStatus().toString()
+            while (true) {
+                // Вывод данных о транзакциях
+                for (Transaction transaction : page.getItems()) {
+                    String formattedDateTime = transaction.getDateTime().format(formatter);
+                    System.out.printf("%-5d %-20s %-20s %-15.4f %-15s%n",
+                            transaction.getId(),
+                            formattedDateTime,
+                            transaction.getType().toString(),
+                            transaction.getAmount(),
+                            transaction.getStatus().toString()
+                    );
+                }
+
+                if (!page.hasNext() || !askNextPage()) {
+                    break;
+                }
+                page = operationService.history(currentUser, page.getNextCursor(), PAGE_SIZE);
+            }
+        }
+        System.out.println();
+    }
+
+
+    /**
+     * Метод для отображения итогов текущего пользователя за сегодня и за текущий месяц:
+     * суммы и количество пополнений и списаний, количество отклоненных операций
+     */
+    private void summary(User currentUser) {
+        LocalDate today = LocalDate.now();
+        System.out.printf("%-10s %-15s %-10s %-15s %-10s %-12s %-20s%n",
+                "Период", "Пополнено", "Пополнений", "Списано", "Списаний", "Отклонено", "Последняя операция");
+
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+        for (SummaryPeriod period : SummaryPeriod.values()) {
+            AccountSummary summary = operationService.summary(currentUser, period, today);
+            System.out.printf("%-10s %-15.4f %-10d %-15.4f %-10d %-12d %-20s%n",
+                    period == SummaryPeriod.DAY ? "День" : "Месяц",
+                    summary.getCredited(),
+                    summary.getCreditCount(),
+                    summary.getDebited(),
+                    summary.getDebitCount(),
+                    summary.getDeclinedCount(),
+                    summary.getLastActivity() == null ? "-" : summary.getLastActivity().format(formatter)
+            );
+        }
+        System.out.println();
+    }
+
+
+    /**
+     * Метод для работы с запланированными операциями текущего пользователя: выводит список
+     * запланированных операций и предлагает запланировать новую или отменить одну из них
+     */
+    private void schedule(User currentUser) {
+        if (scheduler == null) {
+            System.out.println("Планировщик операций отключен");
+            System.out.println();
+            return;
+        }
+        List<ScheduledOperation> operations = scheduler.findByUserId(currentUser.getId());
+        if (operations.isEmpty()) {
+            System.out.println("У вас нет запланированных операций");
+        } else {
+            System.out.printf("%-5s %-10s %-15s %-15s %-20s%n",
+                    "ID", "Тип", "Сумма", "Периодичность", "Следующее выполнение");
+            DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+            for (ScheduledOperation operation : operations) {
+                System.out.printf("%-5d %-10s %-15.4f %-15s %-20s%n",
+                        operation.getId(),
+                        operation.getType().toString(),
+                        operation.getAmount(),
+                        operation.getRecurrence().toString(),
+                        operation.getNextRun().format(formatter)
                 );
             }
         }
+
+        System.out.print("Запланировать (1) / Отменить (2) / Назад (0): ");
+        switch (scanner.nextInt()) {
+            case 1 -> scheduleOperation(currentUser);
+            case 2 -> cancelScheduledOperation(currentUser);
+        }
         System.out.println();
     }
 
+    /**
+     * Запрашивает тип, сумму, периодичность и время первого выполнения и планирует операцию
+     */
+    private void scheduleOperation(User currentUser) {
+        System.out.print("Пополнение (1) / Вывод (2): ");
+        TransactionType type = scanner.nextInt() == 2 ? TransactionType.DEBIT : TransactionType.CREDIT;
+
+        System.out.print("Введите сумму: ");
+        float amount = scanner.nextFloat();
+
+        System.out.print("Разово (1) / Ежедневно (2) / Еженедельно (3) / Ежемесячно (4): ");
+        Recurrence recurrence = switch (scanner.nextInt()) {
+            case 1 -> Recurrence.ONCE;
+            case 2 -> Recurrence.DAILY;
+            case 3 -> Recurrence.WEEKLY;
+            case 4 -> Recurrence.MONTHLY;
+            default -> null;
+        };
+        if (recurrence == null) {
+            System.out.println("Неизвестная периодичность");
+            return;
+        }
+        scanner.nextLine();
+
+        System.out.print("Введите время первого выполнения (гггг-мм-дд чч:мм): ");
+        LocalDateTime firstRun;
+        try {
+            firstRun = LocalDateTime.parse(scanner.nextLine().trim(), DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm"));
+        } catch (DateTimeParseException e) {
+            System.out.println("Неверный формат времени");
+            return;
+        }
+
+        if (amount <= 0) {
+            System.out.println("Сумма должна быть положительной");
+            return;
+        }
+        ScheduledOperation operation = scheduler.schedule(currentUser.getId(), type, amount, recurrence, firstRun);
+        System.out.printf("Операция запланирована, id: %d%n", operation.getId());
+    }
+
+    /**
+     * Запрашивает id запланированной операции и отменяет ее
+     */
+    private void cancelScheduledOperation(User currentUser) {
+        System.out.print("Введите id операции: ");
+        if (scheduler.cancel(currentUser.getId(), scanner.nextLong())) {
+            System.out.println("Операция отменена");
+        } else {
+            System.out.println("Запланированная операция не найдена");
+        }
+    }
+
 
     /**
      * Метод для отображения аудита действий текущего пользователя.
-     * Выводит дату и время, тип, статус и тип операции (действие или транзакция)
+     * Выводит дату и время, тип, статус и тип операции (действие или транзакция).
+     * Аудит запрашивается постранично, следующая страница загружается по запросу пользователя
      */
     private void audit(User currentUser) {
         System.out.println("Аудит действий пользователя:");
-        List<Auditable> audits = operationService.audit(currentUser);
+        Page<Auditable> page = operationService.audit(currentUser, null, PAGE_SIZE);
 
         System.out.printf("%-5s %-20s %-15s %-15s %-15s%n",
                 "ID", "Дата и время", "Тип", "Статус", "Тип операции"
@@ -169,21 +324,38 @@ public class ConsoleUI {
 
         DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
 
-        for (Auditable audit : audits) {
-            String formattedDateTime = audit.getDateTime().format(formatter);
-            String type = audit instanceof Transaction ? "Транзакция" : "Действие";
-            System.out.printf("%-5d %-20s %-15s %-15s %-15s%n",
-                    audit.getId(),
-                    formattedDateTime,
-                    type,
-                    audit.getStatus().toString(),
-                    audit instanceof Transaction ? ((Transaction)
-                            audit).getType().toString() : ((Action) audit).getType().toString()
-            );
+        while (true) {
+            for (Auditable audit : page.getItems()) {
+                String formattedDateTime = audit.getDateTime().format(formatter);
+                String type = audit instanceof Transaction ? "Транзакция" : "Действие";
+                System.out.printf("%-5d %-20s %-15s %-15s %-15s%n",
+                        audit.getId(),
+                        formattedDateTime,
+                        type,
+                        audit.getStatus().toString(),
+                        audit instanceof Transaction ? ((Transaction)
+                                audit).getType().toString() : ((Action) audit).getType().toString()
+                );
+            }
+
+            if (!page.hasNext() || !askNextPage()) {
+                break;
+            }
+            page = operationService.audit(currentUser, page.getNextCursor(), PAGE_SIZE);
         }
         System.out.println();
     }
 
+    /**
+     * Спрашивает пользователя, нужно ли показать следующую страницу
+     *
+     * @return true, если пользователь запросил следующую страницу
+     */
+    private boolean askNextPage() {
+        System.out.print("Показать следующую страницу? (1 - да / 0 - нет): ");
+        return scanner.nextInt() == 1;
+    }
+
 
 
 
@@ -200,11 +372,12 @@ public class ConsoleUI {
 
         System.out.print("Введите пароль: ");
         String password = scanner.nextLine();
-        AuthorisationService.AuthorisationStatus status =
+        AuthorisationService.AuthorisationResult result =
                 authorisationService.authorisation(username, password);
+        AuthorisationService.AuthorisationStatus status = result.getStatus();
 
         if (status == AuthorisationService.AuthorisationStatus.SUCCESS) {
-            operations();
+            operations(result.getToken());
 
         } else if (status == AuthorisationService.AuthorisationStatus.USER_NOT_FOUND) {
             System.out.println("Пользователь с таким логином не найден");
@@ -269,9 +442,9 @@ public class ConsoleUI {
      * Метод для завершения сеанса пользователя и выхода из системы.
      * Вызывает сервис авторизации для выхода и возвращает пользователя на стартовый экран
      */
-    private void logout(User currentUser) {
+    private void logout(String token) {
         System.out.println("До свидания!");
-        authorisationService.logout(currentUser);
+        authorisationService.logout(token);
         System.out.println();
         start();
     }
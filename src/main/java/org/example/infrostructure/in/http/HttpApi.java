@@ -0,0 +1,485 @@
+package org.example.infrostructure.in.http;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.example.core.models.AccountSummary;
+import org.example.core.models.Action;
+import org.example.core.models.Auditable;
+import org.example.core.models.Page;
+import org.example.core.models.PageCursor;
+import org.example.core.models.ScheduledOperation;
+import org.example.core.models.Transaction;
+import org.example.core.models.User;
+import org.example.core.models.enums.Recurrence;
+import org.example.core.models.enums.SummaryPeriod;
+import org.example.core.models.enums.TransacionReturns;
+import org.example.core.models.enums.TransactionType;
+import org.example.core.services.OperationService;
+import org.example.core.services.UserService;
+import org.example.infrostructure.SessionContext;
+import org.example.infrostructure.scheduler.OperationScheduler;
+import org.example.infrostructure.services.AuthorisationService;
+import org.example.infrostructure.services.AuthorisationService.AuthorisationResult;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * HTTP/JSON API кошелька на встроенном в JDK {@link HttpServer}: регистрация, вход и выход,
+ * пополнение, списание, баланс, история, аудит и итоги за период, а при включенном планировщике -
+ * создание, просмотр и отмена запланированных операций.
+ * Каждый запрос обрабатывается в отдельном виртуальном потоке, поэтому блокирующие вызовы сервисов
+ * и бд не занимают потоки платформы. Сессия передается заголовком {@code Authorization: Bearer <токен>},
+ * токен выдает {@link SessionContext} при входе
+ */
+public class HttpApi implements Closeable {
+    public static final int DEFAULT_PAGE_SIZE = 50;
+    public static final int MAX_PAGE_SIZE = 500;
+    public static final int MAX_BODY_BYTES = 16 * 1024;
+
+    private static final String BEARER = "Bearer ";
+
+    private final AuthorisationService authorisationService;
+    private final UserService userService;
+    private final OperationService operationService;
+    private final SessionContext sessionContext;
+    private final OperationScheduler scheduler;
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    /**
+     * Обработчик метода API
+     */
+    private interface Endpoint {
+        /**
+         * @param exchange запрос
+         * @param user     пользователь сессии или null для методов без авторизации
+         */
+        void handle(HttpExchange exchange, User user) throws IOException;
+    }
+
+    /**
+     * @param address              адрес, порт 0 - любой свободный
+     * @param backlog              очередь входящих соединений, 0 - значение по умолчанию
+     * @param authorisationService сервис входа и регистрации
+     * @param userService          сервис пользователей
+     * @param operationService     сервис операций
+     * @param sessionContext       реестр сессий, выдающий токены
+     */
+    public HttpApi(InetSocketAddress address, int backlog, AuthorisationService authorisationService,
+                   UserService userService, OperationService operationService,
+                   SessionContext sessionContext) throws IOException {
+        this(address, backlog, authorisationService, userService, operationService, sessionContext, null);
+    }
+
+    /**
+     * @param address              адрес, порт 0 - любой свободный
+     * @param backlog              очередь входящих соединений, 0 - значение по умолчанию
+     * @param authorisationService сервис входа и регистрации
+     * @param userService          сервис пользователей
+     * @param operationService     сервис операций
+     * @param sessionContext       реестр сессий, выдающий токены
+     * @param scheduler            планировщик операций или null, если планировщик отключен
+     */
+    public HttpApi(InetSocketAddress address, int backlog, AuthorisationService authorisationService,
+                   UserService userService, OperationService operationService,
+                   SessionContext sessionContext, OperationScheduler scheduler) throws IOException {
+        this.authorisationService = authorisationService;
+        this.userService = userService;
+        this.operationService = operationService;
+        this.sessionContext = sessionContext;
+        this.scheduler = scheduler;
+        this.server = HttpServer.create(address, backlog);
+        this.executor = Executors.newVirtualThreadPerTaskExecutor();
+        server.setExecutor(executor);
+
+        route("/api/register", "POST", false, this::register);
+        route("/api/login", "POST", false, this::login);
+        route("/api/logout", "POST", true, this::logout);
+        route("/api/balance", "GET", true, this::balance);
+        route("/api/credit", "POST", true, this::credit);
+        route("/api/debit", "POST", true, this::debit);
+        route("/api/history", "GET", true, this::history);
+        route("/api/audit", "GET", true, this::audit);
+        route("/api/summary", "GET", true, this::summary);
+        if (scheduler != null) {
+            route("/api/schedule", "POST", true, this::schedule);
+            route("/api/schedule/cancel", "POST", true, this::cancelScheduled);
+            route("/api/scheduled", "GET", true, this::scheduled);
+        }
+    }
+
+    /**
+     * Начинает прием запросов
+     */
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * @return Порт, на котором принимаются запросы
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Прекращает прием запросов и дожидается завершения начатых
+     */
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.close();
+    }
+
+    private void route(String path, String method, boolean authorised, Endpoint endpoint) {
+        server.createContext(path, exchange -> {
+            try {
+                if (!exchange.getRequestURI().getPath().equals(path)) {
+                    sendError(exchange, 404, "Not found.");
+                    return;
+                }
+                if (!exchange.getRequestMethod().equals(method)) {
+                    exchange.getResponseHeaders().set("Allow", method);
+                    sendError(exchange, 405, "Method not allowed.");
+                    return;
+                }
+                User user = null;
+                if (authorised) {
+                    user = sessionUser(exchange);
+                    if (user == null) {
+                        sendError(exchange, 401, "Session not found or expired.");
+                        return;
+                    }
+                }
+                endpoint.handle(exchange, user);
+            } catch (IllegalArgumentException e) {
+                sendError(exchange, 400, e.getMessage());
+            } catch (Exception e) {
+                e.printStackTrace();
+                sendError(exchange, 500, "Internal error.");
+            } finally {
+                exchange.close();
+            }
+        });
+    }
+
+    private void register(HttpExchange exchange, User ignored) throws IOException {
+        Map<String, String> body = readBody(exchange);
+        User user = new User(required(body, "username"), required(body, "password"),
+                required(body, "firstName"), required(body, "lastName"), 0f);
+        if (!authorisationService.registration(user)) {
+            sendError(exchange, 409, "User already exists.");
+            return;
+        }
+        send(exchange, 201, new JsonWriter().beginObject()
+                .field("id", user.getId())
+                .field("username", user.getUsername())
+                .endObject());
+    }
+
+    private void login(HttpExchange exchange, User ignored) throws IOException {
+        Map<String, String> body = readBody(exchange);
+        AuthorisationResult result = authorisationService.authorisation(required(body, "username"),
+                required(body, "password"));
+        switch (result.getStatus()) {
+            case SUCCESS -> send(exchange, 200, new JsonWriter().beginObject()
+                    .field("token", result.getToken())
+                    .endObject());
+            case USER_NOT_FOUND -> sendError(exchange, 404, "User not found.");
+            case INVALID_PASSWORD -> sendError(exchange, 401, "Invalid password.");
+        }
+    }
+
+    private void logout(HttpExchange exchange, User user) throws IOException {
+        authorisationService.logout(bearerToken(exchange));
+        exchange.sendResponseHeaders(204, -1);
+    }
+
+    private void balance(HttpExchange exchange, User user) throws IOException {
+        User account = userService.findById(user.getId());
+        if (account == null) {
+            sendError(exchange, 404, "User not found.");
+            return;
+        }
+        send(exchange, 200, new JsonWriter().beginObject()
+                .field("id", account.getId())
+                .field("username", account.getUsername())
+                .field("firstName", account.getFirstName())
+                .field("lastName", account.getLastName())
+                .field("balance", account.getBalance())
+                .endObject());
+    }
+
+    private void credit(HttpExchange exchange, User user) throws IOException {
+        Map<String, String> body = readBody(exchange);
+        float amount = amount(body);
+        String operationId = body.get("operationId");
+        TransacionReturns status = operationId == null
+                ? operationService.credit(user, amount)
+                : operationService.credit(user, amount, parseLong(operationId, "operationId"));
+        sendOperationResult(exchange, user, status);
+    }
+
+    private void debit(HttpExchange exchange, User user) throws IOException {
+        Map<String, String> body = readBody(exchange);
+        float amount = amount(body);
+        String operationId = body.get("operationId");
+        TransacionReturns status = operationId == null
+                ? operationService.debit(user, amount)
+                : operationService.debit(user, amount, parseLong(operationId, "operationId"));
+        sendOperationResult(exchange, user, status);
+    }
+
+    private void history(HttpExchange exchange, User user) throws IOException {
+        Map<String, String> query = readQuery(exchange);
+        Page<Transaction> page = operationService.history(user, cursor(query), pageSize(query));
+        JsonWriter json = new JsonWriter().beginObject().beginArray("items");
+        for (Transaction transaction : page.getItems()) {
+            json.beginObject()
+                    .field("id", transaction.getId())
+                    .field("dateTime", transaction.getDateTime())
+                    .field("type", transaction.getType())
+                    .field("status", transaction.getStatus())
+                    .field("amount", transaction.getAmount())
+                    .endObject();
+        }
+        json.endArray().field("next", formatCursor(page.getNextCursor())).endObject();
+        send(exchange, 200, json);
+    }
+
+    private void audit(HttpExchange exchange, User user) throws IOException {
+        Map<String, String> query = readQuery(exchange);
+        Page<Auditable> page = operationService.audit(user, cursor(query), pageSize(query));
+        JsonWriter json = new JsonWriter().beginObject().beginArray("items");
+        for (Auditable auditable : page.getItems()) {
+            json.beginObject()
+                    .field("id", auditable.getId())
+                    .field("dateTime", auditable.getDateTime())
+                    .field("status", auditable.getStatus());
+            if (auditable instanceof Transaction transaction) {
+                json.field("kind", "TRANSACTION")
+                        .field("type", transaction.getType())
+                        .field("amount", transaction.getAmount());
+            } else {
+                json.field("kind", "ACTION")
+                        .field("type", ((Action) auditable).getType());
+            }
+            json.endObject();
+        }
+        json.endArray().field("next", formatCursor(page.getNextCursor())).endObject();
+        send(exchange, 200, json);
+    }
+
+    private void summary(HttpExchange exchange, User user) throws IOException {
+        Map<String, String> query = readQuery(exchange);
+        SummaryPeriod period = SummaryPeriod.valueOf(query.getOrDefault("period", SummaryPeriod.DAY.name()));
+        LocalDate date;
+        try {
+            date = query.containsKey("date") ? LocalDate.parse(query.get("date")) : LocalDate.now();
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid date.");
+        }
+        AccountSummary summary = operationService.summary(user, period, date);
+        send(exchange, 200, new JsonWriter().beginObject()
+                .field("period", summary.getPeriod())
+                .field("periodStart", summary.getPeriodStart())
+                .field("credited", summary.getCredited())
+                .field("creditCount", summary.getCreditCount())
+                .field("debited", summary.getDebited())
+                .field("debitCount", summary.getDebitCount())
+                .field("declinedCount", summary.getDeclinedCount())
+                .field("lastActivity", summary.getLastActivity())
+                .endObject());
+    }
+
+    private void schedule(HttpExchange exchange, User user) throws IOException {
+        Map<String, String> body = readBody(exchange);
+        TransactionType type = TransactionType.valueOf(required(body, "type"));
+        float amount = amount(body);
+        Recurrence recurrence = Recurrence.valueOf(body.getOrDefault("recurrence", Recurrence.ONCE.name()));
+        LocalDateTime firstRun;
+        try {
+            firstRun = LocalDateTime.parse(required(body, "firstRun"));
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid firstRun.");
+        }
+        ScheduledOperation operation = scheduler.schedule(user.getId(), type, amount, recurrence, firstRun);
+        send(exchange, 201, scheduledOperation(new JsonWriter(), operation));
+    }
+
+    private void cancelScheduled(HttpExchange exchange, User user) throws IOException {
+        Map<String, String> body = readBody(exchange);
+        if (!scheduler.cancel(user.getId(), parseLong(required(body, "id"), "id"))) {
+            sendError(exchange, 404, "Scheduled operation not found.");
+            return;
+        }
+        exchange.sendResponseHeaders(204, -1);
+    }
+
+    private void scheduled(HttpExchange exchange, User user) throws IOException {
+        List<ScheduledOperation> operations = scheduler.findByUserId(user.getId());
+        JsonWriter json = new JsonWriter().beginObject().beginArray("items");
+        for (ScheduledOperation operation : operations) {
+            scheduledOperation(json, operation);
+        }
+        send(exchange, 200, json.endArray().endObject());
+    }
+
+    private static JsonWriter scheduledOperation(JsonWriter json, ScheduledOperation operation) {
+        return json.beginObject()
+                .field("id", operation.getId())
+                .field("type", operation.getType())
+                .field("amount", operation.getAmount())
+                .field("recurrence", operation.getRecurrence())
+                .field("nextRun", operation.getNextRun())
+                .endObject();
+    }
+
+    /**
+     * Отвечает результатом пополнения или списания: успех - 200, повтор id операции - 409,
+     * нехватка средств - 422, превышение лимита списаний - 429, пользователь не найден - 404
+     */
+    private void sendOperationResult(HttpExchange exchange, User user, TransacionReturns status) throws IOException {
+        int code = switch (status) {
+            case SUCCESS -> 200;
+            case UNUNIQUE_ID -> 409;
+            case NOT_ENOUGH_MONEY -> 422;
+            case LIMIT_EXCEEDED -> 429;
+            case USER_NOT_FOUND -> 404;
+        };
+        send(exchange, code, new JsonWriter().beginObject()
+                .field("status", status)
+                .field("balance", user.getBalance())
+                .endObject());
+    }
+
+    private User sessionUser(HttpExchange exchange) {
+        String token = bearerToken(exchange);
+        return token == null ? null : sessionContext.getUser(token);
+    }
+
+    private static String bearerToken(HttpExchange exchange) {
+        String authorization = exchange.getRequestHeaders().getFirst("Authorization");
+        if (authorization == null || !authorization.startsWith(BEARER)) {
+            return null;
+        }
+        return authorization.substring(BEARER.length()).trim();
+    }
+
+    private static Map<String, String> readBody(HttpExchange exchange) throws IOException {
+        InputStream in = exchange.getRequestBody();
+        byte[] bytes = in.readNBytes(MAX_BODY_BYTES + 1);
+        if (bytes.length > MAX_BODY_BYTES) {
+            throw new IllegalArgumentException("Request body is too large.");
+        }
+        return JsonReader.parseObject(new String(bytes, StandardCharsets.UTF_8));
+    }
+
+    private static Map<String, String> readQuery(HttpExchange exchange) {
+        Map<String, String> query = new HashMap<>();
+        String raw = exchange.getRequestURI().getRawQuery();
+        if (raw == null || raw.isEmpty()) {
+            return query;
+        }
+        for (String pair : raw.split("&")) {
+            int separator = pair.indexOf('=');
+            if (separator > 0) {
+                query.put(URLDecoder.decode(pair.substring(0, separator), StandardCharsets.UTF_8),
+                        URLDecoder.decode(pair.substring(separator + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return query;
+    }
+
+    private static String required(Map<String, String> body, String name) {
+        String value = body.get(name);
+        if (value == null || value.isBlank()) {
+            throw new IllegalArgumentException("Field '" + name + "' is required.");
+        }
+        return value;
+    }
+
+    private static float amount(Map<String, String> body) {
+        float amount;
+        try {
+            amount = Float.parseFloat(required(body, "amount"));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid amount.");
+        }
+        if (!(amount > 0) || Float.isInfinite(amount)) {
+            throw new IllegalArgumentException("Amount must be positive.");
+        }
+        return amount;
+    }
+
+    private static long parseLong(String value, String name) {
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid " + name + ".");
+        }
+    }
+
+    private static int pageSize(Map<String, String> query) {
+        String limit = query.get("limit");
+        if (limit == null) {
+            return DEFAULT_PAGE_SIZE;
+        }
+        long pageSize = parseLong(limit, "limit");
+        if (pageSize < 1 || pageSize > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Limit must be between 1 and " + MAX_PAGE_SIZE + ".");
+        }
+        return (int) pageSize;
+    }
+
+    /**
+     * Курсор передается клиенту строкой вида {@code <дата и время>_<id>}
+     */
+    private static PageCursor cursor(Map<String, String> query) {
+        String after = query.get("after");
+        if (after == null) {
+            return null;
+        }
+        int separator = after.lastIndexOf('_');
+        if (separator < 0) {
+            throw new IllegalArgumentException("Invalid cursor.");
+        }
+        try {
+            return new PageCursor(LocalDateTime.parse(after.substring(0, separator)),
+                    Long.parseLong(after.substring(separator + 1)));
+        } catch (DateTimeParseException | NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid cursor.");
+        }
+    }
+
+    private static String formatCursor(PageCursor cursor) {
+        return cursor == null ? null : cursor.getDateTime() + "_" + cursor.getId();
+    }
+
+    private static void send(HttpExchange exchange, int status, JsonWriter json) throws IOException {
+        byte[] bytes = json.toString().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        send(exchange, status, new JsonWriter().beginObject().field("error", message).endObject());
+    }
+}
@@ -0,0 +1,130 @@
+package org.example.infrostructure.in.http;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Разбор тела запроса - плоского JSON-объекта, значения которого строки, числа, true, false или null.
+ * Значения возвращаются строками, их преобразование выполняет обработчик метода API
+ */
+final class JsonReader {
+    private final String json;
+    private int position;
+
+    private JsonReader(String json) {
+        this.json = json;
+    }
+
+    /**
+     * @param json тело запроса
+     * @return Значения полей объекта, null для полей со значением null
+     * @throws IllegalArgumentException если тело не является плоским JSON-объектом
+     */
+    static Map<String, String> parseObject(String json) {
+        JsonReader reader = new JsonReader(json);
+        Map<String, String> fields = new HashMap<>();
+        reader.expect('{');
+        if (!reader.consume('}')) {
+            do {
+                String name = reader.string();
+                reader.expect(':');
+                fields.put(name, reader.value());
+            } while (reader.consume(','));
+            reader.expect('}');
+        }
+        reader.skipWhitespace();
+        if (reader.position != json.length()) {
+            throw new IllegalArgumentException("Unexpected content after JSON object.");
+        }
+        return fields;
+    }
+
+    private String value() {
+        skipWhitespace();
+        if (position >= json.length()) {
+            throw new IllegalArgumentException("Unexpected end of JSON.");
+        }
+        char c = json.charAt(position);
+        if (c == '"') {
+            return string();
+        }
+        if (c == '{' || c == '[') {
+            throw new IllegalArgumentException("Nested JSON values are not supported.");
+        }
+        int start = position;
+        while (position < json.length() && ",}] \t\r\n".indexOf(json.charAt(position)) < 0) {
+            position++;
+        }
+        String literal = json.substring(start, position);
+        if (literal.equals("null")) {
+            return null;
+        }
+        if (!literal.equals("true") && !literal.equals("false") && !literal.matches("-?\\d+(\\.\\d+)?([eE][+-]?\\d+)?")) {
+            throw new IllegalArgumentException("Invalid JSON value: " + literal);
+        }
+        return literal;
+    }
+
+    private String string() {
+        expect('"');
+        StringBuilder value = new StringBuilder();
+        while (true) {
+            if (position >= json.length()) {
+                throw new IllegalArgumentException("Unterminated JSON string.");
+            }
+            char c = json.charAt(position++);
+            if (c == '"') {
+                return value.toString();
+            }
+            if (c != '\\') {
+                value.append(c);
+                continue;
+            }
+            if (position >= json.length()) {
+                throw new IllegalArgumentException("Unterminated JSON string.");
+            }
+            char escaped = json.charAt(position++);
+            switch (escaped) {
+                case '"', '\\', '/' -> value.append(escaped);
+                case 'b' -> value.append('\b');
+                case 'f' -> value.append('\f');
+                case 'n' -> value.append('\n');
+                case 'r' -> value.append('\r');
+                case 't' -> value.append('\t');
+                case 'u' -> {
+                    if (position + 4 > json.length()) {
+                        throw new IllegalArgumentException("Invalid JSON escape.");
+                    }
+                    try {
+                        value.append((char) Integer.parseInt(json.substring(position, position + 4), 16));
+                    } catch (NumberFormatException e) {
+                        throw new IllegalArgumentException("Invalid JSON escape.");
+                    }
+                    position += 4;
+                }
+                default -> throw new IllegalArgumentException("Invalid JSON escape.");
+            }
+        }
+    }
+
+    private void expect(char expected) {
+        if (!consume(expected)) {
+            throw new IllegalArgumentException("Expected '" + expected + "' at position " + position + ".");
+        }
+    }
+
+    private boolean consume(char expected) {
+        skipWhitespace();
+        if (position < json.length() && json.charAt(position) == expected) {
+            position++;
+            return true;
+        }
+        return false;
+    }
+
+    private void skipWhitespace() {
+        while (position < json.length() && Character.isWhitespace(json.charAt(position))) {
+            position++;
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package org.example.infrostructure.in.http;
+
+/**
+ * Потоковая запись JSON в {@link StringBuilder} без рефлексии: ответ каждого метода API
+ * собирается явными вызовами, поэтому кодирование стоит одного прохода по полям.
+ * Запятые между элементами расставляются автоматически
+ */
+final class JsonWriter {
+    private final StringBuilder out = new StringBuilder(128);
+    private boolean needComma;
+
+    JsonWriter beginObject() {
+        separate();
+        out.append('{');
+        needComma = false;
+        return this;
+    }
+
+    JsonWriter endObject() {
+        out.append('}');
+        needComma = true;
+        return this;
+    }
+
+    JsonWriter beginArray(String name) {
+        name(name);
+        out.append('[');
+        needComma = false;
+        return this;
+    }
+
+    JsonWriter endArray() {
+        out.append(']');
+        needComma = true;
+        return this;
+    }
+
+    JsonWriter field(String name, String value) {
+        name(name);
+        if (value == null) {
+            out.append("null");
+        } else {
+            string(value);
+        }
+        needComma = true;
+        return this;
+    }
+
+    JsonWriter field(String name, long value) {
+        name(name);
+        out.append(value);
+        needComma = true;
+        return this;
+    }
+
+    JsonWriter field(String name, float value) {
+        name(name);
+        out.append(value);
+        needComma = true;
+        return this;
+    }
+
+    JsonWriter field(String name, double value) {
+        name(name);
+        out.append(value);
+        needComma = true;
+        return this;
+    }
+
+    JsonWriter field(String name, Object value) {
+        return field(name, value == null ? null : value.toString());
+    }
+
+    @Override
+    public String toString() {
+        return out.toString();
+    }
+
+    private void name(String name) {
+        separate();
+        string(name);
+        out.append(':');
+        needComma = false;
+    }
+
+    private void separate() {
+        if (needComma) {
+            out.append(',');
+        }
+    }
+
+    private void string(String value) {
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> out.append("\\\"");
+                case '\\' -> out.append("\\\\");
+                case '\n' -> out.append("\\n");
+                case '\r' -> out.append("\\r");
+                case '\t' -> out.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        out.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.append(c);
+                    }
+                }
+            }
+        }
+        out.append('"');
+    }
+}
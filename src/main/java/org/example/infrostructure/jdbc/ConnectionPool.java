@@ -0,0 +1,343 @@
+package org.example.infrostructure.jdbc;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.SQLTimeoutException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+/**
+ * Легковесный пул соединений JDBC.
+ * Количество выданных соединений ограничено семафором на maxSize разрешений, свободные соединения
+ * хранятся в стеке, поэтому первыми выдаются недавно использованные. Соединение, простаивавшее дольше
+ * {@link ConnectionPoolSettings#getValidationIdleMillis()}, перед выдачей проверяется и при необходимости
+ * заменяется новым, так что обрыв связи с базой не ломает пул.
+ * Фоновая задача поддерживает minSize открытых соединений и сообщает о соединениях,
+ * не возвращенных дольше порога утечки, вместе со стеком места, где они были взяты.
+ * Вызывающий код закрывает соединение как обычно, при этом оно возвращается в пул
+ */
+public class ConnectionPool implements DataSource, Closeable {
+    /**
+     * Источник физических соединений
+     */
+    interface ConnectionFactory {
+        Connection create() throws SQLException;
+    }
+
+    private final ConnectionPoolSettings settings;
+    private final ConnectionFactory factory;
+    private final Semaphore permits;
+    private final ConcurrentLinkedDeque<IdleConnection> idle = new ConcurrentLinkedDeque<>();
+    private final Set<PooledConnection> active = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger openConnections = new AtomicInteger();
+    private final ScheduledExecutorService housekeeper;
+
+    private final AtomicLong borrows = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final AtomicLong leaks = new AtomicLong();
+
+    private volatile boolean closed;
+
+    /**
+     * Создает пул и сразу открывает minSize соединений
+     *
+     * @param settings настройки пула
+     * @throws SQLException если начальные соединения не удалось открыть
+     */
+    public ConnectionPool(ConnectionPoolSettings settings) throws SQLException {
+        this(settings, () -> DriverManager.getConnection(settings.getUrl(), settings.getUsername(), settings.getPassword()));
+    }
+
+    ConnectionPool(ConnectionPoolSettings settings, ConnectionFactory factory) throws SQLException {
+        settings.validate();
+        this.settings = settings;
+        this.factory = factory;
+        this.permits = new Semaphore(settings.getMaxSize(), true);
+        fillToMinSize();
+        housekeeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "connection-pool-housekeeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = settings.getLeakDetectionMillis() > 0
+                ? Math.max(1, settings.getLeakDetectionMillis() / 2)
+                : 1000;
+        housekeeper.scheduleWithFixedDelay(this::housekeep, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Выдает соединение из пула, при необходимости ожидая освобождения
+     *
+     * @return Соединение, закрытие которого возвращает его в пул
+     * @throws SQLTimeoutException если свободное соединение не появилось за borrowTimeoutMillis
+     * @throws SQLException        если пул закрыт или новое соединение не удалось открыть
+     */
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool is closed.");
+        }
+        long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(settings.getBorrowTimeoutMillis(), TimeUnit.MILLISECONDS)) {
+                timeouts.incrementAndGet();
+                throw new SQLTimeoutException("Timed out waiting for a connection after "
+                        + settings.getBorrowTimeoutMillis() + " ms.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a connection.", e);
+        }
+
+        Connection physical;
+        try {
+            physical = takeIdle();
+            if (physical == null) {
+                physical = open();
+            }
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+
+        long waitNanos = System.nanoTime() - start;
+        borrows.incrementAndGet();
+        totalWaitNanos.addAndGet(waitNanos);
+        maxWaitNanos.accumulateAndGet(waitNanos, Math::max);
+
+        PooledConnection pooled = new PooledConnection(physical);
+        active.add(pooled);
+        return pooled.proxy;
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new SQLFeatureNotSupportedException("Pooled connections use the configured credentials.");
+    }
+
+    /**
+     * @return Текущие метрики пула
+     */
+    public PoolMetrics getMetrics() {
+        return new PoolMetrics(active.size(), idle.size(), borrows.get(), timeouts.get(),
+                totalWaitNanos.get(), maxWaitNanos.get(), leaks.get());
+    }
+
+    /**
+     * Закрывает свободные соединения и останавливает фоновую задачу.
+     * Выданные соединения закрываются при возврате
+     */
+    @Override
+    public void close() {
+        closed = true;
+        housekeeper.shutdownNow();
+        IdleConnection connection;
+        while ((connection = idle.pollFirst()) != null) {
+            discard(connection.physical);
+        }
+    }
+
+    private Connection takeIdle() {
+        IdleConnection candidate;
+        while ((candidate = idle.pollFirst()) != null) {
+            long idleMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - candidate.returnedAt);
+            if (idleMillis < settings.getValidationIdleMillis() || isValid(candidate.physical)) {
+                return candidate.physical;
+            }
+            discard(candidate.physical);
+        }
+        return null;
+    }
+
+    private boolean isValid(Connection connection) {
+        try {
+            return connection.isValid(settings.getValidationTimeoutSeconds());
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private Connection open() throws SQLException {
+        Connection connection = factory.create();
+        openConnections.incrementAndGet();
+        return connection;
+    }
+
+    private void discard(Connection connection) {
+        openConnections.decrementAndGet();
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Возвращает физическое соединение в пул, откатывая незавершенную транзакцию
+     */
+    private void release(PooledConnection pooled) {
+        active.remove(pooled);
+        Connection physical = pooled.physical;
+        try {
+            if (closed || physical.isClosed()) {
+                discard(physical);
+                return;
+            }
+            if (!physical.getAutoCommit()) {
+                physical.rollback();
+                physical.setAutoCommit(true);
+            }
+            idle.offerFirst(new IdleConnection(physical, System.nanoTime()));
+        } catch (SQLException e) {
+            discard(physical);
+        } finally {
+            permits.release();
+        }
+    }
+
+    private void fillToMinSize() throws SQLException {
+        while (!closed && openConnections.get() < settings.getMinSize()) {
+            idle.offerLast(new IdleConnection(open(), System.nanoTime()));
+        }
+    }
+
+    private void housekeep() {
+        try {
+            fillToMinSize();
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        if (settings.getLeakDetectionMillis() > 0) {
+            long now = System.nanoTime();
+            for (PooledConnection pooled : active) {
+                long heldMillis = TimeUnit.NANOSECONDS.toMillis(now - pooled.borrowedAt);
+                if (heldMillis >= settings.getLeakDetectionMillis() && !pooled.leakReported) {
+                    pooled.leakReported = true;
+                    leaks.incrementAndGet();
+                    new IllegalStateException("Connection leak detected: connection held for "
+                            + heldMillis + " ms, borrowed at:", pooled.borrowSite).printStackTrace();
+                }
+            }
+        }
+    }
+
+    @Override
+    public PrintWriter getLogWriter() {
+        return null;
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) {
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) {
+    }
+
+    @Override
+    public int getLoginTimeout() {
+        return 0;
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        throw new SQLFeatureNotSupportedException();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> type) throws SQLException {
+        if (type.isInstance(this)) {
+            return type.cast(this);
+        }
+        throw new SQLException("Not a wrapper for " + type.getName());
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> type) {
+        return type.isInstance(this);
+    }
+
+    private static class IdleConnection {
+        private final Connection physical;
+        private final long returnedAt;
+
+        private IdleConnection(Connection physical, long returnedAt) {
+            this.physical = physical;
+            this.returnedAt = returnedAt;
+        }
+    }
+
+    /**
+     * Выданное соединение: все вызовы передаются физическому соединению,
+     * кроме close, который возвращает его в пул
+     */
+    private class PooledConnection implements InvocationHandler {
+        private final Connection physical;
+        private final Connection proxy;
+        private final long borrowedAt = System.nanoTime();
+        private final Throwable borrowSite;
+        private volatile boolean leakReported;
+        private boolean returned;
+
+        private PooledConnection(Connection physical) {
+            this.physical = physical;
+            this.proxy = (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class<?>[]{Connection.class}, this);
+            this.borrowSite = settings.getLeakDetectionMillis() > 0 ? new Throwable("Borrow site") : null;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    synchronized (this) {
+                        if (!returned) {
+                            returned = true;
+                            release(this);
+                        }
+                    }
+                    return null;
+                case "isClosed":
+                    synchronized (this) {
+                        return returned || physical.isClosed();
+                    }
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Pooled" + physical;
+                default:
+                    synchronized (this) {
+                        if (returned) {
+                            throw new SQLException("Connection is closed.");
+                        }
+                    }
+                    try {
+                        return method.invoke(physical, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+            }
+        }
+    }
+}
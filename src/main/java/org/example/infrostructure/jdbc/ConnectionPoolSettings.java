@@ -0,0 +1,79 @@
+package org.example.infrostructure.jdbc;
+
+import lombok.Data;
+
+import java.util.Properties;
+
+/**
+ * Настройки пула соединений {@link ConnectionPool}
+ */
+@Data
+public class ConnectionPoolSettings {
+    /**
+     * Адрес базы данных в формате JDBC
+     */
+    private final String url;
+    private final String username;
+    private final String password;
+
+    /**
+     * Количество соединений, которые пул держит открытыми даже без нагрузки
+     */
+    private final int minSize;
+
+    /**
+     * Максимальное количество одновременно открытых соединений
+     */
+    private final int maxSize;
+
+    /**
+     * Сколько ждать свободного соединения, прежде чем выдать ошибку
+     */
+    private final long borrowTimeoutMillis;
+
+    /**
+     * Таймаут проверки соединения при выдаче из пула
+     */
+    private final int validationTimeoutSeconds;
+
+    /**
+     * Соединения, простаивавшие меньше этого времени, выдаются без проверки
+     */
+    private final long validationIdleMillis;
+
+    /**
+     * Через сколько после выдачи незакрытое соединение считается утечкой, 0 - не отслеживать
+     */
+    private final long leakDetectionMillis;
+
+    /**
+     * Читает настройки из свойств приложения: url, username, password и pool.*
+     *
+     * @param properties свойства из application.properties
+     * @return Настройки пула, для отсутствующих свойств используются значения по умолчанию
+     * @throws IllegalArgumentException если размеры пула заданы некорректно
+     */
+    public static ConnectionPoolSettings fromProperties(Properties properties) {
+        ConnectionPoolSettings settings = new ConnectionPoolSettings(
+                properties.getProperty("url"),
+                properties.getProperty("username"),
+                properties.getProperty("password"),
+                Integer.parseInt(properties.getProperty("pool.minSize", "2")),
+                Integer.parseInt(properties.getProperty("pool.maxSize", "10")),
+                Long.parseLong(properties.getProperty("pool.borrowTimeoutMillis", "30000")),
+                Integer.parseInt(properties.getProperty("pool.validationTimeoutSeconds", "2")),
+                Long.parseLong(properties.getProperty("pool.validationIdleMillis", "500")),
+                Long.parseLong(properties.getProperty("pool.leakDetectionMillis", "60000")));
+        settings.validate();
+        return settings;
+    }
+
+    /**
+     * @throws IllegalArgumentException если размеры пула заданы некорректно
+     */
+    void validate() {
+        if (minSize < 0 || maxSize <= 0 || minSize > maxSize) {
+            throw new IllegalArgumentException("Pool size must satisfy 0 <= minSize <= maxSize and maxSize > 0.");
+        }
+    }
+}
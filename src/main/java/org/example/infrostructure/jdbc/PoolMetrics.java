@@ -0,0 +1,51 @@
+package org.example.infrostructure.jdbc;
+
+import lombok.Data;
+
+/**
+ * Снимок метрик пула соединений {@link ConnectionPool}
+ */
+@Data
+public class PoolMetrics {
+    /**
+     * Соединений выдано и еще не возвращено
+     */
+    private final int active;
+
+    /**
+     * Открытых соединений, ожидающих в пуле
+     */
+    private final int idle;
+
+    /**
+     * Всего успешных выдач соединений
+     */
+    private final long borrows;
+
+    /**
+     * Запросов соединения, не дождавшихся его за отведенное время
+     */
+    private final long timeouts;
+
+    /**
+     * Суммарное время ожидания соединения в наносекундах
+     */
+    private final long totalWaitNanos;
+
+    /**
+     * Наибольшее время ожидания соединения в наносекундах
+     */
+    private final long maxWaitNanos;
+
+    /**
+     * Обнаруженных утечек: соединений, не возвращенных дольше порога
+     */
+    private final long leaks;
+
+    /**
+     * @return Среднее время ожидания соединения в миллисекундах
+     */
+    public double getAverageWaitMillis() {
+        return borrows == 0 ? 0 : totalWaitNanos / 1_000_000.0 / borrows;
+    }
+}
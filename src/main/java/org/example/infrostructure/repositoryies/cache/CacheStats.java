@@ -0,0 +1,47 @@
+package org.example.infrostructure.repositoryies.cache;
+
+import lombok.Data;
+
+/**
+ * Снимок статистики кэша пользователей {@link CachingUserRepository}
+ */
+@Data
+public class CacheStats {
+    /**
+     * Поисков, обслуженных из кэша
+     */
+    private final long hits;
+
+    /**
+     * Поисков, ушедших в репозиторий
+     */
+    private final long misses;
+
+    /**
+     * Записей, вытесненных ради более часто запрашиваемых
+     */
+    private final long evictions;
+
+    /**
+     * Записей, удаленных по истечении времени жизни
+     */
+    private final long expirations;
+
+    /**
+     * Загруженных записей, не допущенных в заполненный кэш из-за редких обращений
+     */
+    private final long rejections;
+
+    /**
+     * Записей в кэше на момент снимка
+     */
+    private final int size;
+
+    /**
+     * @return Доля поисков, обслуженных из кэша, от 0 до 1
+     */
+    public double getHitRate() {
+        long requests = hits + misses;
+        return requests == 0 ? 0 : (double) hits / requests;
+    }
+}
@@ -0,0 +1,352 @@
+package org.example.infrostructure.repositoryies.cache;
+
+import org.example.core.models.User;
+import org.example.core.repositories.UserRepository;
+import org.example.infrostructure.LongHash;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Кэширующая обертка над {@link UserRepository}, например над
+ * {@link org.example.infrostructure.repositoryies.postgres.UserRepositoryPostgresImpl}.
+ * Пользователи кэшируются по id и по имени пользователя, не дольше ttl и не больше maximumSize записей.
+ * Когда кэш заполнен, новая запись вытесняет давно не использованную, только если к ней обращались чаще
+ * (оценка частоты по {@link FrequencySketch}), поэтому разовые обращения не вымывают из кэша часто входящих пользователей.
+ * Добавление, изменение и удаление сначала выполняются в репозитории, затем отражаются в кэше.
+ * Если баланс меняется в обход репозитория, запись нужно сбросить через {@link #evict(long)}.
+ * Загруженная из репозитория запись не попадает в кэш, если во время загрузки пользователь был изменен.
+ * Поиск возвращает копию пользователя, поэтому изменение найденного объекта не меняет кэш.
+ * <p>
+ * Записи разбиты по id на сегменты со своей блокировкой, порядком обращений и оценкой частоты,
+ * поэтому попадания в разные сегменты не ждут друг друга. Вытеснение выбирает запись внутри сегмента,
+ * каждый сегмент хранит свою долю maximumSize. Маленький кэш состоит из одного сегмента
+ */
+public class CachingUserRepository implements UserRepository {
+    /**
+     * Максимальное количество записей по умолчанию
+     */
+    public static final int DEFAULT_MAXIMUM_SIZE = 10_000;
+
+    /**
+     * Время жизни записи по умолчанию
+     */
+    public static final Duration DEFAULT_TTL = Duration.ofMinutes(5);
+
+    private static final int WRITE_STRIPES = 1024;
+    private static final int MAX_SEGMENTS = 64;
+
+    /**
+     * Наименьшее количество записей сегмента: при меньших сегментах вытеснение по частоте
+     * выбирает из слишком малого числа кандидатов
+     */
+    private static final int MIN_SEGMENT_SIZE = 64;
+
+    private final UserRepository userRepository;
+    private final long ttlMillis;
+    private final Clock clock;
+
+    private final Segment[] segments;
+    private final Map<String, Long> idsByUsername = new ConcurrentHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+    private final LongAdder rejections = new LongAdder();
+
+    /**
+     * Логические часы изменений и момент последнего изменения пользователей каждой полосы id.
+     * Загрузка запоминает часы до обращения к репозиторию и не кэширует результат,
+     * если полоса его id изменилась позже
+     */
+    private final AtomicLong writeClock = new AtomicLong();
+    private final AtomicLongArray lastWrite = new AtomicLongArray(WRITE_STRIPES);
+
+    public CachingUserRepository(UserRepository userRepository) {
+        this(userRepository, DEFAULT_MAXIMUM_SIZE, DEFAULT_TTL, Clock.systemUTC());
+    }
+
+    /**
+     * @param userRepository репозиторий, в который уходят промахи и изменения
+     * @param maximumSize    максимальное количество пользователей в кэше
+     * @param ttl            время жизни записи с момента загрузки или изменения
+     * @param clock          источник времени
+     */
+    public CachingUserRepository(UserRepository userRepository, int maximumSize, Duration ttl, Clock clock) {
+        if (maximumSize <= 0) {
+            throw new IllegalArgumentException("Maximum size must be positive.");
+        }
+        this.userRepository = userRepository;
+        this.ttlMillis = ttl.toMillis();
+        this.clock = clock;
+        int count = Math.min(MAX_SEGMENTS, Integer.highestOneBit(Math.max(1, maximumSize / MIN_SEGMENT_SIZE)));
+        this.segments = new Segment[count];
+        for (int i = 0; i < count; i++) {
+            segments[i] = new Segment(maximumSize / count + (i < maximumSize % count ? 1 : 0));
+        }
+    }
+
+    @Override
+    public void addUser(User user) {
+        userRepository.addUser(user);
+        if (user.getId() != 0) {
+            writeThrough(user, true);
+        }
+    }
+
+    @Override
+    public void deleteUser(User user) {
+        userRepository.deleteUser(user);
+        evict(user.getId());
+    }
+
+    @Override
+    public void updateUser(User user) {
+        userRepository.updateUser(user);
+        writeThrough(user, false);
+    }
+
+    @Override
+    public User findById(long id) {
+        User cached = segmentOf(id).lookup(id, null);
+        if (cached != null) {
+            return cached;
+        }
+        long startedAt = writeClock.get();
+        User user = userRepository.findById(id);
+        if (user != null) {
+            admit(user, startedAt);
+        }
+        return user;
+    }
+
+    @Override
+    public User findByUsername(String username) {
+        Long id = idsByUsername.get(username);
+        User cached = id != null ? segmentOf(id).lookup(id, username) : null;
+        if (cached != null) {
+            return cached;
+        }
+        if (id == null) {
+            misses.increment();
+        }
+        long startedAt = writeClock.get();
+        User user = userRepository.findByUsername(username);
+        if (user != null) {
+            admit(user, startedAt);
+        }
+        return user;
+    }
+
+    /**
+     * Список всех пользователей всегда читается из репозитория и не кэшируется
+     */
+    @Override
+    public List<User> findAll() {
+        return userRepository.findAll();
+    }
+
+    /**
+     * Удаляет пользователя из кэша, например после изменения его баланса в обход репозитория.
+     * Загрузки этого пользователя, начатые до вызова, не попадут в кэш
+     *
+     * @param id id пользователя
+     */
+    public void evict(long id) {
+        markWritten(id);
+        Segment segment = segmentOf(id);
+        segment.lock.lock();
+        try {
+            segment.remove(id);
+        } finally {
+            segment.lock.unlock();
+        }
+    }
+
+    /**
+     * @return Статистика кэша. Счетчики читаются без общей блокировки, поэтому при параллельных
+     * обращениях снимок может быть не согласован между полями
+     */
+    public CacheStats getStats() {
+        int size = 0;
+        for (Segment segment : segments) {
+            segment.lock.lock();
+            try {
+                size += segment.entries.size();
+            } finally {
+                segment.lock.unlock();
+            }
+        }
+        return new CacheStats(hits.sum(), misses.sum(), evictions.sum(), expirations.sum(), rejections.sum(), size);
+    }
+
+    /**
+     * Кэширует пользователя, загруженного из репозитория
+     *
+     * @param startedAt показания {@link #writeClock} до обращения к репозиторию
+     */
+    private void admit(User user, long startedAt) {
+        long id = user.getId();
+        Segment segment = segmentOf(id);
+        segment.lock.lock();
+        try {
+            segment.sketch.increment(id);
+            if (lastWrite.get(LongHash.stripeOf(id, WRITE_STRIPES)) > startedAt) {
+                return;
+            }
+            if (segment.entries.containsKey(id) || segment.hasRoomFor(id)) {
+                segment.put(user);
+            } else {
+                rejections.increment();
+            }
+        } finally {
+            segment.lock.unlock();
+        }
+    }
+
+    /**
+     * Отражает в кэше изменение, уже выполненное в репозитории
+     *
+     * @param admitIfAbsent кэшировать пользователя, которого еще нет в кэше
+     */
+    private void writeThrough(User user, boolean admitIfAbsent) {
+        long id = user.getId();
+        markWritten(id);
+        Segment segment = segmentOf(id);
+        segment.lock.lock();
+        try {
+            if (segment.entries.containsKey(id)) {
+                segment.put(user);
+            } else if (admitIfAbsent) {
+                segment.sketch.increment(id);
+                if (segment.hasRoomFor(id)) {
+                    segment.put(user);
+                } else {
+                    rejections.increment();
+                }
+            }
+        } finally {
+            segment.lock.unlock();
+        }
+    }
+
+    private Segment segmentOf(long id) {
+        return segments[LongHash.stripeOf(id, segments.length)];
+    }
+
+    private void markWritten(long id) {
+        long now = writeClock.incrementAndGet();
+        lastWrite.accumulateAndGet(LongHash.stripeOf(id, WRITE_STRIPES), now, Math::max);
+    }
+
+    private static User copy(User user) {
+        return new User(user.getId(), user.getUsername(), user.getPassword(),
+                user.getFirstName(), user.getLastName(), user.getBalance());
+    }
+
+    /**
+     * Часть записей кэша. Поля меняются только под {@link #lock}, индекс по имени пользователя общий,
+     * его элементы для id сегмента меняются под блокировкой этого сегмента
+     */
+    private final class Segment {
+        private final ReentrantLock lock = new ReentrantLock();
+
+        /**
+         * Записи в порядке обращений: первая использовалась давнее всех
+         */
+        private final LinkedHashMap<Long, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+        private final FrequencySketch sketch;
+        private final int maximumSize;
+
+        private Segment(int maximumSize) {
+            this.maximumSize = maximumSize;
+            this.sketch = new FrequencySketch(maximumSize);
+        }
+
+        /**
+         * Ищет живую запись и учитывает обращение
+         *
+         * @param username имя пользователя, которое должно быть у записи, или null
+         * @return Копия пользователя или null, если записи нет, она истекла или имя пользователя уже другое
+         */
+        private User lookup(long id, String username) {
+            lock.lock();
+            try {
+                Entry entry = entries.get(id);
+                if (entry != null && entry.expiresAt <= clock.millis()) {
+                    remove(id);
+                    expirations.increment();
+                    entry = null;
+                }
+                if (entry == null || username != null && !username.equals(entry.user.getUsername())) {
+                    misses.increment();
+                    return null;
+                }
+                sketch.increment(id);
+                hits.increment();
+                return copy(entry.user);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Освобождает место под новую запись, если сегмент заполнен: удаляет давно не использованную запись,
+         * если она истекла или к новой записи обращались чаще. Вызывается под блокировкой
+         *
+         * @return true, если место есть
+         */
+        private boolean hasRoomFor(long candidateId) {
+            if (entries.size() < maximumSize) {
+                return true;
+            }
+            Iterator<Map.Entry<Long, Entry>> iterator = entries.entrySet().iterator();
+            Map.Entry<Long, Entry> eldest = iterator.next();
+            if (eldest.getValue().expiresAt <= clock.millis()) {
+                expirations.increment();
+            } else if (sketch.frequency(candidateId) > sketch.frequency(eldest.getKey())) {
+                evictions.increment();
+            } else {
+                return false;
+            }
+            iterator.remove();
+            idsByUsername.remove(eldest.getValue().user.getUsername(), eldest.getKey());
+            return true;
+        }
+
+        private void put(User user) {
+            Entry previous = entries.put(user.getId(), new Entry(copy(user), clock.millis() + ttlMillis));
+            if (previous != null) {
+                idsByUsername.remove(previous.user.getUsername(), user.getId());
+            }
+            idsByUsername.put(user.getUsername(), user.getId());
+        }
+
+        private void remove(long id) {
+            Entry entry = entries.remove(id);
+            if (entry != null) {
+                idsByUsername.remove(entry.user.getUsername(), id);
+            }
+        }
+    }
+
+    private static final class Entry {
+        private final User user;
+        private final long expiresAt;
+
+        private Entry(User user, long expiresAt) {
+            this.user = user;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package org.example.infrostructure.repositoryies.cache;
+
+/**
+ * Приблизительный счетчик частоты обращений к ключам (count-min sketch) для решения,
+ * стоит ли вытеснять запись из кэша ради новой.
+ * Хранит четыре ряда насыщающихся на 15 счетчиков по байту, поэтому занимает от четырех до восьми байт на запись кэша
+ * независимо от количества различных ключей. Оценка частоты может быть завышена из-за коллизий, но не занижена.
+ * После каждых 10 * width увеличений все счетчики делятся пополам,
+ * поэтому частота отражает недавние обращения, а не всю историю.
+ * Не потокобезопасен, вызывающий синхронизирует доступ сам
+ */
+final class FrequencySketch {
+    private static final int DEPTH = 4;
+    private static final int MAX_COUNT = 15;
+    private static final long[] SEEDS = {
+            0x9E3779B97F4A7C15L, 0xC2B2AE3D27D4EB4FL, 0x165667B19E3779F9L, 0xD6E8FEB86659FD93L
+    };
+
+    private final byte[][] counters;
+    private final int mask;
+    private final int sampleSize;
+    private int additions;
+
+    /**
+     * @param expectedSize ожидаемое количество записей в кэше
+     */
+    FrequencySketch(int expectedSize) {
+        int width = Integer.highestOneBit(Math.max(16, expectedSize - 1) << 1);
+        counters = new byte[DEPTH][width];
+        mask = width - 1;
+        sampleSize = 10 * width;
+    }
+
+    /**
+     * Учитывает обращение к ключу
+     */
+    void increment(long key) {
+        boolean added = false;
+        for (int row = 0; row < DEPTH; row++) {
+            int index = indexOf(key, row);
+            if (counters[row][index] < MAX_COUNT) {
+                counters[row][index]++;
+                added = true;
+            }
+        }
+        if (added && ++additions >= sampleSize) {
+            reset();
+        }
+    }
+
+    /**
+     * @return Оценка количества недавних обращений к ключу, не больше 15
+     */
+    int frequency(long key) {
+        int frequency = MAX_COUNT;
+        for (int row = 0; row < DEPTH; row++) {
+            frequency = Math.min(frequency, counters[row][indexOf(key, row)]);
+        }
+        return frequency;
+    }
+
+    private int indexOf(long key, int row) {
+        long hash = (key + row) * SEEDS[row];
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    private void reset() {
+        for (byte[] row : counters) {
+            for (int i = 0; i < row.length; i++) {
+                row[i] >>= 1;
+            }
+        }
+        additions /= 2;
+    }
+}
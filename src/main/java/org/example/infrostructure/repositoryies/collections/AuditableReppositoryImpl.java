@@ -1,12 +1,18 @@
 package org.example.infrostructure.repositoryies.collections;
 
 import org.example.core.models.Auditable;
+import org.example.core.models.Page;
+import org.example.core.models.PageCursor;
 import org.example.core.models.Transaction;
 import org.example.core.repositories.AuditableRepository;
 
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
-import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 
 /**
@@ -14,36 +20,99 @@ import java.util.Optional;
  * предоставляющая функциональность для работы с
  * наследниками {@link Auditable}
  * в системе.
+ * Помимо общего списка записи аудита индексируются по id и по id пользователя.
+ * У записей аудита собственное пространство id: действия без id получают следующий свободный id,
+ * действия с id его сохраняют, а транзакция сохраняется копией с новым id аудита,
+ * поэтому id транзакции в репозитории транзакций не меняется и не пересекается с id действий
  */
 public class AuditableReppositoryImpl implements AuditableRepository {
-    private final List<Auditable> audits = new ArrayList<>();
+    private final List<Auditable> audits = Collections.synchronizedList(new ArrayList<>());
+    private final ConcurrentMap<Long, Auditable> auditsById = new ConcurrentHashMap<>();
+    private final UserIndex<Auditable> auditsByUserId = new UserIndex<>();
+    private final AtomicLong nextAuditId = new AtomicLong(1);
 
     @Override
     public void addAuditable(Auditable auditable) {
+        add(auditable);
+    }
+
+    /**
+     * Добавляет запись аудита
+     *
+     * @param auditable действие или транзакция
+     * @return Сохраненная запись: само действие или копия транзакции с id аудита
+     */
+    Auditable add(Auditable auditable) {
+        Auditable stored;
+        if (auditable instanceof Transaction) {
+            Transaction transaction = (Transaction) auditable;
+            stored = new Transaction(nextAuditId.getAndIncrement(), transaction.getUserId(), transaction.getDateTime(),
+                    transaction.getType(), transaction.getStatus(), transaction.getAmount());
+        } else {
+            if (auditable.getId() == 0) {
+                auditable.setId(nextAuditId.getAndIncrement());
+            } else {
+                nextAuditId.accumulateAndGet(auditable.getId() + 1, Math::max);
+            }
+            stored = auditable;
+        }
+        index(stored);
+        return stored;
+    }
+
+    /**
+     * Восстанавливает сохраненную запись аудита с ее id аудита, например из журнала
+     */
+    void restore(Auditable auditable) {
+        nextAuditId.accumulateAndGet(auditable.getId() + 1, Math::max);
+        index(auditable);
+    }
+
+    private void index(Auditable auditable) {
         audits.add(auditable);
+        auditsById.putIfAbsent(auditable.getId(), auditable);
+        auditsByUserId.add(auditable);
     }
 
     @Override
     public Auditable findById(long id) {
-        Optional<Auditable> audit = audits.stream().filter(a -> a.getId() == id).findFirst();
-        return audit.orElse(null);
+        return auditsById.get(id);
     }
 
     @Override
     public List<Auditable> findAllByUserId(long userId) {
-        List<Auditable> userAudits = new ArrayList<>();
+        return auditsByUserId.findAll(userId);
+    }
 
-        for (Auditable audit : audits) {
-            if (audit.getUserId() == userId) {
-                userAudits.add(audit);
-            }
-        }
+    @Override
+    public List<Auditable> findByUserIdBetween(long userId, LocalDateTime from, LocalDateTime to) {
+        return auditsByUserId.findBetween(userId, from, to);
+    }
 
-        return userAudits;
+    @Override
+    public Page<Auditable> findPageByUserId(long userId, PageCursor after, int pageSize) {
+        return auditsByUserId.findPage(userId, after, pageSize);
+    }
+
+    /**
+     * @return Количество записей в порядке добавления, граница среза для снимка состояния
+     */
+    int size() {
+        return audits.size();
+    }
+
+    /**
+     * Запись по номеру в порядке добавления. Список только дополняется,
+     * поэтому записи до границы среза не меняются после его снятия
+     */
+    Auditable get(int index) {
+        return audits.get(index);
     }
 
     @Override
     public List<Auditable> getAll() {
-        return audits;
+        synchronized (audits) {
+            return new ArrayList<>(audits);
+        }
     }
 }
@@ -0,0 +1,641 @@
+package org.example.infrostructure.repositoryies.collections;
+
+import org.example.core.models.Auditable;
+import org.example.core.models.Page;
+import org.example.core.models.PageCursor;
+import org.example.core.models.ScheduledOperation;
+import org.example.core.models.Transaction;
+import org.example.core.models.User;
+import org.example.core.repositories.AuditableRepository;
+import org.example.core.repositories.ScheduledOperationRepository;
+import org.example.core.repositories.TransactionRepository;
+import org.example.core.repositories.UserRepository;
+import org.example.infrostructure.AccountAggregates;
+import org.example.infrostructure.AtomicWrites;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Долговечное хранилище на основе in-memory репозиториев.
+ * Каждое изменение сначала применяется в памяти, затем дописывается в {@link WriteAheadLog},
+ * момент сброса журнала на диск задается {@link FsyncPolicy}.
+ * Периодически снимается компактный снимок состояния, после чего старые поколения журнала удаляются,
+ * поэтому время восстановления ограничено объемом изменений с последнего снимка.
+ * При открытии состояние восстанавливается из последнего целого снимка и журнала после него.
+ * <p>
+ * Журнал один на все хранилище, и порядок его записей должен совпадать с порядком изменений в памяти,
+ * поэтому применение изменения и дописывание записи выполняются под общей блокировкой и упорядочивают
+ * изменения всех счетов. Под ней выполняются только изменение коллекций и запись в файл журнала
+ * (в кэш страниц ОС), а при {@link FsyncPolicy#GROUP_COMMIT} ожидание сброса на диск идет уже без нее
+ * и подтверждает записи нескольких потоков одним сбросом. Полосы {@link org.example.infrostructure.AccountLocks}
+ * упорядочивают проверку баланса внутри счета, а эта блокировка - короткое дописывание в журнал.
+ * При {@link FsyncPolicy#PER_OPERATION} сброс выполняется под ней, и изменения всех счетов идут строго по одному.
+ * <p>
+ * Изменения одной операции, транзакция с id операции и баланс счета, выполняются внутри {@link #atomically(Runnable)}
+ * и дописываются одной записью-группой, поэтому после сбоя восстанавливаются целиком или не восстанавливаются вовсе.
+ * Пользователи хранятся и выдаются копиями, поэтому состояние в памяти меняется только под блокировкой изменений
+ */
+public class DurableCollectionsStore implements Closeable {
+    private static final int SNAPSHOT_MAGIC = 0x57534E50;
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+    private static final String SNAPSHOT_SUFFIX = ".bin";
+    private static final int SNAPSHOT_BUFFER_SIZE = 1 << 16;
+
+    private final Path directory;
+    private final UserRepositoryImpl users = new UserRepositoryImpl();
+    private final TransactionRepositoryImpl transactions = new TransactionRepositoryImpl();
+    private final AuditableReppositoryImpl audits = new AuditableReppositoryImpl();
+    private final ScheduledOperationRepositoryImpl schedules = new ScheduledOperationRepositoryImpl();
+    private final AccountAggregates aggregates = new AccountAggregates();
+    private final ReentrantLock mutationLock = new ReentrantLock();
+    private final WriteAheadLog wal;
+    private final long snapshotIntervalMillis;
+    private ScheduledExecutorService snapshotScheduler;
+    /**
+     * Записи изменений группы, которую собирает поток внутри {@link #atomically(Runnable)}, иначе null.
+     * Доступ только под {@link #mutationLock}
+     */
+    private List<byte[]> group;
+
+    private final UserRepository userRepository = new DurableUserRepository();
+    private final TransactionRepository transactionRepository = new DurableTransactionRepository();
+    private final AuditableRepository auditableRepository = new DurableAuditableRepository();
+    private final ScheduledOperationRepository scheduledOperationRepository = new DurableScheduledOperationRepository();
+
+    /**
+     * Открывает хранилище и восстанавливает его состояние
+     *
+     * @param directory              каталог снимков и журнала, создается при отсутствии
+     * @param policy                 политика сброса журнала на диск
+     * @param groupCommitMillis      интервал группового сброса для {@link FsyncPolicy#GROUP_COMMIT}
+     * @param snapshotIntervalMillis интервал автоматических снимков после {@link #start()},
+     *                               0 - только по вызову {@link #snapshot()}
+     * @throws IOException если файлы хранилища не удалось прочитать или создать
+     */
+    public DurableCollectionsStore(Path directory,
+                                   FsyncPolicy policy,
+                                   long groupCommitMillis,
+                                   long snapshotIntervalMillis) throws IOException {
+        this.directory = Files.createDirectories(directory);
+        long generation = recover();
+        this.wal = new WriteAheadLog(directory, generation, policy, groupCommitMillis);
+        this.snapshotIntervalMillis = snapshotIntervalMillis;
+    }
+
+    /**
+     * Запускает автоматические снимки, если их интервал задан. Повторный вызов ничего не делает
+     */
+    public synchronized void start() {
+        if (snapshotIntervalMillis <= 0 || snapshotScheduler != null) {
+            return;
+        }
+        snapshotScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "durable-store-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+        snapshotScheduler.scheduleWithFixedDelay(this::scheduledSnapshot,
+                snapshotIntervalMillis, snapshotIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public UserRepository userRepository() {
+        return userRepository;
+    }
+
+    public TransactionRepository transactionRepository() {
+        return transactionRepository;
+    }
+
+    public AuditableRepository auditableRepository() {
+        return auditableRepository;
+    }
+
+    public ScheduledOperationRepository scheduledOperationRepository() {
+        return scheduledOperationRepository;
+    }
+
+    /**
+     * Итоги счетов, восстановленные по транзакциям снимка и журнала в том же проходе, что и сами транзакции.
+     * Хранилище их только восстанавливает, дальше их обновляет сервис операций, которому они переданы
+     *
+     * @return Итоги счетов для {@link org.example.infrostructure.services.OperationServiceImpl}
+     */
+    public AccountAggregates accountAggregates() {
+        return aggregates;
+    }
+
+    /**
+     * Выполняет изменения репозиториев хранилища как одно: блокировка изменений удерживается на все время,
+     * поэтому ни снимок, ни другие потоки не видят группу частично, а записи изменений дописываются в журнал
+     * одной записью-группой с одной контрольной суммой. Сброс на диск ожидается один раз после снятия блокировки.
+     * Если изменения завершились исключением, уже примененные в памяти изменения все равно дописываются,
+     * чтобы журнал совпадал с памятью, а откатить их - дело вызывающего, которое тоже попадет в группу.
+     * Вложенный вызов выполняется в группе внешнего
+     *
+     * @param writes изменения репозиториев хранилища
+     */
+    public void atomically(Runnable writes) {
+        long lsn;
+        mutationLock.lock();
+        try {
+            if (group != null) {
+                writes.run();
+                return;
+            }
+            List<byte[]> records = new ArrayList<>();
+            group = records;
+            try {
+                writes.run();
+            } finally {
+                group = null;
+                lsn = switch (records.size()) {
+                    case 0 -> -1;
+                    case 1 -> wal.append(records.get(0));
+                    default -> wal.append(RecordCodec.group(records));
+                };
+            }
+        } finally {
+            mutationLock.unlock();
+        }
+        if (lsn >= 0) {
+            wal.awaitDurable(lsn);
+        }
+    }
+
+    /**
+     * @return Граница атомарной записи для {@link org.example.infrostructure.services.OperationServiceImpl}
+     */
+    public AtomicWrites atomicWrites() {
+        return this::atomically;
+    }
+
+    /**
+     * Снимает снимок состояния. Под блокировкой изменений снимается срез: пользователи и запланированные
+     * операции, которые меняются на месте, сразу кодируются в записи, а от транзакций и записей аудита,
+     * которые только дополняются, берется количество, после чего журнал переключается на новое поколение.
+     * Кодирование остальных записей и запись файла выполняются уже без блокировки, записи пишутся в файл потоком.
+     * Файл снимка пишется во временный файл и атомарно переименовывается,
+     * после чего снимки и журналы предыдущих поколений удаляются
+     *
+     * @throws IOException если снимок не удалось записать
+     */
+    public void snapshot() throws IOException {
+        List<byte[]> userCut;
+        List<byte[]> scheduleCut;
+        Map<Long, Long> operationIdCut;
+        int transactionCount;
+        int auditCount;
+        long generation;
+        mutationLock.lock();
+        try {
+            userCut = new ArrayList<>();
+            for (User user : users.findAll()) {
+                userCut.add(RecordCodec.userPut(user));
+            }
+            scheduleCut = new ArrayList<>();
+            for (ScheduledOperation operation : schedules.findAll()) {
+                scheduleCut.add(RecordCodec.schedulePut(operation));
+            }
+            operationIdCut = transactions.operationIds();
+            transactionCount = transactions.size();
+            auditCount = audits.size();
+            generation = wal.rotate();
+        } finally {
+            mutationLock.unlock();
+        }
+
+        Path target = snapshotPath(generation);
+        Path temporary = target.resolveSibling(target.getFileName() + ".tmp");
+        CRC32 crc = new CRC32();
+        try (FileChannel channel = FileChannel.open(temporary,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+             DataOutputStream out = new DataOutputStream(new CheckedOutputStream(
+                     new BufferedOutputStream(Channels.newOutputStream(channel), SNAPSHOT_BUFFER_SIZE), crc))) {
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeLong(generation);
+            out.writeInt(userCut.size() + transactionCount + auditCount + scheduleCut.size() + operationIdCut.size());
+            for (byte[] record : userCut) {
+                writeRecord(out, record);
+            }
+            for (int i = 0; i < transactionCount; i++) {
+                writeRecord(out, RecordCodec.transactionAdd(transactions.get(i)));
+            }
+            for (int i = 0; i < auditCount; i++) {
+                writeRecord(out, RecordCodec.auditableAdd(audits.get(i)));
+            }
+            for (byte[] record : scheduleCut) {
+                writeRecord(out, record);
+            }
+            for (Map.Entry<Long, Long> operationId : operationIdCut.entrySet()) {
+                writeRecord(out, RecordCodec.operationId(operationId.getKey(), operationId.getValue()));
+            }
+            out.writeInt((int) crc.getValue());
+            out.flush();
+            channel.force(true);
+        }
+        Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                long fileGeneration = Math.max(WriteAheadLog.generationOf(file), snapshotGeneration(file));
+                if (fileGeneration >= 0 && fileGeneration < generation) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            if (snapshotScheduler != null) {
+                snapshotScheduler.shutdownNow();
+            }
+        }
+        mutationLock.lock();
+        try {
+            wal.close();
+        } finally {
+            mutationLock.unlock();
+        }
+    }
+
+    private void scheduledSnapshot() {
+        try {
+            snapshot();
+        } catch (IOException | UncheckedIOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Загружает последний целый снимок и применяет журналы его и следующих поколений
+     *
+     * @return Поколение, с которого продолжится запись журнала
+     */
+    private long recover() throws IOException {
+        List<Path> snapshots = new ArrayList<>();
+        List<Path> logs = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.forEach(file -> {
+                if (snapshotGeneration(file) >= 0) {
+                    snapshots.add(file);
+                } else if (WriteAheadLog.generationOf(file) >= 0) {
+                    logs.add(file);
+                }
+            });
+        }
+        snapshots.sort((a, b) -> Long.compare(snapshotGeneration(b), snapshotGeneration(a)));
+        logs.sort((a, b) -> Long.compare(WriteAheadLog.generationOf(a), WriteAheadLog.generationOf(b)));
+
+        long snapshotGeneration = 0;
+        for (Path snapshot : snapshots) {
+            if (loadSnapshot(snapshot)) {
+                snapshotGeneration = snapshotGeneration(snapshot);
+                break;
+            }
+        }
+
+        long lastGeneration = snapshotGeneration;
+        for (Path log : logs) {
+            long generation = WriteAheadLog.generationOf(log);
+            if (generation >= snapshotGeneration) {
+                WriteAheadLog.replay(log, record -> RecordCodec.apply(record, users, transactions, audits, schedules, aggregates));
+                lastGeneration = Math.max(lastGeneration, generation);
+            }
+        }
+        return lastGeneration + 1;
+    }
+
+    private boolean loadSnapshot(Path snapshot) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(snapshot));
+        if (buffer.remaining() < 4 + 8 + 4 + 4 || buffer.getInt(0) != SNAPSHOT_MAGIC) {
+            return false;
+        }
+        int crcPosition = buffer.limit() - 4;
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), 0, crcPosition);
+        if ((int) crc.getValue() != buffer.getInt(crcPosition)) {
+            return false;
+        }
+        buffer.position(4 + 8);
+        int count = buffer.getInt();
+        for (int i = 0; i < count; i++) {
+            byte[] record = new byte[buffer.getInt()];
+            buffer.get(record);
+            RecordCodec.apply(record, users, transactions, audits, schedules, aggregates);
+        }
+        return true;
+    }
+
+    private static void writeRecord(DataOutputStream out, byte[] record) throws IOException {
+        out.writeInt(record.length);
+        out.write(record);
+    }
+
+    /**
+     * Применяет изменение в памяти и дописывает его в журнал под одной блокировкой,
+     * чтобы порядок записей журнала совпадал с порядком изменений.
+     * Ожидание сброса журнала на диск выполняется уже после снятия блокировки.
+     * Внутри {@link #atomically(Runnable)} запись только добавляется в группу
+     *
+     * @param mutation изменение в памяти, возвращает запись журнала или null, если изменения не было
+     */
+    private void mutate(Supplier<byte[]> mutation) {
+        long lsn;
+        mutationLock.lock();
+        try {
+            byte[] record = mutation.get();
+            if (record == null) {
+                return;
+            }
+            if (group != null) {
+                group.add(record);
+                return;
+            }
+            lsn = wal.append(record);
+        } finally {
+            mutationLock.unlock();
+        }
+        wal.awaitDurable(lsn);
+    }
+
+    /**
+     * Применяет пачку изменений и дописывает их записи в журнал под одной блокировкой,
+     * сброс на диск ожидается один раз для последней записи пачки.
+     * Внутри {@link #atomically(Runnable)} записи только добавляются в группу
+     *
+     * @param mutation изменения в памяти, возвращают записи журнала
+     */
+    private void mutateAll(Supplier<List<byte[]>> mutation) {
+        long lsn = -1;
+        mutationLock.lock();
+        try {
+            List<byte[]> records = mutation.get();
+            if (group != null) {
+                group.addAll(records);
+                return;
+            }
+            for (byte[] record : records) {
+                lsn = wal.append(record);
+            }
+        } finally {
+            mutationLock.unlock();
+        }
+        if (lsn >= 0) {
+            wal.awaitDurable(lsn);
+        }
+    }
+
+    private Path snapshotPath(long generation) {
+        return directory.resolve(String.format("%s%016d%s", SNAPSHOT_PREFIX, generation, SNAPSHOT_SUFFIX));
+    }
+
+    private static long snapshotGeneration(Path file) {
+        String name = file.getFileName().toString();
+        if (!name.startsWith(SNAPSHOT_PREFIX) || !name.endsWith(SNAPSHOT_SUFFIX)) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(name.substring(SNAPSHOT_PREFIX.length(), name.length() - SNAPSHOT_SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static User copy(User user) {
+        return new User(user.getId(), user.getUsername(), user.getPassword(),
+                user.getFirstName(), user.getLastName(), user.getBalance());
+    }
+
+    /**
+     * Пользователи хранятся и выдаются копиями: изменение полученного объекта не меняет хранилище
+     * до {@link #updateUser(User)}, которое выполняется под блокировкой изменений
+     */
+    private class DurableUserRepository implements UserRepository {
+        @Override
+        public void addUser(User user) {
+            mutate(() -> {
+                User stored = copy(user);
+                users.addUser(stored);
+                user.setId(stored.getId());
+                return RecordCodec.userPut(stored);
+            });
+        }
+
+        @Override
+        public void deleteUser(User user) {
+            mutate(() -> {
+                if (users.findById(user.getId()) == null) {
+                    return null;
+                }
+                users.deleteUser(user);
+                return RecordCodec.userDelete(user.getId());
+            });
+        }
+
+        @Override
+        public void updateUser(User user) {
+            mutate(() -> {
+                if (users.findById(user.getId()) == null) {
+                    return null;
+                }
+                User stored = copy(user);
+                users.updateUser(stored);
+                return RecordCodec.userPut(stored);
+            });
+        }
+
+        @Override
+        public User findById(long id) {
+            User user = users.findById(id);
+            return user == null ? null : copy(user);
+        }
+
+        @Override
+        public User findByUsername(String username) {
+            User user = users.findByUsername(username);
+            return user == null ? null : copy(user);
+        }
+
+        @Override
+        public List<User> findAll() {
+            List<User> all = users.findAll();
+            List<User> copies = new ArrayList<>(all.size());
+            for (User user : all) {
+                copies.add(copy(user));
+            }
+            return copies;
+        }
+    }
+
+    /**
+     * Id операции резервируется только в памяти и попадает в журнал вместе с транзакцией операции
+     * с тем же моментом истечения, что и в реестре, а в снимок - пока резерв действует.
+     * Поэтому после перезапуска повтор выполненной операции отклоняется в пределах того же окна,
+     * а id операции, не дошедшей до записи транзакции, остается свободным
+     */
+    private class DurableTransactionRepository implements TransactionRepository {
+        @Override
+        public void addTransaction(Transaction transaction) {
+            mutate(() -> {
+                transactions.addTransaction(transaction);
+                return RecordCodec.transactionAdd(transaction);
+            });
+        }
+
+        @Override
+        public void addTransaction(Transaction transaction, long operationId) {
+            mutateAll(() -> {
+                transactions.addTransaction(transaction, operationId);
+                long expiresAt = transactions.operationIdExpiresAt(operationId);
+                return expiresAt < 0
+                        ? List.of(RecordCodec.transactionAdd(transaction))
+                        : List.of(RecordCodec.transactionAdd(transaction), RecordCodec.operationId(operationId, expiresAt));
+            });
+        }
+
+        @Override
+        public Transaction findById(long id) {
+            return transactions.findById(id);
+        }
+
+        @Override
+        public List<Transaction> findAllByUserId(long userId) {
+            return transactions.findAllByUserId(userId);
+        }
+
+        @Override
+        public List<Transaction> findByUserIdBetween(long userId, LocalDateTime from, LocalDateTime to) {
+            return transactions.findByUserIdBetween(userId, from, to);
+        }
+
+        @Override
+        public Page<Transaction> findPageByUserId(long userId, PageCursor after, int pageSize) {
+            return transactions.findPageByUserId(userId, after, pageSize);
+        }
+
+        @Override
+        public boolean isTransactionIdUnique(long transactionId) {
+            return transactions.isTransactionIdUnique(transactionId);
+        }
+
+        @Override
+        public void releaseTransactionId(long transactionId) {
+            transactions.releaseTransactionId(transactionId);
+        }
+
+        @Override
+        public List<Transaction> getAll() {
+            return transactions.getAll();
+        }
+    }
+
+    private class DurableAuditableRepository implements AuditableRepository {
+        @Override
+        public void addAuditable(Auditable auditable) {
+            mutate(() -> RecordCodec.auditableAdd(audits.add(auditable)));
+        }
+
+        @Override
+        public Auditable findById(long id) {
+            return audits.findById(id);
+        }
+
+        @Override
+        public List<Auditable> findAllByUserId(long userId) {
+            return audits.findAllByUserId(userId);
+        }
+
+        @Override
+        public List<Auditable> findByUserIdBetween(long userId, LocalDateTime from, LocalDateTime to) {
+            return audits.findByUserIdBetween(userId, from, to);
+        }
+
+        @Override
+        public Page<Auditable> findPageByUserId(long userId, PageCursor after, int pageSize) {
+            return audits.findPageByUserId(userId, after, pageSize);
+        }
+
+        @Override
+        public List<Auditable> getAll() {
+            return audits.getAll();
+        }
+    }
+
+    private class DurableScheduledOperationRepository implements ScheduledOperationRepository {
+        @Override
+        public void addScheduledOperation(ScheduledOperation operation) {
+            mutate(() -> {
+                schedules.addScheduledOperation(operation);
+                return RecordCodec.schedulePut(operation);
+            });
+        }
+
+        @Override
+        public void updateScheduledOperations(List<ScheduledOperation> operations) {
+            mutateAll(() -> {
+                List<byte[]> records = new ArrayList<>(operations.size());
+                for (ScheduledOperation operation : operations) {
+                    if (schedules.findById(operation.getId()) != null) {
+                        schedules.updateScheduledOperations(List.of(operation));
+                        records.add(RecordCodec.schedulePut(operation));
+                    }
+                }
+                return records;
+            });
+        }
+
+        @Override
+        public void deleteScheduledOperations(List<Long> ids) {
+            mutateAll(() -> {
+                List<byte[]> records = new ArrayList<>(ids.size());
+                for (long id : ids) {
+                    if (schedules.findById(id) != null) {
+                        schedules.deleteScheduledOperations(List.of(id));
+                        records.add(RecordCodec.scheduleDelete(id));
+                    }
+                }
+                return records;
+            });
+        }
+
+        @Override
+        public ScheduledOperation findById(long id) {
+            return schedules.findById(id);
+        }
+
+        @Override
+        public List<ScheduledOperation> findAllByUserId(long userId) {
+            return schedules.findAllByUserId(userId);
+        }
+
+        @Override
+        public List<ScheduledOperation> findAll() {
+            return schedules.findAll();
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package org.example.infrostructure.repositoryies.collections;
+
+/**
+ * Политика сброса журнала предзаписи на диск для {@link WriteAheadLog}
+ */
+public enum FsyncPolicy {
+    /**
+     * Сброс на диск после каждой операции, операция завершается только после него
+     */
+    PER_OPERATION,
+
+    /**
+     * Групповой сброс раз в заданный интервал, операция ждет ближайшего сброса,
+     * один вызов fsync подтверждает все накопленные операции
+     */
+    GROUP_COMMIT,
+
+    /**
+     * Сброс на диск остается на усмотрение ОС, записи переживают падение процесса, но не ОС
+     */
+    OS
+}
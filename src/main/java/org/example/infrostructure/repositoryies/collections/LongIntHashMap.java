@@ -0,0 +1,130 @@
+package org.example.infrostructure.repositoryies.collections;
+
+import org.example.infrostructure.LongHash;
+
+/**
+ * Хеш-таблица с открытой адресацией, отображающая long в неотрицательный int
+ * без упаковки ключей и значений в объекты.
+ * Не потокобезопасна, синхронизация остается на вызывающей стороне
+ */
+class LongIntHashMap {
+    /**
+     * Значение, возвращаемое для отсутствующего ключа
+     */
+    static final int NO_VALUE = -1;
+
+    private static final float LOAD_FACTOR = 0.5f;
+
+    private long[] keys;
+    /**
+     * Значения хранятся со сдвигом на единицу, 0 означает свободную ячейку
+     */
+    private int[] values;
+    private int mask;
+    private int size;
+    private int resizeThreshold;
+
+    LongIntHashMap() {
+        this(16);
+    }
+
+    LongIntHashMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(4, (int) (expectedSize / LOAD_FACTOR)) - 1) << 1;
+        allocate(capacity);
+    }
+
+    /**
+     * Возвращает значение по ключу
+     *
+     * @param key ключ
+     * @return Значение или {@link #NO_VALUE}, если ключа нет
+     */
+    int get(long key) {
+        int slot = slot(key);
+        while (values[slot] != 0) {
+            if (keys[slot] == key) {
+                return values[slot] - 1;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return NO_VALUE;
+    }
+
+    boolean containsKey(long key) {
+        return get(key) != NO_VALUE;
+    }
+
+    /**
+     * Записывает значение, заменяя существующее
+     *
+     * @param key   ключ
+     * @param value неотрицательное значение
+     */
+    void put(long key, int value) {
+        insert(key, value, true);
+    }
+
+    /**
+     * Записывает значение, только если ключа еще нет
+     *
+     * @param key   ключ
+     * @param value неотрицательное значение
+     * @return true, если значение было записано
+     */
+    boolean putIfAbsent(long key, int value) {
+        return insert(key, value, false);
+    }
+
+    int size() {
+        return size;
+    }
+
+    private boolean insert(long key, int value, boolean replace) {
+        if (value < 0) {
+            throw new IllegalArgumentException("Value must not be negative.");
+        }
+        int slot = slot(key);
+        while (values[slot] != 0) {
+            if (keys[slot] == key) {
+                if (replace) {
+                    values[slot] = value + 1;
+                }
+                return replace;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = value + 1;
+        if (++size > resizeThreshold) {
+            rehash();
+        }
+        return true;
+    }
+
+    private void rehash() {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(oldKeys.length << 1);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldValues[i] != 0) {
+                int slot = slot(oldKeys[i]);
+                while (values[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new int[capacity];
+        mask = capacity - 1;
+        resizeThreshold = (int) (capacity * LOAD_FACTOR);
+    }
+
+    private int slot(long key) {
+        return LongHash.hash(key) & mask;
+    }
+}
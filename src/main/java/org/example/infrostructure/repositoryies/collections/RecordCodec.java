@@ -0,0 +1,306 @@
+package org.example.infrostructure.repositoryies.collections;
+
+import org.example.core.models.Action;
+import org.example.core.models.Auditable;
+import org.example.core.models.ScheduledOperation;
+import org.example.core.models.Transaction;
+import org.example.core.models.User;
+import org.example.core.models.enums.ActionType;
+import org.example.core.models.enums.AuditableStatus;
+import org.example.core.models.enums.TransactionType;
+import org.example.infrostructure.AccountAggregates;
+import org.example.infrostructure.EnumCodes;
+import org.example.infrostructure.EpochMicros;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+
+/**
+ * Двоичное представление изменений in-memory репозиториев для журнала предзаписи и снимков состояния.
+ * Запись начинается с байта вида изменения, за которым следуют поля сущности.
+ * Дата и время хранятся в микросекундах эпохи (UTC), строки - в modified UTF-8 с признаком null,
+ * перечисления - постоянными кодами {@link EnumCodes}
+ */
+final class RecordCodec {
+    static final byte USER_PUT = 1;
+    static final byte USER_DELETE = 2;
+    static final byte TRANSACTION_ADD = 3;
+    static final byte AUDITABLE_ADD = 4;
+    static final byte SCHEDULE_PUT = 5;
+    static final byte SCHEDULE_DELETE = 6;
+    static final byte OPERATION_ID = 7;
+    static final byte GROUP = 8;
+
+    private static final byte KIND_ACTION = 1;
+    private static final byte KIND_TRANSACTION = 2;
+
+    private RecordCodec() {
+    }
+
+    /**
+     * Запись о добавлении или изменении пользователя
+     */
+    static byte[] userPut(User user) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(USER_PUT);
+            out.writeLong(user.getId());
+            writeString(out, user.getUsername());
+            writeString(out, user.getPassword());
+            writeString(out, user.getFirstName());
+            writeString(out, user.getLastName());
+            out.writeFloat(user.getBalance());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Запись об удалении пользователя
+     */
+    static byte[] userDelete(long userId) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(9);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(USER_DELETE);
+            out.writeLong(userId);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Запись о добавлении транзакции. Id другой стороны перевода дописывается в конец записи,
+     * только если задан, поэтому записи, сделанные до его появления, читаются без изменений
+     */
+    static byte[] transactionAdd(Transaction transaction) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(48);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(TRANSACTION_ADD);
+            writeTransaction(out, transaction);
+            if (transaction.getCounterpartyId() != null) {
+                out.writeLong(transaction.getCounterpartyId());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Запись о добавлении записи аудита: действия или транзакции
+     */
+    static byte[] auditableAdd(Auditable auditable) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(48);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(AUDITABLE_ADD);
+            if (auditable instanceof Transaction) {
+                out.writeByte(KIND_TRANSACTION);
+                writeTransaction(out, (Transaction) auditable);
+            } else if (auditable instanceof Action) {
+                Action action = (Action) auditable;
+                out.writeByte(KIND_ACTION);
+                writeAuditable(out, action);
+                out.writeByte(EnumCodes.code(action.getType()));
+            } else {
+                throw new IllegalArgumentException("Unsupported auditable type: " + auditable.getClass().getName());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Запись о добавлении запланированной операции или изменении номера ее повторения
+     */
+    static byte[] schedulePut(ScheduledOperation operation) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(48);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(SCHEDULE_PUT);
+            out.writeLong(operation.getId());
+            out.writeLong(operation.getUserId());
+            out.writeByte(EnumCodes.code(operation.getType()));
+            out.writeFloat(operation.getAmount());
+            out.writeByte(EnumCodes.code(operation.getRecurrence()));
+            out.writeLong(EpochMicros.of(operation.getFirstRun()));
+            out.writeLong(operation.getOccurrence());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Запись об удалении запланированной операции
+     */
+    static byte[] scheduleDelete(long id) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(9);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(SCHEDULE_DELETE);
+            out.writeLong(id);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Запись о резерве id операции до момента его истечения
+     */
+    static byte[] operationId(long operationId, long expiresAt) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(17);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(OPERATION_ID);
+            out.writeLong(operationId);
+            out.writeLong(expiresAt);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Запись-группа из записей изменений одной операции. Группа дописывается в журнал одной записью
+     * с одной контрольной суммой, поэтому при восстановлении применяется целиком или не применяется вовсе
+     */
+    static byte[] group(List<byte[]> records) {
+        int length = 1 + 4;
+        for (byte[] record : records) {
+            length += 4 + record.length;
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(length);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(GROUP);
+            out.writeInt(records.size());
+            for (byte[] record : records) {
+                out.writeInt(record.length);
+                out.write(record);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Применяет запись к репозиториям. Повторное применение записи о пользователе
+     * запланированной операции или id операции безопасно, поэтому записи, попавшие и в снимок, и в журнал, не искажают состояние
+     *
+     * @param record       двоичная запись
+     * @param users        репозиторий пользователей
+     * @param transactions репозиторий транзакций
+     * @param audits       репозиторий аудита
+     * @param schedules    репозиторий запланированных операций
+     * @param aggregates   итоги счетов, в которых учитываются восстановленные транзакции
+     */
+    static void apply(byte[] record,
+                      UserRepositoryImpl users,
+                      TransactionRepositoryImpl transactions,
+                      AuditableReppositoryImpl audits,
+                      ScheduledOperationRepositoryImpl schedules,
+                      AccountAggregates aggregates) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(record))) {
+            byte type = in.readByte();
+            switch (type) {
+                case USER_PUT:
+                    users.restore(new User(in.readLong(), readString(in), readString(in),
+                            readString(in), readString(in), in.readFloat()));
+                    break;
+                case USER_DELETE:
+                    users.deleteUser(new User(in.readLong(), null, null, null, null, 0));
+                    break;
+                case TRANSACTION_ADD:
+                    Transaction transaction = readTransaction(in);
+                    if (in.available() > 0) {
+                        transaction.setCounterpartyId(in.readLong());
+                    }
+                    transactions.addTransaction(transaction);
+                    aggregates.record(transaction);
+                    break;
+                case AUDITABLE_ADD:
+                    audits.restore(readAuditable(in));
+                    break;
+                case SCHEDULE_PUT:
+                    schedules.restore(new ScheduledOperation(in.readLong(), in.readLong(),
+                            EnumCodes.transactionType(in.readByte()), in.readFloat(), EnumCodes.recurrence(in.readByte()),
+                            EpochMicros.toLocalDateTime(in.readLong()), in.readLong()));
+                    break;
+                case SCHEDULE_DELETE:
+                    schedules.deleteScheduledOperations(List.of(in.readLong()));
+                    break;
+                case OPERATION_ID:
+                    transactions.restoreOperationId(in.readLong(), in.readLong());
+                    break;
+                case GROUP:
+                    int count = in.readInt();
+                    for (int i = 0; i < count; i++) {
+                        byte[] member = new byte[in.readInt()];
+                        in.readFully(member);
+                        apply(member, users, transactions, audits, schedules, aggregates);
+                    }
+                    break;
+                default:
+                    throw new IllegalStateException("Unknown record type: " + type);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static Auditable readAuditable(DataInputStream in) throws IOException {
+        byte kind = in.readByte();
+        if (kind == KIND_TRANSACTION) {
+            return readTransaction(in);
+        }
+        if (kind != KIND_ACTION) {
+            throw new IllegalStateException("Unknown auditable kind: " + kind);
+        }
+        long id = in.readLong();
+        long userId = in.readLong();
+        long epochMicros = in.readLong();
+        AuditableStatus status = EnumCodes.auditableStatus(in.readByte());
+        ActionType actionType = EnumCodes.actionType(in.readByte());
+        return new Action(id, userId, EpochMicros.toLocalDateTime(epochMicros), status, actionType);
+    }
+
+    private static void writeTransaction(DataOutputStream out, Transaction transaction) throws IOException {
+        writeAuditable(out, transaction);
+        out.writeByte(EnumCodes.code(transaction.getType()));
+        out.writeFloat(transaction.getAmount());
+    }
+
+    private static Transaction readTransaction(DataInputStream in) throws IOException {
+        long id = in.readLong();
+        long userId = in.readLong();
+        long epochMicros = in.readLong();
+        AuditableStatus status = EnumCodes.auditableStatus(in.readByte());
+        TransactionType type = EnumCodes.transactionType(in.readByte());
+        float amount = in.readFloat();
+        return new Transaction(id, userId, EpochMicros.toLocalDateTime(epochMicros), type, status, amount);
+    }
+
+    private static void writeAuditable(DataOutputStream out, Auditable auditable) throws IOException {
+        out.writeLong(auditable.getId());
+        out.writeLong(auditable.getUserId());
+        out.writeLong(EpochMicros.of(auditable.getDateTime()));
+        out.writeByte(EnumCodes.code(auditable.getStatus()));
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+}
@@ -0,0 +1,71 @@
+package org.example.infrostructure.repositoryies.collections;
+
+import org.example.core.models.ScheduledOperation;
+import org.example.core.repositories.ScheduledOperationRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Реализация интерфейса {@link ScheduledOperationRepository},
+ * хранящая запланированные операции в конкурентном хеш-индексе по id
+ */
+public class ScheduledOperationRepositoryImpl implements ScheduledOperationRepository {
+    private final ConcurrentMap<Long, ScheduledOperation> operationsById = new ConcurrentHashMap<>();
+    private final AtomicLong nextId = new AtomicLong(1);
+
+    @Override
+    public void addScheduledOperation(ScheduledOperation operation) {
+        operation.setId(nextId.getAndIncrement());
+        operationsById.put(operation.getId(), operation);
+    }
+
+    @Override
+    public void updateScheduledOperations(List<ScheduledOperation> operations) {
+        for (ScheduledOperation operation : operations) {
+            operationsById.replace(operation.getId(), operation);
+        }
+    }
+
+    @Override
+    public void deleteScheduledOperations(List<Long> ids) {
+        for (long id : ids) {
+            operationsById.remove(id);
+        }
+    }
+
+    /**
+     * Восстанавливает операцию с уже присвоенным id при загрузке снимка или журнала.
+     * Существующая операция с тем же id заменяется, счетчик id сдвигается за восстановленную
+     *
+     * @param operation запланированная операция с заполненным id
+     */
+    void restore(ScheduledOperation operation) {
+        operationsById.put(operation.getId(), operation);
+        nextId.accumulateAndGet(operation.getId() + 1, Math::max);
+    }
+
+    @Override
+    public ScheduledOperation findById(long id) {
+        return operationsById.get(id);
+    }
+
+    @Override
+    public List<ScheduledOperation> findAllByUserId(long userId) {
+        List<ScheduledOperation> result = new ArrayList<>();
+        for (ScheduledOperation operation : operationsById.values()) {
+            if (operation.getUserId() == userId) {
+                result.add(operation);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public List<ScheduledOperation> findAll() {
+        return new ArrayList<>(operationsById.values());
+    }
+}
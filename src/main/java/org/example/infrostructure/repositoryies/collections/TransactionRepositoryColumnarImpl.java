@@ -0,0 +1,345 @@
+package org.example.infrostructure.repositoryies.collections;
+
+import org.example.core.models.Page;
+import org.example.core.models.PageCursor;
+import org.example.core.models.Transaction;
+import org.example.core.models.enums.AuditableStatus;
+import org.example.core.models.enums.TransactionType;
+import org.example.core.repositories.TransactionRepository;
+import org.example.infrostructure.EpochMicros;
+import org.example.infrostructure.IdempotencyRegistry;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Реализация интерфейса {@link TransactionRepository},
+ * хранящая транзакции по колонкам в массивах примитивов вместо отдельных объектов {@link Transaction}.
+ * Колонки разбиты на блоки фиксированного размера, поэтому рост хранилища не копирует уже записанные данные.
+ * Объекты {@link Transaction} создаются только при чтении, а для аналитики доступен
+ * построчный обход колонок через {@link #scan(int, int, RowConsumer)}.
+ * Время хранится в микросекундах от эпохи, {@link LocalDateTime} трактуется как UTC.
+ * Строки каждого пользователя упорядочены по паре (время, id), выборка за период
+ * и страница после курсора ищут начало бинарным поиском.
+ * Транзакции без id получают следующий свободный id, как при генерации через сиквенс в PostgreSql.
+ * Другая сторона перевода есть только у транзакций переводов, поэтому хранится не колонкой, а по id транзакции
+ */
+public class TransactionRepositoryColumnarImpl implements TransactionRepository {
+    private static final int CHUNK_BITS = 14;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    private static final byte NO_ENUM = -1;
+
+    private static final TransactionType[] TYPES = TransactionType.values();
+    private static final AuditableStatus[] STATUSES = AuditableStatus.values();
+
+    private long[][] ids = new long[0][];
+    private long[][] userIds = new long[0][];
+    private long[][] epochMicros = new long[0][];
+    private byte[][] types = new byte[0][];
+    private byte[][] statuses = new byte[0][];
+    private float[][] amounts = new float[0][];
+    private int size;
+    private long nextTransactionId = 1;
+
+    private final LongIntHashMap rowsById = new LongIntHashMap();
+    private final Map<Long, Long> counterpartiesById = new HashMap<>();
+    private final Map<Long, RowList> rowsByUserId = new HashMap<>();
+    private final IdempotencyRegistry idempotencyRegistry;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public TransactionRepositoryColumnarImpl() {
+        this(new IdempotencyRegistry());
+    }
+
+    public TransactionRepositoryColumnarImpl(IdempotencyRegistry idempotencyRegistry) {
+        this.idempotencyRegistry = idempotencyRegistry;
+    }
+
+    /**
+     * Обработчик строки колонок, получающий значения без создания объектов
+     */
+    @FunctionalInterface
+    public interface RowConsumer {
+        void accept(long id, long userId, long epochMicros, TransactionType type, AuditableStatus status, float amount);
+    }
+
+    /**
+     * Id операции уже зарезервирован в {@link IdempotencyRegistry}, отдельно он не хранится
+     */
+    @Override
+    public void addTransaction(Transaction transaction, long operationId) {
+        addTransaction(transaction);
+    }
+
+    @Override
+    public void addTransaction(Transaction transaction) {
+        lock.writeLock().lock();
+        try {
+            if (transaction.getId() == 0) {
+                transaction.setId(nextTransactionId++);
+            } else {
+                nextTransactionId = Math.max(nextTransactionId, transaction.getId() + 1);
+            }
+            int row = size;
+            int chunk = row >>> CHUNK_BITS;
+            if (chunk == ids.length) {
+                addChunk();
+            }
+            int offset = row & CHUNK_MASK;
+            ids[chunk][offset] = transaction.getId();
+            userIds[chunk][offset] = transaction.getUserId();
+            epochMicros[chunk][offset] = EpochMicros.of(transaction.getDateTime());
+            types[chunk][offset] = transaction.getType() == null ? NO_ENUM : (byte) transaction.getType().ordinal();
+            statuses[chunk][offset] = transaction.getStatus() == null ? NO_ENUM : (byte) transaction.getStatus().ordinal();
+            amounts[chunk][offset] = transaction.getAmount();
+            if (transaction.getCounterpartyId() != null) {
+                counterpartiesById.putIfAbsent(transaction.getId(), transaction.getCounterpartyId());
+            }
+            size++;
+
+            rowsById.putIfAbsent(transaction.getId(), row);
+            RowList rows = rowsByUserId.computeIfAbsent(transaction.getUserId(), userId -> new RowList());
+            rows.insert(search(rows, epochMicros[chunk][offset], transaction.getId(), true), row);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public Transaction findById(long id) {
+        lock.readLock().lock();
+        try {
+            int row = rowsById.get(id);
+            return row == LongIntHashMap.NO_VALUE ? null : materialize(row);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Transaction> findAllByUserId(long userId) {
+        lock.readLock().lock();
+        try {
+            RowList rows = rowsByUserId.get(userId);
+            if (rows == null) {
+                return new ArrayList<>();
+            }
+            List<Transaction> userTransactions = new ArrayList<>(rows.size);
+            for (int i = 0; i < rows.size; i++) {
+                userTransactions.add(materialize(rows.rows[i]));
+            }
+            return userTransactions;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Transaction> findByUserIdBetween(long userId, LocalDateTime from, LocalDateTime to) {
+        lock.readLock().lock();
+        try {
+            List<Transaction> userTransactions = new ArrayList<>();
+            RowList rows = rowsByUserId.get(userId);
+            if (rows == null) {
+                return userTransactions;
+            }
+            long toMicros = EpochMicros.of(to);
+            for (int i = search(rows, EpochMicros.of(from), Long.MIN_VALUE, false); i < rows.size; i++) {
+                int row = rows.rows[i];
+                if (epochMicros[row >>> CHUNK_BITS][row & CHUNK_MASK] > toMicros) {
+                    break;
+                }
+                userTransactions.add(materialize(row));
+            }
+            return userTransactions;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Page<Transaction> findPageByUserId(long userId, PageCursor after, int pageSize) {
+        lock.readLock().lock();
+        try {
+            List<Transaction> userTransactions = new ArrayList<>();
+            RowList rows = rowsByUserId.get(userId);
+            if (rows == null) {
+                return new Page<>(userTransactions, null);
+            }
+            int start = after == null ? 0 : search(rows, EpochMicros.of(after.getDateTime()), after.getId(), true);
+            int end = Math.min(rows.size, start + Math.max(0, pageSize));
+            for (int i = start; i < end; i++) {
+                userTransactions.add(materialize(rows.rows[i]));
+            }
+            PageCursor nextCursor = end < rows.size && !userTransactions.isEmpty()
+                    ? PageCursor.after(userTransactions.get(userTransactions.size() - 1))
+                    : null;
+            return new Page<>(userTransactions, nextCursor);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean isTransactionIdUnique(long transactionId) {
+        return idempotencyRegistry.reserve(transactionId);
+    }
+
+    @Override
+    public void releaseTransactionId(long transactionId) {
+        idempotencyRegistry.release(transactionId);
+    }
+
+    @Override
+    public List<Transaction> getAll() {
+        lock.readLock().lock();
+        try {
+            List<Transaction> allTransactions = new ArrayList<>(size);
+            for (int row = 0; row < size; row++) {
+                allTransactions.add(materialize(row));
+            }
+            return allTransactions;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Возвращает количество хранимых транзакций
+     *
+     * @return Количество строк в колонках
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Последовательно обходит строки в диапазоне [fromRow, toRow), не создавая объектов {@link Transaction}.
+     * Диапазоны не пересекаются по данным, поэтому разные диапазоны можно обходить параллельно
+     *
+     * @param fromRow  первая строка, включительно
+     * @param toRow    последняя строка, не включительно
+     * @param consumer обработчик строки
+     */
+    public void scan(int fromRow, int toRow, RowConsumer consumer) {
+        lock.readLock().lock();
+        try {
+            int end = Math.min(toRow, size);
+            for (int row = Math.max(0, fromRow); row < end; row++) {
+                int chunk = row >>> CHUNK_BITS;
+                int offset = row & CHUNK_MASK;
+                byte type = types[chunk][offset];
+                byte status = statuses[chunk][offset];
+                consumer.accept(
+                        ids[chunk][offset],
+                        userIds[chunk][offset],
+                        epochMicros[chunk][offset],
+                        type == NO_ENUM ? null : TYPES[type],
+                        status == NO_ENUM ? null : STATUSES[status],
+                        amounts[chunk][offset]
+                );
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private Transaction materialize(int row) {
+        int chunk = row >>> CHUNK_BITS;
+        int offset = row & CHUNK_MASK;
+        byte type = types[chunk][offset];
+        byte status = statuses[chunk][offset];
+        Transaction transaction = new Transaction(
+                ids[chunk][offset],
+                userIds[chunk][offset],
+                EpochMicros.toLocalDateTime(epochMicros[chunk][offset]),
+                type == NO_ENUM ? null : TYPES[type],
+                status == NO_ENUM ? null : STATUSES[status],
+                amounts[chunk][offset]
+        );
+        transaction.setCounterpartyId(counterpartiesById.get(transaction.getId()));
+        return transaction;
+    }
+
+    /**
+     * Бинарный поиск в списке строк по паре (время, id)
+     *
+     * @param strictlyAfter true - первая позиция с ключом больше заданного,
+     *                      false - первая позиция с ключом не меньше заданного
+     */
+    private int search(RowList rows, long micros, long id, boolean strictlyAfter) {
+        if (strictlyAfter && (rows.size == 0 || compareRow(rows.rows[rows.size - 1], micros, id) <= 0)) {
+            return rows.size;
+        }
+        int low = 0;
+        int high = rows.size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            int comparison = compareRow(rows.rows[middle], micros, id);
+            if (comparison < 0 || (strictlyAfter && comparison == 0)) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private int compareRow(int row, long micros, long id) {
+        int chunk = row >>> CHUNK_BITS;
+        int offset = row & CHUNK_MASK;
+        int comparison = Long.compare(epochMicros[chunk][offset], micros);
+        return comparison != 0 ? comparison : Long.compare(ids[chunk][offset], id);
+    }
+
+    private void addChunk() {
+        int chunks = ids.length + 1;
+        ids = Arrays.copyOf(ids, chunks);
+        userIds = Arrays.copyOf(userIds, chunks);
+        epochMicros = Arrays.copyOf(epochMicros, chunks);
+        types = Arrays.copyOf(types, chunks);
+        statuses = Arrays.copyOf(statuses, chunks);
+        amounts = Arrays.copyOf(amounts, chunks);
+
+        int chunk = chunks - 1;
+        ids[chunk] = new long[CHUNK_SIZE];
+        userIds[chunk] = new long[CHUNK_SIZE];
+        epochMicros[chunk] = new long[CHUNK_SIZE];
+        types[chunk] = new byte[CHUNK_SIZE];
+        statuses[chunk] = new byte[CHUNK_SIZE];
+        amounts[chunk] = new float[CHUNK_SIZE];
+    }
+
+    /**
+     * Растущий список номеров строк одного пользователя, упорядоченный по времени
+     */
+    private static class RowList {
+        private int[] rows = new int[4];
+        private int size;
+
+        void insert(int position, int row) {
+            if (size == rows.length) {
+                rows = Arrays.copyOf(rows, size + (size >> 1));
+            }
+            if (position < size) {
+                System.arraycopy(rows, position, rows, position + 1, size - position);
+            }
+            rows[position] = row;
+            size++;
+        }
+    }
+}
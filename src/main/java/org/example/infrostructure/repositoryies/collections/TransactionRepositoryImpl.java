@@ -1,55 +1,127 @@
 package org.example.infrostructure.repositoryies.collections;
 
 import lombok.RequiredArgsConstructor;
+import org.example.core.models.Page;
+import org.example.core.models.PageCursor;
 import org.example.core.models.Transaction;
 import org.example.core.repositories.TransactionRepository;
+import org.example.infrostructure.IdempotencyRegistry;
 
+import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Реализация интерфейса {@link TransactionRepository},
- * предоставляющая функциональность для работы с транзакциями в системе
+ * предоставляющая функциональность для работы с транзакциями в системе.
+ * Помимо общего списка транзакции индексируются по id и по id пользователя.
+ * Транзакции без id получают следующий свободный id, как при генерации через сиквенс в PostgreSql.
+ * Уникальность идентификаторов операций проверяется через {@link IdempotencyRegistry}
  */
 @RequiredArgsConstructor
 public class TransactionRepositoryImpl implements TransactionRepository {
-    private final List<Transaction> transactions = new ArrayList<>();
-    private final Set<Long> transactionIds = new HashSet<>();
+    private final List<Transaction> transactions = Collections.synchronizedList(new ArrayList<>());
+    private final ConcurrentMap<Long, Transaction> transactionsById = new ConcurrentHashMap<>();
+    private final UserIndex<Transaction> transactionsByUserId = new UserIndex<>();
+    private final AtomicLong nextTransactionId = new AtomicLong(1);
+    private final IdempotencyRegistry idempotencyRegistry;
+
+    public TransactionRepositoryImpl() {
+        this(new IdempotencyRegistry());
+    }
+
+    /**
+     * Id операции уже зарезервирован в {@link IdempotencyRegistry}, отдельно он не хранится
+     */
+    @Override
+    public void addTransaction(Transaction transaction, long operationId) {
+        addTransaction(transaction);
+    }
 
     @Override
     public void addTransaction(Transaction transaction) {
+        if (transaction.getId() == 0) {
+            transaction.setId(nextTransactionId.getAndIncrement());
+        } else {
+            nextTransactionId.accumulateAndGet(transaction.getId() + 1, Math::max);
+        }
         transactions.add(transaction);
+        transactionsById.putIfAbsent(transaction.getId(), transaction);
+        transactionsByUserId.add(transaction);
     }
 
     @Override
     public Transaction findById(long id) {
-        Optional<Transaction> transaction = transactions.stream().filter(t -> t.getId() == id).findFirst();
-        return transaction.orElse(null);
+        return transactionsById.get(id);
     }
 
     @Override
     public List<Transaction> findAllByUserId(long userId) {
-        List<Transaction> userTransactions = new ArrayList<>();
+        return transactionsByUserId.findAll(userId);
+    }
 
-        for (Transaction transaction : transactions) {
-            if (transaction.getUserId() == userId) {
-                userTransactions.add(transaction);
-            }
-        }
+    @Override
+    public List<Transaction> findByUserIdBetween(long userId, LocalDateTime from, LocalDateTime to) {
+        return transactionsByUserId.findBetween(userId, from, to);
+    }
 
-        return userTransactions;
+    @Override
+    public Page<Transaction> findPageByUserId(long userId, PageCursor after, int pageSize) {
+        return transactionsByUserId.findPage(userId, after, pageSize);
     }
 
     @Override
     public List<Transaction> getAll() {
-        return transactions;
+        synchronized (transactions) {
+            return new ArrayList<>(transactions);
+        }
+    }
+
+    /**
+     * @return Количество транзакций в порядке добавления, граница среза для снимка состояния
+     */
+    int size() {
+        return transactions.size();
+    }
+
+    /**
+     * Транзакция по номеру в порядке добавления. Список только дополняется,
+     * поэтому транзакции до границы среза не меняются после его снятия
+     */
+    Transaction get(int index) {
+        return transactions.get(index);
     }
 
     @Override
     public boolean isTransactionIdUnique(long transactionId) {
-        if (transactionIds.contains(transactionId)) {
-            return false;
-        }
-        transactionIds.add(transactionId);
-        return true;
+        return idempotencyRegistry.reserve(transactionId);
+    }
+
+    @Override
+    public void releaseTransactionId(long transactionId) {
+        idempotencyRegistry.release(transactionId);
+    }
+
+    /**
+     * @return Момент истечения резерва id операции в миллисекундах эпохи или -1, если id не зарезервирован
+     */
+    long operationIdExpiresAt(long operationId) {
+        return idempotencyRegistry.expiresAt(operationId);
+    }
+
+    /**
+     * Действующие резервы id операций для снимка состояния
+     */
+    Map<Long, Long> operationIds() {
+        return idempotencyRegistry.entries();
+    }
+
+    /**
+     * Восстанавливает резерв id операции из снимка или журнала
+     */
+    void restoreOperationId(long operationId, long expiresAt) {
+        idempotencyRegistry.restore(operationId, expiresAt);
     }
 }
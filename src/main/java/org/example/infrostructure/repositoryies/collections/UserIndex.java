@@ -0,0 +1,138 @@
+package org.example.infrostructure.repositoryies.collections;
+
+import org.example.core.models.Auditable;
+import org.example.core.models.Page;
+import org.example.core.models.PageCursor;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Вторичный индекс записей по id пользователя для in-memory репозиториев.
+ * Для каждого пользователя хранится собственный список записей, упорядоченный по паре (дата и время, id),
+ * поэтому выборка записей пользователя стоит O(количество найденных записей),
+ * а выборка за период или страница после курсора дополнительно O(log n) на бинарный поиск начала.
+ * Записи с одинаковыми временем и id остаются в порядке добавления
+ *
+ * @param <T> тип индексируемых записей, наследник {@link Auditable}
+ */
+class UserIndex<T extends Auditable> {
+    private static final Comparator<LocalDateTime> DATE_TIME_ORDER = Comparator.nullsFirst(Comparator.naturalOrder());
+
+    private final ConcurrentMap<Long, List<T>> recordsByUserId = new ConcurrentHashMap<>();
+
+    /**
+     * Добавляет запись в список ее пользователя с сохранением порядка.
+     * Записи обычно приходят в порядке времени и добавляются в конец списка
+     *
+     * @param record запись для добавления
+     */
+    void add(T record) {
+        List<T> records = recordsByUserId.computeIfAbsent(record.getUserId(), userId -> new ArrayList<>());
+        synchronized (records) {
+            int size = records.size();
+            if (size == 0 || compare(records.get(size - 1), record.getDateTime(), record.getId()) <= 0) {
+                records.add(record);
+            } else {
+                records.add(search(records, record.getDateTime(), record.getId(), true), record);
+            }
+        }
+    }
+
+    /**
+     * Возвращает копию записей пользователя в порядке (дата и время, id)
+     *
+     * @param userId id пользователя
+     * @return Список записей пользователя, пустой если записей нет
+     */
+    List<T> findAll(long userId) {
+        List<T> records = recordsByUserId.get(userId);
+        if (records == null) {
+            return new ArrayList<>();
+        }
+        synchronized (records) {
+            return new ArrayList<>(records);
+        }
+    }
+
+    /**
+     * Возвращает записи пользователя за период в порядке (дата и время, id)
+     *
+     * @param userId id пользователя
+     * @param from   начало периода, включительно
+     * @param to     конец периода, включительно
+     * @return Список записей пользователя за период
+     */
+    List<T> findBetween(long userId, LocalDateTime from, LocalDateTime to) {
+        List<T> found = new ArrayList<>();
+        List<T> records = recordsByUserId.get(userId);
+        if (records == null) {
+            return found;
+        }
+        synchronized (records) {
+            for (int i = search(records, from, Long.MIN_VALUE, false); i < records.size(); i++) {
+                T record = records.get(i);
+                if (DATE_TIME_ORDER.compare(record.getDateTime(), to) > 0) {
+                    break;
+                }
+                found.add(record);
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Возвращает страницу записей пользователя, следующих строго после курсора
+     *
+     * @param userId   id пользователя
+     * @param after    курсор предыдущей страницы или null для первой страницы
+     * @param pageSize максимальное количество записей на странице
+     * @return Страница записей
+     */
+    Page<T> findPage(long userId, PageCursor after, int pageSize) {
+        List<T> found = new ArrayList<>();
+        List<T> records = recordsByUserId.get(userId);
+        if (records == null) {
+            return new Page<>(found, null);
+        }
+        synchronized (records) {
+            int start = after == null ? 0 : search(records, after.getDateTime(), after.getId(), true);
+            int end = Math.min(records.size(), start + Math.max(0, pageSize));
+            found.addAll(records.subList(start, end));
+            PageCursor nextCursor = end < records.size() && !found.isEmpty()
+                    ? PageCursor.after(found.get(found.size() - 1))
+                    : null;
+            return new Page<>(found, nextCursor);
+        }
+    }
+
+    /**
+     * Бинарный поиск по паре (дата и время, id)
+     *
+     * @param strictlyAfter true - первая позиция с ключом больше заданного,
+     *                      false - первая позиция с ключом не меньше заданного
+     */
+    private static int search(List<? extends Auditable> records, LocalDateTime dateTime, long id, boolean strictlyAfter) {
+        int low = 0;
+        int high = records.size();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            int comparison = compare(records.get(middle), dateTime, id);
+            if (comparison < 0 || (strictlyAfter && comparison == 0)) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private static int compare(Auditable record, LocalDateTime dateTime, long id) {
+        int comparison = DATE_TIME_ORDER.compare(record.getDateTime(), dateTime);
+        return comparison != 0 ? comparison : Long.compare(record.getId(), id);
+    }
+}
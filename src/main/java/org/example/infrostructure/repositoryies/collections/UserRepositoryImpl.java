@@ -5,51 +5,128 @@ import org.example.core.models.User;
 import org.example.core.repositories.UserRepository;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Реализация интерфейса {@link UserRepository},
- * предоставляющая функциональность для работы с пользователями в системе
+ * предоставляющая функциональность для работы с пользователями в системе.
+ * Пользователи хранятся в двух конкурентных хеш-индексах: по id и по уникальному логину,
+ * поэтому поиск и обновление выполняются за O(1) и безопасны при обращении из нескольких потоков
  */
 @NoArgsConstructor
 public class UserRepositoryImpl implements UserRepository {
-    private final List<User> users = new ArrayList<>();
-    private long nextUserId = 1;
+    private final ConcurrentMap<Long, User> usersById = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, User> usersByUsername = new ConcurrentHashMap<>();
+    private final AtomicLong nextUserId = new AtomicLong(1);
 
+    /**
+     * Логин, под которым пользователь с данным id записан в индекс по логину.
+     * Нужен, чтобы убрать прежнюю запись, когда вызывающий переименовал тот же объект пользователя
+     */
+    private final ConcurrentMap<Long, String> indexedUsernames = new ConcurrentHashMap<>();
+
+    /**
+     * Добавляет пользователя, присваивая ему следующий свободный id.
+     * Сначала атомарно резервируется логин, и только после этого присваивается id,
+     * поэтому два параллельных добавления с одинаковым логином не могут пройти одновременно,
+     * а отклоненный пользователь не получает id и не расходует счетчик.
+     * Индексы по id заполняются внутри резервирования логина, до того как пользователь станет виден
+     * по логину, поэтому найденный по логину пользователь всегда находится и по id
+     *
+     * @throws IllegalArgumentException если логин не задан или уже занят
+     */
     @Override
     public void addUser(User user) {
-        user.setId(nextUserId++);
-        users.add(user);
+        String username = user.getUsername();
+        if (username == null) {
+            throw new IllegalArgumentException("Username must not be null.");
+        }
+        User holder = usersByUsername.computeIfAbsent(username, name -> {
+            long id = nextUserId.getAndIncrement();
+            user.setId(id);
+            indexedUsernames.put(id, name);
+            usersById.put(id, user);
+            return user;
+        });
+        if (holder != user) {
+            throw new IllegalArgumentException("Username already exists.");
+        }
     }
 
     @Override
     public void deleteUser(User user) {
-        users.remove(user);
+        usersById.computeIfPresent(user.getId(), (id, removed) -> {
+            String indexed = indexedUsernames.remove(id);
+            if (indexed != null) {
+                usersByUsername.remove(indexed, removed);
+            }
+            return null;
+        });
     }
 
+    /**
+     * Обновляет пользователя. Новый логин резервируется через putIfAbsent до освобождения прежнего
+     *
+     * @throws IllegalArgumentException если новый логин принадлежит другому пользователю
+     */
     @Override
     public void updateUser(User user) {
-        for (int i = 0; i < users.size(); i++) {
-            if (users.get(i).getId() == user.getId()) {
-                users.set(i, user);
-                return;
+        usersById.computeIfPresent(user.getId(), (id, existing) -> {
+            reindex(id, user);
+            return user;
+        });
+    }
+
+    /**
+     * Переводит запись индекса по логину пользователя с данным id на его текущий логин.
+     * Вызывается под блокировкой записи usersById для этого id
+     */
+    private void reindex(long id, User user) {
+        String username = user.getUsername();
+        User holder = usersByUsername.putIfAbsent(username, user);
+        if (holder != null && holder != user) {
+            if (holder.getId() != id) {
+                throw new IllegalArgumentException("Username already exists.");
             }
+            usersByUsername.replace(username, holder, user);
+        }
+        String previous = indexedUsernames.put(id, username);
+        if (previous != null && !previous.equals(username)) {
+            usersByUsername.remove(previous);
         }
     }
 
+    /**
+     * Восстанавливает пользователя с уже присвоенным id при загрузке снимка или журнала.
+     * Существующий пользователь с тем же id заменяется, счетчик id сдвигается за восстановленный
+     *
+     * @param user пользователь с заполненным id
+     */
+    void restore(User user) {
+        usersById.compute(user.getId(), (id, previous) -> {
+            reindex(id, user);
+            return user;
+        });
+        nextUserId.accumulateAndGet(user.getId() + 1, Math::max);
+    }
+
     @Override
     public User findById(long id) {
-        Optional<User> user = users.stream().filter(u -> u.getId() == id).findFirst();
-        return user.orElse(null);
+        return usersById.get(id);
     }
 
     @Override
     public User findByUsername(String username) {
-        Optional<User> userOptional = users.stream().filter(u -> u.getUsername().equals(username)).findFirst();
-        return userOptional.orElse(null);
+        if (username == null) {
+            return null;
+        }
+        return usersByUsername.get(username);
     }
 
     @Override
     public List<User> findAll() {
-        return users;
+        return new ArrayList<>(usersById.values());
     }
 }
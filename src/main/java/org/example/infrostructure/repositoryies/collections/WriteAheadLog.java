@@ -0,0 +1,280 @@
+package org.example.infrostructure.repositoryies.collections;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * Журнал предзаписи: файл, в который последовательно дописываются записи вида
+ * [длина][CRC32][данные]. Журнал ведется поколениями, каждое поколение - отдельный файл,
+ * новое поколение начинается после снимка состояния.
+ * Момент сброса на диск задается {@link FsyncPolicy}
+ */
+class WriteAheadLog implements Closeable {
+    private static final int HEADER_SIZE = 8;
+    private static final String FILE_PREFIX = "wal-";
+    private static final String FILE_SUFFIX = ".log";
+
+    private final Path directory;
+    private final FsyncPolicy policy;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition durableCondition = lock.newCondition();
+    private final CRC32 checksum = new CRC32();
+    private final ScheduledExecutorService flusher;
+
+    private FileChannel channel;
+    private long generation;
+    private long writtenLsn;
+    private long durableLsn;
+    private IOException flushFailure;
+
+    /**
+     * @param directory         каталог файлов журнала
+     * @param generation        поколение, с которого начинается запись
+     * @param policy            политика сброса на диск
+     * @param groupCommitMillis интервал группового сброса для {@link FsyncPolicy#GROUP_COMMIT}
+     * @throws IOException если файл журнала не удалось открыть
+     */
+    WriteAheadLog(Path directory, long generation, FsyncPolicy policy, long groupCommitMillis) throws IOException {
+        this.directory = directory;
+        this.policy = policy;
+        this.generation = generation;
+        this.channel = open(generation);
+        if (policy == FsyncPolicy.GROUP_COMMIT) {
+            flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "wal-group-commit");
+                thread.setDaemon(true);
+                return thread;
+            });
+            flusher.scheduleWithFixedDelay(this::flush, groupCommitMillis, groupCommitMillis, TimeUnit.MILLISECONDS);
+        } else {
+            flusher = null;
+        }
+    }
+
+    /**
+     * Дописывает запись в журнал
+     *
+     * @param payload данные записи
+     * @return Порядковый номер записи (LSN) для {@link #awaitDurable(long)}
+     */
+    long append(byte[] payload) {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + payload.length);
+        lock.lock();
+        try {
+            checksum.reset();
+            checksum.update(payload);
+            buffer.putInt(payload.length).putInt((int) checksum.getValue()).put(payload).flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            long lsn = ++writtenLsn;
+            if (policy == FsyncPolicy.PER_OPERATION) {
+                channel.force(false);
+                durableLsn = lsn;
+            }
+            return lsn;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Ожидает, пока запись с указанным LSN не будет сброшена на диск.
+     * Ждать нужно только при {@link FsyncPolicy#GROUP_COMMIT}, ожидание выполняется вне блокировок вызывающего,
+     * чтобы один сброс подтверждал записи нескольких потоков
+     *
+     * @param lsn порядковый номер записи
+     */
+    void awaitDurable(long lsn) {
+        if (policy != FsyncPolicy.GROUP_COMMIT) {
+            return;
+        }
+        lock.lock();
+        try {
+            while (durableLsn < lsn) {
+                if (flushFailure != null) {
+                    throw new UncheckedIOException(flushFailure);
+                }
+                durableCondition.await();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for group commit.", e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Сбрасывает на диск все записанные данные и будит ожидающие потоки.
+     * Сам вызов fsync выполняется без удержания блокировки, чтобы не задерживать новые записи
+     */
+    void flush() {
+        FileChannel target;
+        long targetLsn;
+        lock.lock();
+        try {
+            if (writtenLsn == durableLsn) {
+                return;
+            }
+            target = channel;
+            targetLsn = writtenLsn;
+        } finally {
+            lock.unlock();
+        }
+
+        IOException failure = null;
+        try {
+            target.force(false);
+        } catch (ClosedChannelException e) {
+            // канал закрыт при смене поколения, данные уже сброшены в rotate
+        } catch (IOException e) {
+            failure = e;
+        }
+
+        lock.lock();
+        try {
+            if (failure != null) {
+                flushFailure = failure;
+            } else {
+                durableLsn = Math.max(durableLsn, targetLsn);
+            }
+            durableCondition.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Закрывает текущий файл журнала и начинает следующее поколение
+     *
+     * @return Номер нового поколения
+     */
+    long rotate() {
+        lock.lock();
+        try {
+            channel.force(false);
+            channel.close();
+            durableLsn = writtenLsn;
+            durableCondition.signalAll();
+            generation++;
+            channel = open(generation);
+            return generation;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (flusher != null) {
+            flusher.shutdownNow();
+        }
+        lock.lock();
+        try {
+            channel.force(false);
+            channel.close();
+            durableLsn = writtenLsn;
+            durableCondition.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private FileChannel open(long generation) throws IOException {
+        return FileChannel.open(path(directory, generation),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    /**
+     * Путь к файлу журнала указанного поколения
+     */
+    static Path path(Path directory, long generation) {
+        return directory.resolve(String.format("%s%016d%s", FILE_PREFIX, generation, FILE_SUFFIX));
+    }
+
+    /**
+     * Извлекает номер поколения из имени файла журнала
+     *
+     * @return Номер поколения или -1, если файл не является файлом журнала
+     */
+    static long generationOf(Path file) {
+        String name = file.getFileName().toString();
+        if (!name.startsWith(FILE_PREFIX) || !name.endsWith(FILE_SUFFIX)) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(name.substring(FILE_PREFIX.length(), name.length() - FILE_SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Последовательно читает записи файла журнала до конца или до первой недописанной
+     * либо поврежденной записи. Хвост после последней целой записи отрезается
+     *
+     * @param file     файл журнала
+     * @param consumer обработчик данных записи
+     * @return Количество прочитанных записей
+     * @throws IOException если файл не удалось прочитать
+     */
+    static long replay(Path file, Consumer<byte[]> consumer) throws IOException {
+        long records = 0;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long size = channel.size();
+            long position = 0;
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            CRC32 crc = new CRC32();
+            while (position + HEADER_SIZE <= size) {
+                header.clear();
+                readFully(channel, header, position);
+                int length = header.getInt(0);
+                int expectedChecksum = header.getInt(4);
+                if (length < 0 || position + HEADER_SIZE + length > size) {
+                    break;
+                }
+                ByteBuffer payload = ByteBuffer.allocate(length);
+                readFully(channel, payload, position + HEADER_SIZE);
+                crc.reset();
+                crc.update(payload.array());
+                if ((int) crc.getValue() != expectedChecksum) {
+                    break;
+                }
+                consumer.accept(payload.array());
+                position += HEADER_SIZE + length;
+                records++;
+            }
+            if (position < size) {
+                channel.truncate(position);
+                channel.force(true);
+            }
+        }
+        return records;
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,489 @@
+package org.example.infrostructure.repositoryies.mmap;
+
+import org.example.core.models.Action;
+import org.example.core.models.Auditable;
+import org.example.core.models.Page;
+import org.example.core.models.PageCursor;
+import org.example.core.models.Transaction;
+import org.example.core.models.enums.AuditableStatus;
+import org.example.core.repositories.AuditableRepository;
+import org.example.infrostructure.EnumCodes;
+import org.example.infrostructure.EpochMicros;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Реализация интерфейса {@link AuditableRepository},
+ * записывающая аудит в журнал только на добавление из файлов-сегментов, отображенных в память.
+ * Каждая запись имеет фиксированную длину {@link #RECORD_SIZE} байт и контрольную сумму CRC32,
+ * статус и тип записываются постоянными кодами {@link EnumCodes}.
+ * Id записи аудита равен ее порядковому номеру в журнале, начиная с 1. Он хранится только в журнале
+ * и возвращается в прочитанных записях, переданный объект не меняется, поэтому id транзакции
+ * в репозитории транзакций остается прежним.
+ * При открытии журнал читается заново: строится индекс позиций по пользователям,
+ * упорядоченный по времени записей, а недописанный хвост с неверной контрольной суммой обнуляется.
+ * Индекс плотный, 16 байт в куче на запись: записи пользователя перемежаются в журнале с записями других
+ * пользователей, поэтому разреженный индекс с досмотром вперед читал бы и чужие записи
+ */
+public class AuditableRepositoryMmapImpl implements AuditableRepository, Closeable {
+    /**
+     * Размер одной записи в байтах
+     */
+    public static final int RECORD_SIZE = 40;
+
+    /**
+     * Количество записей в одном сегменте по умолчанию
+     */
+    public static final int DEFAULT_SEGMENT_RECORDS = 1 << 20;
+
+    private static final byte KIND_EMPTY = 0;
+    private static final byte KIND_ACTION = 1;
+    private static final byte KIND_TRANSACTION = 2;
+
+    private static final int KIND_OFFSET = 0;
+    private static final int STATUS_OFFSET = 1;
+    private static final int TYPE_OFFSET = 2;
+    private static final int AMOUNT_OFFSET = 4;
+    private static final int ID_OFFSET = 8;
+    private static final int USER_ID_OFFSET = 16;
+    private static final int DATE_TIME_OFFSET = 24;
+    private static final int CHECKSUM_OFFSET = 32;
+
+    private static final String SEGMENT_PREFIX = "audit-";
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    private final Path directory;
+    private final int segmentRecords;
+    private final List<MappedByteBuffer> segments = new ArrayList<>();
+    private final Map<Long, PositionList> positionsByUserId = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final byte[] writeBuffer = new byte[RECORD_SIZE];
+    private final CRC32 writeChecksum = new CRC32();
+
+    private long size;
+    private boolean closed;
+
+    /**
+     * Открывает журнал с размером сегмента по умолчанию
+     *
+     * @param directory каталог сегментов журнала, создается при необходимости
+     * @throws IOException если каталог или сегменты недоступны
+     */
+    public AuditableRepositoryMmapImpl(Path directory) throws IOException {
+        this(directory, DEFAULT_SEGMENT_RECORDS);
+    }
+
+    /**
+     * Открывает журнал и восстанавливает его состояние с диска
+     *
+     * @param directory      каталог сегментов журнала, создается при необходимости
+     * @param segmentRecords количество записей в одном сегменте
+     * @throws IOException если каталог или сегменты недоступны
+     */
+    public AuditableRepositoryMmapImpl(Path directory, int segmentRecords) throws IOException {
+        if (segmentRecords <= 0 || (long) segmentRecords * RECORD_SIZE > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Invalid segment size: " + segmentRecords);
+        }
+        this.directory = directory;
+        this.segmentRecords = segmentRecords;
+        Files.createDirectories(directory);
+        recover();
+    }
+
+    @Override
+    public void addAuditable(Auditable auditable) {
+        byte kind;
+        byte type;
+        float amount = 0;
+        if (auditable instanceof Transaction) {
+            Transaction transaction = (Transaction) auditable;
+            kind = KIND_TRANSACTION;
+            type = EnumCodes.code(transaction.getType());
+            amount = transaction.getAmount();
+        } else if (auditable instanceof Action) {
+            kind = KIND_ACTION;
+            type = EnumCodes.code(((Action) auditable).getType());
+        } else {
+            throw new IllegalArgumentException("Unsupported Auditable type.");
+        }
+
+        lock.writeLock().lock();
+        try {
+            ensureOpen();
+            long position = size;
+            int segment = (int) (position / segmentRecords);
+            if (segment == segments.size()) {
+                segments.add(mapSegment(segment));
+            }
+            long id = position + 1;
+
+            ByteBuffer record = ByteBuffer.wrap(writeBuffer);
+            record.put(KIND_OFFSET, kind);
+            record.put(STATUS_OFFSET, EnumCodes.code(auditable.getStatus()));
+            record.put(TYPE_OFFSET, type);
+            record.putFloat(AMOUNT_OFFSET, amount);
+            record.putLong(ID_OFFSET, id);
+            record.putLong(USER_ID_OFFSET, auditable.getUserId());
+            record.putLong(DATE_TIME_OFFSET, EpochMicros.of(auditable.getDateTime()));
+            writeChecksum.reset();
+            writeChecksum.update(writeBuffer, 0, CHECKSUM_OFFSET);
+            record.putInt(CHECKSUM_OFFSET, (int) writeChecksum.getValue());
+
+            segments.get(segment).put(offset(position), writeBuffer);
+            positionsByUserId.computeIfAbsent(auditable.getUserId(), userId -> new PositionList())
+                    .add(position, record.getLong(DATE_TIME_OFFSET));
+            size++;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public Auditable findById(long id) {
+        lock.readLock().lock();
+        try {
+            ensureOpen();
+            long position = id - 1;
+            if (position < 0 || position >= size) {
+                return null;
+            }
+            return read(position, new byte[RECORD_SIZE]);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Auditable> findAllByUserId(long userId) {
+        lock.readLock().lock();
+        try {
+            ensureOpen();
+            PositionList positions = positionsByUserId.get(userId);
+            if (positions == null) {
+                return new ArrayList<>();
+            }
+            byte[] buffer = new byte[RECORD_SIZE];
+            List<Auditable> userAuditables = new ArrayList<>(positions.size);
+            for (int i = 0; i < positions.size; i++) {
+                userAuditables.add(read(positions.positions[i], buffer));
+            }
+            return userAuditables;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Auditable> findByUserIdBetween(long userId, LocalDateTime from, LocalDateTime to) {
+        lock.readLock().lock();
+        try {
+            ensureOpen();
+            List<Auditable> userAuditables = new ArrayList<>();
+            PositionList positions = positionsByUserId.get(userId);
+            if (positions == null) {
+                return userAuditables;
+            }
+            byte[] buffer = new byte[RECORD_SIZE];
+            long toMicros = EpochMicros.of(to);
+            for (int i = positions.lowerBound(EpochMicros.of(from)); i < positions.size; i++) {
+                if (positions.epochMicros[i] > toMicros) {
+                    break;
+                }
+                userAuditables.add(read(positions.positions[i], buffer));
+            }
+            return userAuditables;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Page<Auditable> findPageByUserId(long userId, PageCursor after, int pageSize) {
+        lock.readLock().lock();
+        try {
+            ensureOpen();
+            List<Auditable> userAuditables = new ArrayList<>();
+            PositionList positions = positionsByUserId.get(userId);
+            if (positions == null) {
+                return new Page<>(userAuditables, null);
+            }
+            byte[] buffer = new byte[RECORD_SIZE];
+            int start = after == null ? 0 : positions.searchAfter(EpochMicros.of(after.getDateTime()), after.getId() - 1);
+            int end = Math.min(positions.size, start + Math.max(0, pageSize));
+            for (int i = start; i < end; i++) {
+                userAuditables.add(read(positions.positions[i], buffer));
+            }
+            PageCursor nextCursor = end < positions.size && !userAuditables.isEmpty()
+                    ? PageCursor.after(userAuditables.get(userAuditables.size() - 1))
+                    : null;
+            return new Page<>(userAuditables, nextCursor);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Auditable> getAll() {
+        lock.readLock().lock();
+        try {
+            ensureOpen();
+            byte[] buffer = new byte[RECORD_SIZE];
+            List<Auditable> audits = new ArrayList<>();
+            for (long position = 0; position < size; position++) {
+                audits.add(read(position, buffer));
+            }
+            return audits;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Возвращает количество записей в журнале
+     *
+     * @return Количество записей
+     */
+    public long size() {
+        lock.readLock().lock();
+        try {
+            ensureOpen();
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Принудительно сбрасывает измененные страницы всех сегментов на диск.
+     * Без вызова записи переживают падение процесса, но не падение ОС
+     */
+    public void force() {
+        lock.writeLock().lock();
+        try {
+            ensureOpen();
+            for (MappedByteBuffer segment : segments) {
+                segment.force();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Сбрасывает журнал на диск и освобождает сегменты. Повторный вызов ничего не делает,
+     * остальные методы закрытого журнала бросают {@link IllegalStateException}
+     */
+    @Override
+    public void close() {
+        lock.writeLock().lock();
+        try {
+            if (closed) {
+                return;
+            }
+            for (MappedByteBuffer segment : segments) {
+                segment.force();
+            }
+            segments.clear();
+            closed = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Вызывается под блокировкой журнала
+     */
+    private void ensureOpen() {
+        if (closed) {
+            throw new IllegalStateException("Audit log is closed.");
+        }
+    }
+
+    /**
+     * Читает все сегменты по порядку до первой пустой или поврежденной записи.
+     * Поврежденная запись и все, что после нее, обнуляется, последующие сегменты удаляются
+     */
+    private void recover() throws IOException {
+        List<Path> files;
+        try (Stream<Path> stream = Files.list(directory)) {
+            files = stream
+                    .filter(path -> path.getFileName().toString().startsWith(SEGMENT_PREFIX))
+                    .filter(path -> path.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+
+        byte[] buffer = new byte[RECORD_SIZE];
+        CRC32 checksum = new CRC32();
+        boolean endReached = false;
+        for (int segment = 0; segment < files.size(); segment++) {
+            if (endReached || !files.get(segment).equals(segmentPath(segment))) {
+                endReached = true;
+                Files.delete(files.get(segment));
+                continue;
+            }
+            MappedByteBuffer mapped = mapSegment(segment);
+            segments.add(mapped);
+            for (int slot = 0; slot < segmentRecords; slot++) {
+                int offset = slot * RECORD_SIZE;
+                mapped.get(offset, buffer);
+                checksum.reset();
+                checksum.update(buffer, 0, CHECKSUM_OFFSET);
+                ByteBuffer record = ByteBuffer.wrap(buffer);
+                boolean valid = record.get(KIND_OFFSET) != KIND_EMPTY
+                        && record.getInt(CHECKSUM_OFFSET) == (int) checksum.getValue()
+                        && record.getLong(ID_OFFSET) == size + 1;
+                if (!valid) {
+                    truncate(mapped, offset);
+                    endReached = true;
+                    break;
+                }
+                positionsByUserId.computeIfAbsent(record.getLong(USER_ID_OFFSET), userId -> new PositionList())
+                        .add(size, record.getLong(DATE_TIME_OFFSET));
+                size++;
+            }
+        }
+    }
+
+    private static void truncate(MappedByteBuffer segment, int fromOffset) {
+        byte[] zeros = new byte[RECORD_SIZE];
+        for (int offset = fromOffset; offset < segment.capacity(); offset += RECORD_SIZE) {
+            segment.put(offset, zeros);
+        }
+        segment.force();
+    }
+
+    private MappedByteBuffer mapSegment(int segment) throws IOException {
+        long length = (long) segmentRecords * RECORD_SIZE;
+        try (FileChannel channel = FileChannel.open(segmentPath(segment),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, length);
+        }
+    }
+
+    private Path segmentPath(int segment) {
+        return directory.resolve(String.format("%s%08d%s", SEGMENT_PREFIX, segment, SEGMENT_SUFFIX));
+    }
+
+    private int offset(long position) {
+        return (int) (position % segmentRecords) * RECORD_SIZE;
+    }
+
+    private Auditable read(long position, byte[] buffer) {
+        segments.get((int) (position / segmentRecords)).get(offset(position), buffer);
+        ByteBuffer record = ByteBuffer.wrap(buffer);
+        long id = record.getLong(ID_OFFSET);
+        long userId = record.getLong(USER_ID_OFFSET);
+        LocalDateTime dateTime = EpochMicros.toLocalDateTime(record.getLong(DATE_TIME_OFFSET));
+        byte status = record.get(STATUS_OFFSET);
+        byte type = record.get(TYPE_OFFSET);
+        AuditableStatus auditableStatus = EnumCodes.auditableStatus(status);
+
+        if (record.get(KIND_OFFSET) == KIND_TRANSACTION) {
+            return new Transaction(id, userId, dateTime, EnumCodes.transactionType(type), auditableStatus,
+                    record.getFloat(AMOUNT_OFFSET));
+        }
+        return new Action(id, userId, dateTime, auditableStatus, EnumCodes.actionType(type));
+    }
+
+    /**
+     * Растущий список позиций записей одного пользователя, упорядоченный по времени записей
+     */
+    private static class PositionList {
+        private long[] positions = new long[4];
+        private long[] epochMicros = new long[4];
+        private int size;
+
+        void add(long position, long micros) {
+            if (size == positions.length) {
+                positions = Arrays.copyOf(positions, size + (size >> 1));
+                epochMicros = Arrays.copyOf(epochMicros, positions.length);
+            }
+            int index = upperBound(micros);
+            if (index < size) {
+                System.arraycopy(positions, index, positions, index + 1, size - index);
+                System.arraycopy(epochMicros, index, epochMicros, index + 1, size - index);
+            }
+            positions[index] = position;
+            epochMicros[index] = micros;
+            size++;
+        }
+
+        /**
+         * Первый индекс, время на котором не меньше заданного
+         */
+        int lowerBound(long micros) {
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (epochMicros[middle] < micros) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+
+        /**
+         * Первый индекс, пара (время, позиция) на котором больше заданной.
+         * Позиция в журнале однозначно задает id, поэтому порядок совпадает с порядком (время, id)
+         */
+        int searchAfter(long micros, long position) {
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (epochMicros[middle] < micros || (epochMicros[middle] == micros && positions[middle] <= position)) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+
+        /**
+         * Первый индекс, время на котором больше заданного
+         */
+        int upperBound(long micros) {
+            if (size == 0 || epochMicros[size - 1] <= micros) {
+                return size;
+            }
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (epochMicros[middle] <= micros) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+    }
+}
@@ -2,16 +2,20 @@ package org.example.infrostructure.repositoryies.postgres;
 
 import org.example.core.models.Action;
 import org.example.core.models.Auditable;
+import org.example.core.models.Page;
+import org.example.core.models.PageCursor;
 import org.example.core.models.Transaction;
 import org.example.core.models.enums.ActionType;
 import org.example.core.models.enums.AuditableStatus;
 import org.example.core.models.enums.TransactionType;
 import org.example.core.repositories.AuditableRepository;
 
+import javax.sql.DataSource;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Types;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
@@ -22,12 +26,16 @@ import java.util.List;
  * предоставляющая функциональность для работы с
  * наследниками {@link Auditable}
  * в системе.
+ * Соединение берется из {@link DataSource} на время одной операции и сразу возвращается
  */
 public class AuditableRepositoryPostgresImpl implements AuditableRepository {
-    private final Connection connection;
+    private static final String BATCH_INSERT_SQL =
+            "INSERT INTO entities.\"Auditable\" (user_id, date_time, status, type, amount, action_type) VALUES (?, ?, ?, ?, ?, ?)";
 
-    public AuditableRepositoryPostgresImpl(Connection connection) {
-        this.connection = connection;
+    private final DataSource dataSource;
+
+    public AuditableRepositoryPostgresImpl(DataSource dataSource) {
+        this.dataSource = dataSource;
     }
 
     @Override
@@ -43,7 +51,8 @@ public class AuditableRepositoryPostgresImpl implements AuditableRepository {
             throw new IllegalArgumentException("Unsupported Auditable type.");
         }
 
-        try (PreparedStatement statement = connection.prepareStatement(insertSql)) {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(insertSql)) {
             // Заполнение параметров SQL-запроса в зависимости от типа Auditable
             statement.setLong(1, auditable.getUserId());
             statement.setObject(2, auditable.getDateTime());
@@ -68,10 +77,67 @@ public class AuditableRepositoryPostgresImpl implements AuditableRepository {
         }
     }
 
+    /**
+     * Записывает пачку одним пакетом запросов в одной транзакции и присваивает записям id из базы
+     */
+    @Override
+    public void addAuditables(List<? extends Auditable> auditables) {
+        if (auditables.isEmpty()) {
+            return;
+        }
+        for (Auditable auditable : auditables) {
+            if (!(auditable instanceof Transaction) && !(auditable instanceof Action)) {
+                throw new IllegalArgumentException("Unsupported Auditable type.");
+            }
+        }
+
+        try (Connection connection = dataSource.getConnection()) {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try (PreparedStatement statement = connection.prepareStatement(BATCH_INSERT_SQL, new String[]{"id"})) {
+                for (Auditable auditable : auditables) {
+                    statement.setLong(1, auditable.getUserId());
+                    statement.setObject(2, auditable.getDateTime());
+                    statement.setString(3, auditable.getStatus().toString());
+                    if (auditable instanceof Transaction) {
+                        Transaction transaction = (Transaction) auditable;
+                        statement.setString(4, transaction.getType().toString());
+                        statement.setFloat(5, transaction.getAmount());
+                        statement.setNull(6, Types.VARCHAR);
+                    } else {
+                        Action action = (Action) auditable;
+                        statement.setNull(4, Types.VARCHAR);
+                        statement.setNull(5, Types.FLOAT);
+                        statement.setString(6, action.getType().toString());
+                    }
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+                try (ResultSet keys = statement.getGeneratedKeys()) {
+                    for (Auditable auditable : auditables) {
+                        if (!keys.next()) {
+                            break;
+                        }
+                        auditable.setId(keys.getLong(1));
+                    }
+                }
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+
     @Override
     public Auditable findById(long id) {
         String selectSql = "SELECT * FROM entities.\"Auditable\" WHERE id = ?";
-        try (PreparedStatement statement = connection.prepareStatement(selectSql)) {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(selectSql)) {
             statement.setLong(1, id);
             ResultSet resultSet = statement.executeQuery();
 
@@ -101,8 +167,42 @@ public class AuditableRepositoryPostgresImpl implements AuditableRepository {
         List<Auditable> userAuditables = new ArrayList<>();
         String selectSql = "SELECT * FROM entities.\"Auditable\" WHERE user_id = ?";
 
-        try (PreparedStatement statement = connection.prepareStatement(selectSql)) {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(selectSql)) {
+            statement.setLong(1, userId);
+            ResultSet resultSet = statement.executeQuery();
+
+            while (resultSet.next()) {
+                long id = resultSet.getLong("id");
+                LocalDateTime dateTime = resultSet.getObject("date_time", LocalDateTime.class);
+                AuditableStatus status = AuditableStatus.valueOf(resultSet.getString("status"));
+
+                if (resultSet.getString("type") != null) {
+                    TransactionType type = TransactionType.valueOf(resultSet.getString("type"));
+                    float amount = resultSet.getFloat("amount");
+                    userAuditables.add(new Transaction(id, userId, dateTime, type, status, amount));
+                } else if (resultSet.getString("action_type") != null) {
+                    ActionType actionType = ActionType.valueOf(resultSet.getString("action_type"));
+                    userAuditables.add(new Action(id, userId, dateTime, status, actionType));
+                }
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+
+        return userAuditables;
+    }
+
+    @Override
+    public List<Auditable> findByUserIdBetween(long userId, LocalDateTime from, LocalDateTime to) {
+        List<Auditable> userAuditables = new ArrayList<>();
+        String selectSql = "SELECT * FROM entities.\"Auditable\" WHERE user_id = ? AND date_time BETWEEN ? AND ? ORDER BY date_time, id";
+
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(selectSql)) {
             statement.setLong(1, userId);
+            statement.setObject(2, from);
+            statement.setObject(3, to);
             ResultSet resultSet = statement.executeQuery();
 
             while (resultSet.next()) {
@@ -126,12 +226,66 @@ public class AuditableRepositoryPostgresImpl implements AuditableRepository {
         return userAuditables;
     }
 
+    /**
+     * Страница выбирается по ключу (date_time, id) через индекс (user_id, date_time, id),
+     * поэтому стоимость не зависит от номера страницы.
+     * Запрашивается на одну строку больше размера страницы, чтобы узнать, есть ли следующая
+     */
+    @Override
+    public Page<Auditable> findPageByUserId(long userId, PageCursor after, int pageSize) {
+        List<Auditable> userAuditables = new ArrayList<>();
+        String selectSql = after == null
+                ? "SELECT * FROM entities.\"Auditable\" WHERE user_id = ? ORDER BY date_time, id LIMIT ?"
+                : "SELECT * FROM entities.\"Auditable\" WHERE user_id = ? AND (date_time, id) > (?, ?) ORDER BY date_time, id LIMIT ?";
+        int limit = Math.max(0, pageSize);
+        boolean hasNext = false;
+
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(selectSql)) {
+            int index = 1;
+            statement.setLong(index++, userId);
+            if (after != null) {
+                statement.setObject(index++, after.getDateTime());
+                statement.setLong(index++, after.getId());
+            }
+            statement.setInt(index, limit + 1);
+            ResultSet resultSet = statement.executeQuery();
+
+            while (resultSet.next()) {
+                if (userAuditables.size() == limit) {
+                    hasNext = true;
+                    break;
+                }
+                long id = resultSet.getLong("id");
+                LocalDateTime dateTime = resultSet.getObject("date_time", LocalDateTime.class);
+                AuditableStatus status = AuditableStatus.valueOf(resultSet.getString("status"));
+
+                if (resultSet.getString("type") != null) {
+                    TransactionType type = TransactionType.valueOf(resultSet.getString("type"));
+                    float amount = resultSet.getFloat("amount");
+                    userAuditables.add(new Transaction(id, userId, dateTime, type, status, amount));
+                } else if (resultSet.getString("action_type") != null) {
+                    ActionType actionType = ActionType.valueOf(resultSet.getString("action_type"));
+                    userAuditables.add(new Action(id, userId, dateTime, status, actionType));
+                }
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+
+        PageCursor nextCursor = hasNext && !userAuditables.isEmpty()
+                ? PageCursor.after(userAuditables.get(userAuditables.size() - 1))
+                : null;
+        return new Page<>(userAuditables, nextCursor);
+    }
+
     @Override
     public List<Auditable> getAll() {
         List<Auditable> audits = new ArrayList<>();
         String selectSql = "SELECT * FROM entities.\"Auditable\"";
 
-        try (PreparedStatement statement = connection.prepareStatement(selectSql)) {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(selectSql)) {
             ResultSet resultSet = statement.executeQuery();
 
             while (resultSet.next()) {
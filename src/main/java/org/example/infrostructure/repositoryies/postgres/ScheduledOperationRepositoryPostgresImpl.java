@@ -0,0 +1,173 @@
+package org.example.infrostructure.repositoryies.postgres;
+
+import org.example.core.models.ScheduledOperation;
+import org.example.core.models.enums.Recurrence;
+import org.example.core.models.enums.TransactionType;
+import org.example.core.repositories.ScheduledOperationRepository;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Реализация интерфейса {@link ScheduledOperationRepository} через PostgreSql.
+ * Изменения пачки операций отправляются одним JDBC-пакетом в одной транзакции,
+ * а полный список читается курсором порциями по {@link #FETCH_SIZE} строк
+ */
+public class ScheduledOperationRepositoryPostgresImpl implements ScheduledOperationRepository {
+    private static final int FETCH_SIZE = 10_000;
+
+    private static final String INSERT_SQL = "INSERT INTO entities.\"ScheduledOperation\" "
+            + "(user_id, type, amount, recurrence, first_run, occurrence) VALUES (?, ?, ?, ?, ?, ?) RETURNING id";
+    private static final String UPDATE_SQL = "UPDATE entities.\"ScheduledOperation\" SET occurrence = ? WHERE id = ?";
+    private static final String DELETE_SQL = "DELETE FROM entities.\"ScheduledOperation\" WHERE id = ?";
+
+    private final DataSource dataSource;
+
+    public ScheduledOperationRepositoryPostgresImpl(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    @Override
+    public void addScheduledOperation(ScheduledOperation operation) {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(INSERT_SQL)) {
+            statement.setLong(1, operation.getUserId());
+            statement.setString(2, operation.getType().toString());
+            statement.setFloat(3, operation.getAmount());
+            statement.setString(4, operation.getRecurrence().toString());
+            statement.setObject(5, operation.getFirstRun());
+            statement.setLong(6, operation.getOccurrence());
+
+            ResultSet resultSet = statement.executeQuery();
+            if (resultSet.next()) {
+                operation.setId(resultSet.getLong(1));
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+
+    @Override
+    public void updateScheduledOperations(List<ScheduledOperation> operations) {
+        List<long[]> rows = new ArrayList<>(operations.size());
+        for (ScheduledOperation operation : operations) {
+            rows.add(new long[]{operation.getOccurrence(), operation.getId()});
+        }
+        executeBatch(UPDATE_SQL, rows);
+    }
+
+    @Override
+    public void deleteScheduledOperations(List<Long> ids) {
+        List<long[]> rows = new ArrayList<>(ids.size());
+        for (long id : ids) {
+            rows.add(new long[]{id});
+        }
+        executeBatch(DELETE_SQL, rows);
+    }
+
+    @Override
+    public ScheduledOperation findById(long id) {
+        String selectSql = "SELECT * FROM entities.\"ScheduledOperation\" WHERE id = ?";
+
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(selectSql)) {
+            statement.setLong(1, id);
+            ResultSet resultSet = statement.executeQuery();
+            if (resultSet.next()) {
+                return read(resultSet);
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return null;
+    }
+
+    @Override
+    public List<ScheduledOperation> findAllByUserId(long userId) {
+        String selectSql = "SELECT * FROM entities.\"ScheduledOperation\" WHERE user_id = ? ORDER BY id";
+        List<ScheduledOperation> operations = new ArrayList<>();
+
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(selectSql)) {
+            statement.setLong(1, userId);
+            ResultSet resultSet = statement.executeQuery();
+            while (resultSet.next()) {
+                operations.add(read(resultSet));
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return operations;
+    }
+
+    /**
+     * Читает таблицу курсором: драйвер PostgreSql выбирает строки порциями только вне режима автофиксации
+     */
+    @Override
+    public List<ScheduledOperation> findAll() {
+        String selectSql = "SELECT * FROM entities.\"ScheduledOperation\"";
+        List<ScheduledOperation> operations = new ArrayList<>();
+
+        try (Connection connection = dataSource.getConnection()) {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try (PreparedStatement statement = connection.prepareStatement(selectSql)) {
+                statement.setFetchSize(FETCH_SIZE);
+                ResultSet resultSet = statement.executeQuery();
+                while (resultSet.next()) {
+                    operations.add(read(resultSet));
+                }
+                connection.commit();
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return operations;
+    }
+
+    private void executeBatch(String sql, List<long[]> rows) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        try (Connection connection = dataSource.getConnection()) {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                for (long[] row : rows) {
+                    for (int i = 0; i < row.length; i++) {
+                        statement.setLong(i + 1, row[i]);
+                    }
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private static ScheduledOperation read(ResultSet resultSet) throws SQLException {
+        return new ScheduledOperation(
+                resultSet.getLong("id"),
+                resultSet.getLong("user_id"),
+                TransactionType.valueOf(resultSet.getString("type")),
+                resultSet.getFloat("amount"),
+                Recurrence.valueOf(resultSet.getString("recurrence")),
+                resultSet.getObject("first_run", LocalDateTime.class),
+                resultSet.getLong("occurrence"));
+    }
+}
@@ -1,43 +1,56 @@
 package org.example.infrostructure.repositoryies.postgres;
 
+import org.example.core.models.Page;
+import org.example.core.models.PageCursor;
 import org.example.core.models.Transaction;
 import org.example.core.models.enums.AuditableStatus;
 import org.example.core.models.enums.TransactionType;
 import org.example.core.repositories.TransactionRepository;
+import org.example.infrostructure.IdempotencyRegistry;
 
+import javax.sql.DataSource;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Types;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Set;
-import java.util.HashSet;
 
 
 /**
  * Реализация интерфейса {@link TransactionRepository},
  * предоставляющая функциональность для работы с транзакциями в системе,
- * через PostgreSql
+ * через PostgreSql.
+ * Соединение берется из {@link DataSource} на время одной операции и сразу возвращается
  */
 public class TransactionRepositoryPostgresImpl implements TransactionRepository {
-    private final Connection connection;
+    private final DataSource dataSource;
+    private final IdempotencyRegistry idempotencyRegistry;
 
-    public TransactionRepositoryPostgresImpl(Connection connection) {
-        this.connection = connection;
+    public TransactionRepositoryPostgresImpl(DataSource dataSource) {
+        this(dataSource, new IdempotencyRegistry());
+    }
+
+    public TransactionRepositoryPostgresImpl(DataSource dataSource, IdempotencyRegistry idempotencyRegistry) {
+        this.dataSource = dataSource;
+        this.idempotencyRegistry = idempotencyRegistry;
     }
 
     @Override
     public void addTransaction(Transaction transaction) {
-        String insertSql = "INSERT INTO entities.\"Transaction\" (user_id, date_time, type, status, amount) VALUES (?, ?, ?, ?, ?) RETURNING id";
+        String insertSql = "INSERT INTO entities.\"Transaction\" (user_id, date_time, type, status, amount, counterparty_id) " +
+                "VALUES (?, ?, ?, ?, ?, ?) RETURNING id";
 
-        try (PreparedStatement statement = connection.prepareStatement(insertSql)) {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(insertSql)) {
             statement.setLong(1, transaction.getUserId());
             statement.setObject(2, transaction.getDateTime());
             statement.setString(3, transaction.getType().toString());
             statement.setString(4, transaction.getStatus().toString());
             statement.setFloat(5, transaction.getAmount());
+            statement.setObject(6, transaction.getCounterpartyId(), Types.BIGINT);
 
             ResultSet resultSet = statement.executeQuery();
 
@@ -51,11 +64,48 @@ public class TransactionRepositoryPostgresImpl implements TransactionRepository
         }
     }
 
+    /**
+     * Id операции и транзакция записываются одним запросом с CTE, то есть в одной транзакции базы:
+     * транзакция сохраняется, только если id операции еще не записан.
+     * Если id уже записан, например другим экземпляром приложения, транзакция не сохраняется и выбрасывается исключение
+     *
+     * @throws IllegalStateException если id операции уже записан или запрос не выполнен
+     */
+    @Override
+    public void addTransaction(Transaction transaction, long operationId) {
+        String insertSql = "WITH operation AS (" +
+                "INSERT INTO entities.\"OperationId\" (id, created_at) VALUES (?, ?) ON CONFLICT (id) DO NOTHING RETURNING id" +
+                ") INSERT INTO entities.\"Transaction\" (user_id, date_time, type, status, amount, counterparty_id) " +
+                "SELECT ?, ?, ?, ?, ?, ? FROM operation RETURNING id";
+
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(insertSql)) {
+            statement.setLong(1, operationId);
+            statement.setObject(2, LocalDateTime.now());
+            statement.setLong(3, transaction.getUserId());
+            statement.setObject(4, transaction.getDateTime());
+            statement.setString(5, transaction.getType().toString());
+            statement.setString(6, transaction.getStatus().toString());
+            statement.setFloat(7, transaction.getAmount());
+            statement.setObject(8, transaction.getCounterpartyId(), Types.BIGINT);
+
+            ResultSet resultSet = statement.executeQuery();
+
+            if (!resultSet.next()) {
+                throw new IllegalStateException("Operation id is not unique.");
+            }
+            transaction.setId(resultSet.getLong(1));
+        } catch (SQLException e) {
+            throw new IllegalStateException("Transaction was not saved.", e);
+        }
+    }
+
     @Override
     public Transaction findById(long id) {
         String selectSql = "SELECT * FROM entities.\"Transaction\" WHERE id = ?";
 
-        try (PreparedStatement statement = connection.prepareStatement(selectSql)) {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(selectSql)) {
             statement.setLong(1, id);
             ResultSet resultSet = statement.executeQuery();
 
@@ -65,7 +115,7 @@ public class TransactionRepositoryPostgresImpl implements TransactionRepository
                 TransactionType type = TransactionType.valueOf(resultSet.getString("type"));
                 AuditableStatus status = AuditableStatus.valueOf(resultSet.getString("status"));
                 float amount = resultSet.getFloat("amount");
-                return new Transaction(id, userId, dateTime, type, status, amount);
+                return withCounterparty(new Transaction(id, userId, dateTime, type, status, amount), resultSet);
             }
         } catch (SQLException e) {
             e.printStackTrace();
@@ -79,8 +129,37 @@ public class TransactionRepositoryPostgresImpl implements TransactionRepository
         List<Transaction> userTransactions = new ArrayList<>();
         String selectSql = "SELECT * FROM entities.\"Transaction\" WHERE user_id = ?";
 
-        try (PreparedStatement statement = connection.prepareStatement(selectSql)) {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(selectSql)) {
+            statement.setLong(1, userId);
+            ResultSet resultSet = statement.executeQuery();
+
+            while (resultSet.next()) {
+                long transactionId = resultSet.getLong("id");
+                LocalDateTime dateTime = resultSet.getObject("date_time", LocalDateTime.class);
+                TransactionType type = TransactionType.valueOf(resultSet.getString("type"));
+                AuditableStatus status = AuditableStatus.valueOf(resultSet.getString("status"));
+                float amount = resultSet.getFloat("amount");
+                userTransactions.add(withCounterparty(
+                        new Transaction(transactionId, userId, dateTime, type, status, amount), resultSet));
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+
+        return userTransactions;
+    }
+
+    @Override
+    public List<Transaction> findByUserIdBetween(long userId, LocalDateTime from, LocalDateTime to) {
+        List<Transaction> userTransactions = new ArrayList<>();
+        String selectSql = "SELECT * FROM entities.\"Transaction\" WHERE user_id = ? AND date_time BETWEEN ? AND ? ORDER BY date_time, id";
+
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(selectSql)) {
             statement.setLong(1, userId);
+            statement.setObject(2, from);
+            statement.setObject(3, to);
             ResultSet resultSet = statement.executeQuery();
 
             while (resultSet.next()) {
@@ -89,7 +168,8 @@ public class TransactionRepositoryPostgresImpl implements TransactionRepository
                 TransactionType type = TransactionType.valueOf(resultSet.getString("type"));
                 AuditableStatus status = AuditableStatus.valueOf(resultSet.getString("status"));
                 float amount = resultSet.getFloat("amount");
-                userTransactions.add(new Transaction(transactionId, userId, dateTime, type, status, amount));
+                userTransactions.add(withCounterparty(
+                        new Transaction(transactionId, userId, dateTime, type, status, amount), resultSet));
             }
         } catch (SQLException e) {
             e.printStackTrace();
@@ -98,12 +178,61 @@ public class TransactionRepositoryPostgresImpl implements TransactionRepository
         return userTransactions;
     }
 
+    /**
+     * Страница выбирается по ключу (date_time, id) через индекс (user_id, date_time, id),
+     * поэтому стоимость не зависит от номера страницы.
+     * Запрашивается на одну строку больше размера страницы, чтобы узнать, есть ли следующая
+     */
+    @Override
+    public Page<Transaction> findPageByUserId(long userId, PageCursor after, int pageSize) {
+        List<Transaction> userTransactions = new ArrayList<>();
+        String selectSql = after == null
+                ? "SELECT * FROM entities.\"Transaction\" WHERE user_id = ? ORDER BY date_time, id LIMIT ?"
+                : "SELECT * FROM entities.\"Transaction\" WHERE user_id = ? AND (date_time, id) > (?, ?) ORDER BY date_time, id LIMIT ?";
+        int limit = Math.max(0, pageSize);
+        boolean hasNext = false;
+
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(selectSql)) {
+            int index = 1;
+            statement.setLong(index++, userId);
+            if (after != null) {
+                statement.setObject(index++, after.getDateTime());
+                statement.setLong(index++, after.getId());
+            }
+            statement.setInt(index, limit + 1);
+            ResultSet resultSet = statement.executeQuery();
+
+            while (resultSet.next()) {
+                if (userTransactions.size() == limit) {
+                    hasNext = true;
+                    break;
+                }
+                long transactionId = resultSet.getLong("id");
+                LocalDateTime dateTime = resultSet.getObject("date_time", LocalDateTime.class);
+                TransactionType type = TransactionType.valueOf(resultSet.getString("type"));
+                AuditableStatus status = AuditableStatus.valueOf(resultSet.getString("status"));
+                float amount = resultSet.getFloat("amount");
+                userTransactions.add(withCounterparty(
+                        new Transaction(transactionId, userId, dateTime, type, status, amount), resultSet));
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+
+        PageCursor nextCursor = hasNext && !userTransactions.isEmpty()
+                ? PageCursor.after(userTransactions.get(userTransactions.size() - 1))
+                : null;
+        return new Page<>(userTransactions, nextCursor);
+    }
+
     @Override
     public List<Transaction> getAll() {
         List<Transaction> allTransactions = new ArrayList<>();
         String selectSql = "SELECT * FROM entities.\"Transaction\"";
 
-        try (PreparedStatement statement = connection.prepareStatement(selectSql)) {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(selectSql)) {
             ResultSet resultSet = statement.executeQuery();
 
             while (resultSet.next()) {
@@ -113,7 +242,8 @@ public class TransactionRepositoryPostgresImpl implements TransactionRepository
                 TransactionType type = TransactionType.valueOf(resultSet.getString("type"));
                 AuditableStatus status = AuditableStatus.valueOf(resultSet.getString("status"));
                 float amount = resultSet.getFloat("amount");
-                allTransactions.add(new Transaction(transactionId, userId, dateTime, type, status, amount));
+                allTransactions.add(withCounterparty(
+                        new Transaction(transactionId, userId, dateTime, type, status, amount), resultSet));
             }
         } catch (SQLException e) {
             e.printStackTrace();
@@ -123,25 +253,42 @@ public class TransactionRepositoryPostgresImpl implements TransactionRepository
     }
 
     /**
-     * Не используется в реализации логики репозиториев через Postgres,
-     * т.к. id генерируются через сиквенсы
+     * Проверяет и резервирует id операции.
+     * Недавние повторы отклоняются {@link IdempotencyRegistry} без обращения к базе,
+     * для остальных проверяется таблица OperationId. Сам id записывается в нее только
+     * вместе с транзакцией операции в {@link #addTransaction(Transaction, long)}
+     *
+     * @throws IllegalStateException если проверка в базе не выполнена
      */
     @Override
     public boolean isTransactionIdUnique(long transactionId) {
-        Set<Long> transactionIds = new HashSet<>();
-        String selectSql = "SELECT id FROM entities.\"Transaction\"";
-
-        try (PreparedStatement statement = connection.prepareStatement(selectSql)) {
-            ResultSet resultSet = statement.executeQuery();
+        if (!idempotencyRegistry.reserve(transactionId)) {
+            return false;
+        }
+        String selectSql = "SELECT 1 FROM entities.\"OperationId\" WHERE id = ?";
 
-            while (resultSet.next()) {
-                long id = resultSet.getLong("id");
-                transactionIds.add(id);
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(selectSql)) {
+            statement.setLong(1, transactionId);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                return !resultSet.next();
             }
         } catch (SQLException e) {
-            e.printStackTrace();
+            idempotencyRegistry.release(transactionId);
+            throw new IllegalStateException("Operation id check failed.", e);
         }
+    }
+
+    @Override
+    public void releaseTransactionId(long transactionId) {
+        idempotencyRegistry.release(transactionId);
+    }
 
-        return !transactionIds.contains(transactionId);
+    /**
+     * Дополняет прочитанную транзакцию id другой стороны перевода, у пополнений и списаний он null
+     */
+    private static Transaction withCounterparty(Transaction transaction, ResultSet resultSet) throws SQLException {
+        transaction.setCounterpartyId(resultSet.getObject("counterparty_id", Long.class));
+        return transaction;
     }
 }
@@ -3,6 +3,7 @@ package org.example.infrostructure.repositoryies.postgres;
 import org.example.core.models.User;
 import org.example.core.repositories.UserRepository;
 
+import javax.sql.DataSource;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
@@ -14,20 +15,22 @@ import java.util.List;
 /**
  * Реализация интерфейса {@link UserRepository},
  * предоставляющая функциональность для работы с пользователями в системе,
- * через PostgreSql
+ * через PostgreSql.
+ * Соединение берется из {@link DataSource} на время одной операции и сразу возвращается
  */
 public class UserRepositoryPostgresImpl implements UserRepository {
-    private final Connection connection;
+    private final DataSource dataSource;
 
-    public UserRepositoryPostgresImpl(Connection connection) {
-        this.connection = connection;
+    public UserRepositoryPostgresImpl(DataSource dataSource) {
+        this.dataSource = dataSource;
     }
 
     @Override
     public void addUser(User user) {
         String insertSql = "INSERT INTO entities.\"User\" (username, password, first_name, last_name, balance) VALUES (?, ?, ?, ?, ?) RETURNING id";
 
-        try (PreparedStatement statement = connection.prepareStatement(insertSql)) {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(insertSql)) {
             statement.setString(1, user.getUsername());
             statement.setString(2, user.getPassword());
             statement.setString(3, user.getFirstName());
@@ -50,7 +53,8 @@ public class UserRepositoryPostgresImpl implements UserRepository {
     public void deleteUser(User user) {
         String deleteSql = "DELETE FROM entities.\"User\" WHERE id = ?";
 
-        try (PreparedStatement statement = connection.prepareStatement(deleteSql)) {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(deleteSql)) {
             statement.setLong(1, user.getId());
             statement.executeUpdate();
         } catch (SQLException e) {
@@ -62,7 +66,8 @@ public class UserRepositoryPostgresImpl implements UserRepository {
     public void updateUser(User user) {
         String updateSql = "UPDATE entities.\"User\" SET balance = ? WHERE id = ?";
 
-        try (PreparedStatement statement = connection.prepareStatement(updateSql)) {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(updateSql)) {
             statement.setFloat(1, user.getBalance());
             statement.setLong(2, user.getId());
             statement.executeUpdate();
@@ -75,7 +80,8 @@ public class UserRepositoryPostgresImpl implements UserRepository {
     public User findById(long id) {
         String selectSql = "SELECT * FROM entities.\"User\" WHERE id = ?";
 
-        try (PreparedStatement statement = connection.prepareStatement(selectSql)) {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(selectSql)) {
             statement.setLong(1, id);
             ResultSet resultSet = statement.executeQuery();
 
@@ -101,7 +107,8 @@ public class UserRepositoryPostgresImpl implements UserRepository {
     public User findByUsername(String username) {
         String selectSql = "SELECT * FROM entities.\"User\" WHERE username = ?";
 
-        try (PreparedStatement statement = connection.prepareStatement(selectSql)) {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(selectSql)) {
             statement.setString(1, username);
             ResultSet resultSet = statement.executeQuery();
 
@@ -128,7 +135,8 @@ public class UserRepositoryPostgresImpl implements UserRepository {
         List<User> users = new ArrayList<>();
         String selectSql = "SELECT * FROM entities.\"User\"";
 
-        try (PreparedStatement statement = connection.prepareStatement(selectSql)) {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(selectSql)) {
             ResultSet resultSet = statement.executeQuery();
 
             while (resultSet.next()) {
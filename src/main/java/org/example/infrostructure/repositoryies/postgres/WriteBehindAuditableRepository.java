@@ -0,0 +1,337 @@
+package org.example.infrostructure.repositoryies.postgres;
+
+import org.example.core.models.Action;
+import org.example.core.models.Auditable;
+import org.example.core.models.Page;
+import org.example.core.models.PageCursor;
+import org.example.core.models.Transaction;
+import org.example.core.repositories.AuditableRepository;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Реализация интерфейса {@link AuditableRepository} с отложенной записью в PostgreSql.
+ * Записи аудита складываются в ограниченную очередь и записываются фоновым потоком
+ * одним многострочным INSERT, как только набирается batchSize записей или проходит flushIntervalMillis
+ * с момента появления первой записи пачки, поэтому пользовательский поток не ждет обращения к базе.
+ * Если очередь заполнена, добавление ждет до offerTimeoutMillis, а затем отклоняет запись,
+ * поэтому записи попадают в базу строго в порядке добавления.
+ * Постановка в очередь, ее учет для {@link #flush()} и проверка закрытия выполняются под одним монитором,
+ * поэтому чтение после добавления видит запись, а запись, принятая до {@link #close()}, не теряется.
+ * Id записям присваивает база данных при вставке, у переданного объекта id не меняется.
+ * Перед чтением все ранее добавленные записи дописываются, поэтому чтение видит их.
+ * Чтение выполняет {@link AuditableRepositoryPostgresImpl}
+ */
+public class WriteBehindAuditableRepository implements AuditableRepository, Closeable {
+    public static final int DEFAULT_CAPACITY = 10_000;
+    public static final int DEFAULT_BATCH_SIZE = 256;
+    public static final long DEFAULT_FLUSH_INTERVAL_MILLIS = 50;
+    public static final long DEFAULT_OFFER_TIMEOUT_MILLIS = 100;
+
+    private static final String INSERT_PREFIX =
+            "INSERT INTO entities.\"Auditable\" (user_id, date_time, status, type, amount, action_type) VALUES ";
+    private static final String ROW_VALUES = "(?, ?, ?, ?, ?, ?)";
+
+    /**
+     * Служебный элемент очереди, будит фоновый поток, чтобы он записал пачку, не дожидаясь интервала
+     */
+    private static final Auditable WAKE_UP = new Action(0, null, null, null);
+
+    private final DataSource dataSource;
+    private final AuditableRepositoryPostgresImpl reader;
+    private final BlockingQueue<Auditable> queue;
+    private final int batchSize;
+    private final long flushIntervalMillis;
+    private final long offerTimeoutMillis;
+    private final String fullBatchSql;
+    private final Thread writer;
+
+    private final Object progressMonitor = new Object();
+    private long enqueued;
+    private long processed;
+
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    private volatile boolean flushRequested;
+    private volatile boolean running = true;
+
+    public WriteBehindAuditableRepository(DataSource dataSource) {
+        this(dataSource, DEFAULT_CAPACITY, DEFAULT_BATCH_SIZE, DEFAULT_FLUSH_INTERVAL_MILLIS, DEFAULT_OFFER_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * @param dataSource          источник соединений
+     * @param capacity            максимальное количество записей в очереди
+     * @param batchSize           максимальное количество записей в одном INSERT
+     * @param flushIntervalMillis максимальное время ожидания пачки
+     * @param offerTimeoutMillis  сколько ждать места в заполненной очереди перед отклонением записи
+     */
+    public WriteBehindAuditableRepository(DataSource dataSource,
+                                          int capacity,
+                                          int batchSize,
+                                          long flushIntervalMillis,
+                                          long offerTimeoutMillis) {
+        if (capacity <= 0 || batchSize <= 0) {
+            throw new IllegalArgumentException("Capacity and batch size must be positive.");
+        }
+        this.dataSource = dataSource;
+        this.reader = new AuditableRepositoryPostgresImpl(dataSource);
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.batchSize = batchSize;
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.offerTimeoutMillis = offerTimeoutMillis;
+        this.fullBatchSql = insertSql(batchSize);
+        this.writer = new Thread(this::writeLoop, "audit-write-behind");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Ставит запись в очередь на запись.
+     * При заполненной очереди ждет освобождения места не дольше offerTimeoutMillis.
+     * Отклоненные записи учитываются в {@link #getRejected()}
+     *
+     * @throws IllegalArgumentException если тип записи не поддерживается
+     * @throws IllegalStateException    если репозиторий закрыт или очередь не освободилась за offerTimeoutMillis
+     */
+    @Override
+    public void addAuditable(Auditable auditable) {
+        if (!(auditable instanceof Transaction) && !(auditable instanceof Action)) {
+            throw new IllegalArgumentException("Unsupported Auditable type.");
+        }
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(offerTimeoutMillis);
+        synchronized (progressMonitor) {
+            while (true) {
+                if (!running) {
+                    throw new IllegalStateException("Audit writer is closed.");
+                }
+                if (queue.offer(auditable)) {
+                    enqueued++;
+                    return;
+                }
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0 || !writer.isAlive()) {
+                    rejected.incrementAndGet();
+                    throw new IllegalStateException("Audit queue is full.");
+                }
+                // фоновый поток будит монитор после каждой записанной пачки
+                try {
+                    progressMonitor.wait(Math.max(1, TimeUnit.NANOSECONDS.toMillis(remaining)));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    rejected.incrementAndGet();
+                    throw new IllegalStateException("Interrupted while waiting for audit queue.");
+                }
+            }
+        }
+    }
+
+    @Override
+    public Auditable findById(long id) {
+        flush();
+        return reader.findById(id);
+    }
+
+    @Override
+    public List<Auditable> findAllByUserId(long userId) {
+        flush();
+        return reader.findAllByUserId(userId);
+    }
+
+    @Override
+    public List<Auditable> findByUserIdBetween(long userId, LocalDateTime from, LocalDateTime to) {
+        flush();
+        return reader.findByUserIdBetween(userId, from, to);
+    }
+
+    @Override
+    public Page<Auditable> findPageByUserId(long userId, PageCursor after, int pageSize) {
+        flush();
+        return reader.findPageByUserId(userId, after, pageSize);
+    }
+
+    @Override
+    public List<Auditable> getAll() {
+        flush();
+        return reader.getAll();
+    }
+
+    /**
+     * Ожидает записи всех добавленных к этому моменту записей
+     */
+    public void flush() {
+        synchronized (progressMonitor) {
+            long target = enqueued;
+            while (processed < target && writer.isAlive()) {
+                if (!flushRequested) {
+                    flushRequested = true;
+                    queue.offer(WAKE_UP);
+                }
+                try {
+                    progressMonitor.wait(flushIntervalMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * @return Количество записанных записей
+     */
+    public long getWritten() {
+        return written.get();
+    }
+
+    /**
+     * @return Количество записей, которые не удалось записать
+     */
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    /**
+     * @return Количество записей, отклоненных из-за заполненной очереди
+     */
+    public long getRejected() {
+        return rejected.get();
+    }
+
+    /**
+     * @return Текущее количество записей в очереди
+     */
+    public int getQueued() {
+        return queue.size();
+    }
+
+    /**
+     * Прекращает прием записей, дописывает очередь и останавливает фоновый поток.
+     * Если фоновый поток завершился раньше, оставшиеся в очереди записи дописываются здесь
+     */
+    @Override
+    public void close() {
+        synchronized (progressMonitor) {
+            running = false;
+        }
+        queue.offer(WAKE_UP);
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        List<Auditable> rest = new ArrayList<>();
+        queue.drainTo(rest);
+        rest.removeIf(auditable -> auditable == WAKE_UP);
+        if (!rest.isEmpty()) {
+            write(rest);
+            synchronized (progressMonitor) {
+                processed += rest.size();
+                progressMonitor.notifyAll();
+            }
+        }
+    }
+
+    private void writeLoop() {
+        List<Auditable> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                Auditable first = queue.poll(flushIntervalMillis, TimeUnit.MILLISECONDS);
+                if (first == null || first == WAKE_UP) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+                while (batch.size() < batchSize) {
+                    queue.drainTo(batch, batchSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() == batchSize || remaining <= 0 || flushRequested || !running) {
+                        break;
+                    }
+                    Auditable next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null || next == WAKE_UP) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                running = false;
+                queue.drainTo(batch);
+            }
+            batch.removeIf(auditable -> auditable == WAKE_UP);
+            if (!batch.isEmpty()) {
+                write(batch);
+                synchronized (progressMonitor) {
+                    processed += batch.size();
+                    flushRequested = false;
+                    progressMonitor.notifyAll();
+                }
+                batch.clear();
+            }
+        }
+        synchronized (progressMonitor) {
+            progressMonitor.notifyAll();
+        }
+    }
+
+    /**
+     * Записывает пачку одним многострочным INSERT.
+     * Пачка, которую не удалось записать по любой причине, учитывается в {@link #getDropped()},
+     * а фоновый поток продолжает работу со следующей пачкой
+     */
+    private void write(List<Auditable> batch) {
+        String sql = batch.size() == batchSize ? fullBatchSql : insertSql(batch.size());
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(sql)) {
+            int index = 1;
+            for (Auditable auditable : batch) {
+                statement.setLong(index++, auditable.getUserId());
+                statement.setObject(index++, auditable.getDateTime());
+                statement.setString(index++, auditable.getStatus().toString());
+                if (auditable instanceof Transaction) {
+                    Transaction transaction = (Transaction) auditable;
+                    statement.setString(index++, transaction.getType().toString());
+                    statement.setFloat(index++, transaction.getAmount());
+                    statement.setNull(index++, Types.VARCHAR);
+                } else {
+                    Action action = (Action) auditable;
+                    statement.setNull(index++, Types.VARCHAR);
+                    statement.setNull(index++, Types.FLOAT);
+                    statement.setString(index++, action.getType().toString());
+                }
+            }
+            statement.executeUpdate();
+            written.addAndGet(batch.size());
+        } catch (SQLException | RuntimeException e) {
+            e.printStackTrace();
+            dropped.addAndGet(batch.size());
+        }
+    }
+
+    private static String insertSql(int rows) {
+        StringBuilder sql = new StringBuilder(INSERT_PREFIX.length() + rows * (ROW_VALUES.length() + 2));
+        sql.append(INSERT_PREFIX);
+        for (int i = 0; i < rows; i++) {
+            if (i > 0) {
+                sql.append(", ");
+            }
+            sql.append(ROW_VALUES);
+        }
+        return sql.toString();
+    }
+}
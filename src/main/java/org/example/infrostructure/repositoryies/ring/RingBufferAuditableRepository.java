@@ -0,0 +1,373 @@
+package org.example.infrostructure.repositoryies.ring;
+
+import org.example.core.models.Auditable;
+import org.example.core.models.Page;
+import org.example.core.models.PageCursor;
+import org.example.core.repositories.AuditableRepository;
+
+import java.io.Closeable;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Реализация интерфейса {@link AuditableRepository}, передающая записи аудита в другой репозиторий
+ * через заранее выделенный кольцевой буфер.
+ * Производитель занимает номер ячейки атомарным увеличением счетчика, кладет запись в ячейку
+ * и отмечает ее опубликованной, не захватывая блокировок и не выделяя памяти.
+ * Единственный поток-потребитель забирает все опубликованные подряд записи, но не больше maxBatchSize,
+ * и передает их репозиторию одной пачкой {@link AuditableRepository#addAuditables(List)},
+ * поэтому под нагрузкой пачки растут, а в простое каждая запись уходит сразу.
+ * Если буфер заполнен, производитель ждет, пока потребитель освободит ячейку; если поток-потребитель
+ * завершился аварийно, запись не кладется поверх необработанной и добавление завершается исключением.
+ * После занятия ячейки производитель еще раз проверяет, не закрыт ли репозиторий: если закрыт,
+ * в ячейку публикуется пустая отметка, которую потребитель пропускает, а добавление завершается исключением.
+ * Поэтому запись, добавление которой завершилось без исключения, будет записана до возврата из {@link #close()}.
+ * Как потребитель ждет новых записей, задает {@link WaitStrategy}.
+ * Поток-потребитель запускается {@link #start()}, до этого записи только накапливаются в буфере.
+ * Перед чтением все ранее опубликованные записи дописываются, поэтому чтение видит их
+ */
+public class RingBufferAuditableRepository implements AuditableRepository, Closeable {
+    public static final int DEFAULT_CAPACITY = 16_384;
+    public static final int DEFAULT_MAX_BATCH_SIZE = 1_024;
+
+    private static final int SPIN_TRIES = 100;
+    private static final int YIELD_TRIES = 200;
+    private static final long SLEEP_NANOS = 100_000;
+    private static final long BLOCKING_PARK_NANOS = 1_000_000;
+
+    private final AuditableRepository delegate;
+    private final WaitStrategy waitStrategy;
+    private final int maxBatchSize;
+
+    private final Auditable[] entries;
+    private final long[] publishNanos;
+    private final AtomicLongArray published;
+    private final int mask;
+
+    /**
+     * Номер следующей свободной ячейки
+     */
+    private final Sequence claimed = new Sequence(0);
+
+    /**
+     * Номер последней обработанной потребителем записи
+     */
+    private final Sequence consumed = new Sequence(-1);
+
+    /**
+     * Поток-потребитель, null до {@link #start()}
+     */
+    private volatile Thread consumer;
+    private volatile boolean consumerParked;
+    private volatile boolean running = true;
+
+    private volatile long failed;
+    private volatile long batches;
+    private volatile int maxBatch;
+    private volatile long lastLagNanos;
+    private volatile long maxLagNanos;
+    private final Sequence producerWaits = new Sequence(0);
+
+    public RingBufferAuditableRepository(AuditableRepository delegate) {
+        this(delegate, DEFAULT_CAPACITY, DEFAULT_MAX_BATCH_SIZE, WaitStrategy.BLOCKING);
+    }
+
+    /**
+     * @param delegate     репозиторий, в который записываются записи и из которого они читаются
+     * @param capacity     количество ячеек буфера, округляется вверх до степени двойки
+     * @param maxBatchSize максимальное количество записей в одной пачке
+     * @param waitStrategy способ ожидания новых записей потребителем
+     */
+    public RingBufferAuditableRepository(AuditableRepository delegate,
+                                         int capacity,
+                                         int maxBatchSize,
+                                         WaitStrategy waitStrategy) {
+        if (capacity <= 0 || maxBatchSize <= 0) {
+            throw new IllegalArgumentException("Capacity and batch size must be positive.");
+        }
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        }
+        this.delegate = delegate;
+        this.waitStrategy = waitStrategy;
+        this.maxBatchSize = Math.min(maxBatchSize, size);
+        this.entries = new Auditable[size];
+        this.publishNanos = new long[size];
+        this.published = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            published.set(i, -1);
+        }
+        this.mask = size - 1;
+    }
+
+    /**
+     * Запускает поток-потребитель. Повторный вызов ничего не делает
+     *
+     * @throws IllegalStateException если репозиторий уже закрыт
+     */
+    public synchronized void start() {
+        if (!running) {
+            throw new IllegalStateException("Audit ring buffer is closed.");
+        }
+        if (consumer == null) {
+            Thread thread = new Thread(this::consumeLoop, "audit-ring-consumer");
+            thread.setDaemon(true);
+            consumer = thread;
+            thread.start();
+        }
+    }
+
+    /**
+     * Публикует запись в буфер. При заполненном буфере ждет освобождения ячейки
+     *
+     * @throws IllegalStateException если репозиторий закрыт или поток-потребитель остановился
+     */
+    @Override
+    public void addAuditable(Auditable auditable) {
+        if (!running) {
+            throw new IllegalStateException("Audit ring buffer is closed.");
+        }
+        long sequence = claimed.getAndIncrement();
+        long wrapPoint = sequence - entries.length;
+        if (wrapPoint > consumed.get()) {
+            waitForSlot(wrapPoint);
+        }
+        // close() мог начаться после первой проверки: потребитель, увидевший остановку до занятия этой ячейки,
+        // уже завершился, поэтому запись не публикуется, а ячейка закрывается пустой отметкой
+        boolean accepted = running;
+        int index = (int) sequence & mask;
+        entries[index] = accepted ? auditable : null;
+        publishNanos[index] = System.nanoTime();
+        published.lazySet(index, sequence);
+        if (consumerParked) {
+            LockSupport.unpark(consumer);
+        }
+        if (!accepted) {
+            throw new IllegalStateException("Audit ring buffer is closed.");
+        }
+    }
+
+    @Override
+    public Auditable findById(long id) {
+        flush();
+        return delegate.findById(id);
+    }
+
+    @Override
+    public List<Auditable> findAllByUserId(long userId) {
+        flush();
+        return delegate.findAllByUserId(userId);
+    }
+
+    @Override
+    public List<Auditable> findByUserIdBetween(long userId, LocalDateTime from, LocalDateTime to) {
+        flush();
+        return delegate.findByUserIdBetween(userId, from, to);
+    }
+
+    @Override
+    public Page<Auditable> findPageByUserId(long userId, PageCursor after, int pageSize) {
+        flush();
+        return delegate.findPageByUserId(userId, after, pageSize);
+    }
+
+    @Override
+    public List<Auditable> getAll() {
+        flush();
+        return delegate.getAll();
+    }
+
+    /**
+     * Ожидает записи всех опубликованных к этому моменту записей
+     */
+    public void flush() {
+        long target = claimed.get() - 1;
+        int attempt = 0;
+        while (consumed.get() < target && consumerAlive()) {
+            if (consumerParked) {
+                LockSupport.unpark(consumer);
+            }
+            backOff(attempt++);
+        }
+    }
+
+    /**
+     * @return Снимок метрик буфера
+     */
+    public RingBufferMetrics getMetrics() {
+        long consumedCount = consumed.get() + 1;
+        return new RingBufferMetrics(entries.length,
+                Math.max(claimed.get(), consumedCount),
+                consumedCount,
+                failed,
+                batches,
+                maxBatch,
+                producerWaits.get(),
+                lastLagNanos,
+                maxLagNanos);
+    }
+
+    /**
+     * Прекращает прием записей, дописывает опубликованные записи и останавливает поток-потребитель
+     */
+    @Override
+    public synchronized void close() {
+        running = false;
+        Thread thread = consumer;
+        if (thread == null) {
+            return;
+        }
+        LockSupport.unpark(thread);
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private boolean consumerAlive() {
+        Thread thread = consumer;
+        return thread != null && thread.isAlive();
+    }
+
+    /**
+     * Ждет, пока потребитель обработает запись wrapPoint и освободит ее ячейку
+     *
+     * @throws IllegalStateException если поток-потребитель не запущен или завершился, не освободив ячейку
+     */
+    private void waitForSlot(long wrapPoint) {
+        producerWaits.getAndIncrement();
+        int attempt = 0;
+        while (wrapPoint > consumed.get()) {
+            if (!consumerAlive()) {
+                if (wrapPoint <= consumed.get()) {
+                    return;
+                }
+                if (!running) {
+                    throw new IllegalStateException("Audit ring buffer is closed.");
+                }
+                throw new IllegalStateException(consumer == null
+                        ? "Audit ring consumer is not started."
+                        : "Audit ring consumer has stopped.");
+            }
+            if (consumerParked) {
+                LockSupport.unpark(consumer);
+            }
+            backOff(attempt++);
+        }
+    }
+
+    private void consumeLoop() {
+        List<Auditable> batch = new ArrayList<>(maxBatchSize);
+        long next = 0;
+        int idle = 0;
+        while (true) {
+            long available = availableFrom(next);
+            if (available < next) {
+                // после остановки дописываются записи, ячейки которых уже заняты производителями
+                if (!running && claimed.get() == next) {
+                    return;
+                }
+                waitForEntries(next, idle++);
+                continue;
+            }
+            idle = 0;
+
+            long oldestPublished = publishNanos[(int) next & mask];
+            for (long sequence = next; sequence <= available; sequence++) {
+                int index = (int) sequence & mask;
+                // пустая отметка ячейки, занятой после закрытия, пропускается
+                if (entries[index] != null) {
+                    batch.add(entries[index]);
+                    entries[index] = null;
+                }
+            }
+            if (!batch.isEmpty()) {
+                write(batch);
+                updateStats(batch.size(), System.nanoTime() - oldestPublished);
+                batch.clear();
+            }
+
+            consumed.set(available);
+            next = available + 1;
+        }
+    }
+
+    /**
+     * @return Номер последней записи, опубликованной подряд начиная с next, но не дальше пачки,
+     * или next - 1, если запись next еще не опубликована
+     */
+    private long availableFrom(long next) {
+        long limit = next + maxBatchSize;
+        long sequence = next;
+        while (sequence < limit && published.get((int) sequence & mask) == sequence) {
+            sequence++;
+        }
+        return sequence - 1;
+    }
+
+    private void write(List<Auditable> batch) {
+        try {
+            delegate.addAuditables(batch);
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+            failed += batch.size();
+        }
+    }
+
+    private void updateStats(int batchSize, long lagNanos) {
+        batches++;
+        if (batchSize > maxBatch) {
+            maxBatch = batchSize;
+        }
+        lastLagNanos = lagNanos;
+        if (lagNanos > maxLagNanos) {
+            maxLagNanos = lagNanos;
+        }
+    }
+
+    private void waitForEntries(long next, int attempt) {
+        switch (waitStrategy) {
+            case BUSY_SPIN:
+                Thread.onSpinWait();
+                break;
+            case YIELDING:
+                if (attempt < SPIN_TRIES) {
+                    Thread.onSpinWait();
+                } else {
+                    Thread.yield();
+                }
+                break;
+            case SLEEPING:
+                backOff(attempt);
+                break;
+            case BLOCKING:
+                if (attempt < SPIN_TRIES) {
+                    Thread.onSpinWait();
+                    break;
+                }
+                consumerParked = true;
+                // повторная проверка после объявления о сне, чтобы не пропустить сигнал производителя.
+                // Сон ограничен, поскольку отметка публикации может стать видна позже проверки производителя
+                if (running && availableFrom(next) < next) {
+                    LockSupport.parkNanos(this, BLOCKING_PARK_NANOS);
+                }
+                consumerParked = false;
+                break;
+        }
+    }
+
+    private static void backOff(int attempt) {
+        if (attempt < SPIN_TRIES) {
+            Thread.onSpinWait();
+        } else if (attempt < SPIN_TRIES + YIELD_TRIES) {
+            Thread.yield();
+        } else {
+            LockSupport.parkNanos(SLEEP_NANOS);
+        }
+    }
+}
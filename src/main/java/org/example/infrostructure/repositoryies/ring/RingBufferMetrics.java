@@ -0,0 +1,68 @@
+package org.example.infrostructure.repositoryies.ring;
+
+import lombok.Data;
+
+/**
+ * Снимок метрик кольцевого буфера аудита {@link RingBufferAuditableRepository}
+ */
+@Data
+public class RingBufferMetrics {
+    /**
+     * Размер буфера
+     */
+    private final int capacity;
+
+    /**
+     * Всего опубликовано событий
+     */
+    private final long published;
+
+    /**
+     * Всего событий передано в репозиторий
+     */
+    private final long consumed;
+
+    /**
+     * Событий, которые не удалось записать в репозиторий
+     */
+    private final long failed;
+
+    /**
+     * Пачек, переданных в репозиторий
+     */
+    private final long batches;
+
+    /**
+     * Наибольший размер пачки
+     */
+    private final int maxBatchSize;
+
+    /**
+     * Сколько раз производитель ждал освобождения места в заполненном буфере
+     */
+    private final long producerWaits;
+
+    /**
+     * Время от публикации до записи самого старого события последней пачки в наносекундах
+     */
+    private final long lastLagNanos;
+
+    /**
+     * Наибольшее время от публикации до записи события в наносекундах
+     */
+    private final long maxLagNanos;
+
+    /**
+     * @return Опубликованных, но еще не обработанных событий
+     */
+    public long getQueueDepth() {
+        return published - consumed;
+    }
+
+    /**
+     * @return Средний размер пачки
+     */
+    public double getAverageBatchSize() {
+        return batches == 0 ? 0 : (double) consumed / batches;
+    }
+}
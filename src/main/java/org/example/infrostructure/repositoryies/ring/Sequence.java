@@ -0,0 +1,51 @@
+package org.example.infrostructure.repositoryies.ring;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * Счетчик позиции в кольцевом буфере, дополненный с обеих сторон неиспользуемыми полями,
+ * чтобы счетчики производителей и потребителя лежали в разных кэш-линиях и не мешали друг другу
+ */
+final class Sequence extends SequenceValue {
+    @SuppressWarnings("unused")
+    private long p11, p12, p13, p14, p15, p16, p17;
+
+    private static final VarHandle VALUE;
+
+    static {
+        try {
+            VALUE = MethodHandles.lookup().findVarHandle(SequenceValue.class, "value", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    Sequence(long initialValue) {
+        VALUE.setRelease(this, initialValue);
+    }
+
+    long get() {
+        return (long) VALUE.getAcquire(this);
+    }
+
+    void set(long newValue) {
+        VALUE.setRelease(this, newValue);
+    }
+
+    /**
+     * @return Значение до увеличения
+     */
+    long getAndIncrement() {
+        return (long) VALUE.getAndAdd(this, 1L);
+    }
+}
+
+abstract class SequenceLeftPadding {
+    @SuppressWarnings("unused")
+    private long p01, p02, p03, p04, p05, p06, p07;
+}
+
+abstract class SequenceValue extends SequenceLeftPadding {
+    protected volatile long value;
+}
@@ -0,0 +1,28 @@
+package org.example.infrostructure.repositoryies.ring;
+
+/**
+ * Способ ожидания новых событий потребителем {@link RingBufferAuditableRepository}:
+ * компромисс между задержкой доставки события и загрузкой процессора в простое
+ */
+public enum WaitStrategy {
+    /**
+     * Непрерывная проверка буфера. Наименьшая задержка, но занимает ядро процессора целиком
+     */
+    BUSY_SPIN,
+
+    /**
+     * Короткая проверка, затем уступка процессора другим потокам
+     */
+    YIELDING,
+
+    /**
+     * Проверка, уступка процессора, затем сон по 100 мкс. Почти не нагружает процессор в простое
+     */
+    SLEEPING,
+
+    /**
+     * Короткая проверка, затем сон до сигнала производителя. Производитель будит потребителя,
+     * только если тот спит, без блокировок
+     */
+    BLOCKING
+}
@@ -0,0 +1,360 @@
+package org.example.infrostructure.scheduler;
+
+import org.example.core.models.Operation;
+import org.example.core.models.ScheduledOperation;
+import org.example.core.models.enums.Recurrence;
+import org.example.core.models.enums.TransacionReturns;
+import org.example.core.models.enums.TransactionType;
+import org.example.core.repositories.ScheduledOperationRepository;
+import org.example.core.services.OperationService;
+
+import java.io.Closeable;
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Планировщик разовых и периодических операций.
+ * Запланированные операции хранятся в {@link ScheduledOperationRepository}, а в памяти лежат
+ * в иерархическом колесе таймеров {@link TimingWheel} по тику следующего выполнения,
+ * поэтому обслуживание миллионов операций не требует их просмотра на каждом тике.
+ * Наступившие повторения выполняются пачками через {@link OperationService#applyBatch(List)},
+ * после каждой пачки номера следующих повторений сохраняются пачкой в репозиторий.
+ * <p>
+ * При запуске операции загружаются из репозитория, и все повторения, пропущенные за время простоя,
+ * выполняются по очереди при первом продвижении. Каждое повторение передается с собственным
+ * отрицательным идентификатором операции, поэтому повторение, выполненное перед сбоем, но не успевшее
+ * сохраниться в репозитории, после перезапуска отклоняется как повтор, если хранилище идентификаторов
+ * операций переживает перезапуск, как таблица OperationId в PostgreSql.
+ * Фоновый поток, продвигающий колесо, запускается методом {@link #start()}, без него колесо продвигает
+ * {@link #advance()}
+ */
+public class OperationScheduler implements Closeable {
+    public static final long DEFAULT_TICK_MILLIS = 1_000;
+    public static final int DEFAULT_BATCH_SIZE = 1_000;
+
+    /**
+     * Разряды номера повторения в идентификаторе операции, старшие разряды занимает id запланированной операции
+     */
+    static final int OCCURRENCE_BITS = 24;
+    static final long MAX_OCCURRENCE = (1L << OCCURRENCE_BITS) - 1;
+    static final long MAX_SCHEDULED_ID = (1L << (Long.SIZE - 1 - OCCURRENCE_BITS)) - 1;
+
+    private final OperationService operationService;
+    private final ScheduledOperationRepository repository;
+    private final long tickMillis;
+    private final int batchSize;
+    private final Clock clock;
+
+    /**
+     * Действующие операции по id. Отмененная операция удаляется отсюда, а из колеса - когда до нее дойдет очередь
+     */
+    private final ConcurrentHashMap<Long, ScheduledOperation> pending = new ConcurrentHashMap<>();
+    private final TimingWheel<ScheduledOperation> wheel;
+
+    private final LongAdder fired = new LongAdder();
+    private final LongAdder succeeded = new LongAdder();
+    private final LongAdder declined = new LongAdder();
+    private final LongAdder duplicates = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final AtomicLong maxLagMillis = new AtomicLong();
+    private volatile long lastRunOperations;
+    private volatile long lastRunMillis;
+
+    /**
+     * Защищает запуск и остановку фонового потока, не пересекаясь с блокировкой {@link #advance()}
+     */
+    private final Object lifecycle = new Object();
+    private Thread ticker;
+    private volatile boolean running = true;
+
+    public OperationScheduler(OperationService operationService, ScheduledOperationRepository repository) {
+        this(operationService, repository, DEFAULT_TICK_MILLIS, DEFAULT_BATCH_SIZE, Clock.systemDefaultZone());
+    }
+
+    /**
+     * @param operationService сервис, выполняющий операции
+     * @param repository       репозиторий запланированных операций
+     * @param tickMillis       длительность тика колеса, точность времени выполнения
+     * @param batchSize        количество повторений в одной пачке
+     * @param clock            источник времени, его часовой пояс переводит время операций в моменты
+     */
+    public OperationScheduler(OperationService operationService,
+                              ScheduledOperationRepository repository,
+                              long tickMillis,
+                              int batchSize,
+                              Clock clock) {
+        if (tickMillis <= 0 || batchSize <= 0) {
+            throw new IllegalArgumentException("Tick and batch size must be positive.");
+        }
+        this.operationService = operationService;
+        this.repository = repository;
+        this.tickMillis = tickMillis;
+        this.batchSize = batchSize;
+        this.clock = clock;
+        this.wheel = new TimingWheel<>(clock.millis() / tickMillis, this::deadlineTick);
+        for (ScheduledOperation operation : repository.findAll()) {
+            pending.put(operation.getId(), operation);
+            wheel.add(operation);
+        }
+    }
+
+    /**
+     * Запускает фоновый поток, продвигающий колесо каждый тик. Повторный вызов ничего не делает
+     *
+     * @throws IllegalStateException если планировщик уже остановлен
+     */
+    public void start() {
+        synchronized (lifecycle) {
+            if (!running) {
+                throw new IllegalStateException("Operation scheduler is closed.");
+            }
+            if (ticker != null) {
+                return;
+            }
+            ticker = new Thread(this::runTicker, "operation-scheduler");
+            ticker.setDaemon(true);
+            ticker.start();
+        }
+    }
+
+    /**
+     * Планирует операцию
+     *
+     * @param userId     id пользователя
+     * @param type       тип операции
+     * @param amount     сумма операции
+     * @param recurrence периодичность
+     * @param firstRun   время первого выполнения
+     * @return Запланированная операция с присвоенным id
+     * @throws IllegalArgumentException если сумма не положительна
+     */
+    public ScheduledOperation schedule(long userId, TransactionType type, float amount,
+                                       Recurrence recurrence, LocalDateTime firstRun) {
+        if (amount <= 0) {
+            throw new IllegalArgumentException("Amount must be positive.");
+        }
+        ScheduledOperation operation = new ScheduledOperation(userId, type, amount, recurrence, firstRun);
+        repository.addScheduledOperation(operation);
+        pending.put(operation.getId(), operation);
+        synchronized (wheel) {
+            wheel.add(operation);
+        }
+        return operation;
+    }
+
+    /**
+     * Отменяет запланированную операцию. Повторение, уже переданное в сервис операций, не отменяется
+     *
+     * @param id id запланированной операции
+     * @return true, если операция была запланирована
+     */
+    public boolean cancel(long id) {
+        if (pending.remove(id) == null) {
+            return false;
+        }
+        repository.deleteScheduledOperations(List.of(id));
+        return true;
+    }
+
+    /**
+     * Отменяет запланированную операцию, если она принадлежит пользователю
+     *
+     * @param userId id пользователя
+     * @param id     id запланированной операции
+     * @return true, если у пользователя была запланирована такая операция
+     */
+    public boolean cancel(long userId, long id) {
+        ScheduledOperation operation = pending.get(id);
+        if (operation == null || operation.getUserId() != userId || !pending.remove(id, operation)) {
+            return false;
+        }
+        repository.deleteScheduledOperations(List.of(id));
+        return true;
+    }
+
+    /**
+     * @param userId id пользователя
+     * @return Запланированные операции пользователя
+     */
+    public List<ScheduledOperation> findByUserId(long userId) {
+        return repository.findAllByUserId(userId);
+    }
+
+    /**
+     * @return Снимок метрик планировщика
+     */
+    public SchedulerMetrics getMetrics() {
+        return new SchedulerMetrics(pending.size(), fired.sum(), succeeded.sum(), declined.sum(),
+                duplicates.sum(), failed.sum(), batches.sum(),
+                lastRunOperations, lastRunMillis, maxLagMillis.get());
+    }
+
+    /**
+     * Продвигает колесо до текущего времени и выполняет наступившие повторения.
+     * Повторение, после которого следующее тоже уже наступило, возвращается в колесо и выполняется
+     * в этом же вызове, поэтому пропущенные повторения догоняются по одному за проход
+     *
+     * @return Количество выполненных повторений
+     */
+    public synchronized long advance() {
+        long start = System.nanoTime();
+        long total = 0;
+        List<ScheduledOperation> due = new ArrayList<>();
+        while (true) {
+            due.clear();
+            synchronized (wheel) {
+                wheel.advance(clock.millis() / tickMillis, due);
+            }
+            if (due.isEmpty()) {
+                break;
+            }
+            for (int from = 0; from < due.size(); from += batchSize) {
+                try {
+                    total += fire(due.subList(from, Math.min(from + batchSize, due.size())));
+                } catch (RuntimeException e) {
+                    // невыполненные повторения возвращаются в колесо и будут выполнены следующим продвижением
+                    synchronized (wheel) {
+                        for (ScheduledOperation operation : due.subList(from, due.size())) {
+                            wheel.add(operation);
+                        }
+                    }
+                    throw e;
+                }
+            }
+        }
+        if (total > 0) {
+            lastRunOperations = total;
+            lastRunMillis = (System.nanoTime() - start) / 1_000_000;
+        }
+        return total;
+    }
+
+    /**
+     * Останавливает фоновый поток. Запланированные операции остаются в репозитории
+     */
+    @Override
+    public void close() {
+        synchronized (lifecycle) {
+            running = false;
+            if (ticker != null) {
+                ticker.interrupt();
+            }
+        }
+    }
+
+    private void runTicker() {
+        while (running) {
+            try {
+                Thread.sleep(tickMillis);
+            } catch (InterruptedException e) {
+                return;
+            }
+            try {
+                advance();
+            } catch (RuntimeException e) {
+                // сбой хранилища не должен останавливать планировщик, повторения выполнятся на следующем тике
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Выполняет пачку повторений и сохраняет номера следующих
+     *
+     * @return Количество выполненных повторений
+     */
+    private int fire(List<ScheduledOperation> due) {
+        List<ScheduledOperation> live = new ArrayList<>(due.size());
+        List<Operation> operations = new ArrayList<>(due.size());
+        List<Long> finished = new ArrayList<>();
+        for (ScheduledOperation operation : due) {
+            if (pending.get(operation.getId()) != operation) {
+                continue;
+            }
+            if (operation.getId() > MAX_SCHEDULED_ID || operation.getOccurrence() > MAX_OCCURRENCE) {
+                // повторение без уникального идентификатора нельзя защитить от повтора, операция снимается
+                fired.increment();
+                failed.increment();
+                pending.remove(operation.getId(), operation);
+                finished.add(operation.getId());
+            } else {
+                live.add(operation);
+                operations.add(new Operation(operation.getUserId(), operation.getType(), operation.getAmount(),
+                        operationId(operation)));
+            }
+        }
+        if (live.isEmpty()) {
+            repository.deleteScheduledOperations(finished);
+            return 0;
+        }
+
+        List<TransacionReturns> results = operationService.applyBatch(operations);
+        batches.increment();
+
+        long now = clock.millis();
+        List<ScheduledOperation> updated = new ArrayList<>(live.size());
+        for (int i = 0; i < live.size(); i++) {
+            ScheduledOperation operation = live.get(i);
+            TransacionReturns result = results.get(i);
+            maxLagMillis.accumulateAndGet(now - runMillis(operation), Math::max);
+            fired.increment();
+            if (result == TransacionReturns.USER_NOT_FOUND) {
+                failed.increment();
+                pending.remove(operation.getId(), operation);
+                finished.add(operation.getId());
+                continue;
+            }
+            if (result == TransacionReturns.SUCCESS) {
+                succeeded.increment();
+            } else if (result == TransacionReturns.UNUNIQUE_ID) {
+                duplicates.increment();
+            } else {
+                declined.increment();
+            }
+            if (operation.isLastRun()) {
+                pending.remove(operation.getId(), operation);
+                finished.add(operation.getId());
+            } else {
+                operation.setOccurrence(operation.getOccurrence() + 1);
+                updated.add(operation);
+            }
+        }
+
+        repository.updateScheduledOperations(updated);
+        repository.deleteScheduledOperations(finished);
+        synchronized (wheel) {
+            for (ScheduledOperation operation : updated) {
+                if (pending.get(operation.getId()) == operation) {
+                    wheel.add(operation);
+                }
+            }
+        }
+        return live.size();
+    }
+
+    /**
+     * Идентификатор операции повторения: отрицательный, чтобы не пересекаться с идентификаторами клиентов,
+     * и уникальный для пары id операции и номера повторения. Id занимает старшие разряды, номер повторения -
+     * младшие {@link #OCCURRENCE_BITS}, вызывающий проверяет, что оба помещаются в свои разряды
+     */
+    static long operationId(ScheduledOperation operation) {
+        return -1 - ((operation.getId() << OCCURRENCE_BITS) | operation.getOccurrence());
+    }
+
+    private long runMillis(ScheduledOperation operation) {
+        return operation.getNextRun().atZone(clock.getZone()).toInstant().toEpochMilli();
+    }
+
+    /**
+     * Тик, не раньше которого наступает следующее повторение
+     */
+    private long deadlineTick(ScheduledOperation operation) {
+        return (runMillis(operation) + tickMillis - 1) / tickMillis;
+    }
+}
@@ -0,0 +1,66 @@
+package org.example.infrostructure.scheduler;
+
+import lombok.Data;
+
+/**
+ * Снимок метрик планировщика операций {@link OperationScheduler}
+ */
+@Data
+public class SchedulerMetrics {
+    /**
+     * Запланированных операций на момент снимка
+     */
+    private final int pending;
+
+    /**
+     * Всего выполнено повторений
+     */
+    private final long fired;
+
+    /**
+     * Повторений, выполненных успешно
+     */
+    private final long succeeded;
+
+    /**
+     * Повторений, отклоненных сервисом операций: недостаточно средств или превышен лимит
+     */
+    private final long declined;
+
+    /**
+     * Повторений, которые уже были выполнены до перезапуска и не выполнялись снова
+     */
+    private final long duplicates;
+
+    /**
+     * Повторений, которые не удалось выполнить, например пользователь удален. Такие операции снимаются
+     */
+    private final long failed;
+
+    /**
+     * Пачек, переданных в сервис операций
+     */
+    private final long batches;
+
+    /**
+     * Повторений, выполненных последним продвижением, в котором были операции
+     */
+    private final long lastRunOperations;
+
+    /**
+     * Длительность последнего продвижения, в котором были операции, в миллисекундах
+     */
+    private final long lastRunMillis;
+
+    /**
+     * Наибольшая задержка выполнения относительно назначенного времени в миллисекундах
+     */
+    private final long maxLagMillis;
+
+    /**
+     * @return Повторений в секунду за последнее продвижение, в котором были операции
+     */
+    public double getLastRunThroughput() {
+        return lastRunOperations * 1000.0 / Math.max(1, lastRunMillis);
+    }
+}
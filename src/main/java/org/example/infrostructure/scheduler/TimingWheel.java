@@ -0,0 +1,114 @@
+package org.example.infrostructure.scheduler;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.ToLongFunction;
+
+/**
+ * Иерархическое колесо таймеров. Четыре уровня по 256 ячеек: ячейка нулевого уровня - один тик,
+ * ячейка каждого следующего уровня - полный оборот предыдущего, поэтому колесо покрывает 2^32 тиков.
+ * Элемент кладется на самый нижний уровень, на обороте которого наступает его срок, и переносится
+ * на уровень ниже, когда колесо доходит до его ячейки. Добавление и обработка тика стоят O(1)
+ * на элемент независимо от количества элементов в колесе.
+ * Элементы, срок которых уже наступил, выдаются при следующем продвижении.
+ * Колесо не потокобезопасно
+ *
+ * @param <E> тип элемента
+ */
+final class TimingWheel<E> {
+    private static final int BITS = 8;
+    private static final int SLOTS = 1 << BITS;
+    private static final int MASK = SLOTS - 1;
+    private static final int LEVELS = 4;
+
+    private final ToLongFunction<E> deadlineOf;
+    private final List<List<E>> slots = new ArrayList<>(LEVELS * SLOTS);
+    private List<E> overdue = new ArrayList<>();
+    private long currentTick;
+    private int size;
+
+    /**
+     * @param startTick  тик, с которого начинается колесо
+     * @param deadlineOf тик срока элемента
+     */
+    TimingWheel(long startTick, ToLongFunction<E> deadlineOf) {
+        this.currentTick = startTick;
+        this.deadlineOf = deadlineOf;
+        for (int i = 0; i < LEVELS * SLOTS; i++) {
+            slots.add(new ArrayList<>());
+        }
+    }
+
+    void add(E entry) {
+        long deadline = deadlineOf.applyAsLong(entry);
+        size++;
+        if (deadline <= currentTick) {
+            overdue.add(entry);
+            return;
+        }
+        int level = 0;
+        while (level < LEVELS - 1 && (deadline >>> (BITS * (level + 1))) != (currentTick >>> (BITS * (level + 1)))) {
+            level++;
+        }
+        slots.get(level * SLOTS + ((int) (deadline >>> (BITS * level)) & MASK)).add(entry);
+    }
+
+    /**
+     * Продвигает колесо до тика и собирает элементы, срок которых наступил
+     *
+     * @param targetTick тик, до которого продвигается колесо
+     * @param due        список, в который добавляются элементы с наступившим сроком
+     */
+    void advance(long targetTick, List<E> due) {
+        drainOverdue(due);
+        if (size == 0 && targetTick > currentTick) {
+            currentTick = targetTick;
+            return;
+        }
+        while (currentTick < targetTick) {
+            long tick = ++currentTick;
+            // на границе оборота уровня ячейки старших уровней переносятся вниз, начиная с самого старшего
+            int boundary = 1;
+            while (boundary < LEVELS && (tick & ((1L << (BITS * boundary)) - 1)) == 0) {
+                boundary++;
+            }
+            for (int level = boundary - 1; level >= 1; level--) {
+                for (E entry : take(level, (int) (tick >>> (BITS * level)) & MASK)) {
+                    add(entry);
+                }
+            }
+            List<E> slot = take(0, (int) tick & MASK);
+            due.addAll(slot);
+            drainOverdue(due);
+            if (size == 0) {
+                currentTick = targetTick;
+            }
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    long currentTick() {
+        return currentTick;
+    }
+
+    private List<E> take(int level, int index) {
+        List<E> slot = slots.get(level * SLOTS + index);
+        if (slot.isEmpty()) {
+            return slot;
+        }
+        slots.set(level * SLOTS + index, new ArrayList<>());
+        size -= slot.size();
+        return slot;
+    }
+
+    private void drainOverdue(List<E> due) {
+        if (!overdue.isEmpty()) {
+            due.addAll(overdue);
+            size -= overdue.size();
+            overdue = new ArrayList<>();
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package org.example.infrostructure.services;
+
+import org.example.core.models.AccountSummary;
+import org.example.core.models.Auditable;
+import org.example.core.models.Operation;
+import org.example.core.models.Transaction;
+import org.example.core.models.User;
+import org.example.core.models.enums.SummaryPeriod;
+import org.example.core.models.enums.TransacionReturns;
+import org.example.core.services.OperationService;
+
+import java.io.Closeable;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.function.Supplier;
+
+/**
+ * Асинхронный фасад над {@link OperationService}.
+ * Каждый вызов выполняется в отдельном виртуальном потоке, поэтому ожидание базы данных
+ * не занимает потоки платформы, а вызывающий поток сразу получает {@link CompletableFuture}.
+ * Одновременно к сервису обращается не больше maxConcurrentOperations вызовов,
+ * остальные виртуальные потоки ждут разрешения, не удерживая соединения с базой.
+ * Ограничение стоит выбирать не больше размера пула соединений
+ */
+public class AsyncOperationService implements Closeable {
+    public static final int DEFAULT_MAX_CONCURRENT_OPERATIONS = 10;
+
+    private final OperationService operationService;
+    private final Semaphore permits;
+    private final int maxConcurrentOperations;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    public AsyncOperationService(OperationService operationService) {
+        this(operationService, DEFAULT_MAX_CONCURRENT_OPERATIONS);
+    }
+
+    /**
+     * @param operationService        сервис, выполняющий операции
+     * @param maxConcurrentOperations максимальное количество одновременно выполняемых вызовов сервиса
+     */
+    public AsyncOperationService(OperationService operationService, int maxConcurrentOperations) {
+        if (maxConcurrentOperations <= 0) {
+            throw new IllegalArgumentException("Max concurrent operations must be positive.");
+        }
+        this.operationService = operationService;
+        this.maxConcurrentOperations = maxConcurrentOperations;
+        this.permits = new Semaphore(maxConcurrentOperations);
+    }
+
+    /**
+     * @see OperationService#credit(User, float)
+     */
+    public CompletableFuture<TransacionReturns> credit(User user, float amount) {
+        return submit(() -> operationService.credit(user, amount));
+    }
+
+    /**
+     * @see OperationService#credit(User, float, long)
+     */
+    public CompletableFuture<TransacionReturns> credit(User user, float amount, long operationId) {
+        return submit(() -> operationService.credit(user, amount, operationId));
+    }
+
+    /**
+     * @see OperationService#debit(User, float)
+     */
+    public CompletableFuture<TransacionReturns> debit(User user, float amount) {
+        return submit(() -> operationService.debit(user, amount));
+    }
+
+    /**
+     * @see OperationService#debit(User, float, long)
+     */
+    public CompletableFuture<TransacionReturns> debit(User user, float amount, long operationId) {
+        return submit(() -> operationService.debit(user, amount, operationId));
+    }
+
+    /**
+     * @see OperationService#transfer(User, User, float)
+     */
+    public CompletableFuture<TransacionReturns> transfer(User from, User to, float amount) {
+        return submit(() -> operationService.transfer(from, to, amount));
+    }
+
+    /**
+     * @see OperationService#applyBatch(List)
+     */
+    public CompletableFuture<List<TransacionReturns>> applyBatch(List<Operation> operations) {
+        return submit(() -> operationService.applyBatch(operations));
+    }
+
+    /**
+     * @see OperationService#history(User)
+     */
+    public CompletableFuture<List<Transaction>> history(User user) {
+        return submit(() -> operationService.history(user));
+    }
+
+    /**
+     * @see OperationService#history(User, LocalDateTime, LocalDateTime)
+     */
+    public CompletableFuture<List<Transaction>> history(User user, LocalDateTime from, LocalDateTime to) {
+        return submit(() -> operationService.history(user, from, to));
+    }
+
+    /**
+     * @see OperationService#audit(User)
+     */
+    public CompletableFuture<List<Auditable>> audit(User user) {
+        return submit(() -> operationService.audit(user));
+    }
+
+    /**
+     * @see OperationService#audit(User, LocalDateTime, LocalDateTime)
+     */
+    public CompletableFuture<List<Auditable>> audit(User user, LocalDateTime from, LocalDateTime to) {
+        return submit(() -> operationService.audit(user, from, to));
+    }
+
+    /**
+     * @see OperationService#summary(User, SummaryPeriod, LocalDate)
+     */
+    public CompletableFuture<AccountSummary> summary(User user, SummaryPeriod period, LocalDate date) {
+        return submit(() -> operationService.summary(user, period, date));
+    }
+
+    /**
+     * @return Количество вызовов сервиса, выполняющихся в данный момент
+     */
+    public int getActiveOperations() {
+        return maxConcurrentOperations - permits.availablePermits();
+    }
+
+    /**
+     * Перестает принимать новые вызовы и дожидается завершения уже принятых
+     */
+    @Override
+    public void close() {
+        executor.close();
+    }
+
+    private <T> CompletableFuture<T> submit(Supplier<T> call) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                permits.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for a permit.", e);
+            }
+            try {
+                return call.get();
+            } finally {
+                permits.release();
+            }
+        }, executor);
+    }
+}
@@ -1,5 +1,6 @@
 package org.example.infrostructure.services;
 
+import lombok.Data;
 import lombok.RequiredArgsConstructor;
 import org.example.core.models.Action;
 import org.example.core.models.User;
@@ -18,6 +19,7 @@ import java.time.LocalDateTime;
 public class AuthorisationService {
     private final UserRepository userRepository;
     private final AuditableRepository auditableRepository;
+    private final SessionContext sessionContext;
 
     /**
      * Перечисление для статусов авторизации.
@@ -29,17 +31,30 @@ public class AuthorisationService {
     }
 
     /**
-     * Метод для авторизации пользователя, задает пользователя в {@link SessionContext}
+     * Результат авторизации: статус и токен открытой сессии
+     */
+    @Data
+    public static class AuthorisationResult {
+        private final AuthorisationStatus status;
+
+        /**
+         * Токен сессии в {@link SessionContext} или null, если вход не выполнен
+         */
+        private final String token;
+    }
+
+    /**
+     * Метод для авторизации пользователя, открывает сессию пользователя в {@link SessionContext}
      *
      * @param username Имя пользователя для входа.
      * @param password Пароль пользователя.
-     * @return Статус авторизации (SUCCESS, USER_NOT_FOUND, или INVALID_PASSWORD).
+     * @return Статус авторизации (SUCCESS, USER_NOT_FOUND, или INVALID_PASSWORD) и токен сессии при успехе.
      */
-    public AuthorisationStatus authorisation(String username, String password) {
+    public AuthorisationResult authorisation(String username, String password) {
         User user = userRepository.findByUsername(username);
         if (user != null) {
             if (user.getPassword().equals(password)) {
-                SessionContext.setLoggedInUser(user);
+                String token = sessionContext.open(user);
 
                 LocalDateTime dateTime = LocalDateTime.now();
                 AuditableStatus status = AuditableStatus.SUCCESS;
@@ -48,12 +63,12 @@ public class AuthorisationService {
                 Action action = new Action(user.getId(), dateTime, status, actionType);
                 auditableRepository.addAuditable(action);
 
-                return AuthorisationService.AuthorisationStatus.SUCCESS;
+                return new AuthorisationResult(AuthorisationStatus.SUCCESS, token);
             } else {
-                return AuthorisationService.AuthorisationStatus.INVALID_PASSWORD;
+                return new AuthorisationResult(AuthorisationStatus.INVALID_PASSWORD, null);
             }
         } else {
-            return AuthorisationService.AuthorisationStatus.USER_NOT_FOUND;
+            return new AuthorisationResult(AuthorisationStatus.USER_NOT_FOUND, null);
         }
     }
 
@@ -68,7 +83,11 @@ public class AuthorisationService {
         if (existingUser != null) {
             return false; // Пользователь с таким именем уже существует.
         }
-        userRepository.addUser(user);
+        try {
+            userRepository.addUser(user);
+        } catch (IllegalArgumentException e) {
+            return false; // Логин занял параллельно зарегистрированный пользователь.
+        }
 
         LocalDateTime dateTime = LocalDateTime.now();
         AuditableStatus status = AuditableStatus.SUCCESS;
@@ -82,16 +101,21 @@ public class AuthorisationService {
 
 
     /**
-     * Метод для завершения сессии, удаляет текущего пользователя из {@link SessionContext}
+     * Метод для завершения сессии, закрывает сессию в {@link SessionContext}
+     *
+     * @param token Токен сессии
      */
-    public void logout(User user) {
+    public void logout(String token) {
+        User user = sessionContext.close(token);
+        if (user == null) {
+            return;
+        }
+
         LocalDateTime dateTime = LocalDateTime.now();
         AuditableStatus status = AuditableStatus.SUCCESS;
         ActionType actionType = ActionType.LOGOUT;
 
         Action action = new Action(user.getId(), dateTime, status, actionType);
         auditableRepository.addAuditable(action);
-
-        SessionContext.clearLoggedInUser();
     }
 }
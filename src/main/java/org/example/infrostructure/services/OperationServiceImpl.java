@@ -1,80 +1,465 @@
 package org.example.infrostructure.services;
 
-import lombok.RequiredArgsConstructor;
+import org.example.core.models.AccountSummary;
 import org.example.core.models.Auditable;
+import org.example.core.models.Operation;
+import org.example.core.models.Page;
+import org.example.core.models.PageCursor;
 import org.example.core.models.Transaction;
 import org.example.core.models.User;
 import org.example.core.models.enums.AuditableStatus;
+import org.example.core.models.enums.SummaryPeriod;
 import org.example.core.models.enums.TransacionReturns;
 import org.example.core.models.enums.TransactionType;
 import org.example.core.repositories.AuditableRepository;
 import org.example.core.repositories.TransactionRepository;
 import org.example.core.repositories.UserRepository;
 import org.example.core.services.OperationService;
+import org.example.infrostructure.AccountAggregates;
+import org.example.infrostructure.AccountLocks;
+import org.example.infrostructure.AtomicWrites;
+import org.example.infrostructure.VelocityLimiter;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.Lock;
 
 /**
- * Реализация {@link OperationService}
+ * Реализация {@link OperationService}.
+ * Пополнение и списание выполняются под блокировкой счета из {@link AccountLocks}:
+ * операции над одним счетом упорядочены, над разными - идут параллельно.
+ * Баланс под блокировкой перечитывается из репозитория.
+ * Итоги счета в {@link AccountAggregates} обновляются под той же блокировкой вместе с записью транзакции.
+ * Списание, которому хватает средств, дополнительно проверяется {@link VelocityLimiter}: списание сверх
+ * лимита отклоняется так же, как при нехватке средств, но с результатом {@link TransacionReturns#LIMIT_EXCEEDED}
  */
-@RequiredArgsConstructor
 public class OperationServiceImpl implements OperationService {
     private final UserRepository userRepository;
     private final TransactionRepository transactionRepository;
     private final AuditableRepository auditableRepository;
+    private final AccountLocks accountLocks = new AccountLocks();
+    private final AccountAggregates accountAggregates;
+    private final VelocityLimiter velocityLimiter;
+    private final AtomicWrites atomicWrites;
+
+    public OperationServiceImpl(UserRepository userRepository,
+                                TransactionRepository transactionRepository,
+                                AuditableRepository auditableRepository) {
+        this(userRepository, transactionRepository, auditableRepository, VelocityLimiter.unlimited());
+    }
+
+    public OperationServiceImpl(UserRepository userRepository,
+                                TransactionRepository transactionRepository,
+                                AuditableRepository auditableRepository,
+                                VelocityLimiter velocityLimiter) {
+        this(userRepository, transactionRepository, auditableRepository, velocityLimiter, new AccountAggregates());
+    }
+
+    /**
+     * Итоги счетов не пересчитываются по журналу транзакций: хранилище, переживающее перезапуск, передает итоги,
+     * восстановленные вместе с транзакциями ({@link org.example.infrostructure.repositoryies.collections.DurableCollectionsStore#accountAggregates()}),
+     * дальше они обновляются каждой операцией
+     *
+     * @param accountAggregates итоги уже сохраненных транзакций
+     */
+    public OperationServiceImpl(UserRepository userRepository,
+                                TransactionRepository transactionRepository,
+                                AuditableRepository auditableRepository,
+                                VelocityLimiter velocityLimiter,
+                                AccountAggregates accountAggregates) {
+        this(userRepository, transactionRepository, auditableRepository, velocityLimiter, accountAggregates,
+                AtomicWrites.direct());
+    }
+
+    /**
+     * Транзакции и балансы одной операции сохраняются внутри границы атомарной записи хранилища,
+     * записи аудита и итоги - после нее
+     *
+     * @param atomicWrites граница атомарной записи хранилища транзакций и пользователей
+     */
+    public OperationServiceImpl(UserRepository userRepository,
+                                TransactionRepository transactionRepository,
+                                AuditableRepository auditableRepository,
+                                VelocityLimiter velocityLimiter,
+                                AccountAggregates accountAggregates,
+                                AtomicWrites atomicWrites) {
+        this.atomicWrites = atomicWrites;
+        this.userRepository = userRepository;
+        this.transactionRepository = transactionRepository;
+        this.auditableRepository = auditableRepository;
+        this.velocityLimiter = velocityLimiter;
+        this.accountAggregates = accountAggregates;
+    }
 
     @Override
     public TransacionReturns credit(User user, float amount) {
-        long userId = user.getId();
-        float balance = user.getBalance();
-        LocalDateTime dateTime = LocalDateTime.now();
-        AuditableStatus status;
+        return credit(user, amount, null);
+    }
 
-        status = AuditableStatus.SUCCESS;
-        user.setBalance(balance + amount);
-        userRepository.updateUser(user);
-        Transaction transaction = new Transaction(userId, dateTime,
-                TransactionType.CREDIT, status, amount);
-        transactionRepository.addTransaction(transaction);
-        auditableRepository.addAuditable(transaction);
-        return TransacionReturns.SUCCESS;
+    /**
+     * Если id операции зарезервирован, но пополнение завершилось ошибкой, резерв снимается,
+     * чтобы клиент мог повторить операцию с тем же id
+     */
+    @Override
+    public TransacionReturns credit(User user, float amount, long operationId) {
+        if (!transactionRepository.isTransactionIdUnique(operationId)) {
+            return TransacionReturns.UNUNIQUE_ID;
+        }
+        try {
+            return credit(user, amount, (Long) operationId);
+        } catch (RuntimeException e) {
+            transactionRepository.releaseTransactionId(operationId);
+            throw e;
+        }
     }
 
+    /**
+     * @param operationId зарезервированный id операции или null
+     */
+    private TransacionReturns credit(User user, float amount, Long operationId) {
+        long userId = user.getId();
+        Lock lock = accountLocks.forAccount(userId);
+        lock.lock();
+        try {
+            User account = currentAccount(user);
+            float balance = account.getBalance();
+            LocalDateTime dateTime = LocalDateTime.now();
+            AuditableStatus status;
+
+            status = AuditableStatus.SUCCESS;
+            Transaction transaction = new Transaction(userId, dateTime,
+                    TransactionType.CREDIT, status, amount);
+            saveWithBalance(transaction, operationId, account, balance + amount);
+            user.setBalance(account.getBalance());
+            accountAggregates.record(transaction);
+            auditableRepository.addAuditable(transaction);
+            return TransacionReturns.SUCCESS;
+        } finally {
+            lock.unlock();
+        }
+    }
 
     @Override
     public TransacionReturns debit(User user, float amount) {
+        return debit(user, amount, null);
+    }
+
+    /**
+     * Если id операции зарезервирован, но списание завершилось ошибкой, резерв снимается
+     */
+    @Override
+    public TransacionReturns debit(User user, float amount, long operationId) {
+        if (!transactionRepository.isTransactionIdUnique(operationId)) {
+            return TransacionReturns.UNUNIQUE_ID;
+        }
+        try {
+            return debit(user, amount, (Long) operationId);
+        } catch (RuntimeException e) {
+            transactionRepository.releaseTransactionId(operationId);
+            throw e;
+        }
+    }
+
+    /**
+     * @param operationId зарезервированный id операции или null
+     */
+    private TransacionReturns debit(User user, float amount, Long operationId) {
         long userId = user.getId();
-        float balance = user.getBalance();
-        LocalDateTime dateTime = LocalDateTime.now();
-        AuditableStatus status;
+        Lock lock = accountLocks.forAccount(userId);
+        lock.lock();
+        try {
+            User account = currentAccount(user);
+            float balance = account.getBalance();
+            LocalDateTime dateTime = LocalDateTime.now();
+            AuditableStatus status;
 
-        if (balance >= amount) {
+            if (balance >= amount && velocityLimiter.tryAcquire(userId, amount)) {
 
-            // сохранение транзакции как успешной, изменение баланс, если уникален id
-            // и достаточно средств
-            user.setBalance(balance - amount);
-            userRepository.updateUser(user);
-            status = AuditableStatus.SUCCESS;
-            Transaction transaction = new Transaction(userId, dateTime,
-                    TransactionType.DEBIT, status, amount);
-            transactionRepository.addTransaction(transaction);
-            auditableRepository.addAuditable(transaction);
+                // сохранение транзакции как успешной, изменение баланс, если уникален id,
+                // достаточно средств и не превышен лимит списаний
+                status = AuditableStatus.SUCCESS;
+                Transaction transaction = new Transaction(userId, dateTime,
+                        TransactionType.DEBIT, status, amount);
+                try {
+                    saveWithBalance(transaction, operationId, account, balance - amount);
+                } catch (RuntimeException e) {
+                    velocityLimiter.release(userId, amount);
+                    throw e;
+                }
+                user.setBalance(account.getBalance());
+                accountAggregates.record(transaction);
+                auditableRepository.addAuditable(transaction);
+
+                // возвращает статус операции
+                return TransacionReturns.SUCCESS;
+
+            } else {
+                // сохранение транзакции как отклоненной, баланс не меняется т.к. недостаточно средств
+                // или превышен лимит списаний
+                user.setBalance(balance);
+                status = AuditableStatus.DECLINE;
+                Transaction transaction = new Transaction(userId, dateTime,
+                        TransactionType.DEBIT, status, amount);
+                addTransaction(transaction, operationId);
+                accountAggregates.record(transaction);
+                auditableRepository.addAuditable(transaction);
+
+                // возвращает статус операции
+                return balance >= amount ? TransacionReturns.LIMIT_EXCEEDED : TransacionReturns.NOT_ENOUGH_MONEY;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+
+    /**
+     * Перевод выполняется под блокировками обоих счетов, которые берутся в порядке полос,
+     * поэтому встречные переводы между одними и теми же счетами не взаимоблокируются.
+     * Обе транзакции перевода хранят id другой стороны. Сначала сохраняются транзакции, затем балансы,
+     * и если сохранить не удалось, объектам счетов возвращаются прежние балансы
+     */
+    @Override
+    public TransacionReturns transfer(User from, User to, float amount) {
+        if (from.getId() == to.getId()) {
+            throw new IllegalArgumentException("Cannot transfer to the same account.");
+        }
+        List<Lock> locks = accountLocks.forAccounts(List.of(from.getId(), to.getId()));
+        locks.forEach(Lock::lock);
+        try {
+            User source = existingAccount(from.getId());
+            User target = existingAccount(to.getId());
+            float balance = source.getBalance();
+            LocalDateTime dateTime = LocalDateTime.now();
 
-            // возвращает статус операции
+            if (balance < amount || !velocityLimiter.tryAcquire(source.getId(), amount)) {
+                from.setBalance(balance);
+                Transaction transaction = new Transaction(source.getId(), dateTime,
+                        TransactionType.DEBIT, AuditableStatus.DECLINE, amount);
+                transaction.setCounterpartyId(target.getId());
+                transactionRepository.addTransaction(transaction);
+                accountAggregates.record(transaction);
+                auditableRepository.addAuditable(transaction);
+                return balance < amount ? TransacionReturns.NOT_ENOUGH_MONEY : TransacionReturns.LIMIT_EXCEEDED;
+            }
+
+            Transaction outgoing = new Transaction(source.getId(), dateTime,
+                    TransactionType.DEBIT, AuditableStatus.SUCCESS, amount);
+            outgoing.setCounterpartyId(target.getId());
+            Transaction incoming = new Transaction(target.getId(), dateTime,
+                    TransactionType.CREDIT, AuditableStatus.SUCCESS, amount);
+            incoming.setCounterpartyId(source.getId());
+            float targetBalance = target.getBalance();
+            try {
+                atomicWrites.run(() -> {
+                    transactionRepository.addTransaction(outgoing);
+                    transactionRepository.addTransaction(incoming);
+                    source.setBalance(balance - amount);
+                    target.setBalance(targetBalance + amount);
+                    userRepository.updateUser(source);
+                    userRepository.updateUser(target);
+                });
+            } catch (RuntimeException e) {
+                source.setBalance(balance);
+                target.setBalance(targetBalance);
+                velocityLimiter.release(source.getId(), amount);
+                throw e;
+            }
+            from.setBalance(source.getBalance());
+            to.setBalance(target.getBalance());
+            accountAggregates.record(outgoing);
+            accountAggregates.record(incoming);
+            auditableRepository.addAuditable(outgoing);
+            auditableRepository.addAuditable(incoming);
             return TransacionReturns.SUCCESS;
+        } finally {
+            for (int i = locks.size() - 1; i >= 0; i--) {
+                locks.get(i).unlock();
+            }
+        }
+    }
 
-        } else {
-            // сохранение транзакции как успешной, баланс не меняется т.к. недостаточно средств
-            status = AuditableStatus.DECLINE;
-            Transaction transaction = new Transaction(userId, dateTime,
-                    TransactionType.DEBIT, status, amount);
+    /**
+     * Пакет выполняется под блокировками всех затронутых счетов, которые берутся в порядке полос.
+     * Сначала по балансам в памяти вычисляются результаты всех операций, затем сохраняются транзакции
+     * и один раз на счет - балансы. Операции несуществующих пользователей получают
+     * {@link TransacionReturns#USER_NOT_FOUND}, их id операций не резервируются.
+     * Если пакет завершился ошибкой, балансы сохраняются только по уже сохраненным транзакциям,
+     * а с id операций и учета лимита списаний, транзакции которых не сохранены, снимается резерв
+     */
+    @Override
+    public List<TransacionReturns> applyBatch(List<Operation> operations) {
+        Set<Long> userIds = new HashSet<>();
+        for (Operation operation : operations) {
+            userIds.add(operation.getUserId());
+        }
+        List<Lock> locks = accountLocks.forAccounts(userIds);
+        locks.forEach(Lock::lock);
+        Set<Long> reserved = new HashSet<>();
+        List<Transaction> transactions = new ArrayList<>(operations.size());
+        int[] saved = {0};
+        try {
+            Map<Long, User> accounts = new HashMap<>();
+            Map<Long, Float> balances = new HashMap<>();
+            for (long userId : userIds) {
+                User account = userRepository.findById(userId);
+                if (account != null) {
+                    accounts.put(userId, account);
+                    balances.put(userId, account.getBalance());
+                }
+            }
+
+            LocalDateTime dateTime = LocalDateTime.now();
+            List<TransacionReturns> results = new ArrayList<>(operations.size());
+            List<Long> transactionOperationIds = new ArrayList<>(operations.size());
+            for (Operation operation : operations) {
+                long userId = operation.getUserId();
+                if (!accounts.containsKey(userId)) {
+                    results.add(TransacionReturns.USER_NOT_FOUND);
+                    continue;
+                }
+                Long operationId = operation.getOperationId();
+                if (operationId != null) {
+                    if (!transactionRepository.isTransactionIdUnique(operationId)) {
+                        results.add(TransacionReturns.UNUNIQUE_ID);
+                        continue;
+                    }
+                    reserved.add(operationId);
+                }
+                float balance = balances.get(userId);
+                float amount = operation.getAmount();
+                AuditableStatus status = AuditableStatus.SUCCESS;
+                if (operation.getType() == TransactionType.CREDIT) {
+                    balances.put(userId, balance + amount);
+                    results.add(TransacionReturns.SUCCESS);
+                } else if (balance >= amount && velocityLimiter.tryAcquire(userId, amount)) {
+                    balances.put(userId, balance - amount);
+                    results.add(TransacionReturns.SUCCESS);
+                } else {
+                    status = AuditableStatus.DECLINE;
+                    results.add(balance >= amount ? TransacionReturns.LIMIT_EXCEEDED : TransacionReturns.NOT_ENOUGH_MONEY);
+                }
+                transactions.add(new Transaction(userId, dateTime, operation.getType(), status, amount));
+                transactionOperationIds.add(operationId);
+            }
+
+            atomicWrites.run(() -> {
+                try {
+                    for (; saved[0] < transactions.size(); saved[0]++) {
+                        Long operationId = transactionOperationIds.get(saved[0]);
+                        addTransaction(transactions.get(saved[0]), operationId);
+                        if (operationId != null) {
+                            reserved.remove(operationId);
+                        }
+                    }
+                } finally {
+                    saveBalances(accounts, transactions.subList(0, saved[0]));
+                }
+            });
+            for (Transaction transaction : transactions) {
+                accountAggregates.record(transaction);
+                auditableRepository.addAuditable(transaction);
+            }
+            return results;
+        } catch (RuntimeException e) {
+            reserved.forEach(transactionRepository::releaseTransactionId);
+            for (Transaction transaction : transactions.subList(saved[0], transactions.size())) {
+                if (transaction.getType() == TransactionType.DEBIT && transaction.getStatus() == AuditableStatus.SUCCESS) {
+                    velocityLimiter.release(transaction.getUserId(), transaction.getAmount());
+                }
+            }
+            for (Transaction transaction : transactions.subList(0, saved[0])) {
+                accountAggregates.record(transaction);
+            }
+            throw e;
+        } finally {
+            for (int i = locks.size() - 1; i >= 0; i--) {
+                locks.get(i).unlock();
+            }
+        }
+    }
+
+    /**
+     * Сохраняет балансы счетов по сохраненным транзакциям пакета, один раз на счет.
+     * Балансы пересчитываются в том же порядке, в каком вычислялись результаты пакета
+     *
+     * @param accounts счета пакета с балансами до пакета
+     * @param saved    сохраненные транзакции пакета
+     */
+    private void saveBalances(Map<Long, User> accounts, List<Transaction> saved) {
+        Map<Long, Float> balances = new LinkedHashMap<>();
+        for (Transaction transaction : saved) {
+            if (transaction.getStatus() != AuditableStatus.SUCCESS) {
+                continue;
+            }
+            long userId = transaction.getUserId();
+            float balance = balances.getOrDefault(userId, accounts.get(userId).getBalance());
+            balances.put(userId, transaction.getType() == TransactionType.CREDIT
+                    ? balance + transaction.getAmount()
+                    : balance - transaction.getAmount());
+        }
+        for (Map.Entry<Long, Float> balance : balances.entrySet()) {
+            User account = accounts.get(balance.getKey());
+            account.setBalance(balance.getValue());
+            userRepository.updateUser(account);
+        }
+    }
+
+    /**
+     * Сохраняет успешную транзакцию и новый баланс счета: сначала транзакцию с id операции, затем баланс.
+     * Если сохранить не удалось, объекту счета возвращается прежний баланс, поэтому баланс без транзакции
+     * не остается ни в репозитории, ни в объекте, который репозиторий мог выдать без копирования
+     */
+    private void saveWithBalance(Transaction transaction, Long operationId, User account, float balance) {
+        float previous = account.getBalance();
+        try {
+            atomicWrites.run(() -> {
+                addTransaction(transaction, operationId);
+                account.setBalance(balance);
+                userRepository.updateUser(account);
+            });
+        } catch (RuntimeException e) {
+            account.setBalance(previous);
+            throw e;
+        }
+    }
+
+    /**
+     * Сохраняет транзакцию вместе с id операции, если он задан
+     */
+    private void addTransaction(Transaction transaction, Long operationId) {
+        if (operationId == null) {
             transactionRepository.addTransaction(transaction);
-            auditableRepository.addAuditable(transaction);
+        } else {
+            transactionRepository.addTransaction(transaction, operationId);
+        }
+    }
+
+    /**
+     * Возвращает актуальное состояние счета из репозитория.
+     * Переданный объект пользователя мог устареть, пока другой поток менял баланс
+     */
+    private User currentAccount(User user) {
+        User account = userRepository.findById(user.getId());
+        return account != null ? account : user;
+    }
 
-            // возвращает статус операции
-            return TransacionReturns.NOT_ENOUGH_MONEY;
+    /**
+     * @throws IllegalArgumentException если пользователь не найден
+     */
+    private User existingAccount(long userId) {
+        User account = userRepository.findById(userId);
+        if (account == null) {
+            throw new IllegalArgumentException("User not found.");
         }
+        return account;
     }
 
     @Override
@@ -82,8 +467,33 @@ public class OperationServiceImpl implements OperationService {
         return transactionRepository.findAllByUserId(user.getId());
     }
 
+    @Override
+    public List<Transaction> history(User user, LocalDateTime from, LocalDateTime to) {
+        return transactionRepository.findByUserIdBetween(user.getId(), from, to);
+    }
+
+    @Override
+    public Page<Transaction> history(User user, PageCursor after, int pageSize) {
+        return transactionRepository.findPageByUserId(user.getId(), after, pageSize);
+    }
+
     @Override
     public List<Auditable> audit(User user) {
         return auditableRepository.findAllByUserId(user.getId());
     }
+
+    @Override
+    public List<Auditable> audit(User user, LocalDateTime from, LocalDateTime to) {
+        return auditableRepository.findByUserIdBetween(user.getId(), from, to);
+    }
+
+    @Override
+    public Page<Auditable> audit(User user, PageCursor after, int pageSize) {
+        return auditableRepository.findPageByUserId(user.getId(), after, pageSize);
+    }
+
+    @Override
+    public AccountSummary summary(User user, SummaryPeriod period, LocalDate date) {
+        return accountAggregates.summary(user.getId(), period, date);
+    }
 }
@@ -0,0 +1,649 @@
+package org.example.infrostructure.services;
+
+import org.example.core.models.AccountSummary;
+import org.example.core.models.Auditable;
+import org.example.core.models.Operation;
+import org.example.core.models.Page;
+import org.example.core.models.PageCursor;
+import org.example.core.models.Transaction;
+import org.example.core.models.User;
+import org.example.core.models.enums.AuditableStatus;
+import org.example.core.models.enums.SummaryPeriod;
+import org.example.core.models.enums.TransacionReturns;
+import org.example.core.models.enums.TransactionType;
+import org.example.core.repositories.AuditableRepository;
+import org.example.core.repositories.TransactionRepository;
+import org.example.core.services.OperationService;
+import org.example.infrostructure.IdempotencyRegistry;
+import org.example.infrostructure.VelocityLimiter;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.LongConsumer;
+
+/**
+ * Реализация {@link OperationService} для PostgreSql.
+ * Пополнение и списание выполняются одним SQL-запросом с CTE: условное изменение баланса
+ * (balance = balance - ? WHERE balance >= ?), запись транзакции и запись аудита.
+ * Запрос атомарен и выполняется за одно обращение к базе, а проверка баланса происходит в самой базе,
+ * поэтому параллельные списания не уводят баланс в минус и не теряют обновлений без блокировок в приложении.
+ * Id операции резервируется в том же запросе, после выполнения в объект пользователя
+ * записывается актуальный баланс из базы. Таблица OperationId хранит id операций без срока:
+ * в отличие от {@link IdempotencyRegistry}, который помнит id в памяти ограниченное время, повтор операции
+ * отклоняется базой в любое время, а строка id не больше строки транзакции, которая тоже хранится всегда.
+ * Итоги пользователя за день и месяц в таблице AccountSummary обновляются тем же запросом,
+ * поэтому всегда согласованы с транзакциями, а их чтение - это поиск по первичному ключу.
+ * Списания и переводы проверяются {@link VelocityLimiter} процесса до запроса: решение лимита передается
+ * в запрос параметром, и запрещенное списание записывается отклоненным с результатом
+ * {@link TransacionReturns#LIMIT_EXCEEDED}, если средств хватало. Если разрешенное лимитом списание
+ * база не выполнила, его учет в лимите отменяется. Лимит хранится в памяти процесса,
+ * поэтому несколько экземпляров приложения ограничивают списания каждый сам по себе.
+ * История и аудит читаются через репозитории
+ */
+public class OperationServicePostgresImpl implements OperationService {
+    private static final String CREDIT_SQL = operationSql(false, false);
+    private static final String DEBIT_SQL = operationSql(true, false);
+    private static final String CREDIT_WITH_OPERATION_ID_SQL = operationSql(false, true);
+    private static final String DEBIT_WITH_OPERATION_ID_SQL = operationSql(true, true);
+
+    /**
+     * Запрос перевода. Всегда возвращает одну строку: found - найдены оба счета, enough - перевод выполнен,
+     * from_balance и to_balance - балансы после перевода
+     */
+    private static final String TRANSFER_SQL = "WITH accounts AS (" +
+            "SELECT id, balance FROM entities.\"User\" WHERE id IN (?, ?) ORDER BY id FOR UPDATE" +
+            "), checked AS (" +
+            "SELECT count(*) = 2 AS found, COALESCE(bool_or(id = ? AND balance >= ?), false) AS covered, " +
+            "COALESCE(bool_or(id = ? AND balance >= ?), false) AND ? AS enough FROM accounts" +
+            "), updated AS (" +
+            "UPDATE entities.\"User\" AS u SET balance = u.balance + CASE WHEN u.id = ? THEN -?::float8 ELSE ?::float8 END " +
+            "FROM checked WHERE u.id IN (?, ?) AND checked.found AND checked.enough RETURNING u.id, u.balance" +
+            "), inserted AS (" +
+            "INSERT INTO entities.\"Transaction\" (user_id, date_time, type, status, amount, counterparty_id) " +
+            "SELECT entry.user_id, ?, entry.type, CASE WHEN checked.enough THEN 'SUCCESS' ELSE 'DECLINE' END, ?, " +
+            "entry.counterparty_id " +
+            "FROM checked, (VALUES (?::bigint, 'DEBIT', ?::bigint), (?::bigint, 'CREDIT', ?::bigint)) " +
+            "AS entry(user_id, type, counterparty_id) " +
+            "WHERE checked.found AND (checked.enough OR entry.type = 'DEBIT') " +
+            "RETURNING user_id, date_time, type, status, amount" +
+            "), audited AS (" +
+            "INSERT INTO entities.\"Auditable\" (user_id, date_time, status, type, amount) " +
+            "SELECT user_id, ?, status, type, ? FROM inserted" +
+            "), summarized AS (" + summarySql("inserted AS r") +
+            ") " +
+            "SELECT found, covered, enough, " +
+            "COALESCE((SELECT balance FROM updated WHERE id = ?), (SELECT balance FROM accounts WHERE id = ?)) AS from_balance, " +
+            "COALESCE((SELECT balance FROM updated WHERE id = ?), (SELECT balance FROM accounts WHERE id = ?)) AS to_balance " +
+            "FROM checked";
+
+    private static final String SUMMARY_SQL = "SELECT credited, debited, credit_count, debit_count, declined_count, last_activity " +
+            "FROM entities.\"AccountSummary\" WHERE user_id = ? AND period = ? AND period_start = ?";
+
+    private final DataSource dataSource;
+    private final TransactionRepository transactionRepository;
+    private final AuditableRepository auditableRepository;
+    private final IdempotencyRegistry idempotencyRegistry;
+    private final LongConsumer balanceListener;
+    private final VelocityLimiter velocityLimiter;
+
+    public OperationServicePostgresImpl(DataSource dataSource,
+                                        TransactionRepository transactionRepository,
+                                        AuditableRepository auditableRepository) {
+        this(dataSource, transactionRepository, auditableRepository, new IdempotencyRegistry());
+    }
+
+    public OperationServicePostgresImpl(DataSource dataSource,
+                                        TransactionRepository transactionRepository,
+                                        AuditableRepository auditableRepository,
+                                        IdempotencyRegistry idempotencyRegistry) {
+        this(dataSource, transactionRepository, auditableRepository, idempotencyRegistry, userId -> { });
+    }
+
+    /**
+     * @param balanceListener получает id пользователя после каждого изменения его баланса в базе,
+     *                        например чтобы сбросить пользователя в
+     *                        {@link org.example.infrostructure.repositoryies.cache.CachingUserRepository}
+     */
+    public OperationServicePostgresImpl(DataSource dataSource,
+                                        TransactionRepository transactionRepository,
+                                        AuditableRepository auditableRepository,
+                                        IdempotencyRegistry idempotencyRegistry,
+                                        LongConsumer balanceListener) {
+        this(dataSource, transactionRepository, auditableRepository, idempotencyRegistry, balanceListener,
+                VelocityLimiter.unlimited());
+    }
+
+    /**
+     * @param velocityLimiter ограничение частоты списаний и переводов
+     */
+    public OperationServicePostgresImpl(DataSource dataSource,
+                                        TransactionRepository transactionRepository,
+                                        AuditableRepository auditableRepository,
+                                        IdempotencyRegistry idempotencyRegistry,
+                                        LongConsumer balanceListener,
+                                        VelocityLimiter velocityLimiter) {
+        this.dataSource = dataSource;
+        this.transactionRepository = transactionRepository;
+        this.auditableRepository = auditableRepository;
+        this.idempotencyRegistry = idempotencyRegistry;
+        this.balanceListener = balanceListener;
+        this.velocityLimiter = velocityLimiter;
+    }
+
+    @Override
+    public TransacionReturns credit(User user, float amount) {
+        return execute(CREDIT_SQL, TransactionType.CREDIT, user, amount, null);
+    }
+
+    @Override
+    public TransacionReturns credit(User user, float amount, long operationId) {
+        return executeOnce(CREDIT_WITH_OPERATION_ID_SQL, TransactionType.CREDIT, user, amount, operationId);
+    }
+
+    @Override
+    public TransacionReturns debit(User user, float amount) {
+        return execute(DEBIT_SQL, TransactionType.DEBIT, user, amount, null);
+    }
+
+    @Override
+    public TransacionReturns debit(User user, float amount, long operationId) {
+        return executeOnce(DEBIT_WITH_OPERATION_ID_SQL, TransactionType.DEBIT, user, amount, operationId);
+    }
+
+    /**
+     * Перевод выполняется одним запросом {@link #TRANSFER_SQL}: строки обоих счетов блокируются
+     * SELECT ... FOR UPDATE в порядке id, как и в пакетах, поэтому встречные переводы не взаимоблокируются.
+     * Под блокировкой проверяется баланс отправителя, меняются оба баланса и записываются транзакции и аудит.
+     * Каждая транзакция перевода хранит id другой стороны в counterparty_id
+     *
+     * @throws IllegalStateException если запрос не удалось выполнить
+     */
+    @Override
+    public TransacionReturns transfer(User from, User to, float amount) {
+        if (from.getId() == to.getId()) {
+            throw new IllegalArgumentException("Cannot transfer to the same account.");
+        }
+        LocalDateTime dateTime = LocalDateTime.now();
+        boolean allowed = velocityLimiter.tryAcquire(from.getId(), amount);
+        boolean done = false;
+
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(TRANSFER_SQL)) {
+            statement.setLong(1, from.getId());
+            statement.setLong(2, to.getId());
+            statement.setLong(3, from.getId());
+            statement.setFloat(4, amount);
+            statement.setLong(5, from.getId());
+            statement.setFloat(6, amount);
+            statement.setBoolean(7, allowed);
+            statement.setLong(8, from.getId());
+            statement.setFloat(9, amount);
+            statement.setFloat(10, amount);
+            statement.setLong(11, from.getId());
+            statement.setLong(12, to.getId());
+            statement.setObject(13, dateTime);
+            statement.setFloat(14, amount);
+            statement.setLong(15, from.getId());
+            statement.setLong(16, to.getId());
+            statement.setLong(17, to.getId());
+            statement.setLong(18, from.getId());
+            statement.setObject(19, dateTime);
+            statement.setFloat(20, amount);
+            statement.setLong(21, from.getId());
+            statement.setLong(22, from.getId());
+            statement.setLong(23, to.getId());
+            statement.setLong(24, to.getId());
+
+            try (ResultSet resultSet = statement.executeQuery()) {
+                resultSet.next();
+                if (!resultSet.getBoolean("found")) {
+                    throw new IllegalArgumentException("User not found.");
+                }
+                from.setBalance(resultSet.getFloat("from_balance"));
+                to.setBalance(resultSet.getFloat("to_balance"));
+                if (!resultSet.getBoolean("enough")) {
+                    return resultSet.getBoolean("covered") ? TransacionReturns.LIMIT_EXCEEDED : TransacionReturns.NOT_ENOUGH_MONEY;
+                }
+                done = true;
+                balanceListener.accept(from.getId());
+                balanceListener.accept(to.getId());
+                return TransacionReturns.SUCCESS;
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+            throw new IllegalStateException("Transfer failed.", e);
+        } finally {
+            if (allowed && !done) {
+                velocityLimiter.release(from.getId(), amount);
+            }
+        }
+    }
+
+    /**
+     * Пакет выполняется в одной транзакции базы несколькими запросами, каждый из которых обрабатывает
+     * сразу все операции пакета через массивы и unnest: блокировка счетов (SELECT ... FOR UPDATE в порядке id,
+     * без взаимоблокировок с другими пакетами), резервирование id операций, обновление балансов,
+     * вставка транзакций, записей аудита и обновление итогов. Результаты операций вычисляются в приложении по заблокированным балансам,
+     * операции несуществующих пользователей получают {@link TransacionReturns#USER_NOT_FOUND}, их id операций не резервируются.
+     * Списание, которому хватает заблокированного баланса, проверяется лимитом; если пакет не выполнен, учет таких списаний отменяется
+     *
+     * @throws IllegalStateException если пакет не удалось выполнить, в этом случае изменения не сохраняются
+     */
+    @Override
+    public List<TransacionReturns> applyBatch(List<Operation> operations) {
+        int size = operations.size();
+        TransacionReturns[] results = new TransacionReturns[size];
+        List<Long> reserved = new ArrayList<>();
+        List<Operation> acquired = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            Long operationId = operations.get(i).getOperationId();
+            if (operationId == null) {
+                continue;
+            }
+            if (idempotencyRegistry.reserve(operationId)) {
+                reserved.add(operationId);
+            } else {
+                results[i] = TransacionReturns.UNUNIQUE_ID;
+            }
+        }
+
+        LocalDateTime dateTime = LocalDateTime.now();
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            try {
+                Set<Long> userIds = new TreeSet<>();
+                for (int i = 0; i < size; i++) {
+                    if (results[i] == null) {
+                        userIds.add(operations.get(i).getUserId());
+                    }
+                }
+                Map<Long, Double> balances = lockBalances(connection, userIds);
+                for (int i = 0; i < size; i++) {
+                    Operation operation = operations.get(i);
+                    if (results[i] == null && !balances.containsKey(operation.getUserId())) {
+                        results[i] = TransacionReturns.USER_NOT_FOUND;
+                        if (operation.getOperationId() != null) {
+                            reserved.remove(operation.getOperationId());
+                            idempotencyRegistry.release(operation.getOperationId());
+                        }
+                    }
+                }
+
+                Set<Long> fresh = insertOperationIds(connection, reserved, dateTime);
+                for (int i = 0; i < size; i++) {
+                    Long operationId = operations.get(i).getOperationId();
+                    if (results[i] == null && operationId != null && !fresh.contains(operationId)) {
+                        results[i] = TransacionReturns.UNUNIQUE_ID;
+                    }
+                }
+
+                List<Long> recordUserIds = new ArrayList<>();
+                List<String> recordTypes = new ArrayList<>();
+                List<String> recordStatuses = new ArrayList<>();
+                List<Float> recordAmounts = new ArrayList<>();
+                Set<Long> changed = new HashSet<>();
+                for (int i = 0; i < size; i++) {
+                    if (results[i] != null) {
+                        continue;
+                    }
+                    Operation operation = operations.get(i);
+                    long userId = operation.getUserId();
+                    double balance = balances.get(userId);
+                    AuditableStatus status = AuditableStatus.SUCCESS;
+                    if (operation.getType() == TransactionType.CREDIT) {
+                        balances.put(userId, balance + operation.getAmount());
+                        changed.add(userId);
+                        results[i] = TransacionReturns.SUCCESS;
+                    } else if (balance >= operation.getAmount() && velocityLimiter.tryAcquire(userId, operation.getAmount())) {
+                        balances.put(userId, balance - operation.getAmount());
+                        changed.add(userId);
+                        acquired.add(operation);
+                        results[i] = TransacionReturns.SUCCESS;
+                    } else {
+                        status = AuditableStatus.DECLINE;
+                        results[i] = balance >= operation.getAmount()
+                                ? TransacionReturns.LIMIT_EXCEEDED
+                                : TransacionReturns.NOT_ENOUGH_MONEY;
+                    }
+                    recordUserIds.add(userId);
+                    recordTypes.add(operation.getType().toString());
+                    recordStatuses.add(status.toString());
+                    recordAmounts.add(operation.getAmount());
+                }
+
+                updateBalances(connection, changed, balances);
+                insertRecords(connection, "Transaction", dateTime, recordUserIds, recordTypes, recordStatuses, recordAmounts);
+                insertRecords(connection, "Auditable", dateTime, recordUserIds, recordTypes, recordStatuses, recordAmounts);
+                updateSummaries(connection, dateTime, recordUserIds, recordTypes, recordStatuses, recordAmounts);
+                connection.commit();
+                changed.forEach(balanceListener::accept);
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+            reserved.forEach(idempotencyRegistry::release);
+            acquired.forEach(operation -> velocityLimiter.release(operation.getUserId(), operation.getAmount()));
+            throw new IllegalStateException("Batch failed.", e);
+        } catch (RuntimeException e) {
+            reserved.forEach(idempotencyRegistry::release);
+            acquired.forEach(operation -> velocityLimiter.release(operation.getUserId(), operation.getAmount()));
+            throw e;
+        }
+        return Arrays.asList(results);
+    }
+
+    private static Set<Long> insertOperationIds(Connection connection, List<Long> operationIds, LocalDateTime dateTime)
+            throws SQLException {
+        Set<Long> fresh = new HashSet<>();
+        if (operationIds.isEmpty()) {
+            return fresh;
+        }
+        String insertSql = "INSERT INTO entities.\"OperationId\" (id, created_at) " +
+                "SELECT id, ? FROM unnest(?::bigint[]) AS t(id) ON CONFLICT (id) DO NOTHING RETURNING id";
+        try (PreparedStatement statement = connection.prepareStatement(insertSql)) {
+            statement.setObject(1, dateTime);
+            statement.setArray(2, connection.createArrayOf("bigint", operationIds.toArray()));
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    fresh.add(resultSet.getLong(1));
+                }
+            }
+        }
+        return fresh;
+    }
+
+    private static Map<Long, Double> lockBalances(Connection connection, Set<Long> userIds) throws SQLException {
+        Map<Long, Double> balances = new HashMap<>();
+        if (userIds.isEmpty()) {
+            return balances;
+        }
+        String selectSql = "SELECT id, balance FROM entities.\"User\" WHERE id = ANY(?) ORDER BY id FOR UPDATE";
+        try (PreparedStatement statement = connection.prepareStatement(selectSql)) {
+            statement.setArray(1, connection.createArrayOf("bigint", userIds.toArray()));
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    balances.put(resultSet.getLong("id"), resultSet.getDouble("balance"));
+                }
+            }
+        }
+        return balances;
+    }
+
+    private static void updateBalances(Connection connection, Set<Long> userIds, Map<Long, Double> balances)
+            throws SQLException {
+        if (userIds.isEmpty()) {
+            return;
+        }
+        Long[] ids = userIds.toArray(new Long[0]);
+        Double[] values = new Double[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            values[i] = balances.get(ids[i]);
+        }
+        String updateSql = "UPDATE entities.\"User\" AS u SET balance = v.balance " +
+                "FROM unnest(?::bigint[], ?::float8[]) AS v(id, balance) WHERE u.id = v.id";
+        try (PreparedStatement statement = connection.prepareStatement(updateSql)) {
+            statement.setArray(1, connection.createArrayOf("bigint", ids));
+            statement.setArray(2, connection.createArrayOf("float8", values));
+            statement.executeUpdate();
+        }
+    }
+
+    private static void insertRecords(Connection connection,
+                                      String table,
+                                      LocalDateTime dateTime,
+                                      List<Long> userIds,
+                                      List<String> types,
+                                      List<String> statuses,
+                                      List<Float> amounts) throws SQLException {
+        if (userIds.isEmpty()) {
+            return;
+        }
+        String insertSql = "INSERT INTO entities.\"" + table + "\" (user_id, date_time, type, status, amount) " +
+                "SELECT user_id, ?, type, status, amount " +
+                "FROM unnest(?::bigint[], ?::varchar[], ?::varchar[], ?::float4[]) AS t(user_id, type, status, amount)";
+        try (PreparedStatement statement = connection.prepareStatement(insertSql)) {
+            statement.setObject(1, dateTime);
+            statement.setArray(2, connection.createArrayOf("bigint", userIds.toArray()));
+            statement.setArray(3, connection.createArrayOf("varchar", types.toArray()));
+            statement.setArray(4, connection.createArrayOf("varchar", statuses.toArray()));
+            statement.setArray(5, connection.createArrayOf("float4", amounts.toArray()));
+            statement.executeUpdate();
+        }
+    }
+
+    private static void updateSummaries(Connection connection,
+                                        LocalDateTime dateTime,
+                                        List<Long> userIds,
+                                        List<String> types,
+                                        List<String> statuses,
+                                        List<Float> amounts) throws SQLException {
+        if (userIds.isEmpty()) {
+            return;
+        }
+        String upsertSql = summarySql("(SELECT t.*, ?::timestamp AS date_time " +
+                "FROM unnest(?::bigint[], ?::varchar[], ?::varchar[], ?::float4[]) AS t(user_id, type, status, amount)) AS r");
+        try (PreparedStatement statement = connection.prepareStatement(upsertSql)) {
+            statement.setObject(1, dateTime);
+            statement.setArray(2, connection.createArrayOf("bigint", userIds.toArray()));
+            statement.setArray(3, connection.createArrayOf("varchar", types.toArray()));
+            statement.setArray(4, connection.createArrayOf("varchar", statuses.toArray()));
+            statement.setArray(5, connection.createArrayOf("float4", amounts.toArray()));
+            statement.executeUpdate();
+        }
+    }
+
+    @Override
+    public List<Transaction> history(User user) {
+        return transactionRepository.findAllByUserId(user.getId());
+    }
+
+    @Override
+    public List<Transaction> history(User user, LocalDateTime from, LocalDateTime to) {
+        return transactionRepository.findByUserIdBetween(user.getId(), from, to);
+    }
+
+    @Override
+    public Page<Transaction> history(User user, PageCursor after, int pageSize) {
+        return transactionRepository.findPageByUserId(user.getId(), after, pageSize);
+    }
+
+    @Override
+    public List<Auditable> audit(User user) {
+        return auditableRepository.findAllByUserId(user.getId());
+    }
+
+    @Override
+    public List<Auditable> audit(User user, LocalDateTime from, LocalDateTime to) {
+        return auditableRepository.findByUserIdBetween(user.getId(), from, to);
+    }
+
+    @Override
+    public Page<Auditable> audit(User user, PageCursor after, int pageSize) {
+        return auditableRepository.findPageByUserId(user.getId(), after, pageSize);
+    }
+
+    /**
+     * Итоги читаются одной строкой по первичному ключу (user_id, period, period_start)
+     *
+     * @throws IllegalStateException если запрос не удалось выполнить
+     */
+    @Override
+    public AccountSummary summary(User user, SummaryPeriod period, LocalDate date) {
+        LocalDate periodStart = AccountSummary.periodStart(period, date);
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(SUMMARY_SQL)) {
+            statement.setLong(1, user.getId());
+            statement.setString(2, period.toString());
+            statement.setObject(3, periodStart);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                if (!resultSet.next()) {
+                    return AccountSummary.empty(user.getId(), period, periodStart);
+                }
+                return new AccountSummary(user.getId(), period, periodStart,
+                        resultSet.getDouble("credited"),
+                        resultSet.getDouble("debited"),
+                        resultSet.getLong("credit_count"),
+                        resultSet.getLong("debit_count"),
+                        resultSet.getLong("declined_count"),
+                        resultSet.getObject("last_activity", LocalDateTime.class));
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+            throw new IllegalStateException("Summary failed.", e);
+        }
+    }
+
+    /**
+     * Недавние повторы id операции отклоняются {@link IdempotencyRegistry} без обращения к базе,
+     * остальные проверяются первичным ключом таблицы OperationId в том же запросе, что и сама операция
+     */
+    private TransacionReturns executeOnce(String sql, TransactionType type, User user, float amount, long operationId) {
+        if (!idempotencyRegistry.reserve(operationId)) {
+            return TransacionReturns.UNUNIQUE_ID;
+        }
+        try {
+            return execute(sql, type, user, amount, operationId);
+        } catch (RuntimeException e) {
+            idempotencyRegistry.release(operationId);
+            throw e;
+        }
+    }
+
+    /**
+     * Выполняет операцию одним запросом
+     *
+     * @param operationId id операции или null, если проверка повтора не нужна
+     * @throws IllegalArgumentException если пользователь не найден
+     * @throws IllegalStateException    если запрос не удалось выполнить
+     */
+    private TransacionReturns execute(String sql, TransactionType type, User user, float amount, Long operationId) {
+        LocalDateTime dateTime = LocalDateTime.now();
+        boolean allowed = type != TransactionType.DEBIT || velocityLimiter.tryAcquire(user.getId(), amount);
+        boolean done = false;
+
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(sql)) {
+            int index = 1;
+            statement.setLong(index++, user.getId());
+            if (operationId != null) {
+                statement.setLong(index++, operationId);
+                statement.setObject(index++, dateTime);
+            }
+            statement.setFloat(index++, amount);
+            if (type == TransactionType.DEBIT) {
+                statement.setFloat(index++, amount);
+                statement.setBoolean(index++, allowed);
+            }
+            statement.setObject(index++, dateTime);
+            statement.setString(index++, type.toString());
+            statement.setFloat(index++, amount);
+            statement.setObject(index++, dateTime);
+            statement.setString(index++, type.toString());
+            statement.setFloat(index, amount);
+
+            try (ResultSet resultSet = statement.executeQuery()) {
+                resultSet.next();
+                if (!resultSet.getBoolean("fresh")) {
+                    return TransacionReturns.UNUNIQUE_ID;
+                }
+                String status = resultSet.getString("status");
+                if (status == null) {
+                    throw new IllegalArgumentException("User not found.");
+                }
+                user.setBalance(resultSet.getFloat("balance"));
+                if (AuditableStatus.valueOf(status) != AuditableStatus.SUCCESS) {
+                    return !allowed && user.getBalance() >= amount
+                            ? TransacionReturns.LIMIT_EXCEEDED
+                            : TransacionReturns.NOT_ENOUGH_MONEY;
+                }
+                done = true;
+                balanceListener.accept(user.getId());
+                return TransacionReturns.SUCCESS;
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+            throw new IllegalStateException("Operation failed.", e);
+        } finally {
+            if (type == TransactionType.DEBIT && allowed && !done) {
+                velocityLimiter.release(user.getId(), amount);
+            }
+        }
+    }
+
+    /**
+     * Строит запрос, добавляющий записи к итогам их дня и месяца в AccountSummary.
+     * Записи группируются по строке итогов, поэтому каждая строка обновляется один раз,
+     * а строки обновляются в порядке (user_id, period), что исключает взаимоблокировки между запросами
+     *
+     * @param records источник записей с колонками user_id, date_time, type, status, amount и псевдонимом r
+     */
+    private static String summarySql(String records) {
+        return "INSERT INTO entities.\"AccountSummary\" AS s " +
+                "(user_id, period, period_start, credited, debited, credit_count, debit_count, declined_count, last_activity) " +
+                "SELECT r.user_id, p.period, date_trunc(p.unit, r.date_time)::date, " +
+                "COALESCE(sum(r.amount) FILTER (WHERE r.status = 'SUCCESS' AND r.type = 'CREDIT'), 0), " +
+                "COALESCE(sum(r.amount) FILTER (WHERE r.status = 'SUCCESS' AND r.type = 'DEBIT'), 0), " +
+                "count(*) FILTER (WHERE r.status = 'SUCCESS' AND r.type = 'CREDIT'), " +
+                "count(*) FILTER (WHERE r.status = 'SUCCESS' AND r.type = 'DEBIT'), " +
+                "count(*) FILTER (WHERE r.status <> 'SUCCESS'), " +
+                "max(r.date_time) " +
+                "FROM " + records + " CROSS JOIN (VALUES ('DAY', 'day'), ('MONTH', 'month')) AS p(period, unit) " +
+                "GROUP BY 1, 2, 3 ORDER BY 1, 2 " +
+                "ON CONFLICT (user_id, period, period_start) DO UPDATE SET " +
+                "credited = s.credited + EXCLUDED.credited, " +
+                "debited = s.debited + EXCLUDED.debited, " +
+                "credit_count = s.credit_count + EXCLUDED.credit_count, " +
+                "debit_count = s.debit_count + EXCLUDED.debit_count, " +
+                "declined_count = s.declined_count + EXCLUDED.declined_count, " +
+                "last_activity = GREATEST(s.last_activity, EXCLUDED.last_activity)";
+    }
+
+    /**
+     * Строит запрос операции. Все части CTE выполняются в одном снимке и одной транзакции,
+     * UPDATE при конкурентном изменении строки перепроверяет условие на ее новой версии.
+     * Id операции вставляется только для найденного счета, поэтому операция несуществующего пользователя
+     * не расходует id. Запрос всегда возвращает одну строку: fresh - id операции новый или пользователь
+     * не найден, status - статус транзакции (null, если пользователь не найден или id повторный),
+     * balance - баланс после операции
+     */
+    private static String operationSql(boolean debit, boolean withOperationId) {
+        String operation = withOperationId
+                ? "INSERT INTO entities.\"OperationId\" (id, created_at) SELECT ?, ? FROM account " +
+                "ON CONFLICT (id) DO NOTHING RETURNING id"
+                : "SELECT id FROM account";
+        return "WITH account AS (" +
+                "SELECT id, balance FROM entities.\"User\" WHERE id = ?" +
+                "), operation AS (" + operation +
+                "), updated AS (" +
+                "UPDATE entities.\"User\" SET balance = balance " + (debit ? "-" : "+") + " ? " +
+                "WHERE id = (SELECT id FROM account) AND EXISTS (SELECT 1 FROM operation)" + (debit ? " AND balance >= ? AND ?" : "") + " RETURNING balance" +
+                "), inserted AS (" +
+                "INSERT INTO entities.\"Transaction\" (user_id, date_time, type, status, amount) " +
+                "SELECT id, ?, ?, CASE WHEN EXISTS (SELECT 1 FROM updated) THEN 'SUCCESS' ELSE 'DECLINE' END, ? FROM account " +
+                "WHERE EXISTS (SELECT 1 FROM operation) " +
+                "RETURNING user_id, date_time, type, status, amount" +
+                "), audited AS (" +
+                "INSERT INTO entities.\"Auditable\" (user_id, date_time, status, type, amount) " +
+                "SELECT user_id, ?, status, ?, ? FROM inserted" +
+                "), summarized AS (" + summarySql("inserted AS r") +
+                ") " +
+                "SELECT EXISTS (SELECT 1 FROM operation) OR NOT EXISTS (SELECT 1 FROM account) AS fresh, " +
+                "(SELECT status FROM inserted) AS status, " +
+                "COALESCE((SELECT balance FROM updated), (SELECT balance FROM account)) AS balance";
+    }
+}
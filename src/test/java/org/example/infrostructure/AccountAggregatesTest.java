@@ -0,0 +1,42 @@
+package org.example.infrostructure;
+
+import org.example.core.models.AccountSummary;
+import org.example.core.models.enums.AuditableStatus;
+import org.example.core.models.enums.SummaryPeriod;
+import org.example.core.models.enums.TransactionType;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AccountAggregatesTest {
+
+    @Test
+    void testOldPeriodsAreDropped() {
+        AccountAggregates aggregates = new AccountAggregates(3, 2);
+        LocalDateTime start = LocalDateTime.of(2024, 1, 30, 12, 0);
+        for (int day = 0; day < 5; day++) {
+            aggregates.record(1, start.plusDays(day), TransactionType.CREDIT, AuditableStatus.SUCCESS, 10);
+        }
+
+        // хранятся 1-3 февраля и январь с февралем
+        assertThat(aggregates.summary(1, SummaryPeriod.DAY, LocalDate.of(2024, 1, 31)))
+                .isEqualTo(AccountSummary.empty(1, SummaryPeriod.DAY, LocalDate.of(2024, 1, 31)));
+        assertThat(aggregates.summary(1, SummaryPeriod.DAY, LocalDate.of(2024, 2, 1)).getCreditCount()).isEqualTo(1);
+        assertThat(aggregates.summary(1, SummaryPeriod.MONTH, LocalDate.of(2024, 1, 1)).getCreditCount()).isEqualTo(2);
+        assertThat(aggregates.summary(1, SummaryPeriod.MONTH, LocalDate.of(2024, 2, 10)).getCredited()).isEqualTo(30);
+
+        // операция задним числом учитывается, только если ее период еще хранится
+        aggregates.record(1, start.plusDays(2), TransactionType.DEBIT, AuditableStatus.SUCCESS, 5);
+        aggregates.record(1, start, TransactionType.DEBIT, AuditableStatus.SUCCESS, 5);
+        assertThat(aggregates.summary(1, SummaryPeriod.DAY, LocalDate.of(2024, 2, 1)).getDebitCount()).isEqualTo(1);
+        assertThat(aggregates.summary(1, SummaryPeriod.DAY, LocalDate.of(2024, 1, 30)).getDebitCount()).isZero();
+        assertThat(aggregates.summary(1, SummaryPeriod.MONTH, LocalDate.of(2024, 1, 1)).getDebitCount()).isEqualTo(1);
+
+        // операция из месяца старше хранимых не учитывается
+        aggregates.record(1, start.minusMonths(2), TransactionType.CREDIT, AuditableStatus.SUCCESS, 10);
+        assertThat(aggregates.summary(1, SummaryPeriod.MONTH, LocalDate.of(2023, 11, 1)).getCreditCount()).isZero();
+    }
+}
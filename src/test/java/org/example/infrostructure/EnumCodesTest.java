@@ -0,0 +1,46 @@
+package org.example.infrostructure;
+
+import org.example.core.models.enums.ActionType;
+import org.example.core.models.enums.AuditableStatus;
+import org.example.core.models.enums.Recurrence;
+import org.example.core.models.enums.TransactionType;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class EnumCodesTest {
+
+    @Test
+    void everyConstantRoundTrips() {
+        for (TransactionType type : TransactionType.values()) {
+            assertThat(EnumCodes.transactionType(EnumCodes.code(type))).isEqualTo(type);
+        }
+        for (AuditableStatus status : AuditableStatus.values()) {
+            assertThat(EnumCodes.auditableStatus(EnumCodes.code(status))).isEqualTo(status);
+        }
+        for (ActionType type : ActionType.values()) {
+            assertThat(EnumCodes.actionType(EnumCodes.code(type))).isEqualTo(type);
+        }
+        for (Recurrence recurrence : Recurrence.values()) {
+            assertThat(EnumCodes.recurrence(EnumCodes.code(recurrence))).isEqualTo(recurrence);
+        }
+        assertThat(EnumCodes.code((TransactionType) null)).isEqualTo(EnumCodes.NONE);
+        assertThat(EnumCodes.transactionType(EnumCodes.NONE)).isNull();
+    }
+
+    @Test
+    void codesAreFixed() {
+        // коды уже записаны в файлы хранилищ и не должны меняться
+        assertThat(EnumCodes.code(TransactionType.DEBIT)).isEqualTo((byte) 1);
+        assertThat(EnumCodes.code(AuditableStatus.DECLINE)).isEqualTo((byte) 1);
+        assertThat(EnumCodes.code(ActionType.LOGOUT)).isEqualTo((byte) 2);
+        assertThat(EnumCodes.code(Recurrence.MONTHLY)).isEqualTo((byte) 3);
+    }
+
+    @Test
+    void unknownCodeIsRejected() {
+        assertThatThrownBy(() -> EnumCodes.actionType((byte) 3)).isInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(() -> EnumCodes.auditableStatus((byte) -2)).isInstanceOf(IllegalStateException.class);
+    }
+}
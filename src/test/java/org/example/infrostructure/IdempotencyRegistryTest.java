@@ -0,0 +1,79 @@
+package org.example.infrostructure;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class IdempotencyRegistryTest {
+
+    /**
+     * Часы, время которых переводится вручную
+     */
+    private static class ManualClock extends Clock {
+        private long millis;
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(millis);
+        }
+    }
+
+    @Test
+    void testReserveRejectsDuplicate() {
+        IdempotencyRegistry registry = new IdempotencyRegistry();
+
+        assertThat(registry.reserve(1)).isTrue();
+        assertThat(registry.reserve(1)).isFalse();
+        assertThat(registry.reserve(2)).isTrue();
+    }
+
+    @Test
+    void testReserveAfterTtl() {
+        ManualClock clock = new ManualClock();
+        IdempotencyRegistry registry = new IdempotencyRegistry(10, Duration.ofSeconds(60), clock);
+
+        assertThat(registry.reserve(1)).isTrue();
+        clock.millis += 59_000;
+        assertThat(registry.reserve(1)).isFalse();
+        clock.millis += 1_000;
+        assertThat(registry.reserve(1)).isTrue();
+    }
+
+    @Test
+    void testSizeIsBounded() {
+        IdempotencyRegistry registry = new IdempotencyRegistry(3, Duration.ofHours(1), new ManualClock());
+
+        for (long id = 1; id <= 5; id++) {
+            assertThat(registry.reserve(id)).isTrue();
+        }
+
+        assertThat(registry.size()).isEqualTo(3);
+        assertThat(registry.reserve(5)).isFalse();
+        assertThat(registry.reserve(1)).isTrue();
+    }
+
+    @Test
+    void testRelease() {
+        IdempotencyRegistry registry = new IdempotencyRegistry();
+
+        assertThat(registry.reserve(1)).isTrue();
+        registry.release(1);
+        assertThat(registry.reserve(1)).isTrue();
+    }
+}
@@ -1,27 +1,121 @@
 package org.example.infrostructure;
 
 import org.example.core.models.User;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 public class SessionContextTest {
 
+    /**
+     * Часы, время которых переводится вручную
+     */
+    private static class ManualClock extends Clock {
+        private long millis;
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(millis);
+        }
+    }
+
+    private final ManualClock clock = new ManualClock();
+    private final SessionContext sessionContext =
+            new SessionContext(Duration.ofSeconds(10), 1_000, 8, clock);
+
+    @AfterEach
+    void tearDown() {
+        sessionContext.close();
+    }
+
     @Test
-    void testSetAndGetLoggedInUser() {
-        User user = new User("username", "password", "f1", "l1", 100);
-        SessionContext.setLoggedInUser(user);
+    void testOpenAndGetUser() {
+        User first = new User("first", "password", "f1", "l1", 100);
+        User second = new User("second", "password", "f2", "l2", 100);
+
+        String firstToken = sessionContext.open(first);
+        String secondToken = sessionContext.open(second);
 
-        User loggedInUser = SessionContext.getLoggedInUser();
-        assertThat(loggedInUser).isEqualTo(user);
+        assertThat(firstToken).isNotEqualTo(secondToken);
+        assertThat(sessionContext.getUser(firstToken)).isEqualTo(first);
+        assertThat(sessionContext.getUser(secondToken)).isEqualTo(second);
+        assertThat(sessionContext.getUser("unknown")).isNull();
+        assertThat(sessionContext.getMetrics().getLive()).isEqualTo(2);
     }
 
     @Test
-    void testClearLoggedInUser() {
+    void testCloseSession() {
         User user = new User("username", "password", "f1", "l1", 100);
-        SessionContext.setLoggedInUser(user);
+        String token = sessionContext.open(user);
+
+        assertThat(sessionContext.close(token)).isEqualTo(user);
+
+        assertThat(sessionContext.getUser(token)).isNull();
+        assertThat(sessionContext.close(token)).isNull();
+        assertThat(sessionContext.getMetrics()).isEqualTo(new SessionMetrics(0, 1, 1, 0));
+    }
+
+    @Test
+    void testIdleSessionExpires() {
+        String idle = sessionContext.open(new User("idle", "password", "f1", "l1", 100));
+        String active = sessionContext.open(new User("active", "password", "f2", "l2", 100));
+
+        // активная сессия продлевается обращениями, в том числе дольше оборота колеса (8 тиков)
+        for (int i = 0; i < 6; i++) {
+            clock.millis += 5_000;
+            assertThat(sessionContext.getUser(active)).isNotNull();
+            sessionContext.advance();
+        }
+
+        assertThat(sessionContext.getUser(idle)).isNull();
+        assertThat(sessionContext.getUser(active)).isNotNull();
+        assertThat(sessionContext.getMetrics()).isEqualTo(new SessionMetrics(1, 2, 0, 1));
+
+        clock.millis += 10_000;
+        sessionContext.advance();
+
+        assertThat(sessionContext.getUser(active)).isNull();
+        assertThat(sessionContext.getMetrics()).isEqualTo(new SessionMetrics(0, 2, 0, 2));
+    }
+
+    @Test
+    void testClosedContextCannotStart() {
+        sessionContext.close();
+
+        assertThatThrownBy(sessionContext::start).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void testManySessionsExpire() {
+        for (int i = 0; i < 10_000; i++) {
+            sessionContext.open(new User("user" + i, "password", "f1", "l1", 100));
+            if (i % 1_000 == 0) {
+                clock.millis += 1_000;
+                sessionContext.advance();
+            }
+        }
+
+        clock.millis += 10_000;
+        sessionContext.advance();
 
-        SessionContext.clearLoggedInUser();
-        User loggedInUser = SessionContext.getLoggedInUser();
-        assertThat(loggedInUser).isNull();
+        assertThat(sessionContext.getMetrics()).isEqualTo(new SessionMetrics(0, 10_000, 0, 10_000));
     }
 }
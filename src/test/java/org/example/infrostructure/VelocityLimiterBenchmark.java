@@ -0,0 +1,70 @@
+package org.example.infrostructure;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Замер проверки лимита списаний на миллионах счетов.
+ * Запускается вручную методом main, в тестах maven не участвует
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+public class VelocityLimiterBenchmark {
+
+    @Param({"1000000", "4000000"})
+    private int accounts;
+
+    private VelocityLimiter limiter;
+    private long[] userIds;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        limiter = new VelocityLimiter(Integer.MAX_VALUE, Double.MAX_VALUE, Duration.ofMinutes(1),
+                VelocityLimiter.DEFAULT_BUCKETS, accounts, Clock.systemUTC());
+        // счета обходятся в случайном порядке, чтобы замер не сводился к попаданиям в кэш процессора
+        userIds = new long[1 << 20];
+        Random random = new Random(1);
+        for (int i = 0; i < userIds.length; i++) {
+            userIds[i] = random.nextInt(accounts);
+        }
+        for (long userId = 0; userId < accounts; userId++) {
+            limiter.tryAcquire(userId, 1);
+        }
+    }
+
+    @Benchmark
+    public boolean tryAcquire() {
+        next = (next + 1) & (userIds.length - 1);
+        return limiter.tryAcquire(userIds[next], 1);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(VelocityLimiterBenchmark.class.getSimpleName())
+                .addProfiler("gc")
+                .build()).run();
+    }
+}
@@ -0,0 +1,132 @@
+package org.example.infrostructure;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class VelocityLimiterTest {
+
+    /**
+     * Часы, время которых переводится вручную
+     */
+    private static class ManualClock extends Clock {
+        private long millis;
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public long millis() {
+            return millis;
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(millis);
+        }
+    }
+
+    private final ManualClock clock = new ManualClock();
+
+    @Test
+    void testOperationsLimitSlidesWithWindow() {
+        // окно 60 секунд из 6 ячеек по 10 секунд
+        VelocityLimiter limiter = new VelocityLimiter(3, 1_000, Duration.ofSeconds(60), 6, 16, clock);
+
+        assertThat(limiter.tryAcquire(1, 10)).isTrue();
+        clock.millis = 15_000;
+        assertThat(limiter.tryAcquire(1, 10)).isTrue();
+        assertThat(limiter.tryAcquire(1, 10)).isTrue();
+        assertThat(limiter.tryAcquire(1, 10)).isFalse();
+        assertThat(limiter.tryAcquire(2, 10)).isTrue();
+
+        // первая ячейка вышла из окна, вторая еще в нем
+        clock.millis = 60_000;
+        assertThat(limiter.tryAcquire(1, 10)).isTrue();
+        assertThat(limiter.tryAcquire(1, 10)).isFalse();
+
+        // окно целиком устарело
+        clock.millis = 200_000;
+        assertThat(limiter.tryAcquire(1, 10)).isTrue();
+        assertThat(limiter.tryAcquire(1, 10)).isTrue();
+        assertThat(limiter.tryAcquire(1, 10)).isTrue();
+        assertThat(limiter.tryAcquire(1, 10)).isFalse();
+    }
+
+    @Test
+    void testAmountLimitCountsOnlyAcceptedDebits() {
+        VelocityLimiter limiter = new VelocityLimiter(100, 500, Duration.ofSeconds(60), 6, 16, clock);
+
+        assertThat(limiter.tryAcquire(1, 300)).isTrue();
+        assertThat(limiter.tryAcquire(1, 300)).isFalse();
+        assertThat(limiter.tryAcquire(1, 200)).isTrue();
+        assertThat(limiter.tryAcquire(1, 1)).isFalse();
+
+        clock.millis = 60_000;
+        assertThat(limiter.tryAcquire(1, 500)).isTrue();
+    }
+
+    @Test
+    void testReleaseReturnsDebitToWindow() {
+        VelocityLimiter limiter = new VelocityLimiter(2, 500, Duration.ofSeconds(60), 6, 16, clock);
+
+        assertThat(limiter.tryAcquire(1, 300)).isTrue();
+        assertThat(limiter.tryAcquire(1, 300)).isFalse();
+        limiter.release(1, 300);
+        assertThat(limiter.tryAcquire(1, 300)).isTrue();
+        assertThat(limiter.tryAcquire(1, 100)).isTrue();
+        assertThat(limiter.tryAcquire(1, 1)).isFalse();
+        limiter.release(2, 1);
+    }
+
+    @Test
+    void testClockGoingBackwardsKeepsWindow() {
+        VelocityLimiter limiter = new VelocityLimiter(2, 1_000, Duration.ofSeconds(60), 6, 16, clock);
+        clock.millis = 50_000;
+        assertThat(limiter.tryAcquire(1, 10)).isTrue();
+
+        clock.millis = 0;
+        assertThat(limiter.tryAcquire(1, 10)).isTrue();
+        assertThat(limiter.tryAcquire(1, 10)).isFalse();
+    }
+
+    @Test
+    void testTableGrowsPastExpectedAccounts() {
+        VelocityLimiter limiter = new VelocityLimiter(1, 1_000, Duration.ofSeconds(60), 6, 16, clock);
+        for (long userId = 0; userId < 100_000; userId++) {
+            assertThat(limiter.tryAcquire(userId, 1)).isTrue();
+        }
+        for (long userId = 0; userId < 100_000; userId++) {
+            assertThat(limiter.tryAcquire(userId, 1)).isFalse();
+        }
+        assertThat(limiter.getTrackedAccounts()).isEqualTo(100_000);
+    }
+
+    @Test
+    void testUnlimitedAndInvalidSettings() {
+        VelocityLimiter unlimited = VelocityLimiter.unlimited();
+        for (int i = 0; i < 1_000; i++) {
+            assertThat(unlimited.tryAcquire(1, Float.MAX_VALUE)).isTrue();
+        }
+        assertThat(unlimited.getTrackedAccounts()).isZero();
+
+        assertThatThrownBy(() -> new VelocityLimiter(0, 100, Duration.ofSeconds(1)))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new VelocityLimiter(1, 100, Duration.ofMillis(3), 6, 16, clock))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,126 @@
+package org.example.infrostructure.analytics;
+
+import org.example.core.models.Transaction;
+import org.example.core.models.enums.AuditableStatus;
+import org.example.core.models.enums.TransactionType;
+import org.example.core.repositories.TransactionRepository;
+import org.example.infrostructure.repositoryies.collections.TransactionRepositoryColumnarImpl;
+import org.example.infrostructure.repositoryies.collections.TransactionRepositoryImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class ParallelAnalyticsEngineTest {
+    private static final LocalDateTime START = LocalDateTime.of(2023, 10, 1, 0, 0);
+
+    private final List<Transaction> transactions = new ArrayList<>();
+    private final TransactionRepositoryColumnarImpl columnarRepository = new TransactionRepositoryColumnarImpl();
+    private final TransactionRepositoryImpl listRepository = new TransactionRepositoryImpl();
+
+    @BeforeEach
+    void setUp() {
+        Random random = new Random(42);
+        for (int i = 0; i < 50_000; i++) {
+            Transaction transaction = new Transaction(random.nextInt(500) + 1,
+                    START.plusMinutes(random.nextInt(60 * 24 * 20)),
+                    random.nextBoolean() ? TransactionType.CREDIT : TransactionType.DEBIT,
+                    random.nextInt(10) == 0 ? AuditableStatus.DECLINE : AuditableStatus.SUCCESS,
+                    random.nextInt(10_000) / 100f);
+            transactions.add(transaction);
+            columnarRepository.addTransaction(transaction);
+            listRepository.addTransaction(transaction);
+        }
+    }
+
+    private AnalyticsEngine engine(TransactionRepository transactionRepository) {
+        return new ParallelAnalyticsEngine(transactionRepository, ForkJoinPool.commonPool(), 1_000);
+    }
+
+    @Test
+    void testTopAccountsByVolume() {
+        Map<Long, Double> volumes = transactions.stream()
+                .filter(transaction -> transaction.getStatus() == AuditableStatus.SUCCESS)
+                .collect(Collectors.groupingBy(Transaction::getUserId,
+                        Collectors.summingDouble(Transaction::getAmount)));
+        List<Long> expected = volumes.entrySet().stream()
+                .sorted(Map.Entry.<Long, Double>comparingByValue().reversed()
+                        .thenComparing(Map.Entry.comparingByKey()))
+                .limit(10)
+                .map(Map.Entry::getKey)
+                .toList();
+
+        for (TransactionRepository repository : List.of(columnarRepository, listRepository)) {
+            List<AccountVolume> top = engine(repository).run(new TopAccountsByVolumeReport(10));
+
+            assertThat(top).extracting(AccountVolume::getUserId).containsExactlyElementsOf(expected);
+            assertThat(top.get(0).getVolume()).isCloseTo(volumes.get(expected.get(0)), within(0.001));
+            assertThat(top).isSortedAccordingTo(Comparator.comparingDouble(AccountVolume::getVolume).reversed());
+        }
+    }
+
+    @Test
+    void testDeclineRateByHour() {
+        long[] total = new long[24];
+        long[] declined = new long[24];
+        for (Transaction transaction : transactions) {
+            int hour = transaction.getDateTime().getHour();
+            total[hour]++;
+            if (transaction.getStatus() == AuditableStatus.DECLINE) {
+                declined[hour]++;
+            }
+        }
+
+        for (TransactionRepository repository : List.of(columnarRepository, listRepository)) {
+            List<HourlyDeclineRate> rates = engine(repository).run(new DeclineRateByHourReport());
+
+            assertThat(rates).hasSize(24);
+            for (HourlyDeclineRate rate : rates) {
+                assertThat(rate.getTotal()).isEqualTo(total[rate.getHour()]);
+                assertThat(rate.getDeclined()).isEqualTo(declined[rate.getHour()]);
+            }
+        }
+    }
+
+    @Test
+    void testDailyTurnover() {
+        LocalDate from = START.toLocalDate().plusDays(3);
+        LocalDate to = from.plusDays(6);
+        Map<LocalDate, Double> expected = new TreeMap<>();
+        for (Transaction transaction : transactions) {
+            LocalDate date = transaction.getDateTime().toLocalDate();
+            if (transaction.getStatus() == AuditableStatus.SUCCESS && !date.isBefore(from) && !date.isAfter(to)) {
+                expected.merge(date, (double) transaction.getAmount(), Double::sum);
+            }
+        }
+
+        for (TransactionRepository repository : List.of(columnarRepository, listRepository)) {
+            List<DailyTurnover> turnover = engine(repository).run(new DailyTurnoverReport(from, to));
+
+            assertThat(turnover).extracting(DailyTurnover::getDate).containsExactlyElementsOf(expected.keySet());
+            for (DailyTurnover day : turnover) {
+                assertThat(day.getTurnover()).isCloseTo(expected.get(day.getDate()), within(0.001));
+            }
+        }
+    }
+
+    @Test
+    void testEmptyLedger() {
+        AnalyticsEngine engine = engine(new TransactionRepositoryColumnarImpl());
+
+        assertThat(engine.run(new TopAccountsByVolumeReport(5))).isEmpty();
+        assertThat(engine.run(new DeclineRateByHourReport())).allMatch(rate -> rate.getTotal() == 0);
+    }
+}
@@ -0,0 +1,116 @@
+package org.example.infrostructure.analytics;
+
+import liquibase.Liquibase;
+import liquibase.database.Database;
+import liquibase.database.DatabaseFactory;
+import liquibase.database.jvm.JdbcConnection;
+import liquibase.exception.LiquibaseException;
+import liquibase.resource.ClassLoaderResourceAccessor;
+import org.example.core.models.Transaction;
+import org.example.core.models.enums.AuditableStatus;
+import org.example.core.models.enums.TransactionType;
+import org.example.infrostructure.jdbc.ConnectionPool;
+import org.example.infrostructure.jdbc.ConnectionPoolSettings;
+import org.example.infrostructure.repositoryies.postgres.TransactionRepositoryPostgresImpl;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.containers.wait.strategy.Wait;
+import org.testcontainers.utility.DockerImageName;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PostgresAnalyticsEngineTest {
+
+    @ClassRule
+    public static PostgreSQLContainer<?> postgresContainer = new PostgreSQLContainer<>(DockerImageName.parse("postgres:latest"))
+            .withDatabaseName("test")
+            .withUsername("test")
+            .withPassword("test")
+            .waitingFor(Wait.forListeningPort());
+
+    private static final LocalDateTime START = LocalDateTime.of(2023, 10, 1, 0, 0);
+
+    private ConnectionPool connectionPool;
+    private PostgresAnalyticsEngine pushdownEngine;
+    private ParallelAnalyticsEngine streamingEngine;
+
+    @Before
+    public void setUp() throws SQLException, LiquibaseException {
+        try (Connection connection = DriverManager.getConnection(
+                postgresContainer.getJdbcUrl(),
+                postgresContainer.getUsername(),
+                postgresContainer.getPassword()
+        )) {
+            Database database = DatabaseFactory.getInstance().findCorrectDatabaseImplementation(new JdbcConnection(connection));
+            Liquibase liquibase = new Liquibase("db/changelog/changelog.xml", new ClassLoaderResourceAccessor(), database);
+            liquibase.update();
+            connection.createStatement().execute("TRUNCATE entities.\"Transaction\"");
+        }
+
+        connectionPool = new ConnectionPool(new ConnectionPoolSettings(
+                postgresContainer.getJdbcUrl(),
+                postgresContainer.getUsername(),
+                postgresContainer.getPassword(),
+                1, 4, 30_000, 2, 500, 0
+        ));
+        TransactionRepositoryPostgresImpl transactionRepository = new TransactionRepositoryPostgresImpl(connectionPool);
+        Random random = new Random(7);
+        for (int i = 0; i < 500; i++) {
+            transactionRepository.addTransaction(new Transaction(random.nextInt(20) + 1,
+                    START.plusMinutes(random.nextInt(60 * 24 * 5)),
+                    random.nextBoolean() ? TransactionType.CREDIT : TransactionType.DEBIT,
+                    random.nextInt(5) == 0 ? AuditableStatus.DECLINE : AuditableStatus.SUCCESS,
+                    random.nextInt(10_000) / 100f));
+        }
+        pushdownEngine = new PostgresAnalyticsEngine(connectionPool, transactionRepository);
+        streamingEngine = new ParallelAnalyticsEngine(transactionRepository);
+    }
+
+    @After
+    public void tearDown() {
+        connectionPool.close();
+    }
+
+    @Test
+    public void testTopAccountsByVolumeMatchesStreaming() {
+        List<AccountVolume> pushed = pushdownEngine.run(new TopAccountsByVolumeReport(5));
+        List<AccountVolume> streamed = streamingEngine.run(new TopAccountsByVolumeReport(5));
+
+        assertThat(pushed).hasSize(5);
+        assertThat(pushed).extracting(AccountVolume::getUserId)
+                .containsExactlyElementsOf(streamed.stream().map(AccountVolume::getUserId).toList());
+        assertThat(pushed).extracting(AccountVolume::getOperations)
+                .containsExactlyElementsOf(streamed.stream().map(AccountVolume::getOperations).toList());
+    }
+
+    @Test
+    public void testDeclineRateByHourMatchesStreaming() {
+        assertThat(pushdownEngine.run(new DeclineRateByHourReport()))
+                .isEqualTo(streamingEngine.run(new DeclineRateByHourReport()));
+    }
+
+    @Test
+    public void testDailyTurnoverMatchesStreaming() {
+        DailyTurnoverReport report = new DailyTurnoverReport(LocalDate.of(2023, 10, 2), LocalDate.of(2023, 10, 4));
+
+        List<DailyTurnover> pushed = pushdownEngine.run(report);
+        List<DailyTurnover> streamed = streamingEngine.run(report);
+
+        assertThat(pushed).hasSize(3);
+        assertThat(pushed).extracting(DailyTurnover::getDate)
+                .containsExactlyElementsOf(streamed.stream().map(DailyTurnover::getDate).toList());
+        assertThat(pushed).extracting(DailyTurnover::getOperations)
+                .containsExactlyElementsOf(streamed.stream().map(DailyTurnover::getOperations).toList());
+    }
+}
@@ -0,0 +1,106 @@
+package org.example.infrostructure.in.binary;
+
+import org.example.core.models.User;
+import org.example.infrostructure.SessionContext;
+import org.example.infrostructure.repositoryies.collections.AuditableReppositoryImpl;
+import org.example.infrostructure.repositoryies.collections.TransactionRepositoryImpl;
+import org.example.infrostructure.repositoryies.collections.UserRepositoryImpl;
+import org.example.infrostructure.services.AuthorisationService;
+import org.example.infrostructure.services.OperationServiceImpl;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Замер двоичного протокола через loopback: каждый клиент в своем потоке входит под своим пользователем
+ * и выполняет пополнения, держа в полете benchmark.pipeline запросов. Задержка запроса считается
+ * от отправки пачки до получения его ответа. Выводятся операции в секунду и перцентили задержки.
+ * <p>
+ * Запуск: {@code java -cp ... org.example.infrostructure.in.binary.BinaryProtocolBenchmark}
+ */
+public class BinaryProtocolBenchmark {
+    private static final int CLIENTS = Integer.getInteger("benchmark.clients", 8);
+    private static final int REQUESTS_PER_CLIENT = Integer.getInteger("benchmark.requests", 100_000);
+    private static final int PIPELINE = Integer.getInteger("benchmark.pipeline", 64);
+    private static final int WARMUP_REQUESTS = Integer.getInteger("benchmark.warmup", 20_000);
+
+    public static void main(String[] args) throws Exception {
+        UserRepositoryImpl userRepository = new UserRepositoryImpl();
+        AuditableReppositoryImpl auditableRepository = new AuditableReppositoryImpl();
+        SessionContext sessionContext = new SessionContext();
+        AuthorisationService authorisationService =
+                new AuthorisationService(userRepository, auditableRepository, sessionContext);
+        for (int i = 0; i < CLIENTS; i++) {
+            authorisationService.registration(new User("client" + i, "password", "Ivan", "Ivanov", 0));
+        }
+
+        try (BinaryServer server = new BinaryServer(new InetSocketAddress("localhost", 0), authorisationService,
+                new OperationServiceImpl(userRepository, new TransactionRepositoryImpl(), auditableRepository),
+                sessionContext)) {
+            server.start();
+            InetSocketAddress address = new InetSocketAddress("localhost", server.getPort());
+            run(address, WARMUP_REQUESTS, false);
+            run(address, REQUESTS_PER_CLIENT, true);
+        }
+        sessionContext.close();
+    }
+
+    private static void run(InetSocketAddress address, int requests, boolean report) throws Exception {
+        long[][] latencies = new long[CLIENTS][requests];
+        CountDownLatch ready = new CountDownLatch(CLIENTS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>(CLIENTS);
+        for (int c = 0; c < CLIENTS; c++) {
+            int client = c;
+            Thread thread = new Thread(() -> {
+                try (BinaryClient binaryClient = new BinaryClient(address)) {
+                    binaryClient.login("client" + client, "password");
+                    ready.countDown();
+                    start.await();
+                    long[] clientLatencies = latencies[client];
+                    for (int done = 0; done < requests; ) {
+                        int batch = Math.min(PIPELINE, requests - done);
+                        long sentAt = System.nanoTime();
+                        for (int i = 0; i < batch; i++) {
+                            binaryClient.sendCredit(1);
+                        }
+                        binaryClient.flush();
+                        for (int i = 0; i < batch; i++) {
+                            binaryClient.receiveOperation();
+                            clientLatencies[done++] = System.nanoTime() - sentAt;
+                        }
+                    }
+                } catch (IOException | InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        ready.await();
+        long startedAt = System.nanoTime();
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        long elapsedNanos = System.nanoTime() - startedAt;
+        if (!report) {
+            return;
+        }
+
+        long[] all = Arrays.stream(latencies).flatMapToLong(Arrays::stream).sorted().toArray();
+        long operations = all.length;
+        System.out.printf("binary: %d credits by %d clients, pipeline %d in %d ms, %.0f ops/s, "
+                        + "latency p50 %.1f us, p99 %.1f us, max %.1f us%n",
+                operations, CLIENTS, PIPELINE, elapsedNanos / 1_000_000, operations * 1e9 / elapsedNanos,
+                percentile(all, 0.50) / 1e3, percentile(all, 0.99) / 1e3, all[all.length - 1] / 1e3);
+    }
+
+    private static long percentile(long[] sorted, double quantile) {
+        return sorted[(int) Math.min(sorted.length - 1, Math.ceil(quantile * sorted.length) - 1)];
+    }
+}
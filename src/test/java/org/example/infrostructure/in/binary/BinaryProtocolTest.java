@@ -0,0 +1,61 @@
+package org.example.infrostructure.in.binary;
+
+import org.example.core.models.Action;
+import org.example.core.models.Auditable;
+import org.example.core.models.PageCursor;
+import org.example.core.models.Transaction;
+import org.example.core.models.enums.ActionType;
+import org.example.core.models.enums.AuditableStatus;
+import org.example.core.models.enums.TransacionReturns;
+import org.example.core.models.enums.TransactionType;
+import org.example.infrostructure.services.AuthorisationService.AuthorisationStatus;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BinaryProtocolTest {
+
+    @Test
+    void testRecordLengthAndFullPageFitResponse() {
+        LocalDateTime dateTime = LocalDateTime.of(2024, 5, 1, 12, 30, 15, 123_456_789);
+        ByteBuffer buffer = ByteBuffer.allocate(BinaryProtocol.MAX_RESPONSE_LENGTH);
+        buffer.putInt(0).putInt(1).put(BinaryProtocol.OK).putInt(BinaryProtocol.MAX_PAGE_SIZE);
+        for (int i = 0; i < BinaryProtocol.MAX_PAGE_SIZE; i++) {
+            int start = buffer.position();
+            BinaryProtocol.putAuditable(buffer,
+                    new Transaction(i, 1, dateTime, TransactionType.DEBIT, AuditableStatus.DECLINE, 10));
+            assertThat(buffer.position() - start).isEqualTo(BinaryProtocol.RECORD_LENGTH);
+        }
+        BinaryProtocol.putCursor(buffer, new PageCursor(dateTime, 1));
+
+        assertThat(buffer.remaining()).isZero();
+    }
+
+    @Test
+    void testEnumsRoundTripThroughWireCodes() {
+        LocalDateTime dateTime = LocalDateTime.of(2024, 5, 1, 12, 30);
+        ByteBuffer buffer = ByteBuffer.allocate(2 * BinaryProtocol.RECORD_LENGTH);
+        BinaryProtocol.putAuditable(buffer, new Transaction(7, 1, dateTime, TransactionType.DEBIT, AuditableStatus.DECLINE, 10));
+        BinaryProtocol.putAuditable(buffer, new Action(8, 1, dateTime, AuditableStatus.SUCCESS, ActionType.LOGOUT));
+        buffer.flip();
+
+        Auditable transaction = BinaryProtocol.getAuditable(buffer, 1);
+        Auditable action = BinaryProtocol.getAuditable(buffer, 1);
+        assertThat(transaction).isEqualTo(new Transaction(1, dateTime, TransactionType.DEBIT, AuditableStatus.DECLINE, 10));
+        assertThat(transaction.getId()).isEqualTo(7);
+        assertThat(action).isEqualTo(new Action(1, dateTime, AuditableStatus.SUCCESS, ActionType.LOGOUT));
+
+        for (TransacionReturns result : TransacionReturns.values()) {
+            assertThat(BinaryProtocol.result(BinaryProtocol.resultCode(result))).isEqualTo(result);
+        }
+        for (AuthorisationStatus status : AuthorisationStatus.values()) {
+            assertThat(BinaryProtocol.authorisation(BinaryProtocol.authorisationCode(status))).isEqualTo(status);
+        }
+        assertThat(BinaryProtocol.resultCode(TransacionReturns.USER_NOT_FOUND)).isEqualTo((byte) 4);
+        assertThatThrownBy(() -> BinaryProtocol.result((byte) 5)).isInstanceOf(IllegalStateException.class);
+    }
+}
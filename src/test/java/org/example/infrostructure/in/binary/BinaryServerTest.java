@@ -0,0 +1,141 @@
+package org.example.infrostructure.in.binary;
+
+import org.example.core.models.Action;
+import org.example.core.models.Auditable;
+import org.example.core.models.Page;
+import org.example.core.models.Transaction;
+import org.example.core.models.User;
+import org.example.core.models.enums.ActionType;
+import org.example.core.models.enums.TransacionReturns;
+import org.example.core.models.enums.TransactionType;
+import org.example.infrostructure.SessionContext;
+import org.example.infrostructure.repositoryies.collections.AuditableReppositoryImpl;
+import org.example.infrostructure.repositoryies.collections.TransactionRepositoryImpl;
+import org.example.infrostructure.repositoryies.collections.UserRepositoryImpl;
+import org.example.infrostructure.services.AuthorisationService;
+import org.example.infrostructure.services.AuthorisationService.AuthorisationStatus;
+import org.example.infrostructure.services.OperationServiceImpl;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BinaryServerTest {
+    private final UserRepositoryImpl userRepository = new UserRepositoryImpl();
+    private SessionContext sessionContext;
+    private BinaryServer server;
+    private User user;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        AuditableReppositoryImpl auditableRepository = new AuditableReppositoryImpl();
+        sessionContext = new SessionContext();
+        AuthorisationService authorisationService =
+                new AuthorisationService(userRepository, auditableRepository, sessionContext);
+        user = new User("user", "password", "f1", "l1", 0);
+        authorisationService.registration(user);
+        server = new BinaryServer(new InetSocketAddress("localhost", 0), authorisationService,
+                new OperationServiceImpl(userRepository, new TransactionRepositoryImpl(), auditableRepository),
+                sessionContext);
+        server.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.close();
+        sessionContext.close();
+    }
+
+    private BinaryClient client() throws IOException {
+        return new BinaryClient(new InetSocketAddress("localhost", server.getPort()));
+    }
+
+    @Test
+    void testLoginAndOperations() throws IOException {
+        try (BinaryClient client = client()) {
+            assertThatThrownBy(() -> client.credit(10)).isInstanceOf(IllegalStateException.class);
+            assertThat(client.login("user", "wrong")).isEqualTo(AuthorisationStatus.INVALID_PASSWORD);
+            assertThat(client.login("nobody", "password")).isEqualTo(AuthorisationStatus.USER_NOT_FOUND);
+            assertThat(client.login("user", "password")).isEqualTo(AuthorisationStatus.SUCCESS);
+
+            assertThat(client.credit(100)).isEqualTo(TransacionReturns.SUCCESS);
+            assertThat(client.debit(500)).isEqualTo(TransacionReturns.NOT_ENOUGH_MONEY);
+            client.sendDebit(40, 7);
+            client.sendDebit(40, 7);
+            client.flush();
+            BinaryClient.OperationResult first = client.receiveOperation();
+            assertThat(first.getResult()).isEqualTo(TransacionReturns.SUCCESS);
+            assertThat(first.getBalance()).isEqualTo(60);
+            assertThat(client.receiveOperation().getResult()).isEqualTo(TransacionReturns.UNUNIQUE_ID);
+            assertThatThrownBy(() -> client.credit(-1)).isInstanceOf(IllegalStateException.class);
+
+            // после ошибочного запроса соединение продолжает работать
+            assertThat(client.credit(1)).isEqualTo(TransacionReturns.SUCCESS);
+            assertThat(userRepository.findById(user.getId()).getBalance()).isEqualTo(61);
+
+            client.logout();
+            assertThatThrownBy(() -> client.credit(10)).isInstanceOf(IllegalStateException.class);
+        }
+    }
+
+    @Test
+    void testPipelinedRequestsAndPages() throws IOException {
+        try (BinaryClient client = client()) {
+            client.login("user", "password");
+            int requests = 5_000;
+            List<Integer> sent = new ArrayList<>();
+            List<Integer> received = new ArrayList<>();
+            // держим в полете не больше 500 запросов
+            for (int i = 0; i < requests; i += 500) {
+                for (int j = 0; j < 500; j++) {
+                    sent.add(client.sendCredit(1));
+                }
+                client.flush();
+                for (int j = 0; j < 500; j++) {
+                    received.add(client.receiveOperation().getRequestId());
+                }
+            }
+            assertThat(received).isEqualTo(sent);
+            assertThat(userRepository.findById(user.getId()).getBalance()).isEqualTo(requests);
+
+            List<Transaction> history = new ArrayList<>();
+            Page<Transaction> page = client.history(null, 1_000);
+            history.addAll(page.getItems());
+            while (page.hasNext()) {
+                page = client.history(page.getNextCursor(), 1_000);
+                history.addAll(page.getItems());
+            }
+            assertThat(history).hasSize(requests);
+            assertThat(history.get(0).getType()).isEqualTo(TransactionType.CREDIT);
+            assertThat(history.get(0).getAmount()).isEqualTo(1);
+            assertThat(history.get(0).getUserId()).isEqualTo(user.getId());
+
+            Page<Auditable> audit = client.audit(null, 2);
+            assertThat(audit.getItems()).hasSize(2);
+            assertThat(audit.getItems().get(0)).isInstanceOf(Action.class);
+            assertThat(((Action) audit.getItems().get(0)).getType()).isEqualTo(ActionType.REGISTRATION);
+            assertThatThrownBy(() -> client.history(null, 1_001)).isInstanceOf(IllegalStateException.class);
+        }
+    }
+
+    @Test
+    void testInvalidFrameClosesConnection() throws IOException {
+        try (SocketChannel channel = SocketChannel.open(new InetSocketAddress("localhost", server.getPort()))) {
+            ByteBuffer frame = ByteBuffer.allocate(8).putInt(Integer.MAX_VALUE).putInt(0).flip();
+            channel.write(frame);
+            assertThat(channel.read(ByteBuffer.allocate(16))).isEqualTo(-1);
+        }
+        try (BinaryClient client = client()) {
+            assertThat(client.login("user", "password")).isEqualTo(AuthorisationStatus.SUCCESS);
+        }
+    }
+}
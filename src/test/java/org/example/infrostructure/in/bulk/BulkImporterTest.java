@@ -0,0 +1,169 @@
+package org.example.infrostructure.in.bulk;
+
+import org.example.core.models.Operation;
+import org.example.core.models.User;
+import org.example.core.models.enums.TransacionReturns;
+import org.example.infrostructure.repositoryies.collections.AuditableReppositoryImpl;
+import org.example.infrostructure.repositoryies.collections.TransactionRepositoryImpl;
+import org.example.infrostructure.repositoryies.collections.UserRepositoryImpl;
+import org.example.infrostructure.services.OperationServiceImpl;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BulkImporterTest {
+
+    @TempDir
+    Path directory;
+
+    private final UserRepositoryImpl userRepository = new UserRepositoryImpl();
+    private final TransactionRepositoryImpl transactionRepository = new TransactionRepositoryImpl();
+    private final OperationServiceImpl operationService =
+            new OperationServiceImpl(userRepository, transactionRepository, new AuditableReppositoryImpl());
+
+    private long addUser(String username) {
+        User user = new User(username, "password", "f", "l", 0);
+        userRepository.addUser(user);
+        return user.getId();
+    }
+
+    @Test
+    void testStatusPerLineAndAccountOrder() throws IOException {
+        long first = addUser("first");
+        long second = addUser("second");
+        Path input = directory.resolve("operations.csv");
+        Path result = directory.resolve("operations.result");
+        Files.writeString(input, String.join("\n",
+                first + ",CREDIT,100",
+                first + ",DEBIT,60.5",
+                second + ",DEBIT,10",
+                second + ",credit,10,5",
+                "100,CREDIT,1",
+                "abc",
+                "",
+                first + ",DEBIT,39.5\r",
+                second + ",DEBIT,1,5",
+                first + ",CREDIT,-1",
+                first + ",CREDIT,1.",
+                second + ",DEBIT,10"), StandardCharsets.UTF_8);
+
+        // маленькие участки и порции: строки пересекают границы отображения
+        BulkImporter importer = new BulkImporter(operationService, 2, 2, 3, 16);
+        ImportReport report = importer.importFile(input, result);
+
+        assertThat(Files.readAllLines(result)).containsExactly(
+                "SUCCESS", "SUCCESS", "NOT_ENOUGH_MONEY", "SUCCESS", "USER_NOT_FOUND", "INVALID", "INVALID",
+                "SUCCESS", "UNUNIQUE_ID", "INVALID", "INVALID", "SUCCESS");
+        assertThat(userRepository.findById(first).getBalance()).isZero();
+        assertThat(userRepository.findById(second).getBalance()).isZero();
+        assertThat(report.getLines()).isEqualTo(12);
+        assertThat(report.getSucceeded()).isEqualTo(5);
+        assertThat(report.getDeclined()).isEqualTo(1);
+        assertThat(report.getDuplicates()).isEqualTo(1);
+        assertThat(report.getUserNotFound()).isEqualTo(1);
+        assertThat(report.getInvalid()).isEqualTo(4);
+
+        // загрузка завершена, повторный запуск ничего не применяет
+        ImportReport repeated = importer.importFile(input, result);
+        assertThat(repeated.getResumedFromLine()).isEqualTo(12);
+        assertThat(repeated.getLines()).isZero();
+        assertThat(Files.readAllLines(result)).hasSize(12);
+    }
+
+    @Test
+    void testRestartFromCheckpointAfterFailure() throws IOException {
+        int users = 20;
+        int lines = 2_000;
+        long firstId = 0;
+        for (int i = 0; i < users; i++) {
+            long id = addUser("user" + i);
+            firstId = i == 0 ? id : firstId;
+        }
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < lines; i++) {
+            // строки без id операции: повтор прерванной порции распознается по синтетическим id
+            content.append(firstId + i % users).append(",CREDIT,1.25\n");
+        }
+        Path input = directory.resolve("operations.csv");
+        Path result = directory.resolve("operations.result");
+        Files.writeString(input, content, StandardCharsets.UTF_8);
+
+        AtomicInteger batches = new AtomicInteger();
+        OperationServiceImpl failing = new OperationServiceImpl(userRepository, transactionRepository,
+                new AuditableReppositoryImpl()) {
+            @Override
+            public List<TransacionReturns> applyBatch(List<Operation> operations) {
+                if (batches.incrementAndGet() == 25) {
+                    throw new IllegalStateException("Batch failed.");
+                }
+                return super.applyBatch(operations);
+            }
+        };
+        assertThatThrownBy(() -> new BulkImporter(failing, 4, 50, 300, 1 << 20).importFile(input, result))
+                .isInstanceOf(IllegalStateException.class);
+        long confirmed = Files.readAllLines(result).size();
+        assertThat(confirmed).isPositive().isLessThan(lines);
+        assertThat(confirmed % 300).isZero();
+
+        ImportReport report = new BulkImporter(operationService, 4, 50, 300, 1 << 20).importFile(input, result);
+        assertThat(report.getResumedFromLine()).isEqualTo(confirmed);
+        assertThat(report.getLines()).isEqualTo(lines - confirmed);
+        List<String> statuses = Files.readAllLines(result);
+        assertThat(statuses).hasSize(lines);
+        assertThat(statuses).allMatch(status -> status.equals("SUCCESS") || status.equals("UNUNIQUE_ID"));
+        // операции прерванной порции, примененные до сбоя, не применяются повторно
+        for (int i = 0; i < users; i++) {
+            assertThat(userRepository.findById(firstId + i).getBalance()).isEqualTo(1.25f * lines / users);
+        }
+    }
+
+    @Test
+    void testSyntheticOperationIdsDependOnInputAndLine() throws IOException {
+        long user = addUser("user");
+        Path first = directory.resolve("first.csv");
+        Path second = directory.resolve("second.csv");
+        Files.writeString(first, user + ",CREDIT,1\n" + user + ",CREDIT,1\n");
+        Files.writeString(second, user + ",CREDIT,1\n" + user + ",CREDIT,1\n");
+
+        // одинаковые строки одного файла и файлы с одинаковым содержимым применяются независимо
+        new BulkImporter(operationService, 1).importFile(first, directory.resolve("first.result"));
+        new BulkImporter(operationService, 1).importFile(second, directory.resolve("second.result"));
+        assertThat(Files.readAllLines(directory.resolve("first.result"))).containsExactly("SUCCESS", "SUCCESS");
+        assertThat(Files.readAllLines(directory.resolve("second.result"))).containsExactly("SUCCESS", "SUCCESS");
+        assertThat(userRepository.findById(user).getBalance()).isEqualTo(4);
+
+        long id = BulkImporter.operationId(-1, BulkImporter.MAX_LINES - 1);
+        assertThat(id).isNegative().isNotEqualTo(BulkImporter.operationId(-1, BulkImporter.MAX_LINES - 2));
+        // id повторений планировщика имеют сброшенный 62-й бит
+        assertThat(-1 - id & 1L << 62).isNotZero();
+    }
+
+    @Test
+    void testCheckpointOfAnotherFileIsRejected() throws IOException {
+        long user = addUser("user");
+        Path input = directory.resolve("operations.csv");
+        Path result = directory.resolve("operations.result");
+        Files.writeString(input, user + ",CREDIT,1\n");
+        new BulkImporter(operationService, 1).importFile(input, result);
+
+        Files.writeString(input, user + ",CREDIT,1\n" + user + ",CREDIT,2\n");
+        assertThatThrownBy(() -> new BulkImporter(operationService, 1).importFile(input, result))
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void testChunkLargerThanIdempotencyWindowIsRejected() {
+        assertThatThrownBy(() -> new BulkImporter(operationService, 1, 1_000, BulkImporter.MAX_CHUNK_LINES + 1,
+                BulkImporter.DEFAULT_REGION_BYTES)).isInstanceOf(IllegalArgumentException.class);
+        assertThat(BulkImporter.DEFAULT_CHUNK_LINES).isLessThanOrEqualTo(BulkImporter.MAX_CHUNK_LINES);
+    }
+}
@@ -0,0 +1,206 @@
+package org.example.infrostructure.in.http;
+
+import org.example.infrostructure.SessionContext;
+import org.example.infrostructure.repositoryies.collections.AuditableReppositoryImpl;
+import org.example.infrostructure.repositoryies.collections.ScheduledOperationRepositoryImpl;
+import org.example.infrostructure.repositoryies.collections.TransactionRepositoryImpl;
+import org.example.infrostructure.repositoryies.collections.UserRepositoryImpl;
+import org.example.infrostructure.scheduler.OperationScheduler;
+import org.example.infrostructure.services.AuthorisationService;
+import org.example.infrostructure.services.OperationServiceImpl;
+import org.example.infrostructure.services.UserServiceImpl;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class HttpApiTest {
+    private final HttpClient client = HttpClient.newHttpClient();
+    private SessionContext sessionContext;
+    private UserRepositoryImpl userRepository;
+    private HttpApi httpApi;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        userRepository = new UserRepositoryImpl();
+        AuditableReppositoryImpl auditableRepository = new AuditableReppositoryImpl();
+        sessionContext = new SessionContext();
+        OperationServiceImpl operationService =
+                new OperationServiceImpl(userRepository, new TransactionRepositoryImpl(), auditableRepository);
+        httpApi = new HttpApi(new InetSocketAddress("localhost", 0), 0,
+                new AuthorisationService(userRepository, auditableRepository, sessionContext),
+                new UserServiceImpl(userRepository),
+                operationService,
+                sessionContext,
+                new OperationScheduler(operationService, new ScheduledOperationRepositoryImpl()));
+        httpApi.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        httpApi.close();
+        sessionContext.close();
+    }
+
+    private HttpResponse<String> post(String path, String token, String body) throws Exception {
+        HttpRequest.Builder request = HttpRequest.newBuilder(uri(path)).POST(HttpRequest.BodyPublishers.ofString(body));
+        if (token != null) {
+            request.header("Authorization", "Bearer " + token);
+        }
+        return client.send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private HttpResponse<String> get(String path, String token) throws Exception {
+        return client.send(HttpRequest.newBuilder(uri(path)).header("Authorization", "Bearer " + token).build(),
+                HttpResponse.BodyHandlers.ofString());
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://localhost:" + httpApi.getPort() + path);
+    }
+
+    private String registerAndLogin(String username) throws Exception {
+        post("/api/register", null, "{\"username\":\"" + username + "\",\"password\":\"pw\","
+                + "\"firstName\":\"f\",\"lastName\":\"l\"}");
+        HttpResponse<String> login = post("/api/login", null, "{\"username\":\"" + username + "\",\"password\":\"pw\"}");
+        assertThat(login.statusCode()).isEqualTo(200);
+        return JsonReader.parseObject(login.body()).get("token");
+    }
+
+    @Test
+    void testRegisterLoginAndOperations() throws Exception {
+        HttpResponse<String> register = post("/api/register", null,
+                "{\"username\":\"user\",\"password\":\"pw\",\"firstName\":\"f\",\"lastName\":\"l\"}");
+        assertThat(register.statusCode()).isEqualTo(201);
+        assertThat(post("/api/register", null,
+                "{\"username\":\"user\",\"password\":\"pw\",\"firstName\":\"f\",\"lastName\":\"l\"}").statusCode())
+                .isEqualTo(409);
+        assertThat(post("/api/login", null, "{\"username\":\"user\",\"password\":\"bad\"}").statusCode()).isEqualTo(401);
+        assertThat(post("/api/login", null, "{\"username\":\"nobody\",\"password\":\"pw\"}").statusCode()).isEqualTo(404);
+
+        String token = registerAndLogin("user");
+        HttpResponse<String> credit = post("/api/credit", token, "{\"amount\": 100.5}");
+        assertThat(credit.statusCode()).isEqualTo(200);
+        assertThat(credit.body()).isEqualTo("{\"status\":\"SUCCESS\",\"balance\":100.5}");
+        assertThat(post("/api/debit", token, "{\"amount\":500}").statusCode()).isEqualTo(422);
+        assertThat(post("/api/debit", token, "{\"amount\":0.5,\"operationId\":7}").statusCode()).isEqualTo(200);
+        assertThat(post("/api/debit", token, "{\"amount\":0.5,\"operationId\":7}").statusCode()).isEqualTo(409);
+        assertThat(post("/api/credit", token, "{\"amount\":-1}").statusCode()).isEqualTo(400);
+        assertThat(post("/api/credit", token, "{\"amount\":[1]}").statusCode()).isEqualTo(400);
+        assertThat(get("/api/credit", token).statusCode()).isEqualTo(405);
+
+        HttpResponse<String> balance = get("/api/balance", token);
+        assertThat(JsonReader.parseObject(balance.body())).containsEntry("balance", "100.0");
+
+        HttpResponse<String> summary = get("/api/summary?period=DAY", token);
+        assertThat(summary.body()).contains("\"creditCount\":1", "\"debitCount\":1", "\"declinedCount\":1");
+
+        assertThat(post("/api/logout", token, "").statusCode()).isEqualTo(204);
+        assertThat(get("/api/balance", token).statusCode()).isEqualTo(401);
+        assertThat(get("/api/balance", "unknown").statusCode()).isEqualTo(401);
+    }
+
+    @Test
+    void testHistoryAndAuditArePaged() throws Exception {
+        String token = registerAndLogin("user");
+        for (int i = 1; i <= 5; i++) {
+            post("/api/credit", token, "{\"amount\":" + i + "}");
+        }
+
+        List<String> items = new ArrayList<>();
+        String next = null;
+        do {
+            String cursor = next == null ? "" : "&after=" + next;
+            HttpResponse<String> page = get("/api/history?limit=2" + cursor, token);
+            assertThat(page.statusCode()).isEqualTo(200);
+            String body = page.body();
+            items.addAll(List.of(body.substring(body.indexOf('[') + 1, body.indexOf(']')).split("(?<=}),")));
+            next = body.endsWith("\"next\":null}") ? null
+                    : body.substring(body.indexOf("\"next\":\"") + 8, body.length() - 2);
+        } while (next != null);
+        assertThat(items).hasSize(5);
+        assertThat(items.get(0)).contains("\"type\":\"CREDIT\"", "\"amount\":1.0");
+
+        HttpResponse<String> audit = get("/api/audit?limit=500", token);
+        assertThat(audit.body()).contains("\"kind\":\"ACTION\",\"type\":\"REGISTRATION\"",
+                "\"kind\":\"TRANSACTION\",\"type\":\"CREDIT\"");
+        assertThat(get("/api/history?after=bad", token).statusCode()).isEqualTo(400);
+        assertThat(get("/api/history?limit=0", token).statusCode()).isEqualTo(400);
+    }
+
+    @Test
+    void testScheduleListAndCancel() throws Exception {
+        String token = registerAndLogin("user");
+        String other = registerAndLogin("other");
+
+        HttpResponse<String> created = post("/api/schedule", token,
+                "{\"type\":\"CREDIT\",\"amount\":10,\"recurrence\":\"MONTHLY\",\"firstRun\":\"2999-01-31T09:00\"}");
+        assertThat(created.statusCode()).isEqualTo(201);
+        String id = JsonReader.parseObject(created.body()).get("id");
+        assertThat(created.body()).contains("\"recurrence\":\"MONTHLY\"", "\"nextRun\":\"2999-01-31T09:00\"");
+        assertThat(post("/api/schedule", token, "{\"type\":\"CREDIT\",\"amount\":10,\"firstRun\":\"bad\"}")
+                .statusCode()).isEqualTo(400);
+        assertThat(post("/api/schedule", token, "{\"type\":\"REFUND\",\"amount\":10,\"firstRun\":\"2999-01-31T09:00\"}")
+                .statusCode()).isEqualTo(400);
+
+        assertThat(get("/api/scheduled", token).body()).contains("\"id\":" + id);
+        assertThat(get("/api/scheduled", other).body()).isEqualTo("{\"items\":[]}");
+        assertThat(post("/api/schedule/cancel", other, "{\"id\":" + id + "}").statusCode()).isEqualTo(404);
+        assertThat(post("/api/schedule/cancel", token, "{\"id\":" + id + "}").statusCode()).isEqualTo(204);
+        assertThat(post("/api/schedule/cancel", token, "{\"id\":" + id + "}").statusCode()).isEqualTo(404);
+        assertThat(get("/api/scheduled", token).body()).isEqualTo("{\"items\":[]}");
+    }
+
+    @Test
+    void testConcurrentCreditsOfManySessions() throws Exception {
+        List<String> tokens = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            tokens.add(registerAndLogin("user" + i));
+        }
+        List<CompletableFuture<HttpResponse<String>>> responses = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            HttpRequest request = HttpRequest.newBuilder(uri("/api/credit"))
+                    .header("Authorization", "Bearer " + tokens.get(i % tokens.size()))
+                    .POST(HttpRequest.BodyPublishers.ofString("{\"amount\":1}"))
+                    .build();
+            responses.add(client.sendAsync(request, HttpResponse.BodyHandlers.ofString()));
+        }
+        for (CompletableFuture<HttpResponse<String>> response : responses) {
+            assertThat(response.get().statusCode()).isEqualTo(200);
+        }
+        for (int i = 0; i < 10; i++) {
+            assertThat(userRepository.findByUsername("user" + i).getBalance()).isEqualTo(50);
+        }
+    }
+
+    @Test
+    void testJsonReaderAndWriter() {
+        Map<String, String> fields = JsonReader.parseObject(" {\"a\" : \"x\\\"\\u0041\", \"b\":-1.5e3, \"c\":null, \"d\":true} ");
+        assertThat(fields).containsEntry("a", "x\"A").containsEntry("b", "-1.5e3").containsEntry("d", "true");
+        assertThat(fields).containsKey("c");
+        assertThat(JsonReader.parseObject("{}")).isEmpty();
+        assertThatThrownBy(() -> JsonReader.parseObject("{\"a\":1} x")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> JsonReader.parseObject("{\"a\":{}}")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> JsonReader.parseObject("{\"a\":abc}")).isInstanceOf(IllegalArgumentException.class);
+
+        String json = new JsonWriter().beginObject()
+                .field("s", "q\"\n\u0001")
+                .beginArray("items").beginObject().field("n", 1L).endObject().beginObject().endObject().endArray()
+                .field("nil", (String) null)
+                .endObject().toString();
+        assertThat(json).isEqualTo("{\"s\":\"q\\\"\\n\\u0001\",\"items\":[{\"n\":1},{}],\"nil\":null}");
+    }
+}
@@ -0,0 +1,124 @@
+package org.example.infrostructure.jdbc;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.AssertionsForInterfaceTypes.assertThat;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ConnectionPoolTest {
+    private final List<Connection> created = new ArrayList<>();
+    private ConnectionPool pool;
+
+    @AfterEach
+    void tearDown() {
+        if (pool != null) {
+            pool.close();
+        }
+    }
+
+    private ConnectionPool pool(int minSize, int maxSize, long borrowTimeoutMillis, long validationIdleMillis, long leakMillis)
+            throws SQLException {
+        ConnectionPoolSettings settings = new ConnectionPoolSettings("jdbc:test", "user", "password",
+                minSize, maxSize, borrowTimeoutMillis, 1, validationIdleMillis, leakMillis);
+        pool = new ConnectionPool(settings, () -> {
+            Connection connection = mock(Connection.class);
+            when(connection.isValid(anyInt())).thenReturn(true);
+            when(connection.getAutoCommit()).thenReturn(true);
+            created.add(connection);
+            return connection;
+        });
+        return pool;
+    }
+
+    @Test
+    void opensMinSizeAndReusesConnectionsTest() throws SQLException {
+        ConnectionPool pool = pool(2, 4, 100, 500, 0);
+        assertThat(created).hasSize(2);
+        assertThat(pool.getMetrics().getIdle()).isEqualTo(2);
+
+        Connection first = pool.getConnection();
+        first.close();
+        Connection second = pool.getConnection();
+        second.close();
+
+        assertThat(created).hasSize(2);
+        assertThat(pool.getMetrics().getBorrows()).isEqualTo(2);
+        assertThat(pool.getMetrics().getActive()).isZero();
+        verify(created.get(0), never()).close();
+    }
+
+    @Test
+    void closedConnectionRejectsCallsTest() throws SQLException {
+        ConnectionPool pool = pool(1, 1, 100, 500, 0);
+        Connection connection = pool.getConnection();
+        connection.close();
+        connection.close();
+
+        assertThat(connection.isClosed()).isTrue();
+        assertThatThrownBy(() -> connection.prepareStatement("SELECT 1")).isInstanceOf(SQLException.class);
+        assertThat(pool.getMetrics().getIdle()).isEqualTo(1);
+    }
+
+    @Test
+    void borrowTimesOutWhenPoolIsExhaustedTest() throws SQLException {
+        ConnectionPool pool = pool(0, 1, 50, 500, 0);
+        Connection held = pool.getConnection();
+
+        assertThatThrownBy(pool::getConnection).isInstanceOf(SQLTimeoutException.class);
+        assertThat(pool.getMetrics().getTimeouts()).isEqualTo(1);
+
+        held.close();
+        pool.getConnection().close();
+        assertThat(created).hasSize(1);
+    }
+
+    @Test
+    void invalidConnectionIsReplacedOnBorrowTest() throws SQLException {
+        ConnectionPool pool = pool(1, 2, 100, 0, 0);
+        Connection broken = created.get(0);
+        when(broken.isValid(anyInt())).thenReturn(false);
+
+        pool.getConnection().close();
+
+        assertThat(created).hasSize(2);
+        verify(broken).close();
+    }
+
+    @Test
+    void unfinishedTransactionIsRolledBackOnReturnTest() throws SQLException {
+        ConnectionPool pool = pool(1, 1, 100, 500, 0);
+        Connection physical = created.get(0);
+        when(physical.getAutoCommit()).thenReturn(false);
+
+        pool.getConnection().close();
+
+        verify(physical).rollback();
+        verify(physical).setAutoCommit(true);
+    }
+
+    @Test
+    void leakIsDetectedTest() throws Exception {
+        ConnectionPool pool = pool(0, 1, 100, 500, 20);
+        Connection leaked = pool.getConnection();
+
+        long deadline = System.currentTimeMillis() + 2_000;
+        while (pool.getMetrics().getLeaks() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+
+        assertThat(pool.getMetrics().getLeaks()).isEqualTo(1);
+        leaked.close();
+    }
+}
@@ -0,0 +1,202 @@
+package org.example.infrostructure.repositoryies.cache;
+
+import org.example.core.models.User;
+import org.example.core.repositories.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CachingUserRepositoryTest {
+
+    /**
+     * Часы, время которых переводится вручную
+     */
+    private static class ManualClock extends Clock {
+        private long millis;
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(millis);
+        }
+    }
+
+    private final ManualClock clock = new ManualClock();
+    private UserRepository userRepository;
+    private CachingUserRepository cache;
+
+    @BeforeEach
+    void setUp() {
+        userRepository = mock(UserRepository.class);
+        for (long id = 1; id <= 5; id++) {
+            User user = new User(id, "user" + id, "password", "Ivan", "Ivanov", 100);
+            when(userRepository.findById(id)).thenAnswer(invocation -> copy(user));
+            when(userRepository.findByUsername(user.getUsername())).thenAnswer(invocation -> copy(user));
+        }
+        cache = new CachingUserRepository(userRepository, 2, Duration.ofSeconds(60), clock);
+    }
+
+    private static User copy(User user) {
+        return new User(user.getId(), user.getUsername(), user.getPassword(),
+                user.getFirstName(), user.getLastName(), user.getBalance());
+    }
+
+    @Test
+    void testFindByIdAndUsernameAreCached() {
+        User loaded = cache.findById(1);
+        loaded.setBalance(0);
+
+        assertThat(cache.findById(1).getBalance()).isEqualTo(100);
+        assertThat(cache.findByUsername("user1").getId()).isEqualTo(1);
+        verify(userRepository, times(1)).findById(1);
+        verify(userRepository, times(0)).findByUsername("user1");
+        CacheStats stats = cache.getStats();
+        assertThat(stats.getHits()).isEqualTo(2);
+        assertThat(stats.getMisses()).isEqualTo(1);
+        assertThat(stats.getSize()).isEqualTo(1);
+    }
+
+    @Test
+    void testEntryExpiresAfterTtl() {
+        cache.findByUsername("user1");
+        clock.millis += 60_000;
+
+        cache.findByUsername("user1");
+
+        verify(userRepository, times(2)).findByUsername("user1");
+        assertThat(cache.getStats().getExpirations()).isEqualTo(1);
+    }
+
+    @Test
+    void testRarelyUsedUserDoesNotEvictFrequentOnes() {
+        for (int i = 0; i < 5; i++) {
+            cache.findById(1);
+            cache.findById(2);
+        }
+
+        cache.findById(3);
+
+        assertThat(cache.getStats().getRejections()).isEqualTo(1);
+        cache.findById(1);
+        cache.findById(2);
+        verify(userRepository, times(1)).findById(1);
+        verify(userRepository, times(1)).findById(2);
+
+        // после достаточного числа обращений новый пользователь вытесняет давно не использованного
+        for (int i = 0; i < 10; i++) {
+            cache.findById(3);
+        }
+        assertThat(cache.getStats().getEvictions()).isEqualTo(1);
+        assertThat(cache.getStats().getSize()).isEqualTo(2);
+        cache.findById(3);
+        cache.findById(2);
+        verify(userRepository, times(1)).findById(2);
+    }
+
+    @Test
+    void testWritesGoThroughToRepositoryAndCache() {
+        User user = cache.findById(1);
+        user.setBalance(150);
+
+        cache.updateUser(user);
+
+        verify(userRepository).updateUser(user);
+        assertThat(cache.findById(1).getBalance()).isEqualTo(150);
+
+        cache.deleteUser(user);
+
+        verify(userRepository).deleteUser(user);
+        assertThat(cache.getStats().getSize()).isEqualTo(0);
+    }
+
+    @Test
+    void testAddedUserIsCached() {
+        User user = new User("new-user", "password", "Ivan", "Ivanov", 0);
+        doAnswer(invocation -> {
+            user.setId(10);
+            return null;
+        }).when(userRepository).addUser(user);
+
+        cache.addUser(user);
+
+        assertThat(cache.findByUsername("new-user").getId()).isEqualTo(10);
+        verify(userRepository, times(0)).findByUsername("new-user");
+    }
+
+    @Test
+    void testUserChangedDuringLoadIsNotCached() {
+        when(userRepository.findById(4)).thenAnswer(invocation -> {
+            User stale = new User(4, "user4", "password", "Ivan", "Ivanov", 100);
+            // баланс меняется в обход репозитория, пока загрузка еще не завершилась
+            cache.evict(4);
+            return stale;
+        });
+
+        cache.findById(4);
+        cache.findById(4);
+
+        verify(userRepository, times(2)).findById(4);
+    }
+
+    @Test
+    void testEvictRemovesEntry() {
+        cache.findById(1);
+
+        cache.evict(1);
+        cache.findById(1);
+
+        verify(userRepository, times(2)).findById(1);
+    }
+
+    @Test
+    void testSegmentedCacheStaysBoundedUnderConcurrentLookups() throws InterruptedException {
+        UserRepository repository = mock(UserRepository.class);
+        when(repository.findById(anyLong())).thenAnswer(invocation -> {
+            long id = invocation.getArgument(0);
+            return new User(id, "user" + id, "password", "Ivan", "Ivanov", 100);
+        });
+        CachingUserRepository segmented = new CachingUserRepository(repository, 1_000, Duration.ofSeconds(60), clock);
+
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            int offset = t;
+            threads.add(Thread.ofPlatform().start(() -> {
+                for (int i = 0; i < 5_000; i++) {
+                    long id = 1 + (i * 4L + offset) % 3_000;
+                    assertThat(segmented.findById(id).getId()).isEqualTo(id);
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        CacheStats stats = segmented.getStats();
+        assertThat(stats.getHits() + stats.getMisses()).isEqualTo(20_000);
+        assertThat(stats.getSize()).isPositive().isLessThanOrEqualTo(1_000);
+    }
+}
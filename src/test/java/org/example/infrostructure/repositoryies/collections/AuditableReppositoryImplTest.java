@@ -2,8 +2,11 @@ package org.example.infrostructure.repositoryies.collections;
 
 import org.example.core.models.Action;
 import org.example.core.models.Auditable;
+import org.example.core.models.Page;
+import org.example.core.models.Transaction;
 import org.example.core.models.enums.ActionType;
 import org.example.core.models.enums.AuditableStatus;
+import org.example.core.models.enums.TransactionType;
 import org.example.core.repositories.AuditableRepository;
 import org.example.infrostructure.repositoryies.collections.AuditableReppositoryImpl;
 import org.junit.jupiter.api.BeforeEach;
@@ -81,4 +84,73 @@ class AuditableReppositoryImplTest {
         List<Auditable> found = auditableRepository.findAllByUserId(5);
         assertThat(found).isEmpty();
     }
-}
\ No newline at end of file
+
+    @Test
+    void findAllByUserIdKeepsInsertionOrderTest() {
+        long userId = 1;
+        Auditable action = new Action(3, userId, LocalDateTime.now(), AuditableStatus.SUCCESS, ActionType.REGISTRATION);
+        Auditable action1 = new Action(2, 2, LocalDateTime.now(), AuditableStatus.SUCCESS, ActionType.LOGIN);
+        Auditable action2 = new Action(1, userId, LocalDateTime.now(), AuditableStatus.SUCCESS, ActionType.LOGIN);
+        auditableRepository.addAuditable(action);
+        auditableRepository.addAuditable(action1);
+        auditableRepository.addAuditable(action2);
+        assertThat(auditableRepository.findAllByUserId(userId)).containsExactly(action, action2);
+        assertThat(auditableRepository.findById(2)).isEqualTo(action1);
+    }
+
+    @Test
+    void findByUserIdBetweenTest() {
+        long userId = 1;
+        LocalDateTime dateTime = LocalDateTime.of(2023, 10, 1, 12, 0);
+        Auditable late = new Action(1, userId, dateTime.plusDays(40), AuditableStatus.SUCCESS, ActionType.LOGOUT);
+        Auditable early = new Action(2, userId, dateTime, AuditableStatus.SUCCESS, ActionType.REGISTRATION);
+        Auditable middle = new Action(3, userId, dateTime.plusDays(10), AuditableStatus.SUCCESS, ActionType.LOGIN);
+        auditableRepository.addAuditable(late);
+        auditableRepository.addAuditable(early);
+        auditableRepository.addAuditable(middle);
+
+        assertThat(auditableRepository.findByUserIdBetween(userId, dateTime.plusDays(10), dateTime.plusDays(40)))
+                .containsExactly(middle, late);
+    }
+
+    @Test
+    void findPageByUserIdTest() {
+        long userId = 1;
+        LocalDateTime dateTime = LocalDateTime.of(2023, 10, 1, 12, 0);
+        Auditable registration = new Action(userId, dateTime, AuditableStatus.SUCCESS, ActionType.REGISTRATION);
+        Auditable login = new Action(userId, dateTime.plusMinutes(1), AuditableStatus.SUCCESS, ActionType.LOGIN);
+        Auditable logout = new Action(userId, dateTime.plusMinutes(2), AuditableStatus.SUCCESS, ActionType.LOGOUT);
+        auditableRepository.addAuditable(logout);
+        auditableRepository.addAuditable(registration);
+        auditableRepository.addAuditable(login);
+
+        Page<Auditable> first = auditableRepository.findPageByUserId(userId, null, 2);
+        Page<Auditable> second = auditableRepository.findPageByUserId(userId, first.getNextCursor(), 2);
+
+        assertThat(first.getItems()).containsExactly(registration, login);
+        assertThat(second.getItems()).containsExactly(logout);
+        assertThat(second.hasNext()).isFalse();
+    }
+
+    @Test
+    void transactionGetsOwnAuditIdTest() {
+        long userId = 1;
+        LocalDateTime dateTime = LocalDateTime.of(2023, 10, 1, 12, 0);
+        Auditable action = new Action(userId, dateTime, AuditableStatus.SUCCESS, ActionType.REGISTRATION);
+        Transaction transaction = new Transaction(1, userId, dateTime, TransactionType.CREDIT, AuditableStatus.SUCCESS, 10);
+        auditableRepository.addAuditable(action);
+        auditableRepository.addAuditable(transaction);
+
+        // id транзакции не меняется, записи аудита не вытесняют друг друга по id
+        assertThat(transaction.getId()).isEqualTo(1);
+        assertThat(auditableRepository.findById(action.getId())).isSameAs(action);
+        Auditable audited = auditableRepository.findById(2);
+        assertThat(audited).isInstanceOf(Transaction.class);
+        assertThat(((Transaction) audited).getAmount()).isEqualTo(10);
+
+        Page<Auditable> first = auditableRepository.findPageByUserId(userId, null, 1);
+        Page<Auditable> second = auditableRepository.findPageByUserId(userId, first.getNextCursor(), 1);
+        assertThat(first.getItems()).containsExactly(action);
+        assertThat(second.getItems()).containsExactly(audited);
+    }
+}
@@ -0,0 +1,314 @@
+package org.example.infrostructure.repositoryies.collections;
+
+import org.example.core.models.Action;
+import org.example.core.models.Auditable;
+import org.example.core.models.AccountSummary;
+import org.example.core.models.ScheduledOperation;
+import org.example.core.models.Transaction;
+import org.example.core.models.User;
+import org.example.core.models.enums.ActionType;
+import org.example.core.models.enums.AuditableStatus;
+import org.example.core.models.enums.Recurrence;
+import org.example.core.models.enums.SummaryPeriod;
+import org.example.core.models.enums.TransactionType;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.AssertionsForInterfaceTypes.assertThat;
+
+class DurableCollectionsStoreTest {
+    @TempDir
+    Path directory;
+
+    private DurableCollectionsStore open(FsyncPolicy policy) throws IOException {
+        return new DurableCollectionsStore(directory, policy, 5, 0);
+    }
+
+    private static LocalDateTime now() {
+        return LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
+    }
+
+    private List<Path> files(String prefix) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().startsWith(prefix)).sorted().collect(Collectors.toList());
+        }
+    }
+
+    @Test
+    void reopenRestoresStateTest() throws IOException {
+        User user = new User("user", "password", "Ivan", "Ivanov", 100);
+        Transaction transaction = new Transaction(1, now(), TransactionType.CREDIT, AuditableStatus.SUCCESS, 50);
+        Action action = new Action(1, now(), AuditableStatus.SUCCESS, ActionType.REGISTRATION);
+        try (DurableCollectionsStore store = open(FsyncPolicy.PER_OPERATION)) {
+            store.userRepository().addUser(user);
+            user.setBalance(150);
+            store.userRepository().updateUser(user);
+            store.transactionRepository().addTransaction(transaction);
+            store.auditableRepository().addAuditable(action);
+            store.auditableRepository().addAuditable(transaction);
+        }
+
+        try (DurableCollectionsStore store = open(FsyncPolicy.PER_OPERATION)) {
+            assertThat(store.userRepository().findByUsername("user")).isEqualTo(user);
+            assertThat(store.transactionRepository().findAllByUserId(1)).containsExactly(transaction);
+            assertThat(store.auditableRepository().findAllByUserId(1)).containsExactlyInAnyOrder(action, transaction);
+
+            User next = new User("other", "password", "Petr", "Petrov", 0);
+            store.userRepository().addUser(next);
+            assertThat(next.getId()).isEqualTo(2);
+        }
+    }
+
+    @Test
+    void accountAggregatesRestoredFromSnapshotAndLogTest() throws IOException {
+        LocalDateTime dateTime = now();
+        try (DurableCollectionsStore store = open(FsyncPolicy.OS)) {
+            store.transactionRepository().addTransaction(
+                    new Transaction(1, dateTime, TransactionType.CREDIT, AuditableStatus.SUCCESS, 50));
+            store.snapshot();
+            store.transactionRepository().addTransaction(
+                    new Transaction(1, dateTime, TransactionType.DEBIT, AuditableStatus.SUCCESS, 20));
+        }
+
+        try (DurableCollectionsStore store = open(FsyncPolicy.OS)) {
+            AccountSummary day = store.accountAggregates().summary(1, SummaryPeriod.DAY, dateTime.toLocalDate());
+            assertThat(day.getCreditCount()).isEqualTo(1);
+            assertThat(day.getDebitCount()).isEqualTo(1);
+            assertThat(day.getLastActivity()).isEqualTo(dateTime);
+        }
+    }
+
+    @Test
+    void operationIdsSurviveRestartTest() throws IOException {
+        Transaction first = new Transaction(1, now(), TransactionType.CREDIT, AuditableStatus.SUCCESS, 10);
+        Transaction second = new Transaction(1, now(), TransactionType.CREDIT, AuditableStatus.SUCCESS, 20);
+        try (DurableCollectionsStore store = open(FsyncPolicy.PER_OPERATION)) {
+            assertThat(store.transactionRepository().isTransactionIdUnique(1)).isTrue();
+            store.transactionRepository().addTransaction(first, 1);
+            store.snapshot();
+            assertThat(store.transactionRepository().isTransactionIdUnique(2)).isTrue();
+            store.transactionRepository().addTransaction(second, 2);
+            // id операции, не дошедшей до записи транзакции, не сохраняется
+            assertThat(store.transactionRepository().isTransactionIdUnique(3)).isTrue();
+        }
+
+        try (DurableCollectionsStore store = open(FsyncPolicy.PER_OPERATION)) {
+            assertThat(store.transactionRepository().isTransactionIdUnique(1)).isFalse();
+            assertThat(store.transactionRepository().isTransactionIdUnique(2)).isFalse();
+            assertThat(store.transactionRepository().isTransactionIdUnique(3)).isTrue();
+        }
+    }
+
+    @Test
+    void snapshotConcurrentWithWritesTest() throws Exception {
+        int count = 5_000;
+        try (DurableCollectionsStore store = open(FsyncPolicy.OS)) {
+            Thread writer = new Thread(() -> {
+                for (int i = 0; i < count; i++) {
+                    store.transactionRepository().addTransaction(
+                            new Transaction(1, now(), TransactionType.CREDIT, AuditableStatus.SUCCESS, 1));
+                }
+            });
+            writer.start();
+            while (writer.isAlive()) {
+                store.snapshot();
+            }
+            writer.join();
+        }
+
+        // срез снимка и журнал нового поколения не теряют и не повторяют транзакции
+        try (DurableCollectionsStore store = open(FsyncPolicy.OS)) {
+            assertThat(store.transactionRepository().getAll()).hasSize(count);
+        }
+    }
+
+    @Test
+    void deleteIsReplayedTest() throws IOException {
+        try (DurableCollectionsStore store = open(FsyncPolicy.OS)) {
+            User user = new User("user", "password", "Ivan", "Ivanov", 100);
+            store.userRepository().addUser(user);
+            store.userRepository().deleteUser(user);
+        }
+
+        try (DurableCollectionsStore store = open(FsyncPolicy.OS)) {
+            assertThat(store.userRepository().findAll()).isEmpty();
+            assertThat(store.userRepository().findByUsername("user")).isNull();
+        }
+    }
+
+    @Test
+    void snapshotCompactsLogTest() throws IOException {
+        try (DurableCollectionsStore store = open(FsyncPolicy.PER_OPERATION)) {
+            store.userRepository().addUser(new User("first", "password", "Ivan", "Ivanov", 100));
+            store.snapshot();
+            store.userRepository().addUser(new User("second", "password", "Petr", "Petrov", 200));
+            store.transactionRepository().addTransaction(
+                    new Transaction(2, now(), TransactionType.DEBIT, AuditableStatus.DECLINE, 300));
+            store.snapshot();
+            store.userRepository().addUser(new User("third", "password", "Anna", "Ivanova", 300));
+        }
+
+        assertThat(files("snapshot-")).hasSize(1);
+        assertThat(files("wal-")).hasSize(1);
+
+        try (DurableCollectionsStore store = open(FsyncPolicy.PER_OPERATION)) {
+            assertThat(store.userRepository().findAll()).extracting(User::getUsername)
+                    .containsExactlyInAnyOrder("first", "second", "third");
+            assertThat(store.transactionRepository().findAllByUserId(2)).hasSize(1);
+            assertThat(store.userRepository().findByUsername("third").getId()).isEqualTo(3);
+        }
+    }
+
+    @Test
+    void automaticSnapshotsStartWithStartTest() throws Exception {
+        try (DurableCollectionsStore store = new DurableCollectionsStore(directory, FsyncPolicy.OS, 5, 10)) {
+            store.userRepository().addUser(new User("user", "password", "Ivan", "Ivanov", 100));
+            Thread.sleep(50);
+            assertThat(files("snapshot-")).isEmpty();
+
+            store.start();
+            long deadline = System.currentTimeMillis() + 5_000;
+            while (files("snapshot-").isEmpty() && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertThat(files("snapshot-")).isNotEmpty();
+        }
+    }
+
+    @Test
+    void tornLogTailIsDiscardedTest() throws IOException {
+        try (DurableCollectionsStore store = open(FsyncPolicy.PER_OPERATION)) {
+            store.userRepository().addUser(new User("first", "password", "Ivan", "Ivanov", 100));
+            store.userRepository().addUser(new User("second", "password", "Petr", "Petrov", 200));
+        }
+        Path log = files("wal-").get(0);
+        try (RandomAccessFile file = new RandomAccessFile(log.toFile(), "rw")) {
+            file.setLength(file.length() - 3);
+        }
+
+        try (DurableCollectionsStore store = open(FsyncPolicy.PER_OPERATION)) {
+            assertThat(store.userRepository().findAll()).extracting(User::getUsername).containsExactly("first");
+            store.userRepository().addUser(new User("third", "password", "Anna", "Ivanova", 300));
+        }
+
+        try (DurableCollectionsStore store = open(FsyncPolicy.PER_OPERATION)) {
+            assertThat(store.userRepository().findAll()).extracting(User::getUsername)
+                    .containsExactlyInAnyOrder("first", "third");
+        }
+    }
+
+    @Test
+    void tornGroupIsDiscardedWholeTest() throws IOException {
+        User user = new User("user", "password", "Ivan", "Ivanov", 100);
+        try (DurableCollectionsStore store = open(FsyncPolicy.PER_OPERATION)) {
+            store.userRepository().addUser(user);
+            store.atomically(() -> {
+                user.setBalance(150);
+                store.userRepository().updateUser(user);
+                store.transactionRepository().addTransaction(
+                        new Transaction(user.getId(), now(), TransactionType.CREDIT, AuditableStatus.SUCCESS, 50));
+            });
+        }
+        Path log = files("wal-").get(0);
+        try (RandomAccessFile file = new RandomAccessFile(log.toFile(), "rw")) {
+            file.setLength(file.length() - 3);
+        }
+
+        try (DurableCollectionsStore store = open(FsyncPolicy.PER_OPERATION)) {
+            assertThat(store.userRepository().findById(user.getId()).getBalance()).isEqualTo(100);
+            assertThat(store.transactionRepository().findAllByUserId(user.getId())).isEmpty();
+        }
+    }
+
+    @Test
+    void transferCounterpartyIsRestoredTest() throws IOException {
+        Transaction outgoing = new Transaction(1, now(), TransactionType.DEBIT, AuditableStatus.SUCCESS, 50);
+        outgoing.setCounterpartyId(2L);
+        Transaction credit = new Transaction(1, now(), TransactionType.CREDIT, AuditableStatus.SUCCESS, 10);
+        try (DurableCollectionsStore store = open(FsyncPolicy.PER_OPERATION)) {
+            store.transactionRepository().addTransaction(outgoing);
+            store.transactionRepository().addTransaction(credit);
+        }
+
+        try (DurableCollectionsStore store = open(FsyncPolicy.PER_OPERATION)) {
+            assertThat(store.transactionRepository().findAllByUserId(1))
+                    .extracting(Transaction::getCounterpartyId)
+                    .containsExactly(2L, null);
+        }
+    }
+
+    @Test
+    void usersAreHandedOutAsCopiesTest() throws IOException {
+        try (DurableCollectionsStore store = open(FsyncPolicy.OS)) {
+            User user = new User("user", "password", "Ivan", "Ivanov", 100);
+            store.userRepository().addUser(user);
+            user.setBalance(200);
+            store.userRepository().findById(user.getId()).setBalance(300);
+
+            assertThat(store.userRepository().findById(user.getId()).getBalance()).isEqualTo(100);
+        }
+    }
+
+    @Test
+    void groupCommitFromSeveralThreadsTest() throws Exception {
+        int threadsCount = 8;
+        int perThread = 50;
+        try (DurableCollectionsStore store = open(FsyncPolicy.GROUP_COMMIT)) {
+            List<Thread> threads = new ArrayList<>();
+            for (int t = 0; t < threadsCount; t++) {
+                long userId = t + 1;
+                Thread thread = new Thread(() -> {
+                    for (int i = 0; i < perThread; i++) {
+                        store.auditableRepository().addAuditable(
+                                new Action(userId, now(), AuditableStatus.SUCCESS, ActionType.LOGIN));
+                    }
+                });
+                threads.add(thread);
+                thread.start();
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+        }
+
+        try (DurableCollectionsStore store = open(FsyncPolicy.GROUP_COMMIT)) {
+            List<Auditable> audits = store.auditableRepository().getAll();
+            assertThat(audits).hasSize(threadsCount * perThread);
+            assertThat(audits.stream().map(Auditable::getId).distinct().count()).isEqualTo(threadsCount * perThread);
+        }
+    }
+
+    @Test
+    void scheduledOperationsAreRestoredTest() throws IOException {
+        ScheduledOperation salary = new ScheduledOperation(1, TransactionType.CREDIT, 1000, Recurrence.MONTHLY, now());
+        ScheduledOperation subscription = new ScheduledOperation(1, TransactionType.DEBIT, 10, Recurrence.DAILY, now());
+        try (DurableCollectionsStore store = open(FsyncPolicy.GROUP_COMMIT)) {
+            store.scheduledOperationRepository().addScheduledOperation(salary);
+            store.scheduledOperationRepository().addScheduledOperation(subscription);
+            salary.setOccurrence(3);
+            store.scheduledOperationRepository().updateScheduledOperations(List.of(salary));
+            store.snapshot();
+            store.scheduledOperationRepository().deleteScheduledOperations(List.of(subscription.getId()));
+        }
+
+        try (DurableCollectionsStore store = open(FsyncPolicy.GROUP_COMMIT)) {
+            assertThat(store.scheduledOperationRepository().findAll()).containsExactly(salary);
+            assertThat(store.scheduledOperationRepository().findById(salary.getId()).getOccurrence()).isEqualTo(3);
+
+            ScheduledOperation next = new ScheduledOperation(2, TransactionType.CREDIT, 5, Recurrence.ONCE, now());
+            store.scheduledOperationRepository().addScheduledOperation(next);
+            assertThat(next.getId()).isEqualTo(3);
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package org.example.infrostructure.repositoryies.collections;
+
+import org.example.core.models.Page;
+import org.example.core.models.Transaction;
+import org.example.core.models.enums.AuditableStatus;
+import org.example.core.models.enums.TransactionType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.AssertionsForInterfaceTypes.assertThat;
+
+class TransactionRepositoryColumnarImplTest {
+
+    private TransactionRepositoryColumnarImpl transactionRepository;
+
+    @BeforeEach
+    void setUp() {
+        transactionRepository = new TransactionRepositoryColumnarImpl();
+    }
+
+    private static LocalDateTime now() {
+        return LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
+    }
+
+    @Test
+    void addTransactionTest() {
+        Transaction transaction = new Transaction(1, 2, now(),
+                TransactionType.CREDIT, AuditableStatus.SUCCESS, 123);
+        transactionRepository.addTransaction(transaction);
+        List<Transaction> transactions = transactionRepository.getAll();
+        assertThat(transactions).containsExactly(transaction);
+    }
+
+    @Test
+    void findByIdTest() {
+        Transaction transaction = new Transaction(1, 2, now(),
+                TransactionType.CREDIT, AuditableStatus.SUCCESS, 321);
+        Transaction transaction1 = new Transaction(3, 2, now(),
+                TransactionType.DEBIT, AuditableStatus.DECLINE, 123.5f);
+        transactionRepository.addTransaction(transaction);
+        transactionRepository.addTransaction(transaction1);
+        assertThat(transactionRepository.findById(3)).isEqualTo(transaction1);
+        assertThat(transactionRepository.findById(1232)).isNull();
+    }
+
+    @Test
+    void findAllByUserIdTest() {
+        long userId = 1;
+        Transaction transaction = new Transaction(1, userId, now(),
+                TransactionType.CREDIT, AuditableStatus.SUCCESS, 321);
+        Transaction transaction1 = new Transaction(2, 2, now(),
+                TransactionType.CREDIT, AuditableStatus.SUCCESS, 123);
+        Transaction transaction2 = new Transaction(3, userId, now(),
+                TransactionType.DEBIT, AuditableStatus.SUCCESS, 100);
+        transactionRepository.addTransaction(transaction);
+        transactionRepository.addTransaction(transaction1);
+        transactionRepository.addTransaction(transaction2);
+        assertThat(transactionRepository.findAllByUserId(userId)).containsExactly(transaction, transaction2);
+        assertThat(transactionRepository.findAllByUserId(5)).isEmpty();
+    }
+
+    @Test
+    void manyChunksTest() {
+        int count = 50_000;
+        LocalDateTime dateTime = now();
+        for (int i = 0; i < count; i++) {
+            transactionRepository.addTransaction(new Transaction(i + 1, i % 7, dateTime.plusSeconds(i),
+                    TransactionType.CREDIT, AuditableStatus.SUCCESS, i));
+        }
+        assertThat(transactionRepository.size()).isEqualTo(count);
+        assertThat(transactionRepository.findById(count).getDateTime()).isEqualTo(dateTime.plusSeconds(count - 1));
+        assertThat(transactionRepository.findAllByUserId(3)).hasSize(count / 7 + 1);
+
+        AtomicInteger scanned = new AtomicInteger();
+        transactionRepository.scan(20_000, 30_000, (id, userId, epochMicros, type, status, amount) -> scanned.incrementAndGet());
+        assertThat(scanned.get()).isEqualTo(10_000);
+    }
+
+    @Test
+    void isTransactionIdUnique() {
+        assertThat(transactionRepository.isTransactionIdUnique(1)).isTrue();
+        assertThat(transactionRepository.isTransactionIdUnique(1)).isFalse();
+        assertThat(transactionRepository.isTransactionIdUnique(2)).isTrue();
+    }
+
+    @Test
+    void findByUserIdBetweenTest() {
+        long userId = 1;
+        LocalDateTime dateTime = LocalDateTime.of(2023, 10, 1, 12, 0);
+        Transaction late = new Transaction(1, userId, dateTime.plusDays(40),
+                TransactionType.CREDIT, AuditableStatus.SUCCESS, 1);
+        Transaction early = new Transaction(2, userId, dateTime,
+                TransactionType.CREDIT, AuditableStatus.SUCCESS, 2);
+        Transaction middle = new Transaction(3, userId, dateTime.plusDays(10),
+                TransactionType.DEBIT, AuditableStatus.SUCCESS, 3);
+        transactionRepository.addTransaction(late);
+        transactionRepository.addTransaction(early);
+        transactionRepository.addTransaction(middle);
+
+        assertThat(transactionRepository.findByUserIdBetween(userId, dateTime, dateTime.plusDays(30)))
+                .containsExactly(early, middle);
+        assertThat(transactionRepository.findByUserIdBetween(userId, dateTime.plusDays(41), dateTime.plusDays(50)))
+                .isEmpty();
+        assertThat(transactionRepository.findAllByUserId(userId)).containsExactly(early, middle, late);
+    }
+
+    @Test
+    void findPageByUserIdTest() {
+        long userId = 1;
+        LocalDateTime dateTime = LocalDateTime.of(2023, 10, 1, 12, 0);
+        for (int i = 0; i < 5; i++) {
+            transactionRepository.addTransaction(new Transaction(userId, dateTime.plusMinutes(Math.min(i, 3)),
+                    TransactionType.CREDIT, AuditableStatus.SUCCESS, i));
+        }
+
+        Page<Transaction> first = transactionRepository.findPageByUserId(userId, null, 3);
+        Page<Transaction> second = transactionRepository.findPageByUserId(userId, first.getNextCursor(), 3);
+
+        assertThat(first.getItems()).extracting(Transaction::getAmount).containsExactly(0f, 1f, 2f);
+        assertThat(second.getItems()).extracting(Transaction::getAmount).containsExactly(3f, 4f);
+        assertThat(first.hasNext()).isTrue();
+        assertThat(second.hasNext()).isFalse();
+    }
+}
@@ -1,5 +1,6 @@
 package org.example.infrostructure.repositoryies.collections;
 
+import org.example.core.models.Page;
 import org.example.core.models.Transaction;
 import org.example.core.models.enums.AuditableStatus;
 import org.example.core.models.enums.TransactionType;
@@ -96,4 +97,71 @@ class TransactionRepositoryImplTest {
         assertThat(test2).isFalse();
         assertThat(test3).isTrue();
     }
-}
\ No newline at end of file
+
+    @Test
+    void findAllByUserIdKeepsInsertionOrderTest() {
+        long userId = 1;
+        Transaction transaction = new Transaction(5, userId, LocalDateTime.now(),
+                TransactionType.CREDIT, AuditableStatus.SUCCESS, 321);
+        Transaction transaction1 = new Transaction(4, 2, LocalDateTime.now(),
+                TransactionType.CREDIT, AuditableStatus.SUCCESS, 123);
+        Transaction transaction2 = new Transaction(3, userId, LocalDateTime.now(),
+                TransactionType.DEBIT, AuditableStatus.DECLINE, 1000);
+        transactionRepository.addTransaction(transaction);
+        transactionRepository.addTransaction(transaction1);
+        transactionRepository.addTransaction(transaction2);
+        assertThat(transactionRepository.findAllByUserId(userId)).containsExactly(transaction, transaction2);
+        assertThat(transactionRepository.findAllByUserId(2)).containsExactly(transaction1);
+        assertThat(transactionRepository.findById(3)).isEqualTo(transaction2);
+    }
+
+    @Test
+    void findByUserIdBetweenTest() {
+        long userId = 1;
+        LocalDateTime dateTime = LocalDateTime.of(2023, 10, 1, 12, 0);
+        Transaction late = new Transaction(1, userId, dateTime.plusDays(40),
+                TransactionType.CREDIT, AuditableStatus.SUCCESS, 1);
+        Transaction early = new Transaction(2, userId, dateTime,
+                TransactionType.CREDIT, AuditableStatus.SUCCESS, 2);
+        Transaction middle = new Transaction(3, userId, dateTime.plusDays(10),
+                TransactionType.DEBIT, AuditableStatus.SUCCESS, 3);
+        Transaction other = new Transaction(4, 2, dateTime.plusDays(10),
+                TransactionType.DEBIT, AuditableStatus.SUCCESS, 4);
+        transactionRepository.addTransaction(late);
+        transactionRepository.addTransaction(early);
+        transactionRepository.addTransaction(middle);
+        transactionRepository.addTransaction(other);
+
+        assertThat(transactionRepository.findByUserIdBetween(userId, dateTime, dateTime.plusDays(30)))
+                .containsExactly(early, middle);
+        assertThat(transactionRepository.findByUserIdBetween(userId, dateTime.plusDays(1), dateTime.plusDays(40)))
+                .containsExactly(middle, late);
+        assertThat(transactionRepository.findAllByUserId(userId)).containsExactly(early, middle, late);
+    }
+
+    @Test
+    void findPageByUserIdTest() {
+        long userId = 1;
+        LocalDateTime dateTime = LocalDateTime.of(2023, 10, 1, 12, 0);
+        List<Transaction> expected = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            // у двух последних транзакций одинаковое время, порядок между ними задает id
+            Transaction transaction = new Transaction(userId, dateTime.plusMinutes(Math.min(i, 3)),
+                    TransactionType.CREDIT, AuditableStatus.SUCCESS, i);
+            transactionRepository.addTransaction(transaction);
+            expected.add(transaction);
+        }
+        transactionRepository.addTransaction(new Transaction(2, dateTime,
+                TransactionType.CREDIT, AuditableStatus.SUCCESS, 100));
+
+        Page<Transaction> first = transactionRepository.findPageByUserId(userId, null, 2);
+        Page<Transaction> second = transactionRepository.findPageByUserId(userId, first.getNextCursor(), 2);
+        Page<Transaction> third = transactionRepository.findPageByUserId(userId, second.getNextCursor(), 2);
+
+        assertThat(first.getItems()).containsExactlyElementsOf(expected.subList(0, 2));
+        assertThat(second.getItems()).containsExactlyElementsOf(expected.subList(2, 4));
+        assertThat(third.getItems()).containsExactlyElementsOf(expected.subList(4, 5));
+        assertThat(third.hasNext()).isFalse();
+        assertThat(expected).extracting(Transaction::getId).doesNotHaveDuplicates();
+    }
+}
@@ -8,7 +8,14 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.assertj.core.api.AssertionsForInterfaceTypes.assertThat;
 
 class UserRepositoryImplTest {
@@ -74,4 +81,94 @@ class UserRepositoryImplTest {
         User foundUser = userRepository.findById(user.getId());
         assertThat(foundUser).isNull();
     }
+
+    @Test
+    void addUserDuplicateUsernameTest() {
+        User user1 = new User("u1", "p1", "n1", "l1", 200);
+        User user2 = new User("u1", "p2", "n2", "l2", 300);
+        userRepository.addUser(user1);
+        assertThatThrownBy(() -> userRepository.addUser(user2))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThat(userRepository.findByUsername("u1")).isEqualTo(user1);
+        assertThat(userRepository.findAll()).hasSize(1);
+
+        // отклоненный пользователь не расходует id
+        User user3 = new User("u3", "p3", "n3", "l3", 0);
+        userRepository.addUser(user3);
+        assertThat(user3.getId()).isEqualTo(user1.getId() + 1);
+    }
+
+    @Test
+    void updateUserUsernameCollisionTest() {
+        User user1 = new User("u1", "p1", "n1", "l1", 200);
+        User user2 = new User("u2", "p2", "n2", "l2", 300);
+        userRepository.addUser(user1);
+        userRepository.addUser(user2);
+        User renamed = new User(user2.getId(), "u1", "p2", "n2", "l2", 300);
+        assertThatThrownBy(() -> userRepository.updateUser(renamed))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThat(userRepository.findByUsername("u1")).isEqualTo(user1);
+        assertThat(userRepository.findByUsername("u2")).isEqualTo(user2);
+        assertThat(userRepository.findById(user2.getId())).isEqualTo(user2);
+
+        // переименование того же объекта освобождает прежний логин
+        user1.setUsername("u3");
+        userRepository.updateUser(user1);
+        assertThat(userRepository.findByUsername("u1")).isNull();
+        assertThat(userRepository.findByUsername("u3")).isEqualTo(user1);
+    }
+
+    @Test
+    void updateUserUsernameTest() {
+        User user = new User("u1", "p1", "n1", "l1", 200);
+        userRepository.addUser(user);
+        User renamed = new User(user.getId(), "u2", "p1", "n1", "l1", 200);
+        userRepository.updateUser(renamed);
+        assertThat(userRepository.findByUsername("u1")).isNull();
+        assertThat(userRepository.findByUsername("u2")).isEqualTo(renamed);
+        assertThat(userRepository.findById(user.getId())).isEqualTo(renamed);
+    }
+
+    @Test
+    void concurrentAddUserTest() throws InterruptedException {
+        int threads = 8;
+        int usersPerThread = 1000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        Set<Long> ids = ConcurrentHashMap.newKeySet();
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            executor.submit(() -> {
+                for (int i = 0; i < usersPerThread; i++) {
+                    User user = new User("u" + thread + "_" + i, "p", "n", "l", 0);
+                    userRepository.addUser(user);
+                    ids.add(user.getId());
+                }
+            });
+        }
+        executor.shutdown();
+        assertThat(executor.awaitTermination(30, TimeUnit.SECONDS)).isTrue();
+        assertThat(ids).hasSize(threads * usersPerThread);
+        assertThat(userRepository.findAll()).hasSize(threads * usersPerThread);
+    }
+
+    @Test
+    void userFoundByUsernameIsFoundByIdTest() throws Exception {
+        int users = 20_000;
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Future<?> writer = executor.submit(() -> {
+            for (int i = 0; i < users; i++) {
+                userRepository.addUser(new User("u" + i, "p", "n", "l", 0));
+            }
+        });
+        // пользователь, видимый по логину, уже виден и по id
+        for (int i = 0; i < users; i++) {
+            User found;
+            do {
+                found = userRepository.findByUsername("u" + i);
+            } while (found == null);
+            assertThat(userRepository.findById(found.getId())).isSameAs(found);
+        }
+        writer.get(30, TimeUnit.SECONDS);
+        executor.shutdown();
+    }
 }
@@ -0,0 +1,167 @@
+package org.example.infrostructure.repositoryies.mmap;
+
+import org.example.core.models.Action;
+import org.example.core.models.Auditable;
+import org.example.core.models.Page;
+import org.example.core.models.Transaction;
+import org.example.core.models.enums.ActionType;
+import org.example.core.models.enums.AuditableStatus;
+import org.example.core.models.enums.TransactionType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.AssertionsForInterfaceTypes.assertThat;
+
+class AuditableRepositoryMmapImplTest {
+    private static final int SEGMENT_RECORDS = 4;
+
+    @TempDir
+    Path directory;
+
+    private AuditableRepositoryMmapImpl auditableRepository;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        auditableRepository = new AuditableRepositoryMmapImpl(directory, SEGMENT_RECORDS);
+    }
+
+    @AfterEach
+    void tearDown() {
+        auditableRepository.close();
+    }
+
+    private static LocalDateTime now() {
+        return LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
+    }
+
+    @Test
+    void addAuditableAndFindByIdTest() {
+        Auditable action = new Action(2, now(), AuditableStatus.SUCCESS, ActionType.LOGIN);
+        Auditable transaction = new Transaction(2, now(), TransactionType.DEBIT, AuditableStatus.DECLINE, 12.5f);
+        auditableRepository.addAuditable(action);
+        auditableRepository.addAuditable(transaction);
+
+        // id аудита хранится только в журнале, переданные объекты не меняются
+        assertThat(action.getId()).isZero();
+        assertThat(transaction.getId()).isZero();
+        assertThat(auditableRepository.findById(1)).isEqualTo(action);
+        assertThat(auditableRepository.findById(1).getId()).isEqualTo(1);
+        assertThat(auditableRepository.findById(2)).isEqualTo(transaction);
+        assertThat(auditableRepository.findById(2).getId()).isEqualTo(2);
+        assertThat(auditableRepository.findById(3)).isNull();
+    }
+
+    @Test
+    void findAllByUserIdAcrossSegmentsTest() {
+        for (int i = 0; i < 10; i++) {
+            auditableRepository.addAuditable(new Action(i % 2, now(), AuditableStatus.SUCCESS, ActionType.LOGIN));
+        }
+        List<Auditable> found = auditableRepository.findAllByUserId(1);
+        assertThat(found).hasSize(5);
+        assertThat(found).extracting(Auditable::getId).containsExactly(2L, 4L, 6L, 8L, 10L);
+        assertThat(auditableRepository.getAll()).hasSize(10);
+    }
+
+    @Test
+    void reopenRecoversRecordsTest() throws IOException {
+        Auditable action = new Action(1, now(), AuditableStatus.SUCCESS, ActionType.REGISTRATION);
+        Auditable transaction = new Transaction(1, now(), TransactionType.CREDIT, AuditableStatus.SUCCESS, 100);
+        for (int i = 0; i < 5; i++) {
+            auditableRepository.addAuditable(new Action(2, now(), AuditableStatus.SUCCESS, ActionType.LOGIN));
+        }
+        auditableRepository.addAuditable(action);
+        auditableRepository.addAuditable(transaction);
+        auditableRepository.close();
+
+        auditableRepository = new AuditableRepositoryMmapImpl(directory, SEGMENT_RECORDS);
+        assertThat(auditableRepository.size()).isEqualTo(7);
+        assertThat(auditableRepository.findAllByUserId(1)).containsExactly(action, transaction);
+
+        Auditable next = new Action(1, now(), AuditableStatus.SUCCESS, ActionType.LOGOUT);
+        auditableRepository.addAuditable(next);
+        assertThat(auditableRepository.findAllByUserId(1)).extracting(Auditable::getId).containsExactly(6L, 7L, 8L);
+    }
+
+    @Test
+    void reopenTruncatesTornTailTest() throws IOException {
+        for (int i = 0; i < 6; i++) {
+            auditableRepository.addAuditable(new Action(1, now(), AuditableStatus.SUCCESS, ActionType.LOGIN));
+        }
+        auditableRepository.close();
+
+        // повреждение шестой записи, второй во втором сегменте
+        try (RandomAccessFile file = new RandomAccessFile(directory.resolve("audit-00000001.log").toFile(), "rw")) {
+            file.seek(AuditableRepositoryMmapImpl.RECORD_SIZE + 20);
+            file.write(0x7F);
+        }
+
+        auditableRepository = new AuditableRepositoryMmapImpl(directory, SEGMENT_RECORDS);
+        assertThat(auditableRepository.size()).isEqualTo(5);
+        assertThat(auditableRepository.findById(6)).isNull();
+
+        Auditable next = new Action(1, now(), AuditableStatus.SUCCESS, ActionType.LOGOUT);
+        auditableRepository.addAuditable(next);
+        assertThat(auditableRepository.findById(6)).isEqualTo(next);
+    }
+
+    @Test
+    void findByUserIdBetweenTest() throws IOException {
+        long userId = 1;
+        LocalDateTime dateTime = LocalDateTime.of(2023, 10, 1, 12, 0);
+        Auditable late = new Action(userId, dateTime.plusDays(40), AuditableStatus.SUCCESS, ActionType.LOGOUT);
+        Auditable early = new Action(userId, dateTime, AuditableStatus.SUCCESS, ActionType.REGISTRATION);
+        Auditable middle = new Transaction(userId, dateTime.plusDays(10), TransactionType.CREDIT, AuditableStatus.SUCCESS, 5);
+        auditableRepository.addAuditable(late);
+        auditableRepository.addAuditable(early);
+        auditableRepository.addAuditable(middle);
+
+        assertThat(auditableRepository.findByUserIdBetween(userId, dateTime, dateTime.plusDays(30)))
+                .containsExactly(early, middle);
+
+        auditableRepository.close();
+        auditableRepository = new AuditableRepositoryMmapImpl(directory, SEGMENT_RECORDS);
+        assertThat(auditableRepository.findByUserIdBetween(userId, dateTime.plusDays(10), dateTime.plusDays(40)))
+                .containsExactly(middle, late);
+    }
+
+    @Test
+    void findPageByUserIdTest() {
+        LocalDateTime dateTime = LocalDateTime.of(2023, 10, 1, 12, 0);
+        for (int i = 0; i < 7; i++) {
+            auditableRepository.addAuditable(new Action(1, dateTime.plusMinutes(i / 2), AuditableStatus.SUCCESS, ActionType.LOGIN));
+        }
+
+        Page<Auditable> page = auditableRepository.findPageByUserId(1, null, 3);
+        List<Long> ids = new ArrayList<>();
+        while (true) {
+            page.getItems().forEach(auditable -> ids.add(auditable.getId()));
+            if (!page.hasNext()) {
+                break;
+            }
+            page = auditableRepository.findPageByUserId(1, page.getNextCursor(), 3);
+        }
+        assertThat(ids).containsExactly(1L, 2L, 3L, 4L, 5L, 6L, 7L);
+    }
+
+    @Test
+    void closedLogRejectsCallsTest() {
+        auditableRepository.addAuditable(new Action(1, now(), AuditableStatus.SUCCESS, ActionType.LOGIN));
+        auditableRepository.close();
+
+        assertThatThrownBy(() -> auditableRepository.findById(1)).isInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(() -> auditableRepository.addAuditable(
+                new Action(1, now(), AuditableStatus.SUCCESS, ActionType.LOGOUT)))
+                .isInstanceOf(IllegalStateException.class);
+    }
+}
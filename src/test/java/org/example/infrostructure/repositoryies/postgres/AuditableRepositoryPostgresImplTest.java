@@ -9,9 +9,13 @@ import liquibase.exception.LiquibaseException;
 import liquibase.resource.ClassLoaderResourceAccessor;
 import org.example.core.models.Action;
 import org.example.core.models.Auditable;
+import org.example.core.models.Transaction;
 import org.example.core.models.enums.ActionType;
 import org.example.core.models.enums.AuditableStatus;
+import org.example.core.models.enums.TransactionType;
 import org.example.core.repositories.AuditableRepository;
+import org.example.infrostructure.jdbc.ConnectionPool;
+import org.example.infrostructure.jdbc.ConnectionPoolSettings;
 import org.junit.Before;
 import org.junit.ClassRule;
 import org.junit.Test;
@@ -58,7 +62,13 @@ public class AuditableRepositoryPostgresImplTest {
             throw new RuntimeException(e);
         }
 
-        auditableRepository = new AuditableRepositoryPostgresImpl(connection);
+        ConnectionPool connectionPool = new ConnectionPool(new ConnectionPoolSettings(
+                postgresContainer.getJdbcUrl(),
+                postgresContainer.getUsername(),
+                postgresContainer.getPassword(),
+                1, 4, 30_000, 2, 500, 0
+        ));
+        auditableRepository = new AuditableRepositoryPostgresImpl(connectionPool);
     }
 
     @Test
@@ -125,4 +135,33 @@ public class AuditableRepositoryPostgresImplTest {
         List<Auditable> found = auditableRepository.getAll();
         assertThat(found).containsExactlyInAnyOrder(action, action1, action2);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testAddAuditables() {
+        Auditable login = new Action(1, LocalDateTime.now(), AuditableStatus.SUCCESS, ActionType.LOGIN);
+        Auditable credit = new Transaction(1, LocalDateTime.now(), TransactionType.CREDIT, AuditableStatus.SUCCESS, 50);
+        Auditable logout = new Action(2, LocalDateTime.now(), AuditableStatus.SUCCESS, ActionType.LOGOUT);
+
+        auditableRepository.addAuditables(List.of(login, credit, logout));
+
+        assertThat(login.getId()).isPositive();
+        assertThat(credit.getId()).isGreaterThan(login.getId());
+        assertThat(logout.getId()).isGreaterThan(credit.getId());
+        assertThat(auditableRepository.getAll()).containsExactlyInAnyOrder(login, credit, logout);
+    }
+
+    @Test
+    public void testFindByUserIdBetween() {
+        long userId = 1;
+        LocalDateTime dateTime = LocalDateTime.of(2023, 10, 1, 12, 0);
+        Auditable late = new Action(userId, dateTime.plusDays(40), AuditableStatus.SUCCESS, ActionType.LOGOUT);
+        Auditable early = new Action(userId, dateTime, AuditableStatus.SUCCESS, ActionType.REGISTRATION);
+        Auditable middle = new Action(userId, dateTime.plusDays(10), AuditableStatus.SUCCESS, ActionType.LOGIN);
+        auditableRepository.addAuditable(late);
+        auditableRepository.addAuditable(early);
+        auditableRepository.addAuditable(middle);
+
+        List<Auditable> found = auditableRepository.findByUserIdBetween(userId, dateTime.plusDays(10), dateTime.plusDays(40));
+        assertThat(found).containsExactly(middle, late);
+    }
+}
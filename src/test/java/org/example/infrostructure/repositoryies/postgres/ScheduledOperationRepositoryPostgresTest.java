@@ -0,0 +1,101 @@
+package org.example.infrostructure.repositoryies.postgres;
+
+import liquibase.Liquibase;
+import liquibase.database.Database;
+import liquibase.database.DatabaseFactory;
+import liquibase.database.jvm.JdbcConnection;
+import liquibase.exception.LiquibaseException;
+import liquibase.resource.ClassLoaderResourceAccessor;
+import org.example.core.models.ScheduledOperation;
+import org.example.core.models.enums.Recurrence;
+import org.example.core.models.enums.TransactionType;
+import org.example.core.repositories.ScheduledOperationRepository;
+import org.example.infrostructure.jdbc.ConnectionPool;
+import org.example.infrostructure.jdbc.ConnectionPoolSettings;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.containers.wait.strategy.Wait;
+import org.testcontainers.utility.DockerImageName;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ScheduledOperationRepositoryPostgresTest {
+
+    @ClassRule
+    public static PostgreSQLContainer<?> postgresContainer = new PostgreSQLContainer<>(DockerImageName.parse("postgres:latest"))
+            .withDatabaseName("test")
+            .withUsername("test")
+            .withPassword("test")
+            .waitingFor(Wait.forListeningPort());
+
+    private static final LocalDateTime FIRST_RUN = LocalDateTime.of(2024, 1, 31, 9, 0);
+
+    private ConnectionPool connectionPool;
+    private ScheduledOperationRepository repository;
+
+    @Before
+    public void setUp() throws SQLException, LiquibaseException {
+        try (Connection connection = DriverManager.getConnection(
+                postgresContainer.getJdbcUrl(),
+                postgresContainer.getUsername(),
+                postgresContainer.getPassword()
+        )) {
+            Database database = DatabaseFactory.getInstance().findCorrectDatabaseImplementation(new JdbcConnection(connection));
+            Liquibase liquibase = new Liquibase("db/changelog/changelog.xml", new ClassLoaderResourceAccessor(), database);
+            liquibase.update();
+            connection.createStatement().execute("TRUNCATE entities.\"ScheduledOperation\"");
+        }
+
+        connectionPool = new ConnectionPool(new ConnectionPoolSettings(
+                postgresContainer.getJdbcUrl(),
+                postgresContainer.getUsername(),
+                postgresContainer.getPassword(),
+                1, 4, 30_000, 2, 500, 0
+        ));
+        repository = new ScheduledOperationRepositoryPostgresImpl(connectionPool);
+    }
+
+    @After
+    public void tearDown() {
+        connectionPool.close();
+    }
+
+    @Test
+    public void testAddAndFind() {
+        ScheduledOperation salary = new ScheduledOperation(1, TransactionType.CREDIT, 1000, Recurrence.MONTHLY, FIRST_RUN);
+        ScheduledOperation subscription = new ScheduledOperation(2, TransactionType.DEBIT, 10, Recurrence.DAILY, FIRST_RUN);
+        repository.addScheduledOperation(salary);
+        repository.addScheduledOperation(subscription);
+
+        assertThat(salary.getId()).isPositive();
+        assertThat(repository.findById(salary.getId())).isEqualTo(salary);
+        assertThat(repository.findAllByUserId(2)).containsExactly(subscription);
+        assertThat(repository.findAll()).containsExactlyInAnyOrder(salary, subscription);
+    }
+
+    @Test
+    public void testUpdateAndDeleteInBatches() {
+        ScheduledOperation salary = new ScheduledOperation(1, TransactionType.CREDIT, 1000, Recurrence.MONTHLY, FIRST_RUN);
+        ScheduledOperation subscription = new ScheduledOperation(1, TransactionType.DEBIT, 10, Recurrence.DAILY, FIRST_RUN);
+        repository.addScheduledOperation(salary);
+        repository.addScheduledOperation(subscription);
+
+        salary.setOccurrence(2);
+        subscription.setOccurrence(5);
+        repository.updateScheduledOperations(List.of(salary, subscription));
+        assertThat(repository.findById(salary.getId()).getNextRun()).isEqualTo(LocalDateTime.of(2024, 3, 31, 9, 0));
+        assertThat(repository.findById(subscription.getId()).getOccurrence()).isEqualTo(5);
+
+        repository.deleteScheduledOperations(List.of(subscription.getId()));
+        assertThat(repository.findAllByUserId(1)).containsExactly(salary);
+    }
+}
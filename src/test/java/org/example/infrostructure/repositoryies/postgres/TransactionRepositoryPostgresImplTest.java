@@ -7,10 +7,13 @@ import liquibase.database.jvm.JdbcConnection;
 import liquibase.exception.DatabaseException;
 import liquibase.exception.LiquibaseException;
 import liquibase.resource.ClassLoaderResourceAccessor;
+import org.example.core.models.Page;
 import org.example.core.models.Transaction;
 import org.example.core.models.enums.AuditableStatus;
 import org.example.core.models.enums.TransactionType;
 import org.example.core.repositories.TransactionRepository;
+import org.example.infrostructure.jdbc.ConnectionPool;
+import org.example.infrostructure.jdbc.ConnectionPoolSettings;
 import org.junit.Before;
 import org.junit.ClassRule;
 import org.junit.Test;
@@ -57,7 +60,13 @@ public class TransactionRepositoryPostgresImplTest {
             throw new RuntimeException(e);
         }
 
-        transactionRepository = new TransactionRepositoryPostgresImpl(connection);
+        ConnectionPool connectionPool = new ConnectionPool(new ConnectionPoolSettings(
+                postgresContainer.getJdbcUrl(),
+                postgresContainer.getUsername(),
+                postgresContainer.getPassword(),
+                1, 4, 30_000, 2, 500, 0
+        ));
+        transactionRepository = new TransactionRepositoryPostgresImpl(connectionPool);
     }
 
     @Test
@@ -120,4 +129,46 @@ public class TransactionRepositoryPostgresImplTest {
         List<Transaction> foundTransactions = transactionRepository.getAll();
         assertThat(foundTransactions).containsExactlyInAnyOrder(transaction, transaction1, transaction2);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testIsTransactionIdUnique() {
+        assertThat(transactionRepository.isTransactionIdUnique(1)).isTrue();
+        assertThat(transactionRepository.isTransactionIdUnique(1)).isFalse();
+        assertThat(transactionRepository.isTransactionIdUnique(2)).isTrue();
+    }
+
+    @Test
+    public void testFindByUserIdBetween() {
+        long userId = 1;
+        LocalDateTime dateTime = LocalDateTime.of(2023, 10, 1, 12, 0);
+        Transaction late = new Transaction(userId, dateTime.plusDays(40),
+                TransactionType.CREDIT, AuditableStatus.SUCCESS, 1);
+        Transaction early = new Transaction(userId, dateTime,
+                TransactionType.CREDIT, AuditableStatus.SUCCESS, 2);
+        Transaction middle = new Transaction(userId, dateTime.plusDays(10),
+                TransactionType.DEBIT, AuditableStatus.SUCCESS, 3);
+        transactionRepository.addTransaction(late);
+        transactionRepository.addTransaction(early);
+        transactionRepository.addTransaction(middle);
+
+        List<Transaction> found = transactionRepository.findByUserIdBetween(userId, dateTime, dateTime.plusDays(30));
+        assertThat(found).containsExactly(early, middle);
+    }
+
+    @Test
+    public void testFindPageByUserId() {
+        long userId = 1;
+        LocalDateTime dateTime = LocalDateTime.of(2023, 10, 1, 12, 0);
+        for (int i = 0; i < 5; i++) {
+            transactionRepository.addTransaction(new Transaction(userId, dateTime.plusMinutes(Math.min(i, 3)),
+                    TransactionType.CREDIT, AuditableStatus.SUCCESS, i));
+        }
+
+        Page<Transaction> first = transactionRepository.findPageByUserId(userId, null, 3);
+        Page<Transaction> second = transactionRepository.findPageByUserId(userId, first.getNextCursor(), 3);
+
+        assertThat(first.getItems()).extracting(Transaction::getAmount).containsExactly(0f, 1f, 2f);
+        assertThat(second.getItems()).extracting(Transaction::getAmount).containsExactly(3f, 4f);
+        assertThat(second.hasNext()).isFalse();
+    }
+}
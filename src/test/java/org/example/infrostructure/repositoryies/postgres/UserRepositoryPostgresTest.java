@@ -12,6 +12,8 @@ import org.testcontainers.containers.wait.strategy.Wait;
 import org.testcontainers.utility.DockerImageName;
 import org.example.core.models.User;
 import org.example.core.repositories.UserRepository;
+import org.example.infrostructure.jdbc.ConnectionPool;
+import org.example.infrostructure.jdbc.ConnectionPoolSettings;
 import liquibase.Liquibase;
 import liquibase.database.jvm.JdbcConnection;
 import liquibase.resource.ClassLoaderResourceAccessor;
@@ -53,7 +55,13 @@ public class UserRepositoryPostgresTest {
             throw new RuntimeException(e);
         }
 
-        userRepository = new UserRepositoryPostgresImpl(connection);
+        ConnectionPool connectionPool = new ConnectionPool(new ConnectionPoolSettings(
+                postgresContainer.getJdbcUrl(),
+                postgresContainer.getUsername(),
+                postgresContainer.getPassword(),
+                1, 4, 30_000, 2, 500, 0
+        ));
+        userRepository = new UserRepositoryPostgresImpl(connectionPool);
     }
 
     @Test
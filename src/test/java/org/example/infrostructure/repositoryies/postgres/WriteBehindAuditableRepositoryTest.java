@@ -0,0 +1,184 @@
+package org.example.infrostructure.repositoryies.postgres;
+
+import org.example.core.models.Action;
+import org.example.core.models.Transaction;
+import org.example.core.models.enums.ActionType;
+import org.example.core.models.enums.AuditableStatus;
+import org.example.core.models.enums.TransactionType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.AssertionsForInterfaceTypes.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class WriteBehindAuditableRepositoryTest {
+    private final List<Integer> insertedRows = new CopyOnWriteArrayList<>();
+    private final CountDownLatch writerReleased = new CountDownLatch(1);
+    private volatile boolean blockWriter;
+    private volatile boolean failInserts;
+    private volatile boolean breakInserts;
+
+    private DataSource dataSource;
+    private WriteBehindAuditableRepository repository;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        dataSource = mock(DataSource.class);
+        when(dataSource.getConnection()).thenAnswer(invocation -> {
+            if (blockWriter && Thread.currentThread().getName().equals("audit-write-behind")) {
+                writerReleased.await();
+            }
+            Connection connection = mock(Connection.class);
+            when(connection.prepareStatement(anyString())).thenAnswer(prepare -> {
+                String sql = prepare.getArgument(0);
+                PreparedStatement statement = mock(PreparedStatement.class);
+                when(statement.executeUpdate()).thenAnswer(execute -> {
+                    if (failInserts) {
+                        throw new SQLException("Insert failed");
+                    }
+                    if (breakInserts) {
+                        throw new IllegalStateException("Connection pool is closed.");
+                    }
+                    int rows = sql.split("\\(\\?").length - 1;
+                    insertedRows.add(rows);
+                    return rows;
+                });
+                return statement;
+            });
+            return connection;
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        writerReleased.countDown();
+        if (repository != null) {
+            repository.close();
+        }
+    }
+
+    private static Action action() {
+        return new Action(1, LocalDateTime.now(), AuditableStatus.SUCCESS, ActionType.LOGIN);
+    }
+
+    @Test
+    void recordsAreWrittenInBatchesTest() {
+        repository = new WriteBehindAuditableRepository(dataSource, 100, 4, 1_000, 100);
+        for (int i = 0; i < 9; i++) {
+            repository.addAuditable(action());
+        }
+        repository.addAuditable(new Transaction(1, LocalDateTime.now(), TransactionType.CREDIT, AuditableStatus.SUCCESS, 10));
+
+        repository.flush();
+
+        assertThat(repository.getWritten()).isEqualTo(10);
+        assertThat(insertedRows.stream().mapToInt(Integer::intValue).sum()).isEqualTo(10);
+        assertThat(insertedRows).allMatch(rows -> rows <= 4);
+        assertThat(insertedRows.size()).isLessThan(10);
+    }
+
+    @Test
+    void closeFlushesQueueTest() {
+        repository = new WriteBehindAuditableRepository(dataSource, 100, 50, 10_000, 100);
+        for (int i = 0; i < 20; i++) {
+            repository.addAuditable(action());
+        }
+
+        repository.close();
+
+        assertThat(repository.getWritten()).isEqualTo(20);
+        assertThat(repository.getQueued()).isZero();
+    }
+
+    @Test
+    void failedBatchIsCountedAsDroppedTest() {
+        failInserts = true;
+        repository = new WriteBehindAuditableRepository(dataSource, 100, 10, 10, 100);
+        repository.addAuditable(action());
+        repository.addAuditable(action());
+
+        repository.flush();
+
+        assertThat(repository.getDropped()).isEqualTo(2);
+        assertThat(repository.getWritten()).isZero();
+    }
+
+    @Test
+    void writerSurvivesRuntimeExceptionTest() {
+        breakInserts = true;
+        repository = new WriteBehindAuditableRepository(dataSource, 100, 10, 10, 100);
+        repository.addAuditable(action());
+        repository.flush();
+        breakInserts = false;
+        repository.addAuditable(action());
+        repository.flush();
+
+        assertThat(repository.getDropped()).isEqualTo(1);
+        assertThat(repository.getWritten()).isEqualTo(1);
+    }
+
+    @Test
+    void fullQueueRejectsInsteadOfReorderingTest() throws InterruptedException {
+        blockWriter = true;
+        repository = new WriteBehindAuditableRepository(dataSource, 2, 1, 10, 10);
+        repository.addAuditable(action());
+        while (repository.getQueued() > 0) {
+            Thread.sleep(1);
+        }
+        repository.addAuditable(action());
+        repository.addAuditable(action());
+        assertThatThrownBy(() -> repository.addAuditable(action())).isInstanceOf(IllegalStateException.class);
+
+        assertThat(repository.getRejected()).isEqualTo(1);
+        assertThat(repository.getWritten()).isZero();
+
+        writerReleased.countDown();
+        repository.flush();
+        assertThat(repository.getWritten()).isEqualTo(3);
+    }
+
+    @Test
+    void closeRacingWithWritersLosesNothingTest() throws InterruptedException {
+        repository = new WriteBehindAuditableRepository(dataSource, 100, 8, 1, 1_000);
+        AtomicLong accepted = new AtomicLong();
+        List<Thread> writers = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            Thread thread = new Thread(() -> {
+                while (true) {
+                    try {
+                        repository.addAuditable(action());
+                    } catch (IllegalStateException e) {
+                        return;
+                    }
+                    accepted.incrementAndGet();
+                }
+            });
+            writers.add(thread);
+            thread.start();
+        }
+        Thread.sleep(20);
+        repository.close();
+        for (Thread thread : writers) {
+            thread.join();
+        }
+
+        // все записи, добавление которых завершилось успешно, записаны
+        assertThat(repository.getWritten()).isEqualTo(accepted.get());
+        assertThat(repository.getQueued()).isZero();
+    }
+}
@@ -0,0 +1,223 @@
+package org.example.infrostructure.repositoryies.ring;
+
+import org.example.core.models.Action;
+import org.example.core.models.Auditable;
+import org.example.core.models.enums.ActionType;
+import org.example.core.models.enums.AuditableStatus;
+import org.example.core.repositories.AuditableRepository;
+import org.example.infrostructure.repositoryies.collections.AuditableReppositoryImpl;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RingBufferAuditableRepositoryTest {
+
+    /**
+     * Репозиторий в памяти, запоминающий размеры полученных пачек
+     */
+    private static class RecordingRepository extends AuditableReppositoryImpl {
+        private final List<Integer> batchSizes = new ArrayList<>();
+
+        @Override
+        public void addAuditables(List<? extends Auditable> auditables) {
+            synchronized (batchSizes) {
+                batchSizes.add(auditables.size());
+            }
+            super.addAuditables(auditables);
+        }
+    }
+
+    private static RingBufferAuditableRepository started(RingBufferAuditableRepository repository) {
+        repository.start();
+        return repository;
+    }
+
+    @Test
+    void testNotStartedBufferRejectsWhenFull() {
+        RingBufferAuditableRepository repository =
+                new RingBufferAuditableRepository(new AuditableReppositoryImpl(), 1, 1, WaitStrategy.SLEEPING);
+        repository.addAuditable(new Action(1, LocalDateTime.now(), AuditableStatus.SUCCESS, ActionType.LOGIN));
+
+        assertThatThrownBy(() -> repository.addAuditable(
+                new Action(1, LocalDateTime.now(), AuditableStatus.SUCCESS, ActionType.LOGIN)))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage("Audit ring consumer is not started.");
+        repository.close();
+        assertThatThrownBy(repository::start).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void testReadSeesPublishedAudit() {
+        AuditableRepository delegate = new AuditableReppositoryImpl();
+        try (RingBufferAuditableRepository repository = started(new RingBufferAuditableRepository(delegate))) {
+            Auditable login = new Action(1, LocalDateTime.now(), AuditableStatus.SUCCESS, ActionType.LOGIN);
+            Auditable logout = new Action(1, LocalDateTime.now(), AuditableStatus.SUCCESS, ActionType.LOGOUT);
+
+            repository.addAuditable(login);
+            repository.addAuditable(logout);
+
+            assertThat(repository.findAllByUserId(1)).containsExactly(login, logout);
+            assertThat(repository.getMetrics().getQueueDepth()).isZero();
+        }
+    }
+
+    @Test
+    void testConcurrentProducersWrapAroundSmallBuffer() throws InterruptedException {
+        for (WaitStrategy waitStrategy : WaitStrategy.values()) {
+            publishConcurrently(waitStrategy);
+        }
+    }
+
+    private void publishConcurrently(WaitStrategy waitStrategy) throws InterruptedException {
+        int producers = 8;
+        int perProducer = 5_000;
+        RecordingRepository delegate = new RecordingRepository();
+        RingBufferAuditableRepository repository =
+                started(new RingBufferAuditableRepository(delegate, 64, 16, waitStrategy));
+
+        ExecutorService executor = Executors.newFixedThreadPool(producers);
+        CountDownLatch start = new CountDownLatch(1);
+        for (int p = 0; p < producers; p++) {
+            long userId = p;
+            executor.execute(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < perProducer; i++) {
+                    repository.addAuditable(new Action(userId, LocalDateTime.now(), AuditableStatus.SUCCESS, ActionType.LOGIN));
+                }
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertThat(executor.awaitTermination(30, TimeUnit.SECONDS)).isTrue();
+        repository.close();
+
+        assertThat(delegate.getAll()).hasSize(producers * perProducer);
+        for (int p = 0; p < producers; p++) {
+            assertThat(delegate.findAllByUserId(p)).hasSize(perProducer);
+        }
+        RingBufferMetrics metrics = repository.getMetrics();
+        assertThat(metrics.getCapacity()).isEqualTo(64);
+        assertThat(metrics.getConsumed()).isEqualTo(producers * perProducer);
+        assertThat(metrics.getQueueDepth()).isZero();
+        assertThat(metrics.getMaxBatchSize()).isLessThanOrEqualTo(16);
+        assertThat(delegate.batchSizes).allMatch(size -> size > 0 && size <= 16);
+    }
+
+    @Test
+    void testBacklogIsWrittenInBatches() throws InterruptedException {
+        CountDownLatch published = new CountDownLatch(1);
+        RecordingRepository delegate = new RecordingRepository() {
+            @Override
+            public void addAuditables(List<? extends Auditable> auditables) {
+                // первая пачка ждет, пока в буфере накопятся остальные записи
+                try {
+                    published.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                super.addAuditables(auditables);
+            }
+        };
+        RingBufferAuditableRepository repository =
+                started(new RingBufferAuditableRepository(delegate, 1_024, 256, WaitStrategy.SLEEPING));
+        for (int i = 0; i < 1_000; i++) {
+            repository.addAuditable(new Action(1, LocalDateTime.now(), AuditableStatus.SUCCESS, ActionType.LOGIN));
+        }
+        published.countDown();
+        repository.close();
+
+        RingBufferMetrics metrics = repository.getMetrics();
+        assertThat(metrics.getConsumed()).isEqualTo(1_000);
+        assertThat(metrics.getBatches()).isEqualTo(delegate.batchSizes.size()).isLessThanOrEqualTo(5);
+        assertThat(metrics.getMaxBatchSize()).isEqualTo(256);
+        assertThatThrownBy(() -> repository.addAuditable(
+                new Action(1, LocalDateTime.now(), AuditableStatus.SUCCESS, ActionType.LOGIN)))
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void testFailedBatchDoesNotStopConsumer() {
+        AuditableRepository delegate = new AuditableReppositoryImpl() {
+            @Override
+            public void addAuditable(Auditable auditable) {
+                if (auditable.getUserId() == 0) {
+                    throw new IllegalArgumentException("Unsupported user.");
+                }
+                super.addAuditable(auditable);
+            }
+        };
+        try (RingBufferAuditableRepository repository = started(new RingBufferAuditableRepository(delegate))) {
+            repository.addAuditable(new Action(0, LocalDateTime.now(), AuditableStatus.SUCCESS, ActionType.LOGIN));
+            repository.flush();
+            Auditable action = new Action(1, LocalDateTime.now(), AuditableStatus.SUCCESS, ActionType.LOGIN);
+            repository.addAuditable(action);
+
+            assertThat(repository.getAll()).containsExactly(action);
+            assertThat(repository.getMetrics().getFailed()).isEqualTo(1);
+        }
+    }
+
+    @Test
+    void testCloseRacingWithProducersLosesNothing() throws InterruptedException {
+        for (int round = 0; round < 20; round++) {
+            AuditableReppositoryImpl delegate = new AuditableReppositoryImpl();
+            RingBufferAuditableRepository repository =
+                    started(new RingBufferAuditableRepository(delegate, 64, 16, WaitStrategy.YIELDING));
+            AtomicInteger accepted = new AtomicInteger();
+            ExecutorService executor = Executors.newFixedThreadPool(4);
+            for (int p = 0; p < 4; p++) {
+                executor.execute(() -> {
+                    try {
+                        while (true) {
+                            repository.addAuditable(new Action(1, LocalDateTime.now(), AuditableStatus.SUCCESS, ActionType.LOGIN));
+                            accepted.incrementAndGet();
+                        }
+                    } catch (IllegalStateException e) {
+                        // репозиторий закрыт
+                    }
+                });
+            }
+            Thread.sleep(2);
+            repository.close();
+            executor.shutdown();
+            assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+
+            // каждая принятая запись записана, отклоненные не записаны
+            assertThat(delegate.getAll()).hasSize(accepted.get());
+        }
+    }
+
+    @Test
+    void testStoppedConsumerFailsProducersInsteadOfOverwriting() {
+        AuditableRepository delegate = new AuditableReppositoryImpl() {
+            @Override
+            public void addAuditables(List<? extends Auditable> auditables) {
+                throw new AssertionError("Writer died.");
+            }
+        };
+        RingBufferAuditableRepository repository =
+                started(new RingBufferAuditableRepository(delegate, 2, 1, WaitStrategy.SLEEPING));
+        repository.addAuditable(new Action(1, LocalDateTime.now(), AuditableStatus.SUCCESS, ActionType.LOGIN));
+        repository.addAuditable(new Action(1, LocalDateTime.now(), AuditableStatus.SUCCESS, ActionType.LOGIN));
+
+        assertThatThrownBy(() -> repository.addAuditable(
+                new Action(1, LocalDateTime.now(), AuditableStatus.SUCCESS, ActionType.LOGIN)))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage("Audit ring consumer has stopped.");
+        repository.close();
+    }
+}
@@ -0,0 +1,216 @@
+package org.example.infrostructure.scheduler;
+
+import org.example.core.models.ScheduledOperation;
+import org.example.core.models.Transaction;
+import org.example.core.models.User;
+import org.example.core.models.enums.AuditableStatus;
+import org.example.core.models.enums.Recurrence;
+import org.example.core.models.enums.TransactionType;
+import org.example.infrostructure.repositoryies.collections.AuditableReppositoryImpl;
+import org.example.infrostructure.repositoryies.collections.ScheduledOperationRepositoryImpl;
+import org.example.infrostructure.repositoryies.collections.TransactionRepositoryImpl;
+import org.example.infrostructure.repositoryies.collections.UserRepositoryImpl;
+import org.example.infrostructure.services.OperationServiceImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class OperationSchedulerTest {
+
+    /**
+     * Часы, время которых переводится вручную
+     */
+    private static class ManualClock extends Clock {
+        private long millis;
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public long millis() {
+            return millis;
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(millis);
+        }
+
+        void set(LocalDateTime dateTime) {
+            millis = dateTime.toInstant(ZoneOffset.UTC).toEpochMilli();
+        }
+    }
+
+    private static final LocalDateTime START = LocalDateTime.of(2024, 1, 31, 9, 0);
+
+    private final ManualClock clock = new ManualClock();
+    private final UserRepositoryImpl userRepository = new UserRepositoryImpl();
+    private final TransactionRepositoryImpl transactionRepository = new TransactionRepositoryImpl();
+    private final ScheduledOperationRepositoryImpl scheduledOperationRepository = new ScheduledOperationRepositoryImpl();
+    private OperationServiceImpl operationService;
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        clock.set(START.minusDays(1));
+        operationService = new OperationServiceImpl(userRepository, transactionRepository, new AuditableReppositoryImpl());
+        user = new User("user", "password", "f1", "l1", 0);
+        userRepository.addUser(user);
+    }
+
+    private OperationScheduler scheduler() {
+        return new OperationScheduler(operationService, scheduledOperationRepository, 1_000, 100, clock);
+    }
+
+    @Test
+    void testMonthlyOperationKeepsDayOfMonth() {
+        OperationScheduler scheduler = scheduler();
+        ScheduledOperation salary = scheduler.schedule(user.getId(), TransactionType.CREDIT, 1_000,
+                Recurrence.MONTHLY, START);
+
+        assertThat(scheduler.advance()).isZero();
+        clock.set(START.minusSeconds(1));
+        assertThat(scheduler.advance()).isZero();
+        clock.set(START);
+        assertThat(scheduler.advance()).isEqualTo(1);
+        assertThat(salary.getNextRun()).isEqualTo(LocalDateTime.of(2024, 2, 29, 9, 0));
+
+        clock.set(LocalDateTime.of(2024, 3, 1, 0, 0));
+        assertThat(scheduler.advance()).isEqualTo(1);
+        assertThat(salary.getNextRun()).isEqualTo(LocalDateTime.of(2024, 3, 31, 9, 0));
+        assertThat(userRepository.findById(user.getId()).getBalance()).isEqualTo(2_000);
+        assertThat(scheduledOperationRepository.findById(salary.getId()).getOccurrence()).isEqualTo(2);
+    }
+
+    @Test
+    void testMissedOccurrencesAreCaughtUpAfterRestart() {
+        user.setBalance(100);
+        userRepository.updateUser(user);
+        OperationScheduler scheduler = scheduler();
+        scheduler.schedule(user.getId(), TransactionType.CREDIT, 10, Recurrence.DAILY, START);
+        scheduler.schedule(user.getId(), TransactionType.DEBIT, 5, Recurrence.WEEKLY, START);
+        scheduler.close();
+
+        // простой на 10 дней: новый планировщик загружает операции из репозитория
+        clock.set(START.plusDays(10));
+        OperationScheduler restarted = scheduler();
+        assertThat(restarted.advance()).isEqualTo(11 + 2);
+
+        List<Transaction> transactions = transactionRepository.findAllByUserId(user.getId());
+        assertThat(transactions).hasSize(13);
+        assertThat(transactions).allMatch(transaction -> transaction.getStatus() == AuditableStatus.SUCCESS);
+        assertThat(userRepository.findById(user.getId()).getBalance()).isEqualTo(100 + 110 - 10);
+        SchedulerMetrics metrics = restarted.getMetrics();
+        assertThat(metrics.getFired()).isEqualTo(13);
+        assertThat(metrics.getSucceeded()).isEqualTo(13);
+        assertThat(metrics.getMaxLagMillis()).isEqualTo(10L * 24 * 60 * 60 * 1000);
+        assertThat(metrics.getPending()).isEqualTo(2);
+    }
+
+    @Test
+    void testOnceCancelAndDeclinedOperations() {
+        OperationScheduler scheduler = scheduler();
+        ScheduledOperation once = scheduler.schedule(user.getId(), TransactionType.CREDIT, 50, Recurrence.ONCE, START);
+        ScheduledOperation cancelled = scheduler.schedule(user.getId(), TransactionType.CREDIT, 50, Recurrence.DAILY, START);
+        ScheduledOperation subscription = scheduler.schedule(user.getId(), TransactionType.DEBIT, 40, Recurrence.DAILY, START);
+        ScheduledOperation orphan = scheduler.schedule(user.getId() + 100, TransactionType.CREDIT, 1, Recurrence.DAILY, START);
+
+        assertThat(scheduler.cancel(cancelled.getId())).isTrue();
+        assertThat(scheduler.cancel(cancelled.getId())).isFalse();
+        clock.set(START);
+        assertThat(scheduler.advance()).isEqualTo(3);
+
+        // пополнение выполняется раньше списания той же пачки, на второе списание средств уже не хватает
+        clock.set(START.plusDays(1));
+        assertThat(scheduler.advance()).isEqualTo(1);
+
+        assertThat(scheduledOperationRepository.findById(once.getId())).isNull();
+        assertThat(scheduledOperationRepository.findById(cancelled.getId())).isNull();
+        assertThat(scheduledOperationRepository.findById(orphan.getId())).isNull();
+        assertThat(scheduler.findByUserId(user.getId())).containsExactly(subscription);
+        assertThat(subscription.getOccurrence()).isEqualTo(2);
+        SchedulerMetrics metrics = scheduler.getMetrics();
+        assertThat(metrics.getSucceeded()).isEqualTo(2);
+        assertThat(metrics.getDeclined()).isEqualTo(1);
+        assertThat(metrics.getFailed()).isEqualTo(1);
+        assertThat(metrics.getPending()).isEqualTo(1);
+        assertThatThrownBy(() -> scheduler.schedule(user.getId(), TransactionType.CREDIT, 0, Recurrence.ONCE, START))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void testMonthEndSpikeIsFiredInBatches() {
+        OperationScheduler scheduler = new OperationScheduler(operationService, scheduledOperationRepository,
+                1_000, 1_000, clock);
+        for (int i = 0; i < 100; i++) {
+            userRepository.addUser(new User("user" + i, "password", "f", "l", 0));
+        }
+        for (int i = 0; i < 50_000; i++) {
+            scheduler.schedule(2 + i % 100, TransactionType.CREDIT, 1, Recurrence.MONTHLY, START.plusSeconds(i % 60));
+        }
+
+        clock.set(START.plusMinutes(1));
+        assertThat(scheduler.advance()).isEqualTo(50_000);
+
+        SchedulerMetrics metrics = scheduler.getMetrics();
+        assertThat(metrics.getSucceeded()).isEqualTo(50_000);
+        assertThat(metrics.getBatches()).isEqualTo(50);
+        assertThat(metrics.getLastRunOperations()).isEqualTo(50_000);
+        assertThat(metrics.getLastRunThroughput()).isPositive();
+        assertThat(userRepository.findById(2).getBalance()).isEqualTo(500);
+    }
+
+    @Test
+    void testOccurrenceOutOfOperationIdRangeIsNotFired() {
+        OperationScheduler scheduler = scheduler();
+        ScheduledOperation operation = scheduler.schedule(user.getId(), TransactionType.CREDIT, 10, Recurrence.DAILY,
+                START.minusDays(OperationScheduler.MAX_OCCURRENCE + 1));
+        operation.setOccurrence(OperationScheduler.MAX_OCCURRENCE + 1);
+
+        clock.set(START);
+        assertThat(scheduler.advance()).isZero();
+
+        assertThat(userRepository.findById(user.getId()).getBalance()).isZero();
+        assertThat(scheduledOperationRepository.findById(operation.getId())).isNull();
+        assertThat(scheduler.getMetrics().getFailed()).isEqualTo(1);
+        assertThat(scheduler.getMetrics().getPending()).isZero();
+    }
+
+    @Test
+    void testOperationIdsStayNegativeAndDistinctAtLimits() {
+        ScheduledOperation last = new ScheduledOperation(OperationScheduler.MAX_SCHEDULED_ID, 1, TransactionType.CREDIT,
+                1, Recurrence.DAILY, START, OperationScheduler.MAX_OCCURRENCE);
+        ScheduledOperation first = new ScheduledOperation(1, 1, TransactionType.CREDIT, 1, Recurrence.DAILY, START, 0);
+        ScheduledOperation next = new ScheduledOperation(2, 1, TransactionType.CREDIT, 1, Recurrence.DAILY, START, 0);
+
+        assertThat(OperationScheduler.operationId(last)).isEqualTo(Long.MIN_VALUE);
+        assertThat(OperationScheduler.operationId(first)).isNegative();
+        assertThat(OperationScheduler.operationId(next)).isLessThan(OperationScheduler.operationId(first));
+    }
+
+    @Test
+    void testClosedSchedulerCannotStart() {
+        OperationScheduler scheduler = scheduler();
+        scheduler.start();
+        scheduler.start();
+        scheduler.close();
+
+        assertThatThrownBy(scheduler::start).isInstanceOf(IllegalStateException.class);
+    }
+}
@@ -0,0 +1,63 @@
+package org.example.infrostructure.scheduler;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TimingWheelTest {
+
+    @Test
+    void testEntriesFireOnTheirTickAcrossLevels() {
+        long start = 1_000;
+        TimingWheel<Long> wheel = new TimingWheel<>(start, deadline -> deadline);
+        Random random = new Random(3);
+        List<Long> deadlines = new ArrayList<>();
+        for (int i = 0; i < 5_000; i++) {
+            // сроки на всех уровнях: от ближайших тиков до нескольких оборотов третьего уровня
+            long deadline = start + 1 + (long) Math.pow(2, random.nextDouble() * 26);
+            deadlines.add(deadline);
+            wheel.add(deadline);
+        }
+        assertThat(wheel.size()).isEqualTo(deadlines.size());
+
+        long last = deadlines.stream().mapToLong(Long::longValue).max().orElseThrow();
+        List<Long> due = new ArrayList<>();
+        int fired = 0;
+        for (long tick = start + 1; tick <= last; tick += 1 + random.nextInt(700)) {
+            due.clear();
+            wheel.advance(tick, due);
+            for (long deadline : due) {
+                assertThat(deadline).isLessThanOrEqualTo(tick);
+            }
+            fired += due.size();
+            long remaining = deadlines.stream().filter(deadline -> deadline > wheel.currentTick()).count();
+            assertThat(wheel.size()).isEqualTo(remaining);
+        }
+        due.clear();
+        wheel.advance(last, due);
+        assertThat(fired + due.size()).isEqualTo(deadlines.size());
+        assertThat(wheel.size()).isZero();
+    }
+
+    @Test
+    void testOverdueAndEmptyWheel() {
+        TimingWheel<Long> wheel = new TimingWheel<>(100, deadline -> deadline);
+        wheel.add(50L);
+        List<Long> due = new ArrayList<>();
+
+        wheel.advance(100, due);
+        assertThat(due).containsExactly(50L);
+
+        // пустое колесо перескакивает сразу к целевому тику
+        wheel.advance(1L << 40, due);
+        assertThat(wheel.currentTick()).isEqualTo(1L << 40);
+        wheel.add((1L << 40) + 1);
+        due.clear();
+        wheel.advance((1L << 40) + 1, due);
+        assertThat(due).containsExactly((1L << 40) + 1);
+    }
+}
@@ -0,0 +1,99 @@
+package org.example.infrostructure.services;
+
+import org.example.core.models.Transaction;
+import org.example.core.models.User;
+import org.example.core.models.enums.TransacionReturns;
+import org.example.core.services.OperationService;
+import org.example.infrostructure.repositoryies.collections.AuditableReppositoryImpl;
+import org.example.infrostructure.repositoryies.collections.TransactionRepositoryImpl;
+import org.example.infrostructure.repositoryies.collections.UserRepositoryImpl;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.AssertionsForInterfaceTypes.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyFloat;
+import static org.mockito.Mockito.when;
+
+class AsyncOperationServiceTest {
+
+    @Test
+    void testOperationsCompleteOnVirtualThreads() {
+        UserRepositoryImpl userRepository = new UserRepositoryImpl();
+        OperationServiceImpl operationService = new OperationServiceImpl(
+                userRepository, new TransactionRepositoryImpl(), new AuditableReppositoryImpl());
+        User user = new User("username", "password", "Ivan", "Ivanov", 0);
+        userRepository.addUser(user);
+
+        try (AsyncOperationService asyncService = new AsyncOperationService(operationService, 4)) {
+            List<CompletableFuture<TransacionReturns>> results = new ArrayList<>();
+            for (int i = 0; i < 100; i++) {
+                results.add(asyncService.credit(user, 1));
+            }
+            CompletableFuture.allOf(results.toArray(new CompletableFuture<?>[0])).join();
+            List<Transaction> history = asyncService.history(user).join();
+
+            assertThat(results).allMatch(result -> result.join() == TransacionReturns.SUCCESS);
+            assertThat(history).hasSize(100);
+            assertThat(userRepository.findById(user.getId()).getBalance()).isEqualTo(100);
+        }
+    }
+
+    @Test
+    void testConcurrentCallsAreLimited() throws InterruptedException {
+        OperationService operationService = Mockito.mock(OperationService.class);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        when(operationService.debit(any(User.class), anyFloat())).thenAnswer(invocation -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            release.await(10, TimeUnit.SECONDS);
+            running.decrementAndGet();
+            return TransacionReturns.SUCCESS;
+        });
+        User user = new User("username", "password", "Ivan", "Ivanov", 0);
+
+        try (AsyncOperationService asyncService = new AsyncOperationService(operationService, 3)) {
+            List<CompletableFuture<TransacionReturns>> results = new ArrayList<>();
+            for (int i = 0; i < 50; i++) {
+                results.add(asyncService.debit(user, 1));
+            }
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            // ждем, пока три вызова не войдут в сервис: разрешение берется раньше входа
+            while (running.get() < 3 && System.nanoTime() < deadline) {
+                Thread.sleep(1);
+            }
+            assertThat(asyncService.getActiveOperations()).isEqualTo(3);
+            release.countDown();
+
+            CompletableFuture.allOf(results.toArray(new CompletableFuture<?>[0])).join();
+            assertThat(maxRunning.get()).isEqualTo(3);
+        }
+    }
+
+    @Test
+    void testFailureCompletesFutureExceptionally() {
+        OperationService operationService = Mockito.mock(OperationService.class);
+        when(operationService.credit(any(User.class), anyFloat()))
+                .thenThrow(new IllegalArgumentException("User not found."));
+
+        try (AsyncOperationService asyncService = new AsyncOperationService(operationService)) {
+            CompletableFuture<TransacionReturns> result =
+                    asyncService.credit(new User("username", "password", "Ivan", "Ivanov", 0), 1);
+
+            assertThatThrownBy(result::join)
+                    .isInstanceOf(CompletionException.class)
+                    .hasCauseInstanceOf(IllegalArgumentException.class);
+            assertThat(asyncService.getActiveOperations()).isEqualTo(0);
+        }
+    }
+}
@@ -7,6 +7,7 @@ import org.example.core.models.enums.AuditableStatus;
 import org.example.core.repositories.AuditableRepository;
 import org.example.core.repositories.UserRepository;
 import org.example.infrostructure.SessionContext;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mock;
@@ -16,6 +17,7 @@ import org.mockito.MockitoAnnotations;
 import java.time.LocalDateTime;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.verify;
@@ -31,10 +33,18 @@ class AuthorisationServiceTest {
     @Mock
     private AuditableRepository auditableRepository;
 
+    private SessionContext sessionContext;
+
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
-        authorisationService = new AuthorisationService(userRepository, auditableRepository);
+        sessionContext = new SessionContext();
+        authorisationService = new AuthorisationService(userRepository, auditableRepository, sessionContext);
+    }
+
+    @AfterEach
+    void tearDown() {
+        sessionContext.close();
     }
 
     @Test
@@ -46,10 +56,10 @@ class AuthorisationServiceTest {
         AuditableStatus status = AuditableStatus.SUCCESS;
         ActionType actionType = ActionType.LOGIN;
 
-        AuthorisationService.AuthorisationStatus statusResult = authorisationService.authorisation("username", "password");
+        AuthorisationService.AuthorisationResult result = authorisationService.authorisation("username", "password");
 
-        assertEquals(AuthorisationService.AuthorisationStatus.SUCCESS, statusResult);
-        assertEquals(user, SessionContext.getLoggedInUser());
+        assertEquals(AuthorisationService.AuthorisationStatus.SUCCESS, result.getStatus());
+        assertEquals(user, sessionContext.getUser(result.getToken()));
         verify(auditableRepository).addAuditable(any(Action.class));
     }
 
@@ -57,10 +67,11 @@ class AuthorisationServiceTest {
     void testAuthorisationUserNotFound() {
         when(userRepository.findByUsername("username")).thenReturn(null);
 
-        AuthorisationService.AuthorisationStatus statusResult = authorisationService.authorisation("username", "password");
+        AuthorisationService.AuthorisationResult result = authorisationService.authorisation("username", "password");
 
-        assertEquals(AuthorisationService.AuthorisationStatus.USER_NOT_FOUND, statusResult);
-        assertEquals(null, SessionContext.getLoggedInUser());
+        assertEquals(AuthorisationService.AuthorisationStatus.USER_NOT_FOUND, result.getStatus());
+        assertNull(result.getToken());
+        assertEquals(0, sessionContext.getMetrics().getLive());
         verify(auditableRepository, Mockito.never()).addAuditable(any(Action.class));
     }
 
@@ -69,10 +80,11 @@ class AuthorisationServiceTest {
         User user = new User("username", "password", "f1", "l1", 100);
         when(userRepository.findByUsername("username")).thenReturn(user);
 
-        AuthorisationService.AuthorisationStatus statusResult = authorisationService.authorisation("username", "wrong_password");
+        AuthorisationService.AuthorisationResult result = authorisationService.authorisation("username", "wrong_password");
 
-        assertEquals(AuthorisationService.AuthorisationStatus.INVALID_PASSWORD, statusResult);
-        assertEquals(null, SessionContext.getLoggedInUser());
+        assertEquals(AuthorisationService.AuthorisationStatus.INVALID_PASSWORD, result.getStatus());
+        assertNull(result.getToken());
+        assertEquals(0, sessionContext.getMetrics().getLive());
         verify(auditableRepository, Mockito.never()).addAuditable(any(Action.class));
     }
 
@@ -114,11 +126,11 @@ class AuthorisationServiceTest {
         ActionType actionType = ActionType.LOGOUT;
         Action action = new Action(1, user.getId(), dateTime, status, actionType);
 
-        SessionContext.setLoggedInUser(user);
+        String token = sessionContext.open(user);
 
-        authorisationService.logout(user);
+        authorisationService.logout(token);
 
-        assertEquals(null, SessionContext.getLoggedInUser());
+        assertNull(sessionContext.getUser(token));
         verify(auditableRepository).addAuditable(action);
     }
 }
@@ -0,0 +1,153 @@
+package org.example.infrostructure.services;
+
+import org.example.core.models.Transaction;
+import org.example.core.models.User;
+import org.example.core.models.enums.AuditableStatus;
+import org.example.core.models.enums.TransacionReturns;
+import org.example.core.models.enums.TransactionType;
+import org.example.infrostructure.repositoryies.collections.AuditableReppositoryImpl;
+import org.example.infrostructure.repositoryies.collections.TransactionRepositoryImpl;
+import org.example.infrostructure.repositoryies.collections.UserRepositoryImpl;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import static org.assertj.core.api.AssertionsForInterfaceTypes.assertThat;
+
+/**
+ * Нагрузочная проверка инвариантов баланса при параллельных операциях над общими счетами
+ */
+class OperationServiceImplConcurrencyTest {
+    private static final int ACCOUNTS = 8;
+    private static final int THREADS = 16;
+    private static final int OPERATIONS_PER_THREAD = 5_000;
+    private static final int INITIAL_BALANCE = 100;
+
+    @Test
+    void balanceInvariantsHoldUnderConcurrentOperationsTest() throws InterruptedException {
+        UserRepositoryImpl userRepository = new UserRepositoryImpl();
+        TransactionRepositoryImpl transactionRepository = new TransactionRepositoryImpl();
+        AuditableReppositoryImpl auditableRepository = new AuditableReppositoryImpl();
+        OperationServiceImpl operationService =
+                new OperationServiceImpl(userRepository, transactionRepository, auditableRepository);
+
+        List<User> accounts = new ArrayList<>();
+        for (int i = 0; i < ACCOUNTS; i++) {
+            User user = new User("user" + i, "password", "Ivan", "Ivanov", INITIAL_BALANCE);
+            userRepository.addUser(user);
+            accounts.add(user);
+        }
+
+        AtomicLongArray expectedDelta = new AtomicLongArray(ACCOUNTS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            Thread thread = new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+                    int index = random.nextInt(ACCOUNTS);
+                    User account = accounts.get(index);
+                    // устаревшая копия пользователя, как после чтения в другом потоке
+                    User stale = new User(account.getId(), account.getUsername(), "password", "Ivan", "Ivanov", 0);
+                    int amount = 1 + random.nextInt(15);
+                    if (random.nextBoolean()) {
+                        operationService.credit(stale, amount);
+                        expectedDelta.addAndGet(index, amount);
+                    } else if (operationService.debit(stale, amount) == TransacionReturns.SUCCESS) {
+                        expectedDelta.addAndGet(index, -amount);
+                    }
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertThat(transactionRepository.getAll()).hasSize(THREADS * OPERATIONS_PER_THREAD);
+        assertThat(auditableRepository.getAll()).hasSize(THREADS * OPERATIONS_PER_THREAD);
+        for (int i = 0; i < ACCOUNTS; i++) {
+            User account = userRepository.findById(accounts.get(i).getId());
+            assertThat((long) account.getBalance()).isEqualTo(INITIAL_BALANCE + expectedDelta.get(i));
+
+            // повтор истории счета в порядке операций: баланс ни разу не уходит в минус
+            // и сходится с итоговым
+            List<Transaction> history = transactionRepository.findAllByUserId(account.getId());
+            history.sort(Comparator.comparingLong(Transaction::getId));
+            long balance = INITIAL_BALANCE;
+            for (Transaction transaction : history) {
+                if (transaction.getStatus() != AuditableStatus.SUCCESS) {
+                    assertThat((float) balance).isLessThan(transaction.getAmount());
+                    continue;
+                }
+                balance += transaction.getType() == TransactionType.CREDIT
+                        ? (long) transaction.getAmount()
+                        : -(long) transaction.getAmount();
+                assertThat(balance).isGreaterThanOrEqualTo(0);
+            }
+            assertThat(balance).isEqualTo((long) account.getBalance());
+        }
+    }
+
+    @Test
+    void opposingTransfersConserveMoneyTest() throws InterruptedException {
+        UserRepositoryImpl userRepository = new UserRepositoryImpl();
+        OperationServiceImpl operationService = new OperationServiceImpl(
+                userRepository, new TransactionRepositoryImpl(), new AuditableReppositoryImpl());
+
+        List<User> accounts = new ArrayList<>();
+        for (int i = 0; i < ACCOUNTS; i++) {
+            User user = new User("user" + i, "password", "Ivan", "Ivanov", INITIAL_BALANCE);
+            userRepository.addUser(user);
+            accounts.add(user);
+        }
+
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            Thread thread = new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+                    // переводы в обе стороны между парами счетов: при неупорядоченных блокировках
+                    // потоки взаимоблокировались бы
+                    int from = random.nextInt(ACCOUNTS);
+                    int to = (from + 1 + random.nextInt(ACCOUNTS - 1)) % ACCOUNTS;
+                    operationService.transfer(accounts.get(from), accounts.get(to), 1 + random.nextInt(15));
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join(TimeUnit.MINUTES.toMillis(1));
+            assertThat(thread.isAlive()).isFalse();
+        }
+
+        long total = 0;
+        for (User account : accounts) {
+            float balance = userRepository.findById(account.getId()).getBalance();
+            assertThat(balance).isGreaterThanOrEqualTo(0);
+            total += (long) balance;
+        }
+        assertThat(total).isEqualTo((long) ACCOUNTS * INITIAL_BALANCE);
+    }
+}
@@ -1,24 +1,34 @@
 package org.example.infrostructure.services;
 
+import org.example.core.models.AccountSummary;
 import org.example.core.models.Auditable;
+import org.example.core.models.Operation;
 import org.example.core.models.Transaction;
 import org.example.core.models.User;
 import org.example.core.models.enums.AuditableStatus;
+import org.example.core.models.enums.SummaryPeriod;
 import org.example.core.models.enums.TransacionReturns;
 import org.example.core.models.enums.TransactionType;
 import org.example.core.repositories.AuditableRepository;
 import org.example.core.repositories.TransactionRepository;
 import org.example.core.repositories.UserRepository;
+import org.example.infrostructure.AccountAggregates;
+import org.example.infrostructure.VelocityLimiter;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
 
+import java.time.Duration;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -118,4 +128,271 @@ class OperationServiceImplTest {
         verify(transactionRepository).addTransaction(any(Transaction.class));
         verify(auditableRepository).addAuditable(any(Transaction.class));
     }
+
+    @Test
+    void testDebitLimitExceeded() {
+        operationService = new OperationServiceImpl(userRepository, transactionRepository, auditableRepository,
+                new VelocityLimiter(1, 1_000, Duration.ofMinutes(1)));
+        User user = new User("username", "password", "f6", "l6", 600);
+
+        assertEquals(TransacionReturns.SUCCESS, operationService.debit(user, 100));
+        TransacionReturns result = operationService.debit(user, 100);
+
+        assertEquals(TransacionReturns.LIMIT_EXCEEDED, result);
+        assertEquals(500, user.getBalance(), 0.01f);
+        verify(userRepository, Mockito.times(1)).updateUser(user);
+        ArgumentCaptor<Transaction> captor = ArgumentCaptor.forClass(Transaction.class);
+        verify(transactionRepository, Mockito.times(2)).addTransaction(captor.capture());
+        assertEquals(AuditableStatus.DECLINE, captor.getAllValues().get(1).getStatus());
+        assertEquals(TransactionType.DEBIT, captor.getAllValues().get(1).getType());
+        verify(auditableRepository, Mockito.times(2)).addAuditable(any(Transaction.class));
+        assertEquals(1, operationService.summary(user, SummaryPeriod.DAY, LocalDate.now()).getDeclinedCount());
+    }
+
+    @Test
+    void testCreditWithOperationIdSuccess() {
+        User user = new User("username", "password", "f7", "l7", 100);
+        long operationId = 7;
+        when(transactionRepository.isTransactionIdUnique(operationId)).thenReturn(true);
+
+        TransacionReturns result = operationService.credit(user, 50, operationId);
+
+        assertEquals(TransacionReturns.SUCCESS, result);
+        verify(transactionRepository).addTransaction(any(Transaction.class), Mockito.eq(operationId));
+        assertEquals(150, user.getBalance(), 0.01f);
+    }
+
+    @Test
+    void testOperationIdReleasedOnFailure() {
+        User user = new User("username", "password", "f7", "l7", 100);
+        long operationId = 9;
+        when(transactionRepository.isTransactionIdUnique(operationId)).thenReturn(true);
+        Mockito.doThrow(new IllegalStateException("Transaction was not saved."))
+                .when(transactionRepository).addTransaction(any(Transaction.class), Mockito.eq(operationId));
+
+        assertThrows(IllegalStateException.class, () -> operationService.debit(user, 50, operationId));
+        verify(transactionRepository).releaseTransactionId(operationId);
+    }
+
+    @Test
+    void testBalanceUnchangedWhenTransactionFails() {
+        User user = new User(1, "username", "password", "f7", "l7", 100);
+        User stored = new User(1, "username", "password", "f7", "l7", 100);
+        when(userRepository.findById(1)).thenReturn(stored);
+        Mockito.doThrow(new IllegalStateException("Transaction was not saved."))
+                .when(transactionRepository).addTransaction(any(Transaction.class));
+
+        assertThrows(IllegalStateException.class, () -> operationService.credit(user, 50));
+        assertThrows(IllegalStateException.class, () -> operationService.debit(user, 50));
+
+        assertEquals(100, stored.getBalance(), 0.01f);
+        assertEquals(100, user.getBalance(), 0.01f);
+        verify(userRepository, Mockito.never()).updateUser(any(User.class));
+    }
+
+    @Test
+    void testDebitWithDuplicateOperationId() {
+        User user = new User("username", "password", "f8", "l8", 100);
+        long operationId = 8;
+        when(transactionRepository.isTransactionIdUnique(operationId)).thenReturn(false);
+
+        TransacionReturns result = operationService.debit(user, 50, operationId);
+
+        assertEquals(TransacionReturns.UNUNIQUE_ID, result);
+        verify(userRepository, Mockito.never()).updateUser(user);
+        verify(transactionRepository, Mockito.never()).addTransaction(any(Transaction.class));
+        assertEquals(100, user.getBalance(), 0.01f);
+    }
+
+    @Test
+    void testHistoryBetween() {
+        User user = new User("username", "password", "f9", "l9", 500);
+        LocalDateTime from = LocalDateTime.now().minusDays(30);
+        LocalDateTime to = LocalDateTime.now();
+        when(transactionRepository.findByUserIdBetween(user.getId(), from, to)).thenReturn(List.of(
+                new Transaction(1, user.getId(), to.minusDays(1), TransactionType.CREDIT, AuditableStatus.SUCCESS, 100)
+        ));
+
+        List<Transaction> result = operationService.history(user, from, to);
+
+        assertEquals(1, result.size());
+        verify(transactionRepository).findByUserIdBetween(user.getId(), from, to);
+        verify(transactionRepository, Mockito.never()).findAllByUserId(user.getId());
+    }
+
+    @Test
+    void testApplyBatch() {
+        User first = new User(1, "first", "password", "f10", "l10", 100);
+        User second = new User(2, "second", "password", "f11", "l11", 10);
+        when(userRepository.findById(1)).thenReturn(first);
+        when(userRepository.findById(2)).thenReturn(second);
+        when(transactionRepository.isTransactionIdUnique(11)).thenReturn(true, false);
+
+        List<TransacionReturns> result = operationService.applyBatch(List.of(
+                Operation.debit(1, 60),
+                Operation.debit(1, 60),
+                Operation.credit(2, 5, 11),
+                Operation.credit(2, 5, 11),
+                Operation.debit(2, 15)
+        ));
+
+        assertEquals(List.of(TransacionReturns.SUCCESS, TransacionReturns.NOT_ENOUGH_MONEY,
+                TransacionReturns.SUCCESS, TransacionReturns.UNUNIQUE_ID, TransacionReturns.SUCCESS), result);
+        assertEquals(40, first.getBalance(), 0.01f);
+        assertEquals(0, second.getBalance(), 0.01f);
+        verify(userRepository).updateUser(first);
+        verify(userRepository).updateUser(second);
+        verify(transactionRepository, Mockito.times(3)).addTransaction(any(Transaction.class));
+        verify(transactionRepository).addTransaction(any(Transaction.class), Mockito.eq(11L));
+        verify(auditableRepository, Mockito.times(4)).addAuditable(any(Transaction.class));
+    }
+
+    @Test
+    void testApplyBatchWithUnknownUser() {
+        User user = new User(2, "username", "password", "f11", "l11", 0);
+        when(userRepository.findById(1)).thenReturn(null);
+        when(userRepository.findById(2)).thenReturn(user);
+
+        List<TransacionReturns> results = operationService.applyBatch(List.of(
+                Operation.credit(1, 10, 12),
+                Operation.credit(2, 10)));
+
+        assertEquals(List.of(TransacionReturns.USER_NOT_FOUND, TransacionReturns.SUCCESS), results);
+        assertEquals(10, user.getBalance(), 0.01f);
+        verify(transactionRepository, Mockito.never()).isTransactionIdUnique(12);
+        verify(transactionRepository).addTransaction(any(Transaction.class));
+    }
+
+    @Test
+    void testApplyBatchReleasesOperationIdsOnFailure() {
+        User user = new User(1, "username", "password", "f12", "l12", 0);
+        when(userRepository.findById(1)).thenReturn(user);
+        when(transactionRepository.isTransactionIdUnique(Mockito.anyLong())).thenReturn(true);
+        Mockito.doThrow(new IllegalStateException("Transaction was not saved."))
+                .when(transactionRepository).addTransaction(any(Transaction.class), Mockito.eq(14L));
+
+        assertThrows(IllegalStateException.class, () -> operationService.applyBatch(List.of(
+                Operation.credit(1, 10, 13),
+                Operation.credit(1, 10, 14),
+                Operation.credit(1, 10, 15))));
+        verify(transactionRepository, Mockito.never()).releaseTransactionId(13);
+        verify(transactionRepository).releaseTransactionId(14);
+        verify(transactionRepository).releaseTransactionId(15);
+    }
+
+    @Test
+    void testApplyBatchKeepsBalanceOfSavedTransactionsOnFailure() {
+        operationService = new OperationServiceImpl(userRepository, transactionRepository, auditableRepository,
+                new VelocityLimiter(2, 1_000, Duration.ofMinutes(1)));
+        User user = new User(1, "username", "password", "f12", "l12", 100);
+        when(userRepository.findById(1)).thenReturn(user);
+        when(transactionRepository.isTransactionIdUnique(Mockito.anyLong())).thenReturn(true);
+        Mockito.doThrow(new IllegalStateException("Transaction was not saved."))
+                .when(transactionRepository).addTransaction(any(Transaction.class), Mockito.eq(17L));
+
+        assertThrows(IllegalStateException.class, () -> operationService.applyBatch(List.of(
+                Operation.debit(1, 10, 16),
+                Operation.debit(1, 10, 17))));
+
+        assertEquals(90, user.getBalance(), 0.01f);
+        verify(userRepository).updateUser(user);
+        assertEquals(TransacionReturns.SUCCESS, operationService.debit(user, 10));
+        assertEquals(TransacionReturns.LIMIT_EXCEEDED, operationService.debit(user, 10));
+    }
+
+    @Test
+    void testTransfer() {
+        User from = new User(1, "from", "password", "f12", "l12", 100);
+        User to = new User(2, "to", "password", "f13", "l13", 10);
+        when(userRepository.findById(1)).thenReturn(from);
+        when(userRepository.findById(2)).thenReturn(to);
+
+        assertEquals(TransacionReturns.SUCCESS, operationService.transfer(from, to, 60));
+        assertEquals(TransacionReturns.NOT_ENOUGH_MONEY, operationService.transfer(from, to, 60));
+
+        assertEquals(40, from.getBalance(), 0.01f);
+        assertEquals(70, to.getBalance(), 0.01f);
+        verify(userRepository).updateUser(from);
+        verify(userRepository).updateUser(to);
+        ArgumentCaptor<Transaction> captor = ArgumentCaptor.forClass(Transaction.class);
+        verify(transactionRepository, Mockito.times(3)).addTransaction(captor.capture());
+        assertEquals(2L, captor.getAllValues().get(0).getCounterpartyId());
+        assertEquals(1L, captor.getAllValues().get(1).getCounterpartyId());
+        assertEquals(2L, captor.getAllValues().get(2).getCounterpartyId());
+        verify(auditableRepository, Mockito.times(3)).addAuditable(any(Transaction.class));
+    }
+
+    @Test
+    void testTransferBalancesUnchangedWhenTransactionFails() {
+        User from = new User(1, "from", "password", "f12", "l12", 100);
+        User to = new User(2, "to", "password", "f13", "l13", 10);
+        when(userRepository.findById(1)).thenReturn(from);
+        when(userRepository.findById(2)).thenReturn(to);
+        Mockito.doNothing()
+                .doThrow(new IllegalStateException("Transaction was not saved."))
+                .when(transactionRepository).addTransaction(any(Transaction.class));
+
+        assertThrows(IllegalStateException.class, () -> operationService.transfer(from, to, 60));
+
+        assertEquals(100, from.getBalance(), 0.01f);
+        assertEquals(10, to.getBalance(), 0.01f);
+        verify(userRepository, Mockito.never()).updateUser(any(User.class));
+    }
+
+    @Test
+    void testTransferToSameAccount() {
+        User user = new User(1, "username", "password", "f14", "l14", 100);
+
+        assertThrows(IllegalArgumentException.class, () -> operationService.transfer(user, user, 10));
+        verify(userRepository, Mockito.never()).updateUser(any(User.class));
+    }
+
+    @Test
+    void testSummary() {
+        User from = new User(1, "from", "password", "f12", "l12", 100);
+        User to = new User(2, "to", "password", "f13", "l13", 10);
+        when(userRepository.findById(1)).thenReturn(from);
+        when(userRepository.findById(2)).thenReturn(to);
+
+        operationService.credit(from, 50);
+        operationService.debit(from, 30);
+        operationService.debit(from, 500);
+        operationService.transfer(from, to, 20);
+
+        LocalDate today = LocalDate.now();
+        AccountSummary day = operationService.summary(from, SummaryPeriod.DAY, today);
+        assertEquals(50, day.getCredited(), 0.01);
+        assertEquals(50, day.getDebited(), 0.01);
+        assertEquals(1, day.getCreditCount());
+        assertEquals(2, day.getDebitCount());
+        assertEquals(1, day.getDeclinedCount());
+        assertNotNull(day.getLastActivity());
+
+        AccountSummary month = operationService.summary(to, SummaryPeriod.MONTH, today);
+        assertEquals(today.withDayOfMonth(1), month.getPeriodStart());
+        assertEquals(20, month.getCredited(), 0.01);
+        assertEquals(1, month.getCreditCount());
+
+        AccountSummary yesterday = operationService.summary(from, SummaryPeriod.DAY, today.minusDays(1));
+        assertEquals(AccountSummary.empty(1, SummaryPeriod.DAY, today.minusDays(1)), yesterday);
+    }
+
+    @Test
+    void testSummaryTakenFromGivenAggregates() {
+        LocalDateTime dateTime = LocalDateTime.of(2023, 10, 15, 12, 0);
+        AccountAggregates aggregates = new AccountAggregates();
+        aggregates.record(new Transaction(1, dateTime, TransactionType.CREDIT, AuditableStatus.SUCCESS, 100));
+        aggregates.record(new Transaction(1, dateTime.plusDays(1), TransactionType.DEBIT, AuditableStatus.SUCCESS, 40));
+        OperationServiceImpl restored = new OperationServiceImpl(userRepository, transactionRepository, auditableRepository,
+                VelocityLimiter.unlimited(), aggregates);
+        User user = new User(1, "username", "password", "f1", "l1", 60);
+
+        AccountSummary month = restored.summary(user, SummaryPeriod.MONTH, dateTime.toLocalDate());
+        assertEquals(100, month.getCredited(), 0.01);
+        assertEquals(40, month.getDebited(), 0.01);
+        assertEquals(dateTime.plusDays(1), month.getLastActivity());
+        assertEquals(0, restored.summary(user, SummaryPeriod.DAY, dateTime.toLocalDate()).getDebitCount());
+        // журнал транзакций при создании сервиса не перечитывается
+        verify(transactionRepository, Mockito.never()).getAll();
+    }
 }
@@ -0,0 +1,294 @@
+package org.example.infrostructure.services;
+
+import liquibase.Liquibase;
+import liquibase.database.Database;
+import liquibase.database.DatabaseFactory;
+import liquibase.database.jvm.JdbcConnection;
+import liquibase.exception.LiquibaseException;
+import liquibase.resource.ClassLoaderResourceAccessor;
+import org.example.core.models.AccountSummary;
+import org.example.core.models.Operation;
+import org.example.core.models.User;
+import org.example.core.models.enums.AuditableStatus;
+import org.example.core.models.enums.SummaryPeriod;
+import org.example.core.models.enums.TransacionReturns;
+import org.example.infrostructure.IdempotencyRegistry;
+import org.example.infrostructure.VelocityLimiter;
+import org.example.infrostructure.jdbc.ConnectionPool;
+import org.example.infrostructure.jdbc.ConnectionPoolSettings;
+import org.example.infrostructure.repositoryies.postgres.AuditableRepositoryPostgresImpl;
+import org.example.infrostructure.repositoryies.postgres.TransactionRepositoryPostgresImpl;
+import org.example.infrostructure.repositoryies.postgres.UserRepositoryPostgresImpl;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.containers.wait.strategy.Wait;
+import org.testcontainers.utility.DockerImageName;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.AssertionsForInterfaceTypes.assertThat;
+
+public class OperationServicePostgresImplTest {
+
+    @ClassRule
+    public static PostgreSQLContainer<?> postgresContainer = new PostgreSQLContainer<>(DockerImageName.parse("postgres:latest"))
+            .withDatabaseName("test")
+            .withUsername("test")
+            .withPassword("test")
+            .waitingFor(Wait.forListeningPort());
+
+    private ConnectionPool connectionPool;
+    private UserRepositoryPostgresImpl userRepository;
+    private TransactionRepositoryPostgresImpl transactionRepository;
+    private AuditableRepositoryPostgresImpl auditableRepository;
+    private OperationServicePostgresImpl operationService;
+
+    @Before
+    public void setUp() throws SQLException, LiquibaseException {
+        try (Connection connection = DriverManager.getConnection(
+                postgresContainer.getJdbcUrl(),
+                postgresContainer.getUsername(),
+                postgresContainer.getPassword()
+        )) {
+            Database database = DatabaseFactory.getInstance().findCorrectDatabaseImplementation(new JdbcConnection(connection));
+            Liquibase liquibase = new Liquibase("db/changelog/changelog.xml", new ClassLoaderResourceAccessor(), database);
+            liquibase.update();
+        }
+
+        connectionPool = new ConnectionPool(new ConnectionPoolSettings(
+                postgresContainer.getJdbcUrl(),
+                postgresContainer.getUsername(),
+                postgresContainer.getPassword(),
+                1, 8, 30_000, 2, 500, 0
+        ));
+        userRepository = new UserRepositoryPostgresImpl(connectionPool);
+        transactionRepository = new TransactionRepositoryPostgresImpl(connectionPool);
+        auditableRepository = new AuditableRepositoryPostgresImpl(connectionPool);
+        operationService = new OperationServicePostgresImpl(connectionPool, transactionRepository, auditableRepository);
+    }
+
+    @After
+    public void tearDown() {
+        connectionPool.close();
+    }
+
+    private User addUser(String username, float balance) {
+        User user = new User(username, "password", "Ivan", "Ivanov", balance);
+        userRepository.addUser(user);
+        return user;
+    }
+
+    @Test
+    public void testCreditAndDebitUpdateBalanceAndWriteRecords() {
+        User user = addUser("operations-user", 100);
+
+        assertThat(operationService.credit(user, 50)).isEqualTo(TransacionReturns.SUCCESS);
+        assertThat(user.getBalance()).isEqualTo(150);
+        assertThat(operationService.debit(user, 30)).isEqualTo(TransacionReturns.SUCCESS);
+        assertThat(user.getBalance()).isEqualTo(120);
+
+        assertThat(userRepository.findById(user.getId()).getBalance()).isEqualTo(120);
+        assertThat(transactionRepository.findAllByUserId(user.getId())).hasSize(2);
+        assertThat(auditableRepository.findAllByUserId(user.getId())).hasSize(2);
+    }
+
+    @Test
+    public void testDebitWithoutEnoughMoneyIsDeclined() {
+        User user = addUser("poor-user", 10);
+
+        assertThat(operationService.debit(user, 30)).isEqualTo(TransacionReturns.NOT_ENOUGH_MONEY);
+
+        assertThat(userRepository.findById(user.getId()).getBalance()).isEqualTo(10);
+        assertThat(transactionRepository.findAllByUserId(user.getId()))
+                .extracting(transaction -> transaction.getStatus())
+                .containsExactly(AuditableStatus.DECLINE);
+    }
+
+    @Test
+    public void testVelocityLimitAppliesToDebitsTransfersAndBatches() {
+        User user = addUser("limited-user", 100);
+        User other = addUser("limited-other", 0);
+        OperationServicePostgresImpl limited = new OperationServicePostgresImpl(connectionPool, transactionRepository,
+                auditableRepository, new IdempotencyRegistry(), userId -> { },
+                new VelocityLimiter(2, 1_000, Duration.ofMinutes(1)));
+
+        assertThat(limited.debit(user, 500)).isEqualTo(TransacionReturns.NOT_ENOUGH_MONEY);
+        assertThat(limited.debit(user, 10)).isEqualTo(TransacionReturns.SUCCESS);
+        assertThat(limited.transfer(user, other, 10)).isEqualTo(TransacionReturns.SUCCESS);
+        assertThat(limited.debit(user, 10)).isEqualTo(TransacionReturns.LIMIT_EXCEEDED);
+        assertThat(limited.transfer(user, other, 10)).isEqualTo(TransacionReturns.LIMIT_EXCEEDED);
+        assertThat(limited.applyBatch(List.of(Operation.debit(user.getId(), 10), Operation.credit(user.getId(), 5))))
+                .containsExactly(TransacionReturns.LIMIT_EXCEEDED, TransacionReturns.SUCCESS);
+
+        assertThat(userRepository.findById(user.getId()).getBalance()).isEqualTo(85);
+        assertThat(transactionRepository.findAllByUserId(user.getId()))
+                .filteredOn(transaction -> transaction.getStatus() == AuditableStatus.DECLINE)
+                .hasSize(4);
+    }
+
+    @Test
+    public void testRepeatedOperationIdIsRejected() {
+        User user = addUser("repeat-user", 100);
+
+        assertThat(operationService.debit(user, 10, 501)).isEqualTo(TransacionReturns.SUCCESS);
+        OperationServicePostgresImpl restarted =
+                new OperationServicePostgresImpl(connectionPool, transactionRepository, auditableRepository);
+        assertThat(restarted.debit(user, 10, 501)).isEqualTo(TransacionReturns.UNUNIQUE_ID);
+
+        assertThat(userRepository.findById(user.getId()).getBalance()).isEqualTo(90);
+    }
+
+    @Test
+    public void testOperationIdOfUnknownUserIsNotConsumed() {
+        User user = addUser("late-user", 100);
+        User unknown = new User(user.getId() + 1000, "unknown-user", "password", "Ivan", "Ivanov", 0);
+
+        assertThatThrownBy(() -> operationService.credit(unknown, 10, 502))
+                .isInstanceOf(IllegalArgumentException.class);
+        OperationServicePostgresImpl restarted =
+                new OperationServicePostgresImpl(connectionPool, transactionRepository, auditableRepository);
+        assertThat(restarted.credit(user, 10, 502)).isEqualTo(TransacionReturns.SUCCESS);
+
+        assertThat(userRepository.findById(user.getId()).getBalance()).isEqualTo(110);
+    }
+
+    @Test
+    public void testConcurrentDebitsDoNotOverdraw() throws InterruptedException {
+        User user = addUser("concurrent-user", 20);
+        AtomicInteger succeeded = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 50; i++) {
+            executor.submit(() -> {
+                User stale = new User(user.getId(), user.getUsername(), "password", "Ivan", "Ivanov", 20);
+                if (operationService.debit(stale, 1) == TransacionReturns.SUCCESS) {
+                    succeeded.incrementAndGet();
+                }
+            });
+        }
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.MINUTES);
+
+        assertThat(succeeded.get()).isEqualTo(20);
+        assertThat(userRepository.findById(user.getId()).getBalance()).isEqualTo(0);
+    }
+
+    @Test
+    public void testApplyBatch() {
+        User first = addUser("batch-first", 100);
+        User second = addUser("batch-second", 10);
+
+        List<TransacionReturns> result = operationService.applyBatch(List.of(
+                Operation.debit(first.getId(), 60),
+                Operation.debit(first.getId(), 60),
+                Operation.credit(second.getId(), 5, 601),
+                Operation.credit(second.getId(), 5, 601),
+                Operation.debit(second.getId(), 15)
+        ));
+
+        assertThat(result).containsExactly(TransacionReturns.SUCCESS, TransacionReturns.NOT_ENOUGH_MONEY,
+                TransacionReturns.SUCCESS, TransacionReturns.UNUNIQUE_ID, TransacionReturns.SUCCESS);
+        assertThat(userRepository.findById(first.getId()).getBalance()).isEqualTo(40);
+        assertThat(userRepository.findById(second.getId()).getBalance()).isEqualTo(0);
+        assertThat(transactionRepository.findAllByUserId(first.getId())).hasSize(2);
+        assertThat(auditableRepository.findAllByUserId(second.getId())).hasSize(2);
+    }
+
+    @Test
+    public void testTransfer() {
+        User from = addUser("transfer-from", 100);
+        User to = addUser("transfer-to", 10);
+
+        assertThat(operationService.transfer(from, to, 60)).isEqualTo(TransacionReturns.SUCCESS);
+        assertThat(operationService.transfer(from, to, 60)).isEqualTo(TransacionReturns.NOT_ENOUGH_MONEY);
+
+        assertThat(from.getBalance()).isEqualTo(40);
+        assertThat(to.getBalance()).isEqualTo(70);
+        assertThat(userRepository.findById(from.getId()).getBalance()).isEqualTo(40);
+        assertThat(userRepository.findById(to.getId()).getBalance()).isEqualTo(70);
+        assertThat(transactionRepository.findAllByUserId(from.getId()))
+                .extracting(transaction -> transaction.getStatus())
+                .containsExactlyInAnyOrder(AuditableStatus.SUCCESS, AuditableStatus.DECLINE);
+        assertThat(transactionRepository.findAllByUserId(from.getId()))
+                .extracting(transaction -> transaction.getCounterpartyId())
+                .containsOnly(to.getId());
+        assertThat(transactionRepository.findAllByUserId(to.getId()))
+                .extracting(transaction -> transaction.getCounterpartyId())
+                .containsExactly(from.getId());
+        assertThat(auditableRepository.findAllByUserId(to.getId())).hasSize(1);
+    }
+
+    @Test
+    public void testSummaryIsUpdatedByEveryOperation() {
+        User first = addUser("summary-first", 100);
+        User second = addUser("summary-second", 10);
+
+        operationService.credit(first, 50);
+        operationService.debit(first, 30);
+        operationService.debit(first, 500);
+        operationService.transfer(first, second, 20);
+        operationService.applyBatch(List.of(
+                Operation.credit(first.getId(), 5),
+                Operation.credit(first.getId(), 5),
+                Operation.debit(second.getId(), 100)
+        ));
+
+        LocalDate today = LocalDate.now();
+        AccountSummary day = operationService.summary(first, SummaryPeriod.DAY, today);
+        assertThat(day.getCredited()).isEqualTo(60);
+        assertThat(day.getDebited()).isEqualTo(50);
+        assertThat(day.getCreditCount()).isEqualTo(3);
+        assertThat(day.getDebitCount()).isEqualTo(2);
+        assertThat(day.getDeclinedCount()).isEqualTo(1);
+        assertThat(day.getLastActivity()).isNotNull();
+
+        AccountSummary month = operationService.summary(second, SummaryPeriod.MONTH, today);
+        assertThat(month.getPeriodStart()).isEqualTo(today.withDayOfMonth(1));
+        assertThat(month.getCredited()).isEqualTo(20);
+        assertThat(month.getDeclinedCount()).isEqualTo(1);
+
+        assertThat(operationService.summary(first, SummaryPeriod.DAY, today.minusDays(1)))
+                .isEqualTo(AccountSummary.empty(first.getId(), SummaryPeriod.DAY, today.minusDays(1)));
+    }
+
+    @Test
+    public void testOpposingTransfersDoNotDeadlock() throws InterruptedException {
+        User first = addUser("opposing-first", 1000);
+        User second = addUser("opposing-second", 1000);
+        AtomicInteger failed = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 200; i++) {
+            boolean forward = i % 2 == 0;
+            executor.submit(() -> {
+                try {
+                    // при взаимоблокировке база прерывает один из запросов с ошибкой
+                    if (forward) {
+                        operationService.transfer(first, second, 3);
+                    } else {
+                        operationService.transfer(second, first, 3);
+                    }
+                } catch (IllegalStateException e) {
+                    failed.incrementAndGet();
+                }
+            });
+        }
+        executor.shutdown();
+
+        assertThat(executor.awaitTermination(1, TimeUnit.MINUTES)).isTrue();
+        assertThat(failed.get()).isEqualTo(0);
+        assertThat(userRepository.findById(first.getId()).getBalance()
+                + userRepository.findById(second.getId()).getBalance()).isEqualTo(2000);
+    }
+}
@@ -0,0 +1,124 @@
+package org.example.infrostructure.services;
+
+import org.example.core.models.User;
+import org.example.core.models.enums.TransacionReturns;
+import org.example.core.repositories.UserRepository;
+import org.example.core.services.OperationService;
+import org.example.infrostructure.jdbc.ConnectionPool;
+import org.example.infrostructure.jdbc.ConnectionPoolSettings;
+import org.example.infrostructure.repositoryies.collections.AuditableReppositoryImpl;
+import org.example.infrostructure.repositoryies.collections.TransactionRepositoryImpl;
+import org.example.infrostructure.repositoryies.collections.UserRepositoryImpl;
+import org.example.infrostructure.repositoryies.postgres.AuditableRepositoryPostgresImpl;
+import org.example.infrostructure.repositoryies.postgres.TransactionRepositoryPostgresImpl;
+import org.example.infrostructure.repositoryies.postgres.UserRepositoryPostgresImpl;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Замер пропускной способности переводов при конкуренции за "горячие" счета.
+ * Каждый поток выполняет переводы между случайными счетами, и с вероятностью benchmark.hotShare
+ * оба счета выбираются из первых benchmark.hotAccounts счетов, поэтому встречные переводы
+ * между одними и теми же счетами происходят постоянно.
+ * По окончании проверяется, что сумма балансов не изменилась.
+ * <p>
+ * Запуск в памяти: {@code java -cp ... org.example.infrostructure.services.TransferBenchmark}.
+ * Для PostgreSql нужно передать -Dbenchmark.url, -Dbenchmark.username и -Dbenchmark.password
+ * базы, к которой уже применены миграции
+ */
+public class TransferBenchmark {
+    private static final int ACCOUNTS = Integer.getInteger("benchmark.accounts", 1_000);
+    private static final int HOT_ACCOUNTS = Integer.getInteger("benchmark.hotAccounts", 4);
+    private static final int HOT_SHARE_PERCENT = Integer.getInteger("benchmark.hotShare", 80);
+    private static final int THREADS = Integer.getInteger("benchmark.threads", 16);
+    private static final int TRANSFERS_PER_THREAD = Integer.getInteger("benchmark.transfers", 20_000);
+    private static final float INITIAL_BALANCE = 1_000;
+
+    public static void main(String[] args) throws InterruptedException, SQLException {
+        String url = System.getProperty("benchmark.url");
+        if (url == null) {
+            UserRepositoryImpl userRepository = new UserRepositoryImpl();
+            OperationService operationService = new OperationServiceImpl(
+                    userRepository, new TransactionRepositoryImpl(), new AuditableReppositoryImpl());
+            run("collections", userRepository, operationService);
+            return;
+        }
+
+        try (ConnectionPool connectionPool = new ConnectionPool(new ConnectionPoolSettings(url,
+                System.getProperty("benchmark.username", "postgres"),
+                System.getProperty("benchmark.password", ""),
+                THREADS, THREADS, 30_000, 2, 500, 0))) {
+            UserRepository userRepository = new UserRepositoryPostgresImpl(connectionPool);
+            OperationService operationService = new OperationServicePostgresImpl(connectionPool,
+                    new TransactionRepositoryPostgresImpl(connectionPool),
+                    new AuditableRepositoryPostgresImpl(connectionPool));
+            run("postgres", userRepository, operationService);
+        }
+    }
+
+    private static void run(String name, UserRepository userRepository, OperationService operationService)
+            throws InterruptedException {
+        String prefix = "transfer-benchmark-" + System.nanoTime() + "-";
+        List<User> accounts = new ArrayList<>(ACCOUNTS);
+        for (int i = 0; i < ACCOUNTS; i++) {
+            User user = new User(prefix + i, "password", "Ivan", "Ivanov", INITIAL_BALANCE);
+            userRepository.addUser(user);
+            accounts.add(user);
+        }
+
+        AtomicLong succeeded = new AtomicLong();
+        AtomicLong declined = new AtomicLong();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>(THREADS);
+        for (int t = 0; t < THREADS; t++) {
+            Thread thread = new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < TRANSFERS_PER_THREAD; i++) {
+                    int bound = random.nextInt(100) < HOT_SHARE_PERCENT ? HOT_ACCOUNTS : ACCOUNTS;
+                    int from = random.nextInt(bound);
+                    int to = random.nextInt(bound - 1);
+                    if (to >= from) {
+                        to++;
+                    }
+                    TransacionReturns result = operationService.transfer(
+                            accounts.get(from), accounts.get(to), 1 + random.nextInt(50));
+                    if (result == TransacionReturns.SUCCESS) {
+                        succeeded.incrementAndGet();
+                    } else {
+                        declined.incrementAndGet();
+                    }
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+
+        long startedAt = System.nanoTime();
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        long elapsedNanos = System.nanoTime() - startedAt;
+
+        double total = 0;
+        for (User account : accounts) {
+            total += userRepository.findById(account.getId()).getBalance();
+        }
+        long transfers = (long) THREADS * TRANSFERS_PER_THREAD;
+        System.out.printf("%s: %d transfers by %d threads, %d hot of %d accounts (%d%% hot) in %d ms, %.0f transfers/s%n",
+                name, transfers, THREADS, HOT_ACCOUNTS, ACCOUNTS, HOT_SHARE_PERCENT,
+                elapsedNanos / 1_000_000, transfers * 1e9 / elapsedNanos);
+        System.out.printf("succeeded %d, declined %d, total balance %.0f (expected %.0f)%n",
+                succeeded.get(), declined.get(), total, (double) ACCOUNTS * INITIAL_BALANCE);
+    }
+}